@@ -0,0 +1,49 @@
+package design.ore.forge.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Version comparisons as done when checking modules and downloads for updates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class VersionUtilsBenchmark
+{
+    private String current = "2.3.1";
+    private String laterPatch = "2.3.2";
+    private String earlierMinor = "2.2.9";
+    private String longerLater = "2.3.1.1";
+    private String equal = new String("2.3.1");
+
+    @Benchmark
+    public boolean laterPatch()
+    {
+        return VersionUtils.isLaterVersion(current, laterPatch);
+    }
+
+    @Benchmark
+    public boolean earlierMinor()
+    {
+        return VersionUtils.isLaterVersion(current, earlierMinor);
+    }
+
+    @Benchmark
+    public boolean longerLater()
+    {
+        return VersionUtils.isLaterVersion(current, longerLater);
+    }
+
+    @Benchmark
+    public boolean equal()
+    {
+        return VersionUtils.isLaterVersion(current, equal);
+    }
+}
@@ -0,0 +1,75 @@
+package design.ore.forge.api.authentication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Role and permission checks, run for users with few roles and for
+ * administrators holding many. Each hit is found in the last role, so the
+ * checks scan every role like a miss does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ForgeUserInfoBenchmark
+{
+    @Param({ "1", "5", "25" })
+    private int roleCount;
+
+    @Param({ "10" })
+    private int permissionsPerRole;
+
+    private ForgeUserInfo user;
+    private String lastRole, lastPermission;
+
+    @Setup
+    public void setup()
+    {
+        List<ForgeRoleInfo> roles = new ArrayList<>();
+        for (int r = 0; r < roleCount; r++)
+        {
+            List<String> permissions = new ArrayList<>();
+            for (int p = 0; p < permissionsPerRole; p++) permissions.add("module.role" + r + ".permission" + p);
+            roles.add(new ForgeRoleInfo(r, "Role " + r, permissions));
+        }
+        user = new ForgeUserInfo(1, "user@ore.design", "Forge", "User", null, roles);
+
+        // Different instances than the stored ones, as request code would pass them
+        lastRole = new String("ROLE " + (roleCount - 1));
+        lastPermission = new String("module.role" + (roleCount - 1) + ".permission" + (permissionsPerRole - 1));
+    }
+
+    @Benchmark
+    public boolean hasRoleHit()
+    {
+        return user.hasRole(lastRole);
+    }
+
+    @Benchmark
+    public boolean hasRoleMiss()
+    {
+        return user.hasRole("Missing Role");
+    }
+
+    @Benchmark
+    public boolean hasPermissionHit()
+    {
+        return user.hasPermission(lastPermission);
+    }
+
+    @Benchmark
+    public boolean hasPermissionMiss()
+    {
+        return user.hasPermission("module.missing.permission");
+    }
+}
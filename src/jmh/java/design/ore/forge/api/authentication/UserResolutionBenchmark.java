@@ -0,0 +1,82 @@
+package design.ore.forge.api.authentication;
+
+import design.ore.forge.api.metrics.ModuleMetricsRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.MethodParameter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolution of the current user, through {@link ModuleUser} parameters with
+ * and without metrics and through {@link ForgeUserUtils}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class UserResolutionBenchmark
+{
+    private final ModuleUserArgumentResolver resolver = new ModuleUserArgumentResolver();
+    private final ModuleUserArgumentResolver meteredResolver = new ModuleUserArgumentResolver(new ModuleMetricsRegistry("benchmark"));
+
+    private MethodParameter parameter;
+    private MockHttpServletRequest authenticatedRequest, anonymousRequest;
+    private ServletWebRequest authenticated, anonymous;
+
+    @Setup
+    public void setup() throws NoSuchMethodException
+    {
+        parameter = new MethodParameter(UserResolutionBenchmark.class.getDeclaredMethod("handler", Optional.class), 0);
+
+        ForgeUserInfo user = new ForgeUserInfo(1, "user@ore.design", "Forge", "User", null,
+            List.of(new ForgeRoleInfo(1, "User", List.of("module.read"))));
+        authenticatedRequest = new MockHttpServletRequest("GET", "/module/reports");
+        authenticatedRequest.setAttribute(ForgeUserUtils.FORGE_USER_ATTRIBUTE, user);
+        anonymousRequest = new MockHttpServletRequest("GET", "/module/reports");
+
+        authenticated = new ServletWebRequest(authenticatedRequest);
+        anonymous = new ServletWebRequest(anonymousRequest);
+    }
+
+    @SuppressWarnings("unused")
+    private void handler(@ModuleUser Optional<ForgeUserInfo> user) { }
+
+    @Benchmark
+    public Object resolveArgument()
+    {
+        return resolver.resolveArgument(parameter, null, authenticated, null);
+    }
+
+    @Benchmark
+    public Object resolveArgumentAnonymous()
+    {
+        return resolver.resolveArgument(parameter, null, anonymous, null);
+    }
+
+    @Benchmark
+    public Object resolveArgumentMetered()
+    {
+        return meteredResolver.resolveArgument(parameter, null, authenticated, null);
+    }
+
+    @Benchmark
+    public Optional<ForgeUserInfo> getCurrentUser()
+    {
+        return ForgeUserUtils.getCurrentUser(authenticatedRequest);
+    }
+
+    @Benchmark
+    public Optional<ForgeUserInfo> getCurrentUserAnonymous()
+    {
+        return ForgeUserUtils.getCurrentUser(anonymousRequest);
+    }
+}
@@ -0,0 +1,167 @@
+package design.ore.forge.api.jpa;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.registry.BootstrapServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Committing a change to one entity of a session holding many, with the
+ * entity class as compiled and as enhanced by {@link EntityEnhancer}. Without
+ * enhancement, the flush compares every attribute of every managed entity
+ * with its snapshot; enhanced entities record what was set, so the flush
+ * only visits the changed one. The setup checks that the loaded rows are
+ * the variant the trial asks for.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class EntityFlushBenchmark
+{
+    private static final String ROW_CLASS = FlushedRow.class.getName();
+
+    @Param({ "false", "true" })
+    private boolean enhanced;
+
+    @Param({ "1000", "10000" })
+    private int managed;
+
+    private DriverManagerDataSource dataSource;
+    private SessionFactory sessionFactory;
+    private EntityManager entityManager;
+    private List<Row> rows;
+    private int next;
+
+    public interface Row
+    {
+        void touch(int value);
+    }
+
+    /**
+     * Defines {@link FlushedRow} itself, enhanced or as compiled, so both
+     * variants run in the same JVM. The row is a top-level class, since a
+     * nested class defined by another loader disagrees with its outer class.
+     */
+    private static final class RowClassLoader extends ClassLoader
+    {
+        private final boolean enhanced;
+
+        RowClassLoader(ClassLoader parent, boolean enhanced)
+        {
+            super(parent);
+            this.enhanced = enhanced;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException
+        {
+            if (!name.equals(ROW_CLASS)) return super.loadClass(name, resolve);
+            synchronized (getClassLoadingLock(name))
+            {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded != null) return loaded;
+
+                byte[] bytes = read(name);
+                if (enhanced)
+                {
+                    byte[] result = new EntityEnhancer(this).enhance(name, bytes);
+                    if (result == null) throw new IllegalStateException(name + " was not enhanced");
+                    bytes = result;
+                }
+                return defineClass(name, bytes, 0, bytes.length);
+            }
+        }
+
+        private byte[] read(String name)
+        {
+            try (InputStream input = getParent().getResourceAsStream(name.replace('.', '/') + ".class"))
+            {
+                return input.readAllBytes();
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:flush-benchmark;DB_CLOSE_DELAY=-1");
+        RowClassLoader classLoader = new RowClassLoader(getClass().getClassLoader(), enhanced);
+
+        // Hibernate loads entity classes by name, so it must see the row class loader first
+        Configuration configuration = new Configuration(new BootstrapServiceRegistryBuilder().applyClassLoader(classLoader).build())
+            .addAnnotatedClass(classLoader.loadClass(ROW_CLASS));
+        configuration.getProperties().put(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource);
+        configuration.setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop");
+        sessionFactory = configuration.buildSessionFactory();
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insert = connection.prepareStatement("insert into flushed_row (id, quantity, total, code, name, status, region, owner, weight, archived, notes)"
+                 + " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"))
+        {
+            for (int i = 0; i < managed; i++)
+            {
+                insert.setLong(1, i);
+                insert.setInt(2, i);
+                insert.setLong(3, i * 100L);
+                insert.setString(4, "C" + i);
+                insert.setString(5, "row " + i);
+                insert.setString(6, "open");
+                insert.setString(7, "eu");
+                insert.setString(8, "owner " + i % 50);
+                insert.setDouble(9, i / 3.0);
+                insert.setBoolean(10, false);
+                insert.setString(11, "notes " + i);
+                insert.addBatch();
+                if (i % 1000 == 999) insert.executeBatch();
+            }
+            insert.executeBatch();
+        }
+
+        entityManager = sessionFactory.createEntityManager();
+        rows = entityManager.createQuery("select r from FlushedRow r", Row.class).getResultList();
+
+        // Hibernate falls back to snapshot comparison silently, so measure nothing unless it tracks the enhanced class
+        boolean tracked = EntityEnhancer.findUnenhancedTypes(sessionFactory).isEmpty() && rows.get(0) instanceof SelfDirtinessTracker;
+        if (tracked != enhanced) throw new IllegalStateException("Expected " + (enhanced ? "enhanced" : "unenhanced") + " rows, loaded " + rows.get(0).getClass());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        entityManager.close();
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public void commitOneChange()
+    {
+        entityManager.getTransaction().begin();
+        rows.get(next++ % rows.size()).touch(next);
+        entityManager.getTransaction().commit();
+    }
+}
@@ -0,0 +1,38 @@
+package design.ore.forge.api.jpa;
+
+import jakarta.persistence.Basic;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+
+/**
+ * The entity of {@link EntityFlushBenchmark}, with the attributes of a typical module entity.
+ */
+@Entity(name = "FlushedRow")
+@Table(name = "flushed_row")
+public class FlushedRow implements EntityFlushBenchmark.Row
+{
+    @Id
+    private Long id;
+    private int quantity;
+    private long total;
+    private String code;
+    private String name;
+    private String status;
+    private String region;
+    private String owner;
+    private double weight;
+    private boolean archived;
+
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    private String notes;
+
+    @Override
+    public void touch(int value)
+    {
+        quantity = value;
+    }
+}
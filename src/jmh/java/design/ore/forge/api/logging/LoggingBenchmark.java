@@ -0,0 +1,88 @@
+package design.ore.forge.api.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.FileAppender;
+import design.ore.forge.api.enums.DiscardPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A simulated request that does some work and logs three events to a file,
+ * with the file appender called synchronously and through a
+ * {@link RingBufferAppender}. Run in throughput and sample mode, the latter
+ * reporting the latency percentiles of a request. The ring buffer blocks
+ * when full instead of dropping events, so both modes write every event.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+@State(Scope.Benchmark)
+public class LoggingBenchmark
+{
+    @Param({ "SYNC", "ASYNC" })
+    private String mode;
+
+    private LoggerContext context;
+    private ModuleLog log;
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        file = Files.createTempFile("forge-logging-benchmark", ".log");
+        context = new LoggerContext();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{ISO8601} [%thread] %-5level %logger - %msg %kvp%n");
+        encoder.start();
+
+        FileAppender<ILoggingEvent> appender = new FileAppender<>();
+        appender.setContext(context);
+        appender.setName("FILE");
+        appender.setFile(file.toString());
+        appender.setEncoder(encoder);
+        appender.start();
+
+        Logger logger = context.getLogger("reports");
+        logger.setLevel(ch.qos.logback.classic.Level.INFO);
+        logger.addAppender(appender);
+        logger.setAdditive(false);
+        if (mode.equals("ASYNC")) RingBufferAppender.install(logger, RingBufferAppender.DEFAULT_CAPACITY, DiscardPolicy.BLOCK);
+
+        log = new ModuleLog(logger);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        context.stop();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void request()
+    {
+        log.atInfo().addKeyValue("path", "/reports/42").log("Request started");
+        Blackhole.consumeCPU(2_000);
+        log.atDebug().addKeyValue("rows", 120).log("Query executed");
+        log.atInfo().addKeyValue("status", 200).addKeyValue("rows", 120).log("Request completed");
+    }
+}
@@ -0,0 +1,44 @@
+package design.ore.forge.api.metrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording into shared metrics from several threads at once, as request
+ * threads of a module do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MetricsBenchmark
+{
+    private final ModuleMetricsRegistry registry = new ModuleMetricsRegistry("benchmark");
+    private final Counter counter = registry.counter("benchmark_requests");
+    private final Timer timer = registry.timer("benchmark_request");
+
+    @Benchmark
+    public void counterIncrement()
+    {
+        counter.increment();
+    }
+
+    @Benchmark
+    public void timerRecord()
+    {
+        timer.record(1_234_567);
+    }
+
+    @Benchmark
+    public Counter counterLookup()
+    {
+        return registry.counter("benchmark_lookups", "result", "hit");
+    }
+}
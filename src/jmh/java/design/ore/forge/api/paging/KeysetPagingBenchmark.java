@@ -0,0 +1,158 @@
+package design.ore.forge.api.paging;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.persistenceunit.PersistenceManagedTypes;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a page at increasing depths of an indexed table, by offset and by
+ * keyset. Offset pages get slower the deeper they are, since the database
+ * reads and discards every row before the page; keyset pages seek to it
+ * through the index and take the same time at any depth. The setup checks
+ * that the database plans the keyset query as a seek on the index.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class KeysetPagingBenchmark
+{
+    private static final int ROW_COUNT = 200_000;
+    private static final int PAGE_SIZE = 50;
+    private static final Sort SORT = Sort.by(Sort.Order.asc("score"));
+
+    @Param({ "0", "10000", "190000" })
+    private int depth;
+
+    private DriverManagerDataSource dataSource;
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+    private EntityManager entityManager;
+    private KeysetJpaRepository<PagedRow, Long> repository;
+    private KeysetCursor cursor;
+    private volatile String keysetSql;
+
+    @Entity(name = "PagedRow")
+    @Table(name = "paged_row", indexes = @Index(columnList = "score, id"))
+    public static class PagedRow
+    {
+        @Id
+        private Long id;
+        private int score;
+        private String label;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException
+    {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:keyset-benchmark;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE");
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setManagedTypes(PersistenceManagedTypes.of(PagedRow.class.getName()));
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(Map.of(
+            "hibernate.hbm2ddl.auto", "create-drop",
+            "hibernate.session_factory.statement_inspector", (StatementInspector) sql -> {
+                if (sql.contains(")>(")) keysetSql = sql;
+                return sql;
+            }));
+        factoryBean.afterPropertiesSet();
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insert = connection.prepareStatement("insert into paged_row (id, score, label) values (?, ?, ?)"))
+        {
+            for (int i = 0; i < ROW_COUNT; i++)
+            {
+                insert.setLong(1, i);
+                insert.setInt(2, i % 1000);
+                insert.setString(3, "row " + i);
+                insert.addBatch();
+                if (i % 1000 == 999) insert.executeBatch();
+            }
+        }
+
+        EntityManagerFactory entityManagerFactory = factoryBean.getObject();
+        entityManager = entityManagerFactory.createEntityManager();
+        repository = new KeysetJpaRepository<>(JpaEntityInformationSupport.getEntityInformation(PagedRow.class, entityManager), entityManager);
+
+        // The cursor a client would have after paging to the depth
+        cursor = KeysetCursor.first();
+        if (depth > 0)
+        {
+            PagedRow last = entityManager.createQuery("select r from PagedRow r order by r.score, r.id", PagedRow.class)
+                .setFirstResult(depth - 1).setMaxResults(1).getSingleResult();
+            cursor = KeysetCursor.after(List.of(last.score, last.id));
+            checkKeysetPlan(last);
+        }
+    }
+
+    private void checkKeysetPlan(PagedRow last) throws SQLException
+    {
+        repository.findPage(SORT, cursor, PAGE_SIZE);
+        if (keysetSql == null) throw new IllegalStateException("Keyset query was not rendered as a row value comparison");
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement explain = connection.prepareStatement("explain " + keysetSql))
+        {
+            explain.setInt(1, last.score);
+            explain.setLong(2, last.id);
+            explain.setInt(3, PAGE_SIZE + 1);
+            try (ResultSet plan = explain.executeQuery())
+            {
+                plan.next();
+                String text = plan.getString(1);
+                // A seek shows as an index condition on the leading column, and no sort step after it
+                if (!text.contains("SCORE >= ?1") || !text.contains("/* index sorted */"))
+                    throw new IllegalStateException("Keyset query does not seek the (score, id) index:\n" + text);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        entityManager.close();
+        factoryBean.destroy();
+    }
+
+    @Benchmark
+    public List<PagedRow> offset()
+    {
+        entityManager.clear();
+        return entityManager.createQuery("select r from PagedRow r order by r.score, r.id", PagedRow.class)
+            .setFirstResult(depth).setMaxResults(PAGE_SIZE).getResultList();
+    }
+
+    @Benchmark
+    public KeysetPage<PagedRow> keyset()
+    {
+        entityManager.clear();
+        return repository.findPage(SORT, cursor, PAGE_SIZE);
+    }
+}
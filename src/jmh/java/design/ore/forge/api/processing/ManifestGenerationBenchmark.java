@@ -0,0 +1,94 @@
+package design.ore.forge.api.processing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Manifest generation for a module with static registrations, run as an
+ * annotation-processing-only compilation like in a module's build. Includes
+ * the compiler's own overhead, which dominates for small modules.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ManifestGenerationBenchmark
+{
+    private static final String MODULE_SOURCE = """
+        package reports;
+
+        import design.ore.forge.api.annotations.ForgeApplet;
+        import design.ore.forge.api.annotations.ForgeLink;
+        import design.ore.forge.api.annotations.ForgeModule;
+        import design.ore.forge.api.enums.ActivationMode;
+        import design.ore.forge.api.interfaces.IForgeModule;
+        import design.ore.forge.api.interfaces.IModuleContext;
+
+        @ForgeModule(value = "reports", name = "Reports", version = "1.4.2", rootPackage = "reports",
+            dependencies = "accounts", activation = ActivationMode.LAZY, urlPrefixes = "/reports")
+        @ForgeApplet(name = "Reports", targetUrl = "/reports", logoResourcePath = "/static/logo.png")
+        @ForgeApplet(name = "Schedules", targetUrl = "/reports/schedules")
+        @ForgeLink(name = "Documentation", targetUrl = "https://c.ore.design/docs/reports")
+        public class ReportsModule implements IForgeModule
+        {
+            @Override
+            public void initialize(IModuleContext context) { }
+        }
+        """;
+
+    private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    private StandardJavaFileManager fileManager;
+    private Path directory, output;
+    private Iterable<? extends JavaFileObject> sources;
+    private List<String> options;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        directory = Files.createTempDirectory("forge-manifest-benchmark");
+        Path source = directory.resolve("src/reports/ReportsModule.java");
+        Files.createDirectories(source.getParent());
+        Files.writeString(source, MODULE_SOURCE);
+        output = Files.createDirectories(directory.resolve("out"));
+
+        fileManager = compiler.getStandardFileManager(null, null, null);
+        sources = fileManager.getJavaFileObjects(source);
+        options = List.of("-proc:only", "-d", output.toString(), "-cp", System.getProperty("java.class.path"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        fileManager.close();
+        try (Stream<Path> paths = Files.walk(directory))
+        {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public boolean generateManifest()
+    {
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null, sources);
+        task.setProcessors(List.of(new ForgeModuleProcessor()));
+        if (!task.call()) throw new IllegalStateException("Manifest generation failed");
+        return Files.exists(output.resolve(ForgeModuleProcessor.OUTPUT_FILE));
+    }
+}
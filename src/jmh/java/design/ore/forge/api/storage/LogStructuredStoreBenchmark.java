@@ -0,0 +1,118 @@
+package design.ore.forge.api.storage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Point reads and writes of the module store, and reopening it, which
+ * rebuilds the index from the segments on disk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class LogStructuredStoreBenchmark
+{
+    @Param({ "100000", "1000000" })
+    private int keyCount;
+
+    @Param({ "256" })
+    private int valueSize;
+
+    private Path directory;
+    private LogStructuredStore store;
+    private String[] keys;
+    private byte[] value;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException
+    {
+        directory = Files.createTempDirectory("forge-store-benchmark");
+        store = LogStructuredStore.open(directory, StoreOptions.DEFAULT);
+
+        value = new byte[valueSize];
+        ThreadLocalRandom.current().nextBytes(value);
+        keys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++)
+        {
+            keys[i] = String.format("user:%08d", i);
+            store.put(keys[i], value);
+        }
+        store.sync();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        store.close();
+        delete(directory);
+    }
+
+    @Benchmark
+    public byte[] get()
+    {
+        return store.get(keys[ThreadLocalRandom.current().nextInt(keyCount)]);
+    }
+
+    @Benchmark
+    public void put()
+    {
+        store.put(keys[ThreadLocalRandom.current().nextInt(keyCount)], value);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long reopen(ClosedStore closed) throws IOException
+    {
+        try (LogStructuredStore reopened = LogStructuredStore.open(closed.directory, StoreOptions.DEFAULT))
+        {
+            return reopened.size();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ClosedStore
+    {
+        private Path directory;
+
+        @Setup(Level.Trial)
+        public void setup(LogStructuredStoreBenchmark benchmark) throws IOException
+        {
+            directory = Files.createTempDirectory("forge-store-benchmark");
+            try (LogStructuredStore store = LogStructuredStore.open(directory, StoreOptions.DEFAULT))
+            {
+                for (String key : benchmark.keys) store.put(key, benchmark.value);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException
+        {
+            delete(directory);
+        }
+    }
+
+    private static void delete(Path directory) throws IOException
+    {
+        try (Stream<Path> paths = Files.walk(directory))
+        {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
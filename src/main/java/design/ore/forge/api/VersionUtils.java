@@ -1,7 +1,42 @@
 package design.ore.forge.api;
 
+import java.util.Comparator;
+
 public class VersionUtils
 {
+    /**
+     * Orders version strings from earliest to latest, as {@link #compare} does.
+     *
+     * @since 0.4.0
+     */
+    public static final Comparator<String> ORDER = VersionUtils::compare;
+
+    /**
+     * Compares two version strings segment by segment, treating missing
+     * segments as zero, so "2.3" and "2.3.0" are equal.
+     *
+     * @param first  the first version string (e.g. "2.3")
+     * @param second the second version string (e.g. "2.3.1")
+     * @return a negative number if first is earlier than second, zero if they are equal,
+     *         or a positive number if first is later
+     * @throws NumberFormatException if a segment is not a number
+     * @since 0.4.0
+     */
+    public static int compare(String first, String second)
+    {
+        String[] firstParts = first.split("\\.");
+        String[] secondParts = second.split("\\.");
+
+        int maxLength = Math.max(firstParts.length, secondParts.length);
+        for (int i = 0; i < maxLength; i++)
+        {
+            int firstVal = (i < firstParts.length) ? Integer.parseInt(firstParts[i]) : 0;
+            int secondVal = (i < secondParts.length) ? Integer.parseInt(secondParts[i]) : 0;
+            if (firstVal != secondVal) return Integer.compare(firstVal, secondVal);
+        }
+        return 0;
+    }
+
     /**
      * Compares two version strings.
      *
@@ -13,24 +48,6 @@ public class VersionUtils
     {
         if(currentVersion == null || candidateVersion == null) return false;
         if(currentVersion.equals(candidateVersion)) return false;
-
-        String[] currentParts = currentVersion.split("\\.");
-        String[] candidateParts = candidateVersion.split("\\.");
-
-        // Max length is whichever has more segments
-        int maxLength = Math.max(currentParts.length, candidateParts.length);
-
-        for (int i = 0; i < maxLength; i++)
-        {
-            int curVal = (i < currentParts.length) ? Integer.parseInt(currentParts[i]) : 0;
-            int candVal = (i < candidateParts.length) ? Integer.parseInt(candidateParts[i]) : 0;
-
-            if (candVal > curVal) return true;  // Candidate is later
-            else if (candVal < curVal) return false; // Candidate is earlier
-            // Otherwise keep checking
-        }
-
-        // Versions are equal
-        return false;
+        return compare(currentVersion, candidateVersion) < 0;
     }
 }
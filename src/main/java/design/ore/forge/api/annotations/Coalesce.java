@@ -0,0 +1,65 @@
+package design.ore.forge.api.annotations;
+
+import design.ore.forge.api.enums.CoalesceScope;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Lets concurrent identical requests to a {@link ForgeWeb} controller method
+ * share a single invocation.
+ * <p>
+ * While an invocation is running, further {@code GET} and {@code HEAD}
+ * requests with the same path and parameters, and within the same
+ * {@link #scope()}, wait for it and receive its result or exception instead
+ * of invoking the method again. Nothing is kept once the invocation ends, so
+ * this flattens bursts of identical requests without serving stale results.
+ * Other request methods are never coalesced.
+ * </p>
+ * <p>
+ * The shared result must not depend on anything outside the key, such as
+ * headers or cookies, and must not be modified by the caller. It is
+ * serialized on the threads of every waiting request, outside the entity
+ * manager of the request that produced it, so it must consist of immutable
+ * DTOs rather than JPA entities; methods returning entities are rejected at
+ * startup, and a result holding one fails its request. Methods that
+ * write to the response themselves, fill the request's {@code Model} or
+ * return a streaming type cannot be coalesced; a view is shared by returning
+ * a {@code ModelAndView}. Placed on a controller class, it applies to all of
+ * its handler methods.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * @GetMapping("/dashboard/totals")
+ * @Coalesce(scope = CoalesceScope.ROLES)
+ * public DashboardTotals totals(@RequestParam String period) {
+ *     return repository.aggregateTotals(period);
+ * }
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Coalesce
+{
+    /**
+     * Which requests may share an invocation besides those with the same
+     * path and parameters: requests of the same user (default), of users
+     * with the same roles, or of anyone.
+     *
+     * @return the sharing scope
+     */
+    CoalesceScope scope() default CoalesceScope.USER;
+
+    /**
+     * Maximum time a request waits for an invocation started by another
+     * request before it fails with {@code 503 Service Unavailable}. The
+     * invocation itself is not interrupted.
+     *
+     * @return the wait timeout in milliseconds
+     */
+    long timeoutMillis() default 30_000;
+}
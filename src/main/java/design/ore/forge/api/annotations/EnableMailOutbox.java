@@ -0,0 +1,73 @@
+package design.ore.forge.api.annotations;
+
+import design.ore.forge.api.config.MailOutboxConfiguration;
+import org.springframework.context.annotation.Import;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Enables a {@link design.ore.forge.api.mail.MailOutbox} for a Forge module.
+ * <p>
+ * The outbox sends through the module's {@code JavaMailSenderImpl} bean if
+ * it defines one, or else through one configured from the module's
+ * properties. Queued messages are kept in the module's store.
+ * </p>
+ *
+ * <h2>Basic Usage:</h2>
+ * <pre>{@code
+ * @ForgeModule(...)
+ * @EnableMailOutbox(workers = 4)
+ * public class MyModule implements IForgeModule { }
+ * }</pre>
+ *
+ * <h2>Properties:</h2>
+ * <pre>
+ * mail:
+ *   host: smtp.example.com      # required unless the module defines a JavaMailSenderImpl
+ *   port: 587
+ *   username: mailer
+ *   password: secret
+ *   starttls: true
+ *   timeout-ms: 10000
+ * </pre>
+ *
+ * @since 0.4.0
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Import(MailOutboxConfiguration.class)
+public @interface EnableMailOutbox
+{
+    /**
+     * @return the number of threads delivering mail, each with its own SMTP connection
+     */
+    int workers() default 2;
+
+    /**
+     * @return the maximum number of messages a worker sends in one go
+     */
+    int batchSize() default 20;
+
+    /**
+     * @return the number of messages after which a connection is replaced
+     */
+    int messagesPerConnection() default 100;
+
+    /**
+     * @return the number of delivery attempts after which a message is moved to the dead letters
+     */
+    int maxAttempts() default 10;
+
+    /**
+     * @return the delay before the second attempt in seconds, doubled for each further attempt
+     */
+    long initialBackoffSeconds() default 30;
+
+    /**
+     * @return the longest delay between attempts in seconds
+     */
+    long maxBackoffSeconds() default 3600;
+}
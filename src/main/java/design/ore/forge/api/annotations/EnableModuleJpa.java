@@ -2,6 +2,8 @@ package design.ore.forge.api.annotations;
 
 import design.ore.forge.api.config.ModuleJpaConfiguration;
 import design.ore.forge.api.config.ModuleJpaConstants;
+import design.ore.forge.api.enums.BudgetAction;
+import design.ore.forge.api.interfaces.IModuleMigration;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
@@ -16,10 +18,15 @@ import java.lang.annotation.Target;
  * This annotation configures all necessary JPA infrastructure including:
  * </p>
  * <ul>
- *   <li>DataSource configuration from module properties (jpa.url, jpa.username, jpa.password)</li>
+ *   <li>DataSource configuration from module properties (jpa.url, jpa.username, jpa.password),
+ *       on a pool shared with the modules using the same database, see {@link #maxConnections()}</li>
  *   <li>EntityManagerFactory with automatic package scanning</li>
  *   <li>JPA TransactionManager</li>
- *   <li>OpenEntityManagerInView interceptor for lazy loading</li>
+ *   <li>OpenEntityManagerInView interceptor for lazy loading, see {@link #openInView()}</li>
+ *   <li>Fetch plans loading entity graphs per handler, see {@link FetchPlan}</li>
+ *   <li>Per-request SQL budgets and N+1 query detection, see {@link SqlBudget}</li>
+ *   <li>Versioned schema migrations, see {@link #migrationLocation()}</li>
+ *   <li>Build-time bytecode enhancement of entities, see {@link #bytecodeEnhancement()}</li>
  * </ul>
  * <p>
  * For repository support, add {@code @EnableJpaRepositories} alongside this annotation.
@@ -99,6 +106,10 @@ public @interface EnableModuleJpa
      *   <li><b>validate</b>: Validate schema matches entities, don't modify</li>
      *   <li><b>none</b>: No schema management</li>
      * </ul>
+     * <p>
+     * When the module uses migrations, they manage the schema and any mode
+     * other than <b>validate</b> is replaced by <b>none</b>.
+     * </p>
      *
      * @return the DDL auto mode
      */
@@ -124,4 +135,150 @@ public @interface EnableModuleJpa
      * @return true to format SQL, false otherwise
      */
     boolean formatSql() default false;
+
+    /**
+     * Whether to keep an entity manager open for the whole request, so lazy
+     * associations can be loaded while the view renders.
+     * <p>
+     * The entity manager holds a pooled connection from its first query
+     * until the response is written, including slow template rendering and
+     * client writes. Set to false to release the connection after each
+     * repository call, and name what each handler needs with {@link FetchPlan};
+     * accessing an association that was not loaded then throws
+     * {@code LazyInitializationException}.
+     * </p>
+     *
+     * @return true to keep the entity manager open in the view
+     * @since 0.4.0
+     */
+    boolean openInView() default true;
+
+    /**
+     * Fetch size of repository methods returning a {@code Stream}.
+     * <p>
+     * Off by default, in which case the MySQL driver reads the whole result
+     * of a stream into memory. When set, streaming statements on MySQL read
+     * one row at a time, or this many rows at a time through a server-side
+     * cursor if {@code jpa.url} enables {@code useCursorFetch}; other drivers
+     * use the fetch size as is. Other statements and the connection URL are
+     * not affected.
+     * </p>
+     * <p>
+     * A MySQL stream read one row at a time occupies its connection: no other
+     * statement can run on it until the stream is read to the end or closed.
+     * The query must therefore fetch the associations the streamed entities
+     * need, and the entities must not be changed while streaming.
+     * </p>
+     *
+     * @return the streaming fetch size, or 0 to leave streaming queries to the driver
+     * @since 0.4.0
+     */
+    int streamFetchSize() default 0;
+
+    /**
+     * Number of rows read from a repository stream after which the
+     * persistence context is flushed and cleared, so entities already
+     * consumed do not accumulate in memory.
+     *
+     * @return the clear interval, or 0 to never clear
+     * @since 0.4.0
+     */
+    int streamClearInterval() default 1000;
+
+    /**
+     * Maximum number of statements a request may cause, unless its handler
+     * sets its own {@link SqlBudget}.
+     *
+     * @return the statement budget per request, or 0 for no limit
+     * @since 0.4.0
+     */
+    int maxStatementsPerRequest() default 0;
+
+    /**
+     * Number of executions of statements of the same shape within one
+     * request above which the request is logged and counted in
+     * {@code forge_sql_repeated_queries} as a likely N+1 query.
+     *
+     * @return the repeat threshold, or 0 to disable detection
+     * @since 0.4.0
+     */
+    int repeatedQueryThreshold() default 10;
+
+    /**
+     * Duration in milliseconds above which a statement is counted in
+     * {@code forge_sql_slow_queries} and listed in the slow query report.
+     *
+     * @return the slow query threshold in milliseconds
+     * @since 0.4.0
+     */
+    long slowQueryMillis() default 500;
+
+    /**
+     * What happens in debug mode when a request exceeds
+     * {@link #maxStatementsPerRequest()}; handlers with a {@link SqlBudget} use its action.
+     *
+     * @return the action of the module-wide budget
+     * @since 0.4.0
+     */
+    BudgetAction sqlBudgetAction() default BudgetAction.WARN;
+
+    /**
+     * Classpath location of the module's SQL migrations, named
+     * {@code V<version>__<description>.sql}, for example {@code db/migration}.
+     * <p>
+     * Migrations are applied once, in version order, before the entity
+     * manager factory starts, and recorded in the
+     * {@value design.ore.forge.api.migrations.ModuleMigrator#HISTORY_TABLE} table.
+     * Later starts only compare the recorded checksums, which is much faster
+     * than Hibernate's {@code update} mode comparing the whole schema.
+     * </p>
+     *
+     * @return the migration location, or empty together with no {@link #migrations()} to let {@link #ddlAuto()} manage the schema
+     * @since 0.4.0
+     */
+    String migrationLocation() default "";
+
+    /**
+     * Programmatic migrations, versioned together with the SQL migrations of
+     * {@link #migrationLocation()} and created with their no-argument constructor.
+     * Extend {@link design.ore.forge.api.migrations.BatchedMigration} to
+     * migrate large tables in the background.
+     *
+     * @return the programmatic migrations
+     * @since 0.4.0
+     */
+    Class<? extends IModuleMigration>[] migrations() default {};
+
+    /**
+     * Whether the module's build enhances its entities with
+     * {@link design.ore.forge.api.jpa.EntityEnhancer}.
+     * <p>
+     * Enhanced entities record which attributes were set, so flushing a
+     * session compares only those instead of every attribute of every
+     * managed entity, which matters for sessions loading thousands of
+     * entities. They also load {@code @Basic(fetch = FetchType.LAZY)}
+     * attributes on first access and keep both sides of bidirectional
+     * associations in sync. When set, entities that were not enhanced are
+     * logged on startup.
+     * </p>
+     *
+     * @return true if the build enhances the module's entities
+     * @since 0.4.0
+     */
+    boolean bytecodeEnhancement() default false;
+
+    /**
+     * Maximum number of connections the module holds from the pool the host
+     * shares between the modules using the same URL and username.
+     * <p>
+     * The quota keeps a busy module from taking the connections of the
+     * others. Requests beyond it wait for one of the module's connections to
+     * be closed. Ignored if the host does not share pools, see
+     * {@link design.ore.forge.api.interfaces.IModuleContext#getConnectionPools()}.
+     * </p>
+     *
+     * @return the module's connection quota, or 0 for the host's default
+     * @since 0.4.0
+     */
+    int maxConnections() default 0;
 }
@@ -0,0 +1,42 @@
+package design.ore.forge.api.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Names the entity graphs a {@link ForgeWeb} handler method needs loaded,
+ * so repository calls made while handling the request load them up front.
+ * <p>
+ * Entities returned by the module's repositories during the request have
+ * the attributes of the named graphs declared for their type, with
+ * {@link jakarta.persistence.NamedEntityGraph}, loaded before the
+ * repository's transaction ends. Combined with
+ * {@code @EnableModuleJpa(openInView = false)}, the connection is released
+ * after each repository call, and the view renders from loaded entities
+ * instead of lazily loading them. Placed on a controller class, it applies
+ * to all of its handler methods.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * @Entity
+ * @NamedEntityGraph(name = "Order.lines", attributeNodes = @NamedAttributeNode("lines"))
+ * public class Order { ... }
+ *
+ * @GetMapping("/orders/{id}")
+ * @FetchPlan("Order.lines")
+ * public String order(@PathVariable long id, Model model) { ... }
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FetchPlan
+{
+    /**
+     * @return the names of the entity graphs to load
+     */
+    String[] value();
+}
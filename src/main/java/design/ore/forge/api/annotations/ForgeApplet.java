@@ -0,0 +1,31 @@
+package design.ore.forge.api.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares an applet registration statically on a {@link ForgeModule} class.
+ * <p>
+ * Static registrations are written to the module manifest at compile time,
+ * so the launcher can show them without starting the module. This is
+ * required for {@link design.ore.forge.api.enums.ActivationMode#LAZY} modules,
+ * which are not initialized until their first request.
+ * </p>
+ *
+ * @see design.ore.forge.api.registrations.AppletRegistration
+ * @since 0.4.0
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Repeatable(ForgeApplets.class)
+public @interface ForgeApplet
+{
+    String name();
+
+    String targetUrl();
+
+    String logoResourcePath() default "";
+}
@@ -0,0 +1,18 @@
+package design.ore.forge.api.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Container for repeated {@link ForgeApplet} annotations.
+ *
+ * @since 0.4.0
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ForgeApplets
+{
+    ForgeApplet[] value();
+}
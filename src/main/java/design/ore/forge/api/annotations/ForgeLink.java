@@ -0,0 +1,29 @@
+package design.ore.forge.api.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares an external link registration statically on a {@link ForgeModule} class.
+ * <p>
+ * Like {@link ForgeApplet}, static links are written to the module manifest
+ * so the launcher can show them without starting the module.
+ * </p>
+ *
+ * @see design.ore.forge.api.registrations.LinkRegistration
+ * @since 0.4.0
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Repeatable(ForgeLinks.class)
+public @interface ForgeLink
+{
+    String name();
+
+    String targetUrl();
+
+    String logoOverrideUrl() default "";
+}
@@ -5,6 +5,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import design.ore.forge.api.enums.ActivationMode;
 import design.ore.forge.api.interfaces.IForgeModule;
 import org.springframework.core.annotation.AliasFor;
 import org.springframework.stereotype.Component;
@@ -56,6 +57,57 @@ public @interface ForgeModule
 
     String iconPath() default "";
 
+    /**
+     * IDs of the modules this module depends on.
+     * <p>
+     * The host initializes a module only after all of its dependencies have
+     * been initialized successfully. Modules without a dependency path between
+     * them may be initialized concurrently, so {@link IForgeModule#initialize}
+     * must not assume any other ordering.
+     * </p>
+     *
+     * @return the IDs of the modules this module depends on
+     * @since 0.4.0
+     */
+    String[] dependencies() default {};
+
+    /**
+     * When the host starts this module.
+     * <p>
+     * {@link ActivationMode#EAGER} modules are started with the host.
+     * {@link ActivationMode#LAZY} modules are only started on the first request
+     * to one of their {@link #urlPrefixes()} or the first socket connection,
+     * which saves startup time and memory for rarely used modules. Until then
+     * the launcher shows the registrations declared with {@link ForgeApplet}
+     * and {@link ForgeLink}; registrations made in {@link IForgeModule#initialize}
+     * only appear once the module has started.
+     * </p>
+     *
+     * @return the activation mode of the module
+     * @since 0.4.0
+     */
+    ActivationMode activation() default ActivationMode.EAGER;
+
+    /**
+     * Request path prefixes served by this module, used by the host to route
+     * requests to a {@link ActivationMode#LAZY} module before it has started.
+     * If empty, the host's default namespace for the module ID is used.
+     *
+     * @return the request path prefixes of the module
+     * @since 0.4.0
+     */
+    String[] urlPrefixes() default {};
+
+    /**
+     * Minutes without requests after which a {@link ActivationMode#LAZY} module
+     * is stopped again to reclaim its memory. It is started again on the next
+     * request. Zero keeps the module running once started.
+     *
+     * @return the idle timeout in minutes
+     * @since 0.4.0
+     */
+    long idleTimeoutMinutes() default 0;
+
     /**
      * Optional: Class implementing {@link design.ore.forge.api.interfaces.IModuleSecurityConfiguration}.
      * <p>
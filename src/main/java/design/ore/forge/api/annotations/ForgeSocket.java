@@ -1,6 +1,8 @@
 package design.ore.forge.api.annotations;
 
+import design.ore.forge.api.beans.ForgeSocketBeans;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 
 import java.lang.annotation.ElementType;
@@ -8,10 +10,45 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * Enables STOMP messaging over WebSocket for a Forge module.
+ * <p>
+ * When the module context contains an {@link design.ore.forge.api.interfaces.IBrokerRelay}
+ * bean, messages sent to the broker under one of the {@link #relayPrefixes()}
+ * are forwarded to every other node, so subscribers receive them regardless
+ * of which node they are connected to. Without a relay the broker only
+ * reaches sessions on its own node.
+ * </p>
+ */
 @Target(ElementType.TYPE)
 @Retention(RetentionPolicy.RUNTIME)
 @EnableWebSocketMessageBroker
 @Configuration
+@Import(ForgeSocketBeans.class)
 public @interface ForgeSocket
 {
+    /**
+     * Destination prefixes whose messages are forwarded through the broker relay.
+     *
+     * @return the relayed destination prefixes
+     * @since 0.4.0
+     */
+    String[] relayPrefixes() default { "/topic" };
+
+    /**
+     * Maximum number of messages waiting to be handed to the relay. Messages
+     * published while the queue is full are delivered locally only.
+     *
+     * @return the outbound relay queue capacity
+     * @since 0.4.0
+     */
+    int relayQueueCapacity() default 10_000;
+
+    /**
+     * Number of recently relayed message IDs remembered to discard duplicates.
+     *
+     * @return the deduplication window size
+     * @since 0.4.0
+     */
+    int relayDeduplicationWindow() default 10_000;
 }
@@ -0,0 +1,52 @@
+package design.ore.forge.api.annotations;
+
+import design.ore.forge.api.enums.BudgetAction;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits the SQL a request to a {@link ForgeWeb} handler method may cause,
+ * overriding the module defaults of {@link EnableModuleJpa}.
+ * <p>
+ * Exceeding a limit is counted in {@code forge_sql_budget_exceeded} and
+ * logged. With {@link BudgetAction#FAIL}, a module running in debug mode
+ * also fails the statement that exceeds the limit, so N+1 queries surface
+ * during development. Placed on a controller class, it applies to all of
+ * its handler methods. Negative values keep the module default.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * @GetMapping("/orders")
+ * @SqlBudget(maxStatements = 5, maxRepeats = 2, action = BudgetAction.FAIL)
+ * public String orders(Model model) { ... }
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SqlBudget
+{
+    /**
+     * @return the maximum number of statements per request, 0 for no limit
+     */
+    int maxStatements() default -1;
+
+    /**
+     * @return the maximum number of executions of statements of the same shape per request, 0 for no limit
+     */
+    int maxRepeats() default -1;
+
+    /**
+     * @return the maximum JDBC time per request in milliseconds, 0 for no limit; only warned about
+     */
+    long maxJdbcMillis() default -1;
+
+    /**
+     * @return what happens in debug mode when the statement or repeat limit is exceeded
+     */
+    BudgetAction action() default BudgetAction.WARN;
+}
@@ -1,5 +1,8 @@
 package design.ore.forge.api.authentication;
 
+import design.ore.forge.api.interfaces.IModuleMetrics;
+import design.ore.forge.api.metrics.Counter;
+import design.ore.forge.api.metrics.Timer;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.core.MethodParameter;
 import org.springframework.web.bind.support.WebDataBinderFactory;
@@ -12,9 +15,32 @@ import java.util.Optional;
 /**
  * Argument resolver for injecting ForgeUserInfo into module controller methods.
  * This resolver extracts the user information that was set by the ModuleNamespaceFilter.
+ * <p>
+ * When created with the module's metrics, resolution time is recorded in the
+ * {@code forge_user_resolve} timer and resolutions are counted in
+ * {@code forge_user_resolutions}, tagged with whether a user was present.
  */
 public class ModuleUserArgumentResolver implements HandlerMethodArgumentResolver
 {
+    private final Timer resolveTimer;
+    private final Counter authenticated, anonymous;
+
+    public ModuleUserArgumentResolver()
+    {
+        this(null);
+    }
+
+    /**
+     * @param metrics the module's metrics, or null to disable instrumentation
+     * @since 0.4.0
+     */
+    public ModuleUserArgumentResolver(IModuleMetrics metrics)
+    {
+        this.resolveTimer = metrics != null ? metrics.timer("forge_user_resolve") : null;
+        this.authenticated = metrics != null ? metrics.counter("forge_user_resolutions", "result", "authenticated") : null;
+        this.anonymous = metrics != null ? metrics.counter("forge_user_resolutions", "result", "anonymous") : null;
+    }
+
     @Override
     public boolean supportsParameter(MethodParameter parameter)
     {
@@ -24,6 +50,17 @@ public class ModuleUserArgumentResolver implements HandlerMethodArgumentResolver
 
     @Override
     public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer, NativeWebRequest webRequest, WebDataBinderFactory binderFactory)
+    {
+        if (resolveTimer == null) return resolve(webRequest);
+
+        long start = resolveTimer.start();
+        Optional<ForgeUserInfo> user = resolve(webRequest);
+        resolveTimer.stop(start);
+        (user.isPresent() ? authenticated : anonymous).increment();
+        return user;
+    }
+
+    private Optional<ForgeUserInfo> resolve(NativeWebRequest webRequest)
     {
         HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
 
@@ -38,4 +75,4 @@ public class ModuleUserArgumentResolver implements HandlerMethodArgumentResolver
 
         return Optional.empty();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,66 @@
+package design.ore.forge.api.beans;
+
+import design.ore.forge.api.annotations.ForgeSocket;
+import design.ore.forge.api.interfaces.IBrokerRelay;
+import design.ore.forge.api.socket.BrokerRelayBridge;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ImportAware;
+import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+public class ForgeSocketBeans implements WebSocketMessageBrokerConfigurer, ImportAware, ApplicationContextAware
+{
+    private AnnotationAttributes forgeSocket;
+    private ApplicationContext applicationContext;
+
+    @Override
+    public void setImportMetadata(AnnotationMetadata importMetadata)
+    {
+        this.forgeSocket = AnnotationAttributes.fromMap(importMetadata.getAnnotationAttributes(ForgeSocket.class.getName()));
+    }
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext)
+    {
+        this.applicationContext = applicationContext;
+    }
+
+    /**
+     * Creates the bridge to the module's {@link IBrokerRelay}, or a disabled
+     * one without a relay. A condition on the relay bean would not see relays
+     * declared by the module's own configuration or registered by the host,
+     * which are both registered after this class.
+     */
+    @Bean
+    public BrokerRelayBridge brokerRelayBridge(ObjectProvider<IBrokerRelay> relay)
+    {
+        IBrokerRelay available = relay.getIfAvailable();
+        if (available == null) return BrokerRelayBridge.disabled();
+
+        String[] prefixes = forgeSocket != null ? forgeSocket.getStringArray("relayPrefixes") : new String[] { "/topic" };
+        int queueCapacity = forgeSocket != null ? forgeSocket.<Integer>getNumber("relayQueueCapacity") : 10_000;
+        int deduplicationWindow = forgeSocket != null ? forgeSocket.<Integer>getNumber("relayDeduplicationWindow") : 10_000;
+        return new BrokerRelayBridge(available, prefixes, queueCapacity, deduplicationWindow, applicationContext);
+    }
+
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry)
+    {
+        BrokerRelayBridge bridge = applicationContext.getBean(BrokerRelayBridge.class);
+        if (bridge.isEnabled()) registry.configureBrokerChannel().interceptors(bridge);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration)
+    {
+        // Messages clients send to a broker destination reach the simple broker from this channel, not the broker channel
+        BrokerRelayBridge bridge = applicationContext.getBean(BrokerRelayBridge.class);
+        if (bridge.isEnabled()) registration.interceptors(bridge);
+    }
+}
@@ -1,5 +1,8 @@
 package design.ore.forge.api.beans;
 
+import design.ore.forge.api.interfaces.IModuleContext;
+import design.ore.forge.api.paging.KeysetDialect;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.thymeleaf.spring6.SpringTemplateEngine;
@@ -27,13 +30,15 @@ public class ForgeThymeleafBeans
     {
         SpringTemplateEngine engine = new SpringTemplateEngine();
         engine.setTemplateResolver(resolver);
+        engine.addDialect(new KeysetDialect());
         return engine;
     }
 
     @Bean
-    public ThymeleafViewResolver viewResolver(SpringTemplateEngine engine)
+    public ThymeleafViewResolver viewResolver(SpringTemplateEngine engine, ObjectProvider<IModuleContext> moduleContext)
     {
-        ThymeleafViewResolver viewResolver = new ThymeleafViewResolver();
+        IModuleContext context = moduleContext.getIfAvailable();
+        ThymeleafViewResolver viewResolver = new ForgeThymeleafViewResolver(context != null ? context.getMetrics() : null);
         viewResolver.setTemplateEngine(engine);
         viewResolver.setCharacterEncoding("UTF-8");
         viewResolver.setOrder(1);
@@ -0,0 +1,63 @@
+package design.ore.forge.api.beans;
+
+import design.ore.forge.api.interfaces.IModuleMetrics;
+import design.ore.forge.api.metrics.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.View;
+import org.thymeleaf.spring6.view.AbstractThymeleafView;
+import org.thymeleaf.spring6.view.ThymeleafViewResolver;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * View resolver recording the render time of each Thymeleaf template in the
+ * {@code forge_template_render} timer, tagged with the template name.
+ * Redirect and forward views are not instrumented.
+ *
+ * @since 0.4.0
+ */
+public class ForgeThymeleafViewResolver extends ThymeleafViewResolver
+{
+    private final IModuleMetrics metrics;
+
+    /**
+     * @param metrics the module's metrics, or null to disable instrumentation
+     */
+    public ForgeThymeleafViewResolver(IModuleMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected View createView(String viewName, Locale locale) throws Exception
+    {
+        View view = super.createView(viewName, locale);
+        if (metrics == null || !(view instanceof AbstractThymeleafView)) return view;
+        return new MeteredView(view, metrics.timer("forge_template_render", "template", viewName));
+    }
+
+    private record MeteredView(View delegate, Timer timer) implements View
+    {
+        @Override
+        public String getContentType()
+        {
+            return delegate.getContentType();
+        }
+
+        @Override
+        public void render(Map<String, ?> model, HttpServletRequest request, HttpServletResponse response) throws Exception
+        {
+            long start = timer.start();
+            try
+            {
+                delegate.render(model, request, response);
+            }
+            finally
+            {
+                timer.stop(start);
+            }
+        }
+    }
+}
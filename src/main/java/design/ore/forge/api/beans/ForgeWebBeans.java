@@ -1,25 +1,104 @@
 package design.ore.forge.api.beans;
 
 import design.ore.forge.api.authentication.ModuleUserArgumentResolver;
+import design.ore.forge.api.coalescing.CoalescingPostProcessor;
+import design.ore.forge.api.downloads.ArtifactDownloads;
+import design.ore.forge.api.downloads.ArtifactHandlerMapping;
+import design.ore.forge.api.interfaces.IModuleContext;
+import design.ore.forge.api.interfaces.IModuleMetrics;
+import design.ore.forge.api.logos.LogoPipeline;
+import design.ore.forge.api.metrics.ResourceAccountingInterceptor;
+import design.ore.forge.api.paging.KeysetCursorArgumentResolver;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.CacheControl;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class ForgeWebBeans implements WebMvcConfigurer
 {
+    private final ObjectProvider<IModuleContext> moduleContext;
+
+    public ForgeWebBeans(ObjectProvider<IModuleContext> moduleContext)
+    {
+        this.moduleContext = moduleContext;
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry)
     {
         registry.addResourceHandler("/**")
             .addResourceLocations("classpath:/static/")
             .setCachePeriod(0);
+
+        // Logo copies are named by a hash of the original, so they never change
+        IModuleContext context = moduleContext.getIfAvailable();
+        if (context != null)
+        {
+            String logos = context.getModulePersistentDataDirectory().toPath().resolve(LogoPipeline.LOGO_DIRECTORY).toUri().toString();
+            registry.addResourceHandler(LogoPipeline.URL_PATH + "**")
+                .addResourceLocations(logos.endsWith("/") ? logos : logos + "/")
+                .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable());
+        }
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry)
+    {
+        IModuleContext context = moduleContext.getIfAvailable();
+        if (context != null) registry.addInterceptor(new ResourceAccountingInterceptor(context.getResourceAccountant()));
     }
 
     @Override
     public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers)
     {
-        resolvers.add(new ModuleUserArgumentResolver());
+        resolvers.add(new ModuleUserArgumentResolver(metrics()));
+        resolvers.add(new KeysetCursorArgumentResolver());
+    }
+
+    /**
+     * Shares invocations of {@link design.ore.forge.api.annotations.Coalesce} handler methods
+     * between concurrent identical requests. Static, so it does not initialize this configuration early.
+     */
+    @Bean
+    public static CoalescingPostProcessor forgeCoalescingPostProcessor(ObjectProvider<IModuleContext> moduleContext)
+    {
+        return new CoalescingPostProcessor(moduleContext);
+    }
+
+    /**
+     * Serves artifacts of {@link design.ore.forge.api.registrations.DownloadRegistration#forArtifact}
+     * registrations. Annotated controllers take precedence, and static resources are served
+     * for paths that name no artifact.
+     */
+    @Bean
+    public ArtifactHandlerMapping forgeDownloadHandlerMapping(ArtifactDownloads downloads)
+    {
+        return new ArtifactHandlerMapping(downloads.getHandler());
+    }
+
+    /**
+     * The module's artifact downloads, with patches for
+     * {@link design.ore.forge.api.registrations.DownloadRegistration#forRelease}
+     * registrations from as many previous versions as the {@code forge.downloads.patch-versions}
+     * property says, 3 unless set, or none if 0. Its background work is scheduled when
+     * the context starts rather than here, and only if the module has releases.
+     */
+    @Bean
+    public ArtifactDownloads forgeArtifactDownloads(@Value("${forge.downloads.patch-versions:3}") int patchVersions)
+    {
+        return new ArtifactDownloads(moduleContext.getIfAvailable(), patchVersions);
+    }
+
+    private IModuleMetrics metrics()
+    {
+        IModuleContext context = moduleContext.getIfAvailable();
+        return context != null ? context.getMetrics() : null;
     }
 }
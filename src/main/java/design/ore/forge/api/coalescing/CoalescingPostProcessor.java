@@ -0,0 +1,312 @@
+package design.ore.forge.api.coalescing;
+
+import design.ore.forge.api.annotations.Coalesce;
+import design.ore.forge.api.authentication.ForgeRoleInfo;
+import design.ore.forge.api.authentication.ForgeUserInfo;
+import design.ore.forge.api.authentication.ForgeUserUtils;
+import design.ore.forge.api.interfaces.IModuleContext;
+import design.ore.forge.api.interfaces.IModuleMetrics;
+import design.ore.forge.api.metrics.Counter;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.Entity;
+import jakarta.persistence.MappedSuperclass;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.ui.ModelMap;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Proxies controllers with {@link Coalesce} handler methods so concurrent
+ * identical requests share one invocation through a {@link SingleFlight}.
+ * <p>
+ * Requests are counted in {@code forge_coalesced_requests}, tagged with the
+ * endpoint and whether the request invoked the method ({@code leader}), shared
+ * another request's invocation ({@code follower}) or gave up waiting for it
+ * ({@code timeout}). Registered by {@link design.ore.forge.api.annotations.ForgeWeb}.
+ * </p>
+ * <p>
+ * Followers serialize the leader's result on their own threads, outside the
+ * leader's entity manager, so results must not hold JPA entities: methods
+ * whose return type contains an entity are rejected at startup, and a
+ * result holding one fails the request that produced it.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class CoalescingPostProcessor implements BeanPostProcessor
+{
+    private static final List<Class<?>> UNSHAREABLE_RESULTS = List.of(void.class, Void.class,
+        ResponseBodyEmitter.class, StreamingResponseBody.class, DeferredResult.class, WebAsyncTask.class);
+    private static final List<Class<?>> UNSHAREABLE_PARAMETERS = List.of(ServletResponse.class, OutputStream.class, Writer.class);
+    // Includes RedirectAttributes; an unannotated Map parameter is the model too
+    private static final List<Class<?>> MODEL_PARAMETERS = List.of(Model.class, ModelMap.class, Map.class);
+    private static final List<Class<? extends Annotation>> PERSISTENT_TYPES = List.of(Entity.class, Embeddable.class, MappedSuperclass.class);
+
+    private final ObjectProvider<IModuleContext> moduleContext;
+    private final SingleFlight<RequestKey, Object> flights = new SingleFlight<>();
+    private volatile boolean gaugeRegistered;
+
+    private record RequestKey(Method method, String path, String parameters, String scope)
+    {
+    }
+
+    private record Endpoint(Coalesce settings, Counter leaders, Counter followers, Counter timeouts)
+    {
+    }
+
+    public CoalescingPostProcessor(ObjectProvider<IModuleContext> moduleContext)
+    {
+        this.moduleContext = moduleContext;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName)
+    {
+        Class<?> type = AopUtils.getTargetClass(bean);
+        if (!AnnotatedElementUtils.hasAnnotation(type, Controller.class)) return bean;
+
+        Map<Method, Endpoint> endpoints = new HashMap<>();
+        IModuleMetrics metrics = metrics();
+        for (Method method : ReflectionUtils.getUniqueDeclaredMethods(type, ReflectionUtils.USER_DECLARED_METHODS))
+        {
+            if (!AnnotatedElementUtils.hasAnnotation(method, RequestMapping.class)) continue;
+            Coalesce settings = AnnotatedElementUtils.findMergedAnnotation(method, Coalesce.class);
+            if (settings == null) settings = AnnotatedElementUtils.findMergedAnnotation(type, Coalesce.class);
+            if (settings == null) continue;
+
+            checkShareable(method);
+            String name = type.getSimpleName() + "." + method.getName();
+            endpoints.put(method, new Endpoint(settings,
+                metrics != null ? metrics.counter("forge_coalesced_requests", "endpoint", name, "outcome", "leader") : null,
+                metrics != null ? metrics.counter("forge_coalesced_requests", "endpoint", name, "outcome", "follower") : null,
+                metrics != null ? metrics.counter("forge_coalesced_requests", "endpoint", name, "outcome", "timeout") : null));
+        }
+        if (endpoints.isEmpty()) return bean;
+
+        if (metrics != null && !gaugeRegistered)
+        {
+            metrics.gauge("forge_coalesce_in_flight", flights::getInFlight);
+            gaugeRegistered = true;
+        }
+
+        MethodInterceptor interceptor = invocation -> invoke(invocation, endpoints.get(AopUtils.getMostSpecificMethod(invocation.getMethod(), type)));
+        if (bean instanceof Advised advised && !advised.isFrozen())
+        {
+            advised.addAdvice(0, interceptor);
+            return bean;
+        }
+
+        ProxyFactory proxy = new ProxyFactory(bean);
+        proxy.setProxyTargetClass(true);
+        proxy.addAdvice(interceptor);
+        return proxy.getProxy(type.getClassLoader());
+    }
+
+    private static void checkShareable(Method method)
+    {
+        for (Class<?> result : UNSHAREABLE_RESULTS)
+        {
+            if (result.isAssignableFrom(method.getReturnType()))
+                throw new IllegalStateException("@Coalesce method " + method + " returns " + method.getReturnType().getSimpleName() + ", which cannot be shared");
+        }
+        // Lazy loads of a shared entity would run on the followers' threads, outside the leader's session
+        if (containsPersistentType(ResolvableType.forMethodReturnType(method), 0))
+            throw new IllegalStateException("@Coalesce method " + method + " returns JPA entities, which cannot be shared; return DTOs instead");
+        for (int i = 0; i < method.getParameterCount(); i++)
+        {
+            Class<?> parameter = method.getParameterTypes()[i];
+            for (Class<?> unshareable : UNSHAREABLE_PARAMETERS)
+            {
+                if (unshareable.isAssignableFrom(parameter))
+                    throw new IllegalStateException("@Coalesce method " + method + " writes its own response, which cannot be shared");
+            }
+
+            // Followers would render the leader's view with their own, empty model
+            if (method.getParameterAnnotations()[i].length > 0) continue;
+            for (Class<?> model : MODEL_PARAMETERS)
+            {
+                if (model.isAssignableFrom(parameter))
+                    throw new IllegalStateException("@Coalesce method " + method + " fills the request's model, which cannot be shared; return a ModelAndView instead");
+            }
+        }
+    }
+
+    private static boolean containsPersistentType(ResolvableType type, int depth)
+    {
+        if (type == ResolvableType.NONE || depth > 8) return false;
+        if (type.isArray()) return containsPersistentType(type.getComponentType(), depth + 1);
+
+        Class<?> resolved = type.resolve();
+        if (resolved != null && isPersistent(resolved)) return true;
+        for (ResolvableType generic : type.getGenerics())
+        {
+            if (containsPersistentType(generic, depth + 1)) return true;
+        }
+        return false;
+    }
+
+    private static boolean isPersistent(Class<?> type)
+    {
+        // Searches superclasses too, which covers Hibernate's proxies of entities
+        for (Class<? extends Annotation> annotation : PERSISTENT_TYPES)
+        {
+            if (AnnotatedElementUtils.hasAnnotation(type, annotation)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks the values a result declared as, for example, {@code Object} or
+     * {@code ResponseEntity<?>} actually holds, at the top level, in a
+     * response body, an optional, a collection, a map or a view's model.
+     */
+    private static boolean holdsEntity(Object value)
+    {
+        if (value == null) return false;
+        if (isPersistent(value.getClass())) return true;
+        return switch (value)
+        {
+            case HttpEntity<?> entity -> holdsEntity(entity.getBody());
+            case Optional<?> optional -> optional.isPresent() && holdsEntity(optional.get());
+            case ModelAndView view -> view.getModel().values().stream().anyMatch(CoalescingPostProcessor::holdsEntity);
+            case Iterable<?> values ->
+            {
+                for (Object element : values)
+                {
+                    if (element != null && isPersistent(element.getClass())) yield true;
+                }
+                yield false;
+            }
+            case Map<?, ?> map -> map.values().stream().anyMatch(element -> element != null && isPersistent(element.getClass()));
+            default -> false;
+        };
+    }
+
+    private Object invoke(MethodInvocation invocation, Endpoint endpoint) throws Throwable
+    {
+        if (endpoint == null) return invocation.proceed();
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servlet)) return invocation.proceed();
+        HttpServletRequest request = servlet.getRequest();
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) return invocation.proceed();
+
+        RequestKey key = new RequestKey(invocation.getMethod(), request.getRequestURI(), parameters(request), scope(request, endpoint.settings()));
+        try
+        {
+            SingleFlight.Result<Object> result = flights.execute(key, () -> proceed(invocation), Duration.ofMillis(endpoint.settings().timeoutMillis()));
+            increment(result.shared() ? endpoint.followers() : endpoint.leaders());
+            return result.value();
+        }
+        catch (TimeoutException e)
+        {
+            increment(endpoint.timeouts());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Timed out waiting for an identical request", e);
+        }
+    }
+
+    private static Object proceed(MethodInvocation invocation) throws Exception
+    {
+        Object result;
+        try
+        {
+            result = invocation.proceed();
+        }
+        catch (Exception | Error e)
+        {
+            throw e;
+        }
+        catch (Throwable t)
+        {
+            throw new UndeclaredThrowableException(t);
+        }
+
+        if (holdsEntity(result))
+            throw new IllegalStateException("@Coalesce method " + invocation.getMethod() + " returned a JPA entity, which cannot be shared; return DTOs instead");
+        return result;
+    }
+
+    private static String parameters(HttpServletRequest request)
+    {
+        Map<String, String[]> parameters = request.getParameterMap();
+        if (parameters.isEmpty()) return "";
+        // Sorted so the order of query parameters does not matter
+        return new TreeMap<>(parameters).entrySet().stream()
+            .map(entry -> entry.getKey() + "=" + String.join("\u0000", entry.getValue()))
+            .collect(Collectors.joining("\u0001"));
+    }
+
+    private static String scope(HttpServletRequest request, Coalesce settings)
+    {
+        return switch (settings.scope())
+        {
+            case GLOBAL -> "";
+            case USER -> ForgeUserUtils.getCurrentUser(request)
+                .map(user -> "user:" + user.getId())
+                .orElseGet(() -> request.getUserPrincipal() != null ? "principal:" + request.getUserPrincipal().getName() : "anonymous");
+            case ROLES -> ForgeUserUtils.getCurrentUser(request)
+                .map(CoalescingPostProcessor::roles)
+                .orElse("anonymous");
+        };
+    }
+
+    private static String roles(ForgeUserInfo user)
+    {
+        if (user.getRoles() == null) return "roles:";
+        return "roles:" + user.getRoles().stream()
+            .map(ForgeRoleInfo::getName)
+            .filter(name -> name != null)
+            .map(name -> name.toLowerCase(Locale.ROOT))
+            .sorted()
+            .distinct()
+            .collect(Collectors.joining(","));
+    }
+
+    private static void increment(Counter counter)
+    {
+        if (counter != null) counter.increment();
+    }
+
+    private IModuleMetrics metrics()
+    {
+        IModuleContext context = moduleContext.getIfAvailable();
+        return context != null ? context.getMetrics() : null;
+    }
+}
@@ -0,0 +1,93 @@
+package design.ore.forge.api.coalescing;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs at most one computation per key at a time; callers asking for a key
+ * whose computation is in flight wait for it and share its outcome.
+ * <p>
+ * The first caller of a key computes on its own thread, so no executor is
+ * involved. Outcomes are not kept once the computation ends.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * SingleFlight<String, Report> reports = new SingleFlight<>();
+ * Report report = reports.execute(period, () -> repository.buildReport(period), Duration.ofSeconds(30)).value();
+ * }</pre>
+ *
+ * @param <K> the key type
+ * @param <V> the result type
+ * @since 0.4.0
+ */
+public class SingleFlight<K, V>
+{
+    private final Map<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+
+    /**
+     * The outcome of {@link #execute}.
+     *
+     * @param value  the result of the computation
+     * @param shared whether the computation was started by another caller
+     */
+    public record Result<V>(V value, boolean shared)
+    {
+    }
+
+    /**
+     * @param key         the key identifying identical computations
+     * @param computation the computation to run if none is in flight for the key
+     * @param timeout     the maximum time to wait for a computation started by another caller
+     * @return the result of the computation
+     * @throws Exception        the exception thrown by the computation, whichever caller started it
+     * @throws TimeoutException if the computation of another caller did not end in time
+     */
+    public Result<V> execute(K key, Callable<V> computation, Duration timeout) throws Exception
+    {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = flights.putIfAbsent(key, flight);
+        if (existing != null)
+        {
+            try
+            {
+                return new Result<>(existing.get(timeout.toNanos(), TimeUnit.NANOSECONDS), true);
+            }
+            catch (ExecutionException e)
+            {
+                if (e.getCause() instanceof Exception cause) throw cause;
+                if (e.getCause() instanceof Error error) throw error;
+                throw e;
+            }
+        }
+
+        try
+        {
+            V value = computation.call();
+            flight.complete(value);
+            return new Result<>(value, false);
+        }
+        catch (Throwable t)
+        {
+            flight.completeExceptionally(t);
+            throw t;
+        }
+        finally
+        {
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * @return the number of computations in flight
+     */
+    public int getInFlight()
+    {
+        return flights.size();
+    }
+}
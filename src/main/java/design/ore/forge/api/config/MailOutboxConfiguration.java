@@ -0,0 +1,81 @@
+package design.ore.forge.api.config;
+
+import design.ore.forge.api.annotations.EnableMailOutbox;
+import design.ore.forge.api.interfaces.IModuleContext;
+import design.ore.forge.api.mail.MailOutbox;
+import design.ore.forge.api.mail.OutboxOptions;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportAware;
+import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * Creates the {@link MailOutbox} of a module, imported via {@link EnableMailOutbox}.
+ *
+ * @since 0.4.0
+ */
+@Configuration
+public class MailOutboxConfiguration implements ImportAware
+{
+    private AnnotationAttributes enableMailOutbox;
+
+    @Override
+    public void setImportMetadata(AnnotationMetadata importMetadata)
+    {
+        this.enableMailOutbox = AnnotationAttributes.fromMap(importMetadata.getAnnotationAttributes(EnableMailOutbox.class.getName()));
+    }
+
+    /**
+     * Creates the outbox, sending through the module's {@link JavaMailSenderImpl} bean
+     * or one configured from the {@code mail.*} properties.
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public MailOutbox mailOutbox(ObjectProvider<JavaMailSenderImpl> mailSender, ObjectProvider<IModuleContext> moduleContext, Environment environment)
+    {
+        IModuleContext context = moduleContext.getIfAvailable();
+        if (context == null) throw new IllegalStateException("The mail outbox needs the module context to store queued messages");
+
+        JavaMailSenderImpl sender = mailSender.getIfAvailable(() -> createSender(environment));
+        return new MailOutbox(sender, context.getModuleStore(), context.getMetrics(), options());
+    }
+
+    private OutboxOptions options()
+    {
+        if (enableMailOutbox == null) return OutboxOptions.DEFAULT;
+        return OutboxOptions.builder()
+            .workers(enableMailOutbox.getNumber("workers").intValue())
+            .batchSize(enableMailOutbox.getNumber("batchSize").intValue())
+            .messagesPerConnection(enableMailOutbox.getNumber("messagesPerConnection").intValue())
+            .maxAttempts(enableMailOutbox.getNumber("maxAttempts").intValue())
+            .initialBackoff(Duration.ofSeconds(enableMailOutbox.getNumber("initialBackoffSeconds").longValue()))
+            .maxBackoff(Duration.ofSeconds(enableMailOutbox.getNumber("maxBackoffSeconds").longValue()))
+            .build();
+    }
+
+    private static JavaMailSenderImpl createSender(Environment environment)
+    {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost(environment.getRequiredProperty("mail.host"));
+        sender.setPort(environment.getProperty("mail.port", Integer.class, JavaMailSenderImpl.DEFAULT_PORT));
+        sender.setUsername(environment.getProperty("mail.username"));
+        sender.setPassword(environment.getProperty("mail.password"));
+
+        // Without timeouts, a server that stops responding blocks a worker forever
+        String timeout = environment.getProperty("mail.timeout-ms", "10000");
+        Properties properties = new Properties();
+        properties.setProperty("mail.smtp.connectiontimeout", timeout);
+        properties.setProperty("mail.smtp.timeout", timeout);
+        properties.setProperty("mail.smtp.writetimeout", timeout);
+        properties.setProperty("mail.smtp.starttls.enable", environment.getProperty("mail.starttls", "false"));
+        if (sender.getUsername() != null) properties.setProperty("mail.smtp.auth", "true");
+        sender.setJavaMailProperties(properties);
+        return sender;
+    }
+}
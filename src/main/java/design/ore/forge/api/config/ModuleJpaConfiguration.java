@@ -1,10 +1,31 @@
 package design.ore.forge.api.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mysql.cj.jdbc.Driver;
 import design.ore.forge.api.annotations.EnableModuleJpa;
 import design.ore.forge.api.annotations.ForgeModule;
 import design.ore.forge.api.interfaces.IForgeModule;
+import design.ore.forge.api.interfaces.IModuleConnectionPools;
+import design.ore.forge.api.interfaces.IModuleContext;
+import design.ore.forge.api.enums.BudgetAction;
+import design.ore.forge.api.jpa.EntityEnhancer;
+import design.ore.forge.api.jpa.FetchPlans;
+import design.ore.forge.api.jpa.ModuleRepositoryPostProcessor;
+import design.ore.forge.api.jpa.ResultStreamWriter;
+import design.ore.forge.api.jpa.SqlMonitor;
+import design.ore.forge.api.jpa.SqlMonitoringDataSource;
+import design.ore.forge.api.jpa.StreamingDataSource;
+import design.ore.forge.api.jpa.StreamingQueries;
+import design.ore.forge.api.interfaces.IModuleMigration;
+import design.ore.forge.api.logging.ModuleLog;
+import design.ore.forge.api.metrics.MeteredDataSource;
+import design.ore.forge.api.migrations.ModuleMigrator;
 import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.ApplicationContext;
@@ -20,6 +41,7 @@ import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.springframework.transaction.PlatformTransactionManager;
 
 import javax.sql.DataSource;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -37,9 +59,15 @@ import java.util.Map;
  * </p>
  * <ul>
  *   <li>DataSource from module properties (jpa.url, jpa.username, jpa.password)</li>
+ *   <li>{@link ModuleMigrator} applying the module's versioned migrations before the EntityManagerFactory starts</li>
  *   <li>EntityManagerFactory with automatic entity scanning</li>
  *   <li>TransactionManager for @Transactional support</li>
- *   <li>OpenEntityManagerInView interceptor for lazy loading</li>
+ *   <li>OpenEntityManagerInView interceptor for lazy loading, unless disabled with {@link EnableModuleJpa#openInView()}</li>
+ *   <li>{@link FetchPlans} loading the entity graphs named by a handler's {@link design.ore.forge.api.annotations.FetchPlan}</li>
+ *   <li>{@link SqlMonitor} counting the statements of each request against its SQL budget</li>
+ *   <li>{@link StreamingQueries} for repository methods returning a {@code Stream}</li>
+ *   <li>{@link ResultStreamWriter} for writing query results to responses</li>
+ *   <li>A startup check that entities were enhanced, if {@link EnableModuleJpa#bytecodeEnhancement()} is set</li>
  * </ul>
  * <p>
  * For repository support, add {@code @EnableJpaRepositories} to your module class:
@@ -79,19 +107,92 @@ public class ModuleJpaConfiguration implements ImportAware
      *   <li>jpa.username - Database username</li>
      *   <li>jpa.password - Database password</li>
      * </ul>
+     * <p>
+     * If the host shares connection pools, connections are leased from the
+     * pool of the URL and username within the module's
+     * {@link EnableModuleJpa#maxConnections()} quota. If the module context
+     * is available, connection acquisition and usage are recorded in the
+     * module's metrics. Streaming queries get the fetch size of
+     * {@link EnableModuleJpa#streamFetchSize()}, if set, and statements are
+     * reported to the module's {@link SqlMonitor}.
+     * </p>
      */
     @Bean
     public DataSource dataSource(
         @Value("${jpa.url}") String jdbcUrl,
         @Value("${jpa.username}") String username,
-        @Value("${jpa.password}") String password)
+        @Value("${jpa.password}") String password,
+        ObjectProvider<IModuleContext> moduleContext,
+        SqlMonitor sqlMonitor)
+    {
+        IModuleContext context = moduleContext.getIfAvailable();
+        IModuleConnectionPools pools = context != null ? context.getConnectionPools() : null;
+
+        DataSource ds;
+        if (pools != null)
+        {
+            int maxConnections = enableModuleJpa != null ? enableModuleJpa.<Integer>getNumber("maxConnections") : 0;
+            ds = pools.getDataSource(jdbcUrl, username, password, maxConnections);
+        }
+        else ds = driverManager(jdbcUrl, username, password);
+
+        DataSource metered = context != null ? new MeteredDataSource(ds, context.getMetrics()) : ds;
+        return new StreamingDataSource(new SqlMonitoringDataSource(metered, sqlMonitor), StreamingDataSource.streamsRows(jdbcUrl));
+    }
+
+    /**
+     * Creates the monitor counting the statements, rows and JDBC time of each
+     * request, with the module-wide budget and thresholds of {@link EnableModuleJpa}.
+     */
+    @Bean
+    public SqlMonitor sqlMonitor(ObjectProvider<IModuleContext> moduleContext)
+    {
+        IModuleContext context = moduleContext.getIfAvailable();
+        ModuleLog log = context != null ? context.getModuleLog() : new ModuleLog((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(SqlMonitor.class));
+
+        SqlMonitor.Budget budget = enableModuleJpa != null
+            ? new SqlMonitor.Budget(enableModuleJpa.<Integer>getNumber("maxStatementsPerRequest"), 0, 0, enableModuleJpa.getEnum("sqlBudgetAction"))
+            : new SqlMonitor.Budget(0, 0, 0, BudgetAction.WARN);
+        int repeatThreshold = enableModuleJpa != null ? enableModuleJpa.<Integer>getNumber("repeatedQueryThreshold") : 10;
+        long slowQueryMillis = enableModuleJpa != null ? enableModuleJpa.<Long>getNumber("slowQueryMillis") : 500;
+
+        return new SqlMonitor(context != null ? context.getMetrics() : null, log, context != null && context.isDebug(),
+            budget, repeatThreshold, Duration.ofMillis(slowQueryMillis));
+    }
+
+    private static DataSource driverManager(String url, String username, String password)
     {
-        DriverManagerDataSource ds = new DriverManagerDataSource();
-        ds.setDriverClassName(Driver.class.getName());
-        ds.setUrl(jdbcUrl);
-        ds.setUsername(username);
-        ds.setPassword(password);
-        return ds;
+        DriverManagerDataSource driverManager = new DriverManagerDataSource();
+        driverManager.setDriverClassName(Driver.class.getName());
+        driverManager.setUrl(url);
+        driverManager.setUsername(username);
+        driverManager.setPassword(password);
+        return driverManager;
+    }
+
+    /**
+     * Creates the migrator applying the migrations of {@link EnableModuleJpa#migrationLocation()}
+     * and {@link EnableModuleJpa#migrations()}. The locks of background migrations are held on
+     * connections of their own, so they do not take a connection of the module's quota.
+     */
+    @Bean
+    public ModuleMigrator moduleMigrator(
+        DataSource dataSource,
+        @Value("${jpa.url}") String jdbcUrl,
+        @Value("${jpa.username}") String username,
+        @Value("${jpa.password}") String password,
+        ObjectProvider<IModuleContext> moduleContext,
+        ApplicationContext applicationContext)
+    {
+        String location = enableModuleJpa != null ? enableModuleJpa.getString("migrationLocation") : "";
+        List<IModuleMigration> migrations = new ArrayList<>();
+        if (enableModuleJpa != null)
+        {
+            for (Class<?> type : enableModuleJpa.getClassArray("migrations"))
+                migrations.add((IModuleMigration) BeanUtils.instantiateClass(type));
+        }
+        return new ModuleMigrator(dataSource, driverManager(jdbcUrl, username, password), location, migrations,
+            applicationContext.getClassLoader(), moduleContext.getIfAvailable());
     }
 
     /**
@@ -104,10 +205,16 @@ public class ModuleJpaConfiguration implements ImportAware
      *   <li>design.ore.api.core (for shared entities)</li>
      *   <li>Any additional packages specified in @EnableModuleJpa</li>
      * </ul>
+     * <p>
+     * Pending migrations are applied first; when the module uses migrations,
+     * Hibernate does not change the schema.
+     * </p>
      */
     @Bean
-    public LocalContainerEntityManagerFactoryBean moduleEntityManagerFactory(DataSource dataSource, ApplicationContext applicationContext)
+    public LocalContainerEntityManagerFactoryBean moduleEntityManagerFactory(DataSource dataSource, ApplicationContext applicationContext, ModuleMigrator moduleMigrator)
     {
+        moduleMigrator.migrate();
+
         LocalContainerEntityManagerFactoryBean emf = new LocalContainerEntityManagerFactoryBean();
         emf.setDataSource(dataSource);
 
@@ -122,6 +229,7 @@ public class ModuleJpaConfiguration implements ImportAware
 
         String ddlAuto = enableModuleJpa != null ?
             enableModuleJpa.getString("ddlAuto") : "update";
+        if (moduleMigrator.isEnabled() && !"validate".equals(ddlAuto)) ddlAuto = "none";
         jpaProperties.put("hibernate.hbm2ddl.auto", ddlAuto);
 
         if (enableModuleJpa != null)
@@ -152,16 +260,81 @@ public class ModuleJpaConfiguration implements ImportAware
         return new JpaTransactionManager(emf);
     }
 
+    /**
+     * Logs the entities that were not enhanced although {@link EnableModuleJpa#bytecodeEnhancement()}
+     * is set, since they silently fall back to comparing every attribute on flush.
+     */
+    @Bean
+    public SmartInitializingSingleton bytecodeEnhancementCheck(EntityManagerFactory emf, ObjectProvider<IModuleContext> moduleContext)
+    {
+        return () ->
+        {
+            if (enableModuleJpa == null || !enableModuleJpa.getBoolean("bytecodeEnhancement")) return;
+            List<Class<?>> unenhanced = EntityEnhancer.findUnenhancedTypes(emf);
+            if (unenhanced.isEmpty()) return;
+
+            IModuleContext context = moduleContext.getIfAvailable();
+            Logger log = context != null ? context.getLog() : LoggerFactory.getLogger(EntityEnhancer.class);
+            log.warn("Bytecode enhancement is enabled but {} entities were not enhanced, add EntityEnhancer to the module's build: {}",
+                unenhanced.size(), unenhanced.stream().map(Class::getName).toList());
+        };
+    }
+
     /**
      * Creates the JPA interceptor configuration for OpenEntityManagerInView.
      * <p>
-     * This enables lazy loading of JPA entities in the view layer (controllers).
+     * This enables lazy loading of JPA entities in the view layer (controllers),
+     * unless disabled with {@link EnableModuleJpa#openInView()}.
      * </p>
      */
     @Bean
-    public ModuleJpaInterceptorConfig jpaInterceptorConfig(EntityManagerFactory emf)
+    public ModuleJpaInterceptorConfig jpaInterceptorConfig(EntityManagerFactory emf, SqlMonitor sqlMonitor)
+    {
+        boolean openInView = enableModuleJpa == null || enableModuleJpa.getBoolean("openInView");
+        return new ModuleJpaInterceptorConfig(emf, sqlMonitor, openInView);
+    }
+
+    /**
+     * Creates the interceptor reading the results of streaming repository methods incrementally.
+     */
+    @Bean
+    public StreamingQueries streamingQueries(EntityManagerFactory emf)
+    {
+        int clearInterval = enableModuleJpa != null ? enableModuleJpa.<Integer>getNumber("streamClearInterval") : 1000;
+        return new StreamingQueries(emf, streamFetchSize(), clearInterval);
+    }
+
+    /**
+     * Creates the interceptor loading the entity graphs of the current fetch plan on repository results.
+     */
+    @Bean
+    public FetchPlans fetchPlans(EntityManagerFactory emf, PlatformTransactionManager moduleTransactionManager)
+    {
+        return new FetchPlans(emf, moduleTransactionManager);
+    }
+
+    /**
+     * Installs {@link StreamingQueries} and {@link FetchPlans} on the module's repositories.
+     * Static, so it does not initialize this configuration before other post-processors.
+     */
+    @Bean
+    public static ModuleRepositoryPostProcessor moduleRepositoryPostProcessor(ObjectProvider<StreamingQueries> streamingQueries, ObjectProvider<FetchPlans> fetchPlans)
+    {
+        return new ModuleRepositoryPostProcessor(streamingQueries, fetchPlans);
+    }
+
+    /**
+     * Creates the helper writing query results to responses as JSON, NDJSON or CSV.
+     */
+    @Bean
+    public ResultStreamWriter resultStreamWriter(PlatformTransactionManager moduleTransactionManager, ObjectProvider<ObjectMapper> objectMapper)
+    {
+        return new ResultStreamWriter(moduleTransactionManager, objectMapper.getIfAvailable(() -> new ObjectMapper().findAndRegisterModules()));
+    }
+
+    private int streamFetchSize()
     {
-        return new ModuleJpaInterceptorConfig(emf);
+        return enableModuleJpa != null ? enableModuleJpa.<Integer>getNumber("streamFetchSize") : 0;
     }
 
     /**
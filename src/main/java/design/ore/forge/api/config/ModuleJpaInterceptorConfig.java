@@ -1,5 +1,8 @@
 package design.ore.forge.api.config;
 
+import design.ore.forge.api.jpa.FetchPlanInterceptor;
+import design.ore.forge.api.jpa.SqlBudgetInterceptor;
+import design.ore.forge.api.jpa.SqlMonitor;
 import jakarta.persistence.EntityManagerFactory;
 import lombok.RequiredArgsConstructor;
 import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
@@ -17,6 +20,17 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
  * throw {@code LazyInitializationException}.
  * </p>
  * <p>
+ * Modules disabling it with {@code @EnableModuleJpa(openInView = false)}
+ * release the connection after each repository call instead of holding it
+ * while the view renders, and load what the view needs with
+ * {@link design.ore.forge.api.annotations.FetchPlan}.
+ * </p>
+ * <p>
+ * It also registers the {@link SqlBudgetInterceptor} scoping the statements
+ * recorded by the module's {@link SqlMonitor} to each request, and the
+ * {@link FetchPlanInterceptor} binding the fetch plan of the handler.
+ * </p>
+ * <p>
  * This class is automatically configured by {@link ModuleJpaConfiguration}
  * when a module uses {@link design.ore.forge.api.annotations.EnableModuleJpa}.
  * </p>
@@ -27,12 +41,19 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 public class ModuleJpaInterceptorConfig implements WebMvcConfigurer
 {
     private final EntityManagerFactory emf;
+    private final SqlMonitor sqlMonitor;
+    private final boolean openInView;
 
     @Override
     public void addInterceptors(InterceptorRegistry registry)
     {
-        OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
-        interceptor.setEntityManagerFactory(emf);
-        registry.addWebRequestInterceptor(interceptor);
+        if (openInView)
+        {
+            OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
+            interceptor.setEntityManagerFactory(emf);
+            registry.addWebRequestInterceptor(interceptor);
+        }
+        registry.addInterceptor(new SqlBudgetInterceptor(sqlMonitor));
+        registry.addInterceptor(new FetchPlanInterceptor());
     }
 }
@@ -0,0 +1,376 @@
+package design.ore.forge.api.downloads;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.web.HttpRequestHandler;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Serves download artifacts from a directory without copying them through
+ * the heap.
+ * <p>
+ * Whole files and single ranges are handed to the servlet container's
+ * sendfile support when it has any, as Tomcat's NIO connectors do, and are
+ * otherwise transferred from a {@link FileChannel} in bounded chunks.
+ * Multiple ranges are sent as {@code multipart/byteranges}, so interrupted
+ * downloads resume where they stopped and download managers can fetch
+ * segments in parallel.
+ * </p>
+ * <p>
+ * Responses carry a strong ETag and a {@code Repr-Digest} header derived
+ * from the artifact's SHA-256 checksum, and honor {@code If-None-Match},
+ * {@code If-Modified-Since} and {@code If-Range}. Metadata and checksums
+ * come from an {@link ArtifactMetadataCache}; its checksum files are not
+ * served.
+ * </p>
+ * <p>
+ * With {@link ReleasePatches}, a request naming the version the client has
+ * in the {@value ReleasePatches#FROM_PARAMETER} parameter is answered with a
+ * {@link DeltaPatch} from that version if one exists, marked by the
+ * {@value #PATCH_BASE_HEADER} header, and with the whole artifact otherwise.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class ArtifactDownloadHandler implements HttpRequestHandler
+{
+    /**
+     * Path under the module's persistent data directory that artifacts are served from.
+     */
+    public static final String ARTIFACT_DIRECTORY = "downloads";
+
+    /**
+     * Request path that artifacts are served under, relative to the module.
+     */
+    public static final String URL_PATH = "/downloads/";
+
+    /**
+     * Ranges beyond this count are answered with the whole artifact, since
+     * many small ranges cost more than they save.
+     */
+    public static final int MAX_RANGES = 16;
+
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ArtifactDownloadHandler.class);
+
+    /**
+     * Response header naming the version a patch served in place of the artifact applies to.
+     */
+    public static final String PATCH_BASE_HEADER = "Forge-Patch-Base";
+
+    private final Path root;
+    private final ArtifactMetadataCache metadata;
+    private final ReleasePatches patches;
+
+    /**
+     * @param root     the directory artifacts are served from
+     * @param metadata the cache of artifact metadata
+     */
+    public ArtifactDownloadHandler(Path root, ArtifactMetadataCache metadata)
+    {
+        this(root, metadata, null);
+    }
+
+    /**
+     * @param root     the directory artifacts are served from
+     * @param metadata the cache of artifact metadata
+     * @param patches  the patches to serve to clients that name the version they have, or null
+     */
+    public ArtifactDownloadHandler(Path root, ArtifactMetadataCache metadata, ReleasePatches patches)
+    {
+        this.root = root.toAbsolutePath().normalize();
+        this.metadata = metadata;
+        this.patches = patches;
+    }
+
+    /**
+     * Computes the checksums of all artifacts that have none yet, so the
+     * first request for a large artifact does not wait for its checksum.
+     */
+    public void precomputeChecksums()
+    {
+        if (!Files.isDirectory(root)) return;
+        try (Stream<Path> files = Files.walk(root))
+        {
+            for (Path file : files.filter(Files::isRegularFile).filter(file -> !ArtifactMetadataCache.isChecksumFile(file)).toList())
+            {
+                metadata.get(file);
+            }
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Could not precompute checksums of artifacts in {}", root, e);
+        }
+    }
+
+    @Override
+    public void handleRequest(HttpServletRequest request, HttpServletResponse response) throws IOException
+    {
+        boolean head = request.getMethod().equals("HEAD");
+        if (!head && !request.getMethod().equals("GET"))
+        {
+            response.setHeader(HttpHeaders.ALLOW, "GET, HEAD");
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+
+        Object within = request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+        Path file = within instanceof String relative ? resolve(relative) : null;
+        // Removed since the handler was chosen
+        if (file == null)
+        {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        ArtifactMetadata artifact;
+        try { artifact = metadata.get(file); }
+        catch (NoSuchFileException e)
+        {
+            metadata.evict(file);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String contentType = request.getServletContext().getMimeType(file.getFileName().toString());
+        if (contentType == null) contentType = "application/octet-stream";
+
+        // Clients naming the version they have get a patch from it instead, if there is one
+        String fromVersion = request.getParameter(ReleasePatches.FROM_PARAMETER);
+        Path patch = patches != null && fromVersion != null ? patches.find(artifact, fromVersion) : null;
+        if (patch != null)
+        {
+            try
+            {
+                artifact = metadata.get(patch);
+                file = patch;
+                contentType = DeltaPatch.CONTENT_TYPE;
+                response.setHeader(PATCH_BASE_HEADER, fromVersion);
+            }
+            catch (NoSuchFileException e)
+            {
+                // Replaced or removed in the meantime; the whole artifact is served instead
+                metadata.evict(patch);
+            }
+        }
+
+        response.setHeader(HttpHeaders.ETAG, artifact.getETag());
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, artifact.getLastModified());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.setHeader("Repr-Digest", "sha-256=:" + Base64.getEncoder().encodeToString(HexFormat.of().parseHex(artifact.getSha256())) + ":");
+
+        if (notModified(request, artifact))
+        {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName().toString().replace("\"", "") + "\"");
+
+        List<long[]> ranges = ranges(request, artifact);
+        if (ranges != null && ranges.isEmpty())
+        {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + artifact.getLength());
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        if (ranges == null)
+        {
+            response.setContentType(contentType);
+            response.setContentLengthLong(artifact.getLength());
+            if (!head) send(request, response, file, 0, artifact.getLength());
+        }
+        else if (ranges.size() == 1)
+        {
+            long start = ranges.getFirst()[0], end = ranges.getFirst()[1];
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + artifact.getLength());
+            response.setContentLengthLong(end - start + 1);
+            if (!head) send(request, response, file, start, end + 1);
+        }
+        else sendMultipart(response, file, artifact, contentType, ranges, head);
+    }
+
+    /**
+     * Whether a request path is an artifact this handler serves. Requests
+     * for anything else are left to the next handler, such as the module's
+     * static resources.
+     *
+     * @param relative the request path relative to {@link #URL_PATH}
+     * @return true if the path names an artifact
+     */
+    public boolean serves(String relative)
+    {
+        return resolve(relative) != null;
+    }
+
+    private Path resolve(String relative)
+    {
+        if (relative.isEmpty()) return null;
+
+        Path file = root.resolve(relative).normalize();
+        // Checksum files are metadata of the artifacts, which carry the checksum in the Repr-Digest header
+        if (!file.startsWith(root) || file.equals(root) || ArtifactMetadataCache.isChecksumFile(file)) return null;
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    private static boolean notModified(HttpServletRequest request, ArtifactMetadata artifact)
+    {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null)
+        {
+            for (String tag : ifNoneMatch.split(","))
+            {
+                String trimmed = tag.trim();
+                if (trimmed.equals("*") || trimmed.equals(artifact.getETag()) || trimmed.equals("W/" + artifact.getETag())) return true;
+            }
+            return false;
+        }
+
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && artifact.getLastModified() / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * @return the requested ranges as inclusive start and end offsets, sorted and merged,
+     *         an empty list if none is satisfiable, or null to send the whole artifact
+     */
+    private static List<long[]> ranges(HttpServletRequest request, ArtifactMetadata artifact)
+    {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null || !ifRangeMatches(request, artifact)) return null;
+
+        List<HttpRange> requested;
+        try { requested = HttpRange.parseRanges(header); }
+        catch (IllegalArgumentException e) { return null; }
+        if (requested.isEmpty() || requested.size() > MAX_RANGES) return null;
+
+        long length = artifact.getLength();
+        List<long[]> ranges = new ArrayList<>();
+        for (HttpRange range : requested)
+        {
+            long start = range.getRangeStart(length), end = range.getRangeEnd(length);
+            if (start < length && start <= end) ranges.add(new long[] { start, end });
+        }
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+
+        // Overlapping and adjacent ranges are merged, so no byte is sent twice
+        List<long[]> merged = new ArrayList<>();
+        for (long[] range : ranges)
+        {
+            long[] last = merged.isEmpty() ? null : merged.getLast();
+            if (last != null && range[0] <= last[1] + 1) last[1] = Math.max(last[1], range[1]);
+            else merged.add(range);
+        }
+        return merged;
+    }
+
+    private static boolean ifRangeMatches(HttpServletRequest request, ArtifactMetadata artifact)
+    {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) return true;
+        if (ifRange.startsWith("\"")) return ifRange.equals(artifact.getETag());
+
+        long date = dateHeader(request, HttpHeaders.IF_RANGE);
+        return date >= 0 && artifact.getLastModified() / 1000 == date / 1000;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name)
+    {
+        try { return request.getDateHeader(name); }
+        catch (IllegalArgumentException e) { return -1; }
+    }
+
+    private static void send(HttpServletRequest request, HttpServletResponse response, Path file, long start, long end) throws IOException
+    {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED)))
+        {
+            // The container transfers the file once the handler returns; the body must not be written here
+            request.setAttribute(SENDFILE_FILENAME, file.toFile().getCanonicalPath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+
+        OutputStream output = response.getOutputStream();
+        transfer(file, start, end, Channels.newChannel(output));
+        output.flush();
+    }
+
+    private static void sendMultipart(HttpServletResponse response, Path file, ArtifactMetadata artifact, String contentType,
+                                      List<long[]> ranges, boolean head) throws IOException
+    {
+        String boundary = UUID.randomUUID().toString();
+        List<byte[]> partHeaders = new ArrayList<>();
+        long contentLength = 0;
+        for (long[] range : ranges)
+        {
+            byte[] partHeader = ("\r\n--" + boundary + "\r\n"
+                + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                + HttpHeaders.CONTENT_RANGE + ": bytes " + range[0] + "-" + range[1] + "/" + artifact.getLength() + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + range[1] - range[0] + 1;
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (head) return;
+
+        OutputStream output = response.getOutputStream();
+        WritableByteChannel channel = Channels.newChannel(output);
+        for (int i = 0; i < ranges.size(); i++)
+        {
+            output.write(partHeaders.get(i));
+            transfer(file, ranges.get(i)[0], ranges.get(i)[1] + 1, channel);
+        }
+        output.write(closing);
+        output.flush();
+    }
+
+    private static void transfer(Path file, long start, long end, WritableByteChannel target) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long position = start;
+            while (position < end)
+            {
+                long transferred = channel.transferTo(position, end - position, target);
+                if (transferred <= 0) throw new IOException("Transfer of " + file + " stalled at offset " + position);
+                position += transferred;
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package design.ore.forge.api.downloads;
+
+import design.ore.forge.api.interfaces.IModuleContext;
+import design.ore.forge.api.interfaces.IModuleScheduler;
+import design.ore.forge.api.scheduling.ScheduledTask;
+import lombok.Getter;
+import org.springframework.context.SmartLifecycle;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * The artifact downloads of a module: the {@link ArtifactDownloadHandler}
+ * serving them and the background work that keeps their patches current.
+ * <p>
+ * The work is scheduled on the module's scheduler when the module's
+ * application context starts, and only if there is something to do:
+ * checksums are precomputed if the module has an artifact directory, and
+ * patches are generated every ten minutes if it holds a release
+ * channel, as laid out by
+ * {@link design.ore.forge.api.registrations.DownloadRegistration#forRelease}.
+ * New versions of a channel are picked up while the module is running, a
+ * first channel when it is restarted.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class ArtifactDownloads implements SmartLifecycle
+{
+    public static final Duration PATCH_INTERVAL = Duration.ofMinutes(10);
+
+    /**
+     * The handler serving the artifacts, or null without a module context.
+     */
+    @Getter private final ArtifactDownloadHandler handler;
+    private final Path artifacts;
+    private final ReleasePatches patches;
+    private final IModuleScheduler scheduler;
+
+    private volatile ScheduledTask patchGeneration;
+    private volatile boolean running;
+
+    /**
+     * @param context       the module's context, or null to serve nothing
+     * @param patchVersions how many previous versions of a release to create patches from, or 0 for none
+     */
+    public ArtifactDownloads(IModuleContext context, int patchVersions)
+    {
+        if (context == null)
+        {
+            this.handler = null;
+            this.artifacts = null;
+            this.patches = null;
+            this.scheduler = null;
+            return;
+        }
+
+        Path dataDirectory = context.getModulePersistentDataDirectory().toPath();
+        this.artifacts = dataDirectory.resolve(ArtifactDownloadHandler.ARTIFACT_DIRECTORY);
+        ArtifactMetadataCache metadata = new ArtifactMetadataCache();
+        this.patches = patchVersions > 0
+            ? new ReleasePatches(artifacts, dataDirectory.resolve(ReleasePatches.PATCH_DIRECTORY), metadata, patchVersions)
+            : null;
+        this.handler = new ArtifactDownloadHandler(artifacts, metadata, patches);
+        this.scheduler = context.getScheduler();
+    }
+
+    @Override
+    public void start()
+    {
+        running = true;
+        if (scheduler == null || !Files.isDirectory(artifacts)) return;
+        scheduler.execute(handler::precomputeChecksums);
+
+        // Starts shortly after the checksums, which the patches need
+        if (patches != null && patches.hasReleases())
+            patchGeneration = scheduler.scheduleAtFixedRate("download-patches", patches::generate,
+                Duration.ofSeconds(10), PATCH_INTERVAL, Duration.ofMinutes(1));
+    }
+
+    @Override
+    public void stop()
+    {
+        running = false;
+        ScheduledTask task = patchGeneration;
+        if (task != null) task.cancel();
+        patchGeneration = null;
+    }
+
+    @Override
+    public boolean isRunning() { return running; }
+}
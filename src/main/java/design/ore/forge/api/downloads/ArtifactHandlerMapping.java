@@ -0,0 +1,41 @@
+package design.ore.forge.api.downloads;
+
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.handler.SimpleUrlHandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Maps {@value ArtifactDownloadHandler#URL_PATH} to an
+ * {@link ArtifactDownloadHandler}, but only for the artifacts it serves.
+ * Other paths under it, and all of them if the module has no artifacts, are
+ * left to the next mapping, so the module's own static resources there stay
+ * reachable.
+ * <p>
+ * Ordered after annotated controllers and before static resources.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class ArtifactHandlerMapping extends SimpleUrlHandlerMapping
+{
+    private final ArtifactDownloadHandler handler;
+
+    /**
+     * @param handler the handler serving the artifacts, or null to map nothing
+     */
+    public ArtifactHandlerMapping(ArtifactDownloadHandler handler)
+    {
+        this.handler = handler;
+        setOrder(Ordered.LOWEST_PRECEDENCE - 2);
+        if (handler != null) setUrlMap(Map.of(ArtifactDownloadHandler.URL_PATH + "**", handler));
+    }
+
+    @Override
+    protected Object buildPathExposingHandler(Object rawHandler, String bestMatchingPattern, String pathWithinMapping, Map<String, String> uriTemplateVariables)
+    {
+        // No handler here makes the dispatcher ask the next mapping
+        if (rawHandler == handler && !handler.serves(pathWithinMapping)) return null;
+        return super.buildPathExposingHandler(rawHandler, bestMatchingPattern, pathWithinMapping, uriTemplateVariables);
+    }
+}
@@ -0,0 +1,34 @@
+package design.ore.forge.api.downloads;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+/**
+ * Length, modification time and SHA-256 checksum of a download artifact,
+ * cached by {@link ArtifactMetadataCache} until the file changes.
+ *
+ * @since 0.4.0
+ */
+@AllArgsConstructor
+@Getter
+public class ArtifactMetadata
+{
+    private final Path path;
+    private final long length;
+    private final long lastModified;
+
+    /**
+     * The SHA-256 checksum of the file's content, in lowercase hexadecimal.
+     */
+    private final String sha256;
+
+    /**
+     * @return a strong entity tag derived from the checksum, including quotes
+     */
+    public String getETag()
+    {
+        return "\"" + sha256 + "\"";
+    }
+}
@@ -0,0 +1,159 @@
+package design.ore.forge.api.downloads;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of {@link ArtifactMetadata}, revalidated against the file's length
+ * and modification time on every lookup.
+ * <p>
+ * Checksums are precomputed: a {@code <artifact>.sha256} file in the format
+ * of {@code sha256sum} next to the artifact is used if it is not older than
+ * the artifact, for example one written by the build that produced it.
+ * Otherwise the checksum is computed once, streaming the file through a
+ * direct buffer, and written to such a file for the next start. Concurrent
+ * lookups of an artifact wait for the same computation, without blocking
+ * lookups of other artifacts.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class ArtifactMetadataCache
+{
+    public static final String CHECKSUM_SUFFIX = ".sha256";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ArtifactMetadataCache.class);
+    private static final int HASH_BUFFER_SIZE = 256 * 1024;
+
+    private final Map<Path, CompletableFuture<ArtifactMetadata>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * @param path a file
+     * @return whether the file is a checksum file of an artifact
+     */
+    public static boolean isChecksumFile(Path path)
+    {
+        return path.getFileName().toString().endsWith(CHECKSUM_SUFFIX);
+    }
+
+    /**
+     * @param path the artifact
+     * @return the metadata of the artifact's current version
+     * @throws IOException if the artifact cannot be read
+     */
+    public ArtifactMetadata get(Path path) throws IOException
+    {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+
+        while (true)
+        {
+            CompletableFuture<ArtifactMetadata> cached = cache.get(path);
+            if (cached != null)
+            {
+                ArtifactMetadata metadata = await(cached);
+                if (metadata.getLength() == length && metadata.getLastModified() == lastModified) return metadata;
+            }
+
+            // Hashing happens outside the map, so a large artifact does not block lookups of others, and
+            // concurrent first requests for it wait for the same computation instead of hashing it again
+            CompletableFuture<ArtifactMetadata> computing = new CompletableFuture<>();
+            boolean owner = cached == null ? cache.putIfAbsent(path, computing) == null : cache.replace(path, cached, computing);
+            if (!owner) continue;
+
+            try
+            {
+                ArtifactMetadata metadata = new ArtifactMetadata(path, length, lastModified, checksum(path, lastModified));
+                computing.complete(metadata);
+                return metadata;
+            }
+            catch (IOException | RuntimeException e)
+            {
+                cache.remove(path, computing);
+                computing.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    private static ArtifactMetadata await(CompletableFuture<ArtifactMetadata> metadata) throws IOException
+    {
+        try
+        {
+            return metadata.join();
+        }
+        catch (CompletionException e)
+        {
+            if (e.getCause() instanceof IOException io) throw io;
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw e;
+        }
+    }
+
+    /**
+     * Forgets the metadata of an artifact, for example after it was deleted.
+     */
+    public void evict(Path path)
+    {
+        cache.remove(path);
+    }
+
+    private static String checksum(Path path, long lastModified) throws IOException
+    {
+        Path sidecar = path.resolveSibling(path.getFileName() + CHECKSUM_SUFFIX);
+        if (Files.isRegularFile(sidecar) && Files.getLastModifiedTime(sidecar).toMillis() >= lastModified)
+        {
+            String content = Files.readString(sidecar, StandardCharsets.US_ASCII).trim();
+            String hex = content.split("\\s+", 2)[0].toLowerCase();
+            if (hex.length() == 64 && hex.chars().allMatch(c -> Character.digit(c, 16) >= 0)) return hex;
+            LOG.warn("Ignoring malformed checksum file {}", sidecar);
+        }
+
+        String hex = HexFormat.of().formatHex(sha256(path));
+        try
+        {
+            Files.writeString(sidecar, hex + "  " + path.getFileName() + "\n", StandardCharsets.US_ASCII);
+        }
+        catch (IOException e)
+        {
+            LOG.debug("Could not write checksum file {}", sidecar, e);
+        }
+        return hex;
+    }
+
+    private static byte[] sha256(Path path) throws IOException
+    {
+        MessageDigest digest;
+        try { digest = MessageDigest.getInstance("SHA-256"); }
+        catch (NoSuchAlgorithmException e) { throw new IllegalStateException("SHA-256 is not available", e); }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            while (channel.read(buffer) >= 0)
+            {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return digest.digest();
+    }
+}
@@ -0,0 +1,533 @@
+package design.ore.forge.api.downloads;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary delta patches that turn one version of an artifact into another.
+ * <p>
+ * A patch starts with the length and SHA-256 checksum of the source and the
+ * target it was made for, followed by a deflated stream of instructions to
+ * copy ranges of the source or insert new bytes. {@link #apply} checks the
+ * source against the header before it starts and the result against it
+ * when it is done, so a patch applied to the wrong file or damaged in
+ * transit fails instead of producing a broken artifact.
+ * </p>
+ * <p>
+ * Patches are created rsync style: the source is indexed by a rolling
+ * checksum of fixed-size blocks, the target is scanned for matching blocks
+ * a byte at a time, and every match is extended in both directions as far
+ * as the content agrees. Both files are memory mapped, so artifacts up to
+ * 2 GiB are supported.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * // On the client, with the installer of the current version and the downloaded patch
+ * DeltaPatch.apply(Path.of("setup-1.4.0.msi"), Path.of("setup.msi.fdelta"), Path.of("setup-1.4.2.msi"));
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public final class DeltaPatch
+{
+    /**
+     * Content type that patches are served with.
+     */
+    public static final String CONTENT_TYPE = "application/vnd.forge.delta";
+
+    /**
+     * Largest artifact that patches can be created for.
+     */
+    public static final long MAX_ARTIFACT_LENGTH = Integer.MAX_VALUE;
+
+    private static final int MAGIC = 0x46444C54; // "FDLT"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int OP_END = 0;
+    private static final int OP_COPY = 1;
+    private static final int OP_INSERT = 2;
+
+    private static final int MIN_BLOCK_SIZE = 64;
+    private static final int MAX_BLOCK_SIZE = 4096;
+    private static final int MAX_CANDIDATES = 8;
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    private DeltaPatch()
+    {
+        throw new AssertionError("No instances");
+    }
+
+    /**
+     * The versions of the artifact a patch was made for.
+     *
+     * @param sourceLength the length of the artifact the patch applies to
+     * @param sourceSha256 the SHA-256 checksum of the artifact the patch applies to, in lowercase hexadecimal
+     * @param targetLength the length of the artifact the patch produces
+     * @param targetSha256 the SHA-256 checksum of the artifact the patch produces, in lowercase hexadecimal
+     */
+    public record Header(long sourceLength, String sourceSha256, long targetLength, String targetSha256)
+    {
+    }
+
+    /**
+     * Creates a patch from one version of an artifact to another.
+     *
+     * @param source the previous version of the artifact
+     * @param target the new version of the artifact
+     * @param header the lengths and checksums of both, written to the patch
+     * @param patch  the stream to write the patch to, which is not closed
+     * @throws IOException if either artifact cannot be read or is longer than {@link #MAX_ARTIFACT_LENGTH}
+     */
+    public static void create(Path source, Path target, Header header, OutputStream patch) throws IOException
+    {
+        try (FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.READ))
+        {
+            if (sourceChannel.size() > MAX_ARTIFACT_LENGTH || targetChannel.size() > MAX_ARTIFACT_LENGTH)
+                throw new IOException("Patches are limited to artifacts of at most " + MAX_ARTIFACT_LENGTH + " bytes");
+            if (sourceChannel.size() != header.sourceLength() || targetChannel.size() != header.targetLength())
+                throw new IOException("Artifacts changed while creating a patch from " + source + " to " + target);
+
+            MappedByteBuffer sourceBytes = sourceChannel.map(FileChannel.MapMode.READ_ONLY, 0, sourceChannel.size());
+            MappedByteBuffer targetBytes = targetChannel.map(FileChannel.MapMode.READ_ONLY, 0, targetChannel.size());
+
+            DataOutputStream output = new DataOutputStream(patch);
+            writeHeader(output, header);
+            output.flush();
+
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try
+            {
+                DeflaterOutputStream deflated = new DeflaterOutputStream(patch, deflater, IO_BUFFER_SIZE);
+                new Encoder(sourceBytes, targetBytes, new DataOutputStream(new BufferedOutputStream(deflated, IO_BUFFER_SIZE))).encode();
+                deflated.finish();
+            }
+            finally
+            {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Reads the header of a patch.
+     *
+     * @param patch the patch file
+     * @return the lengths and checksums of the versions the patch was made for
+     * @throws IOException if the file cannot be read or is not a patch
+     */
+    public static Header readHeader(Path patch) throws IOException
+    {
+        try (InputStream input = Files.newInputStream(patch))
+        {
+            return readHeader(new DataInputStream(input));
+        }
+    }
+
+    /**
+     * Applies a patch to a file, replacing the target only once the result
+     * matched the checksum in the patch.
+     *
+     * @param source the artifact the patch was made for
+     * @param patch  the patch file
+     * @param target the file to write the patched artifact to
+     * @throws IOException if a file cannot be read or written, or a checksum does not match
+     */
+    public static void apply(Path source, Path patch, Path target) throws IOException
+    {
+        Path absolute = target.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".part");
+        try
+        {
+            try (InputStream input = Files.newInputStream(patch);
+                 OutputStream output = Files.newOutputStream(temporary))
+            {
+                apply(source, input, output);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Applies a patch to a file.
+     * <p>
+     * The output is complete and correct only if this returns normally; the
+     * caller must discard it otherwise.
+     * </p>
+     *
+     * @param source the artifact the patch was made for
+     * @param patch  the stream to read the patch from, which is not closed
+     * @param target the stream to write the patched artifact to, which is not closed
+     * @return the header of the patch
+     * @throws IOException if the source cannot be read, the target cannot be written, or a checksum does not match
+     */
+    public static Header apply(Path source, InputStream patch, OutputStream target) throws IOException
+    {
+        DataInputStream headerInput = new DataInputStream(patch);
+        Header header = readHeader(headerInput);
+
+        try (FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ))
+        {
+            if (sourceChannel.size() != header.sourceLength() || !sha256(sourceChannel).equals(header.sourceSha256()))
+                throw new IOException("Patch does not apply to " + source + ", its checksum does not match");
+
+            MessageDigest digest = newDigest();
+            CountingOutputStream counted = new CountingOutputStream(new DigestOutputStream(target, digest));
+            DataInputStream ops = new DataInputStream(new BufferedInputStream(new InflaterInputStream(patch), IO_BUFFER_SIZE));
+
+            byte[] buffer = new byte[IO_BUFFER_SIZE];
+            ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+            long copyPosition = 0;
+            while (true)
+            {
+                int op = ops.readUnsignedByte();
+                if (op == OP_END) break;
+                if (op == OP_COPY)
+                {
+                    long offset = copyPosition + decodeZigZag(readVarLong(ops));
+                    long length = readVarLong(ops);
+                    if (offset < 0 || length < 0 || offset + length > header.sourceLength()) throw new IOException("Corrupt patch, copy out of bounds");
+                    copyPosition = offset + length;
+                    for (long position = offset; position < copyPosition; )
+                    {
+                        wrapped.clear().limit((int) Math.min(buffer.length, copyPosition - position));
+                        int read = sourceChannel.read(wrapped, position);
+                        if (read < 0) throw new EOFException("Source ended while applying patch");
+                        counted.write(buffer, 0, read);
+                        position += read;
+                    }
+                }
+                else if (op == OP_INSERT)
+                {
+                    long length = readVarLong(ops);
+                    if (length < 0 || counted.count + length > header.targetLength()) throw new IOException("Corrupt patch, insert out of bounds");
+                    for (long remaining = length; remaining > 0; )
+                    {
+                        int chunk = (int) Math.min(buffer.length, remaining);
+                        ops.readFully(buffer, 0, chunk);
+                        counted.write(buffer, 0, chunk);
+                        remaining -= chunk;
+                    }
+                }
+                else throw new IOException("Corrupt patch, unknown instruction " + op);
+            }
+            counted.flush();
+
+            if (counted.count != header.targetLength() || !HexFormat.of().formatHex(digest.digest()).equals(header.targetSha256()))
+                throw new IOException("Patched artifact does not match the checksum in the patch");
+            return header;
+        }
+    }
+
+    private static void writeHeader(DataOutputStream output, Header header) throws IOException
+    {
+        output.writeInt(MAGIC);
+        output.writeByte(FORMAT_VERSION);
+        output.writeLong(header.sourceLength());
+        output.write(HexFormat.of().parseHex(header.sourceSha256()));
+        output.writeLong(header.targetLength());
+        output.write(HexFormat.of().parseHex(header.targetSha256()));
+    }
+
+    private static Header readHeader(DataInputStream input) throws IOException
+    {
+        if (input.readInt() != MAGIC) throw new IOException("Not a delta patch");
+        int version = input.readUnsignedByte();
+        if (version != FORMAT_VERSION) throw new IOException("Unsupported delta patch format " + version);
+
+        byte[] checksum = new byte[32];
+        long sourceLength = input.readLong();
+        input.readFully(checksum);
+        String sourceSha256 = HexFormat.of().formatHex(checksum);
+        long targetLength = input.readLong();
+        input.readFully(checksum);
+        return new Header(sourceLength, sourceSha256, targetLength, HexFormat.of().formatHex(checksum));
+    }
+
+    private static String sha256(FileChannel channel) throws IOException
+    {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE);
+        long position = 0;
+        int read;
+        while ((read = channel.read(buffer, position)) >= 0)
+        {
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+            position += read;
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest()
+    {
+        try { return MessageDigest.getInstance("SHA-256"); }
+        catch (NoSuchAlgorithmException e) { throw new IllegalStateException("SHA-256 is not available", e); }
+    }
+
+    private static void writeVarLong(DataOutputStream output, long value) throws IOException
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream input) throws IOException
+    {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7)
+        {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Corrupt patch, malformed number");
+    }
+
+    private static long encodeZigZag(long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long decodeZigZag(long value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class CountingOutputStream extends OutputStream
+    {
+        private final OutputStream delegate;
+        private long count;
+
+        CountingOutputStream(OutputStream delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            delegate.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            delegate.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            delegate.flush();
+        }
+    }
+
+    /**
+     * Finds the blocks of the source in the target and writes the instructions
+     * to rebuild the target from them.
+     */
+    private static final class Encoder
+    {
+        private final ByteBuffer source;
+        private final ByteBuffer target;
+        private final DataOutputStream output;
+        private final int blockSize;
+
+        // Open addressing table from rolling checksum to block index + 1, 0 marking a free slot
+        private final int[] slots;
+        private final int[] checksums;
+        private final int mask;
+
+        private long copyPosition;
+        private final byte[] literal = new byte[IO_BUFFER_SIZE];
+
+        Encoder(ByteBuffer source, ByteBuffer target, DataOutputStream output)
+        {
+            this.source = source;
+            this.target = target;
+            this.output = output;
+
+            // Aim for around 128k blocks, so the index stays small for large artifacts
+            this.blockSize = Math.clamp(Integer.highestOneBit(Math.max(1, source.capacity() >>> 17)), MIN_BLOCK_SIZE, MAX_BLOCK_SIZE);
+            int blocks = source.capacity() / blockSize;
+            this.checksums = new int[blocks];
+            this.slots = new int[Math.max(16, Integer.highestOneBit(Math.max(1, blocks)) << 2)];
+            this.mask = slots.length - 1;
+
+            for (int block = 0; block < blocks; block++)
+            {
+                int checksum = checksum(source, block * blockSize, blockSize);
+                checksums[block] = checksum;
+                int slot = slot(checksum);
+                int duplicates = 0;
+                while (slots[slot] != 0 && duplicates < MAX_CANDIDATES)
+                {
+                    if (checksums[slots[slot] - 1] == checksum) duplicates++;
+                    slot = (slot + 1) & mask;
+                }
+                // Repetitive content would otherwise turn the probe sequences quadratic
+                if (duplicates < MAX_CANDIDATES) slots[slot] = block + 1;
+            }
+        }
+
+        void encode() throws IOException
+        {
+            int length = target.capacity();
+            int position = 0;
+            int literalStart = 0;
+
+            if (length >= blockSize && checksums.length > 0)
+            {
+                int checksum = checksum(target, 0, blockSize);
+                while (true)
+                {
+                    long match = findMatch(checksum, position);
+                    if (match >= 0)
+                    {
+                        int sourceOffset = (int) (match >>> 32);
+                        int matchLength = (int) match;
+
+                        // Extend the match backwards into bytes that would otherwise be inserted
+                        while (position > literalStart && sourceOffset > 0 && source.get(sourceOffset - 1) == target.get(position - 1))
+                        {
+                            position--;
+                            sourceOffset--;
+                            matchLength++;
+                        }
+
+                        insert(literalStart, position);
+                        copy(sourceOffset, matchLength);
+                        position += matchLength;
+                        literalStart = position;
+                        if (position + blockSize > length) break;
+                        checksum = checksum(target, position, blockSize);
+                    }
+                    else
+                    {
+                        if (position + blockSize >= length) break;
+                        checksum = roll(checksum, target.get(position), target.get(position + blockSize));
+                        position++;
+                    }
+                }
+            }
+
+            insert(literalStart, length);
+            output.writeByte(OP_END);
+            output.flush();
+        }
+
+        /**
+         * @return the source offset in the upper and the length in the lower
+         *         half of the longest verified match, or -1 if there is none
+         */
+        private long findMatch(int checksum, int position)
+        {
+            long best = -1;
+            int bestLength = 0;
+            int slot = slot(checksum);
+            for (int probes = 0; slots[slot] != 0 && probes < MAX_CANDIDATES; probes++, slot = (slot + 1) & mask)
+            {
+                int block = slots[slot] - 1;
+                if (checksums[block] != checksum) continue;
+
+                int sourceOffset = block * blockSize;
+                int matchLength = commonPrefix(sourceOffset, position);
+                if (matchLength >= blockSize && matchLength > bestLength)
+                {
+                    bestLength = matchLength;
+                    best = ((long) sourceOffset << 32) | matchLength;
+                }
+            }
+            return best;
+        }
+
+        private int commonPrefix(int sourceOffset, int targetOffset)
+        {
+            int length = Math.min(source.capacity() - sourceOffset, target.capacity() - targetOffset);
+            int mismatch = source.slice(sourceOffset, length).mismatch(target.slice(targetOffset, length));
+            return mismatch < 0 ? length : mismatch;
+        }
+
+        private void copy(int offset, int length) throws IOException
+        {
+            output.writeByte(OP_COPY);
+            writeVarLong(output, encodeZigZag(offset - copyPosition));
+            writeVarLong(output, length);
+            copyPosition = (long) offset + length;
+        }
+
+        private void insert(int from, int to) throws IOException
+        {
+            if (from >= to) return;
+            output.writeByte(OP_INSERT);
+            writeVarLong(output, to - from);
+            for (int position = from; position < to; )
+            {
+                int chunk = Math.min(literal.length, to - position);
+                target.get(position, literal, 0, chunk);
+                output.write(literal, 0, chunk);
+                position += chunk;
+            }
+        }
+
+        private int slot(int checksum)
+        {
+            return (checksum * 0x9E3779B9) >>> 7 & mask;
+        }
+
+        /**
+         * Adler style checksum: the sum of the bytes in the lower and the sum
+         * of the running sums in the upper half, both of which can be updated
+         * in constant time when the window moves by one byte.
+         */
+        private static int checksum(ByteBuffer buffer, int offset, int length)
+        {
+            int a = 0, b = 0;
+            for (int i = 0; i < length; i++)
+            {
+                a += buffer.get(offset + i) & 0xFF;
+                b += a;
+            }
+            return (a & 0xFFFF) | (b << 16);
+        }
+
+        private int roll(int checksum, byte removed, byte added)
+        {
+            int a = checksum & 0xFFFF, b = checksum >>> 16;
+            a = (a - (removed & 0xFF) + (added & 0xFF)) & 0xFFFF;
+            b = (b - blockSize * (removed & 0xFF) + a) & 0xFFFF;
+            return a | (b << 16);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package design.ore.forge.api.downloads;
+
+import design.ore.forge.api.VersionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Delta patches from the previous versions of released artifacts to the
+ * latest one.
+ * <p>
+ * A release channel is a directory of the artifact directory with one
+ * subdirectory per version, as laid out by
+ * {@link design.ore.forge.api.registrations.DownloadRegistration#forRelease}.
+ * {@link #generate()} creates a {@link DeltaPatch} from each of the previous
+ * {@code sourceVersions} versions of every artifact in the latest version
+ * that has a file of the same name, verifies it by applying it, and removes
+ * patches to versions that are no longer the latest. It is meant to run in
+ * the background and only does work when a release was added or replaced.
+ * </p>
+ * <p>
+ * Patches are stored as
+ * {@code <patch directory>/<channel>/<version>/<previous version>/<artifact>.fdelta}
+ * and served in place of the artifact when a client names the version it
+ * has in the {@value #FROM_PARAMETER} parameter, as long as the patch is
+ * smaller than the artifact.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class ReleasePatches
+{
+    /**
+     * Path under the module's persistent data directory that patches are stored in.
+     */
+    public static final String PATCH_DIRECTORY = "patches";
+
+    /**
+     * Request parameter that clients pass the version they have in.
+     */
+    public static final String FROM_PARAMETER = "from";
+
+    public static final String PATCH_SUFFIX = ".fdelta";
+
+    private static final Pattern VERSION = Pattern.compile("\\d{1,9}(\\.\\d{1,9})*");
+    private static final Logger LOG = LoggerFactory.getLogger(ReleasePatches.class);
+
+    private final Path artifactRoot;
+    private final Path patchRoot;
+    private final ArtifactMetadataCache metadata;
+    private final int sourceVersions;
+
+    /**
+     * @param artifactRoot   the directory artifacts are served from
+     * @param patchRoot      the directory to store patches in
+     * @param metadata       the cache of artifact metadata
+     * @param sourceVersions how many previous versions to create patches from
+     */
+    public ReleasePatches(Path artifactRoot, Path patchRoot, ArtifactMetadataCache metadata, int sourceVersions)
+    {
+        this.artifactRoot = artifactRoot.toAbsolutePath().normalize();
+        this.patchRoot = patchRoot.toAbsolutePath().normalize();
+        this.metadata = metadata;
+        this.sourceVersions = sourceVersions;
+    }
+
+    /**
+     * @param version a version string
+     * @return whether the version can name a release directory
+     */
+    public static boolean isVersion(String version)
+    {
+        return version != null && VERSION.matcher(version).matches();
+    }
+
+    /**
+     * Finds the patch from a previous version to an artifact.
+     *
+     * @param artifact    the metadata of the artifact requested
+     * @param fromVersion the version the client has
+     * @return the patch, or null if there is none that is current and smaller than the artifact
+     */
+    public Path find(ArtifactMetadata artifact, String fromVersion)
+    {
+        if (!isVersion(fromVersion) || !artifact.getPath().startsWith(artifactRoot)) return null;
+
+        Path relative = artifactRoot.relativize(artifact.getPath());
+        int names = relative.getNameCount();
+        if (names < 3) return null;
+
+        String version = relative.getName(names - 2).toString();
+        if (!isVersion(version) || VersionUtils.compare(fromVersion, version) >= 0) return null;
+
+        Path patch = patchRoot.resolve(relative.subpath(0, names - 2)).resolve(version).resolve(fromVersion)
+            .resolve(relative.getFileName() + PATCH_SUFFIX);
+        try
+        {
+            if (Files.size(patch) >= artifact.getLength()) return null;
+            // A patch is replaced in the background after its target changed; until then it must not be served
+            return DeltaPatch.readHeader(patch).targetSha256().equals(artifact.getSha256()) ? patch : null;
+        }
+        catch (NoSuchFileException e)
+        {
+            return null;
+        }
+        catch (IOException e)
+        {
+            LOG.debug("Could not read patch {}", patch, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return whether the artifact directory holds a release channel, a
+     *         directory with a subdirectory named by a version
+     */
+    public boolean hasReleases()
+    {
+        if (!Files.isDirectory(artifactRoot)) return false;
+        try (Stream<Path> directories = Files.walk(artifactRoot))
+        {
+            return directories.filter(directory -> !directory.equals(artifactRoot) && !directory.startsWith(patchRoot))
+                .anyMatch(directory -> isVersion(directory.getFileName().toString()) && Files.isDirectory(directory));
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Could not look for release channels in {}", artifactRoot, e);
+            return false;
+        }
+    }
+
+    /**
+     * Creates the missing and outdated patches of all release channels and
+     * removes those that are no longer needed.
+     */
+    public void generate()
+    {
+        if (!Files.isDirectory(artifactRoot)) return;
+        try (Stream<Path> directories = Files.walk(artifactRoot))
+        {
+            for (Path channel : directories.filter(Files::isDirectory).toList())
+            {
+                if (channel.startsWith(patchRoot)) continue;
+                List<String> versions = versions(channel);
+                if (versions.size() >= 2) generate(channel, versions);
+            }
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Could not generate patches for artifacts in {}", artifactRoot, e);
+        }
+    }
+
+    private void generate(Path channel, List<String> versions) throws IOException
+    {
+        String latest = versions.getFirst();
+        List<String> sources = versions.subList(1, Math.min(versions.size(), sourceVersions + 1));
+        Path channelPatches = patchRoot.resolve(artifactRoot.relativize(channel).toString());
+
+        try (Stream<Path> files = Files.list(channel.resolve(latest)))
+        {
+            for (Path target : files.filter(Files::isRegularFile).filter(file -> !ArtifactMetadataCache.isChecksumFile(file)).toList())
+            {
+                for (String source : sources)
+                {
+                    Path previous = channel.resolve(source).resolve(target.getFileName().toString());
+                    if (!Files.isRegularFile(previous)) continue;
+
+                    Path patch = channelPatches.resolve(latest).resolve(source).resolve(target.getFileName() + PATCH_SUFFIX);
+                    try { ensurePatch(previous, target, patch); }
+                    catch (IOException e) { LOG.warn("Could not create patch from {} to {}", previous, target, e); }
+                }
+            }
+        }
+
+        removeOthers(channelPatches, Set.of(latest));
+        removeOthers(channelPatches.resolve(latest), Set.copyOf(sources));
+    }
+
+    private void ensurePatch(Path source, Path target, Path patch) throws IOException
+    {
+        ArtifactMetadata sourceMetadata = metadata.get(source);
+        ArtifactMetadata targetMetadata = metadata.get(target);
+        DeltaPatch.Header header = new DeltaPatch.Header(sourceMetadata.getLength(), sourceMetadata.getSha256(),
+            targetMetadata.getLength(), targetMetadata.getSha256());
+
+        if (Files.isRegularFile(patch))
+        {
+            try { if (DeltaPatch.readHeader(patch).equals(header)) return; }
+            catch (IOException e) { LOG.debug("Replacing unreadable patch {}", patch, e); }
+        }
+        if (header.sourceLength() > DeltaPatch.MAX_ARTIFACT_LENGTH || header.targetLength() > DeltaPatch.MAX_ARTIFACT_LENGTH)
+        {
+            LOG.debug("Not creating a patch from {} to {}, artifacts are too large", source, target);
+            return;
+        }
+
+        long started = System.nanoTime();
+        Files.createDirectories(patch.getParent());
+        Path temporary = Files.createTempFile(patch.getParent(), patch.getFileName().toString(), ".part");
+        try
+        {
+            try (OutputStream output = Files.newOutputStream(temporary))
+            {
+                DeltaPatch.create(source, target, header, output);
+            }
+            try (InputStream input = Files.newInputStream(temporary))
+            {
+                DeltaPatch.apply(source, input, OutputStream.nullOutputStream());
+            }
+            Files.move(temporary, patch, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            Files.deleteIfExists(temporary);
+        }
+
+        // Checksums the patch now, so the first client requesting it does not wait
+        metadata.get(patch);
+        LOG.info("Created patch from {} to {}: {} bytes instead of {} in {} ms", source, target,
+            Files.size(patch), header.targetLength(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * @return the versions that have a directory in the channel, latest first
+     */
+    private static List<String> versions(Path channel) throws IOException
+    {
+        try (Stream<Path> children = Files.list(channel))
+        {
+            return children.filter(Files::isDirectory)
+                .map(child -> child.getFileName().toString())
+                .filter(ReleasePatches::isVersion)
+                .sorted(VersionUtils.ORDER.reversed())
+                .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private void removeOthers(Path directory, Set<String> keep) throws IOException
+    {
+        if (!Files.isDirectory(directory)) return;
+        List<Path> stale;
+        try (Stream<Path> children = Files.list(directory))
+        {
+            stale = children.filter(Files::isDirectory)
+                .map(child -> child.getFileName().toString())
+                .filter(name -> isVersion(name) && !keep.contains(name))
+                .map(directory::resolve)
+                .toList();
+        }
+        for (Path path : stale)
+        {
+            try (Stream<Path> tree = Files.walk(path))
+            {
+                for (Path file : tree.sorted(Comparator.reverseOrder()).toList())
+                {
+                    Files.deleteIfExists(file);
+                    metadata.evict(file);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package design.ore.forge.api.enums;
+
+public enum ActivationMode
+{
+    EAGER,
+    LAZY,
+}
@@ -0,0 +1,8 @@
+package design.ore.forge.api.enums;
+
+public enum DiscardPolicy
+{
+    BLOCK,
+    DROP,
+    DROP_BELOW_WARN,
+}
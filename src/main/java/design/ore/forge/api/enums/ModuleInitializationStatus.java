@@ -0,0 +1,9 @@
+package design.ore.forge.api.enums;
+
+public enum ModuleInitializationStatus
+{
+    INITIALIZED,
+    FAILED,
+    TIMED_OUT,
+    SKIPPED,
+}
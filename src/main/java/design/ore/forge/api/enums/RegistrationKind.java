@@ -0,0 +1,8 @@
+package design.ore.forge.api.enums;
+
+public enum RegistrationKind
+{
+    APPLET,
+    LINK,
+    DOWNLOAD,
+}
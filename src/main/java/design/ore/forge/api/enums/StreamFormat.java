@@ -0,0 +1,8 @@
+package design.ore.forge.api.enums;
+
+public enum StreamFormat
+{
+    JSON_ARRAY,
+    NDJSON,
+    CSV,
+}
@@ -0,0 +1,7 @@
+package design.ore.forge.api.enums;
+
+public enum WorkKind
+{
+    REQUEST,
+    TASK,
+}
@@ -0,0 +1,22 @@
+package design.ore.forge.api.events;
+
+/**
+ * Handle of an event subscription.
+ *
+ * @since 0.4.0
+ */
+public interface EventSubscription extends AutoCloseable
+{
+    /**
+     * Stops delivery to this subscriber. Events already queued are discarded.
+     */
+    void unsubscribe();
+
+    /**
+     * @return the delivery statistics of this subscription
+     */
+    SubscriptionStats getStats();
+
+    @Override
+    default void close() { unsubscribe(); }
+}
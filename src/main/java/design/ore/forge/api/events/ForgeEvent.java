@@ -0,0 +1,43 @@
+package design.ore.forge.api.events;
+
+import lombok.Getter;
+
+/**
+ * Base class of all events published on an {@link design.ore.forge.api.interfaces.IModuleEventBus}.
+ * <p>
+ * Events should be immutable, since the same instance is delivered to every
+ * subscriber, possibly on different threads.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+@Getter
+public abstract class ForgeEvent
+{
+    private final long timestamp = System.currentTimeMillis();
+    private volatile String sourceModuleId;
+
+    protected ForgeEvent() { }
+
+    protected ForgeEvent(String sourceModuleId)
+    {
+        this.sourceModuleId = sourceModuleId;
+    }
+
+    /**
+     * Key used by subscribers with the {@link design.ore.forge.api.enums.OverflowPolicy#COALESCE}
+     * policy. A pending event is replaced by a newer event with an equal key,
+     * so only the latest state is delivered. Events returning null are never coalesced.
+     *
+     * @return the coalescing key of this event, or null
+     */
+    public Object getCoalescingKey()
+    {
+        return null;
+    }
+
+    void assignSource(String moduleId)
+    {
+        if (sourceModuleId == null) sourceModuleId = moduleId;
+    }
+}
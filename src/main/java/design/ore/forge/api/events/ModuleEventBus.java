@@ -0,0 +1,372 @@
+package design.ore.forge.api.events;
+
+import design.ore.forge.api.enums.OverflowPolicy;
+import design.ore.forge.api.interfaces.IModuleEventBus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Reference implementation of {@link IModuleEventBus}, shared by all modules of a host.
+ * <p>
+ * Publishing does not take any locks: the subscribers of each event type are
+ * resolved once into an array that is rebuilt whenever a subscription changes,
+ * and events are appended to each subscriber's lock-free queue. A subscriber
+ * with pending events is scheduled on the executor and drains its queue in
+ * batches, so subscribers never run concurrently with themselves. A publisher
+ * blocked by a full {@link OverflowPolicy#BLOCK} subscriber waits on a
+ * condition that the subscriber signals as it takes events off its queue;
+ * the lock behind it is only taken while a publisher is waiting.
+ * </p>
+ * <p>
+ * The host hands each module a {@link ModuleScope} from {@link #forModule(String)},
+ * which stamps published events with the module ID and removes all of the
+ * module's subscriptions when closed.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class ModuleEventBus implements IModuleEventBus, AutoCloseable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ModuleEventBus.class);
+    private static final int DRAIN_BATCH_SIZE = 256;
+
+    private final Executor executor;
+    private final boolean ownsExecutor;
+    private final Set<Subscriber<?>> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicReference<Map<Class<?>, Subscriber<?>[]>> routes = new AtomicReference<>(new ConcurrentHashMap<>());
+
+    /**
+     * Creates a bus delivering events on virtual threads.
+     */
+    public ModuleEventBus()
+    {
+        this(Executors.newVirtualThreadPerTaskExecutor(), true);
+    }
+
+    /**
+     * Creates a bus delivering events on the given executor.
+     *
+     * @param executor the executor running subscriber handlers
+     */
+    public ModuleEventBus(Executor executor)
+    {
+        this(executor, false);
+    }
+
+    private ModuleEventBus(Executor executor, boolean ownsExecutor)
+    {
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    @Override
+    public void publish(ForgeEvent event)
+    {
+        for (Subscriber<?> subscriber : routes.get().computeIfAbsent(event.getClass(), this::route)) subscriber.offer(event);
+    }
+
+    @Override
+    public <E extends ForgeEvent> EventSubscription subscribe(Class<E> type, Consumer<? super E> handler, SubscriptionOptions options)
+    {
+        return subscribe(type, handler, options, null);
+    }
+
+    private <E extends ForgeEvent> Subscriber<E> subscribe(Class<E> type, Consumer<? super E> handler, SubscriptionOptions options, Set<Subscriber<?>> owner)
+    {
+        Subscriber<E> subscriber = new Subscriber<>(type, handler, options, owner);
+        subscribers.add(subscriber);
+        if (owner != null) owner.add(subscriber);
+
+        // Replace rather than clear, so a route computed concurrently from the old subscriber set is discarded
+        routes.set(new ConcurrentHashMap<>());
+        return subscriber;
+    }
+
+    private void remove(Subscriber<?> subscriber)
+    {
+        if (subscribers.remove(subscriber)) routes.set(new ConcurrentHashMap<>());
+        if (subscriber.owner != null) subscriber.owner.remove(subscriber);
+    }
+
+    private Subscriber<?>[] route(Class<?> eventType)
+    {
+        return subscribers.stream().filter(subscriber -> subscriber.type.isAssignableFrom(eventType)).toArray(Subscriber<?>[]::new);
+    }
+
+    /**
+     * Returns a view of this bus for a single module.
+     *
+     * @param moduleId the ID of the module
+     * @return the module's view of the bus
+     */
+    public ModuleScope forModule(String moduleId)
+    {
+        return new ModuleScope(moduleId);
+    }
+
+    /**
+     * @return the statistics of every active subscription
+     */
+    public List<SubscriptionStats> getStats()
+    {
+        return subscribers.stream().map(Subscriber::getStats).toList();
+    }
+
+    /**
+     * Removes all subscriptions and, if the bus created its own executor, shuts it down.
+     */
+    @Override
+    public void close()
+    {
+        subscribers.forEach(Subscriber::unsubscribe);
+        if (ownsExecutor && executor instanceof ExecutorService service) service.shutdown();
+    }
+
+    /**
+     * A module's view of the bus.
+     */
+    public final class ModuleScope implements IModuleEventBus, AutoCloseable
+    {
+        private final String moduleId;
+        private final Set<Subscriber<?>> owned = ConcurrentHashMap.newKeySet();
+
+        private ModuleScope(String moduleId)
+        {
+            this.moduleId = moduleId;
+        }
+
+        @Override
+        public void publish(ForgeEvent event)
+        {
+            event.assignSource(moduleId);
+            ModuleEventBus.this.publish(event);
+        }
+
+        @Override
+        public <E extends ForgeEvent> EventSubscription subscribe(Class<E> type, Consumer<? super E> handler, SubscriptionOptions options)
+        {
+            return ModuleEventBus.this.subscribe(type, handler, options, owned);
+        }
+
+        /**
+         * @return the statistics of the module's subscriptions
+         */
+        public List<SubscriptionStats> getStats()
+        {
+            return owned.stream().map(Subscriber::getStats).toList();
+        }
+
+        /**
+         * Removes all subscriptions made through this scope.
+         */
+        @Override
+        public void close()
+        {
+            owned.forEach(Subscriber::unsubscribe);
+        }
+    }
+
+    private record Envelope(ForgeEvent event, long publishedNanos) { }
+
+    private record CoalescedKey(Object key) { }
+
+    private final class Subscriber<E extends ForgeEvent> implements EventSubscription, Runnable
+    {
+        private final Class<E> type;
+        private final Consumer<? super E> handler;
+        private final OverflowPolicy policy;
+        private final int capacity;
+        private final Set<Subscriber<?>> owner;
+
+        private final ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<>();
+        private final Map<Object, Envelope> pending = new ConcurrentHashMap<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final ReentrantLock capacityLock = new ReentrantLock();
+        private final Condition notFull = capacityLock.newCondition();
+        private final AtomicInteger waiting = new AtomicInteger();
+        private volatile boolean active = true;
+
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder coalesced = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder totalLatency = new LongAdder();
+        private final LongAccumulator maxLatency = new LongAccumulator(Math::max, 0);
+
+        private Subscriber(Class<E> type, Consumer<? super E> handler, SubscriptionOptions options, Set<Subscriber<?>> owner)
+        {
+            this.type = type;
+            this.handler = handler;
+            this.policy = options.getOverflowPolicy();
+            this.capacity = options.getQueueCapacity();
+            this.owner = owner;
+        }
+
+        private void offer(ForgeEvent event)
+        {
+            if (!active) return;
+            Envelope envelope = new Envelope(event, System.nanoTime());
+
+            Object key = policy == OverflowPolicy.COALESCE ? event.getCoalescingKey() : null;
+            if (key != null)
+            {
+                // Capacity is reserved before the event becomes pending, so a pending
+                // event always has its key queued. If the key is already queued, the
+                // pending event is simply replaced by the newer one.
+                if (!reserve())
+                {
+                    if (pending.computeIfPresent(key, (k, previous) -> envelope) != null) coalesced.increment();
+                    else dropped.increment();
+                    return;
+                }
+                if (pending.put(key, envelope) != null)
+                {
+                    size.decrementAndGet();
+                    coalesced.increment();
+                    return;
+                }
+                queue.offer(new CoalescedKey(key));
+            }
+            else
+            {
+                if (!reserve())
+                {
+                    if (policy != OverflowPolicy.BLOCK || !awaitCapacity())
+                    {
+                        dropped.increment();
+                        return;
+                    }
+                }
+                queue.offer(envelope);
+            }
+
+            if (scheduled.compareAndSet(false, true)) executor.execute(this);
+        }
+
+        private boolean reserve()
+        {
+            while (true)
+            {
+                int current = size.get();
+                if (current >= capacity) return false;
+                if (size.compareAndSet(current, current + 1)) return true;
+            }
+        }
+
+        private boolean awaitCapacity()
+        {
+            capacityLock.lock();
+            waiting.incrementAndGet();
+            try
+            {
+                // Registered as waiting before checking, so a slot freed after the check is signalled
+                while (active)
+                {
+                    if (reserve()) return true;
+                    notFull.await();
+                }
+                return false;
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            finally
+            {
+                waiting.decrementAndGet();
+                capacityLock.unlock();
+            }
+        }
+
+        private void signalCapacity(boolean all)
+        {
+            if (waiting.get() == 0) return;
+            capacityLock.lock();
+            try
+            {
+                if (all) notFull.signalAll();
+                else notFull.signal();
+            }
+            finally
+            {
+                capacityLock.unlock();
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                for (int i = 0; i < DRAIN_BATCH_SIZE && active; i++)
+                {
+                    Object item = queue.poll();
+                    if (item == null) break;
+                    size.decrementAndGet();
+                    signalCapacity(false);
+
+                    Envelope envelope = item instanceof CoalescedKey coalescedKey ? pending.remove(coalescedKey.key()) : (Envelope) item;
+                    if (envelope != null) deliver(envelope);
+                }
+            }
+            finally
+            {
+                scheduled.set(false);
+                if (active && !queue.isEmpty() && scheduled.compareAndSet(false, true)) executor.execute(this);
+            }
+        }
+
+        private void deliver(Envelope envelope)
+        {
+            long latency = System.nanoTime() - envelope.publishedNanos();
+            totalLatency.add(latency);
+            maxLatency.accumulate(latency);
+            delivered.increment();
+
+            try
+            {
+                handler.accept(type.cast(envelope.event()));
+            }
+            catch (Throwable t)
+            {
+                failed.increment();
+                LOG.warn("Subscriber of {} failed to handle event published by {}", type.getName(), envelope.event().getSourceModuleId(), t);
+            }
+        }
+
+        @Override
+        public void unsubscribe()
+        {
+            active = false;
+            remove(this);
+            queue.clear();
+            pending.clear();
+            signalCapacity(true);
+        }
+
+        @Override
+        public SubscriptionStats getStats()
+        {
+            return new SubscriptionStats(type.getName(), size.get(), delivered.sum(), dropped.sum(), coalesced.sum(), failed.sum(), totalLatency.sum(), maxLatency.get());
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package design.ore.forge.api.events;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Published by the host when a module has finished initializing.
+ *
+ * @since 0.4.0
+ */
+@Getter
+public class ModuleInitializedEvent extends ForgeEvent
+{
+    private final Duration initializationTime;
+
+    public ModuleInitializedEvent(String moduleId, Duration initializationTime)
+    {
+        super(moduleId);
+        this.initializationTime = initializationTime;
+    }
+}
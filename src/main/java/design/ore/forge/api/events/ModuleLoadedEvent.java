@@ -1,5 +1,18 @@
 package design.ore.forge.api.events;
 
-public class ModuleLoadedEvent
+import lombok.Getter;
+
+/**
+ * Published by the host when a module has been loaded, before it is initialized.
+ */
+@Getter
+public class ModuleLoadedEvent extends ForgeEvent
 {
+    private final String moduleVersion;
+
+    public ModuleLoadedEvent(String moduleId, String moduleVersion)
+    {
+        super(moduleId);
+        this.moduleVersion = moduleVersion;
+    }
 }
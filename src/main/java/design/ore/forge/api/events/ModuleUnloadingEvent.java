@@ -0,0 +1,15 @@
+package design.ore.forge.api.events;
+
+/**
+ * Published by the host before a module is stopped. Subscriptions of the
+ * unloading module are removed once all subscribers have been notified.
+ *
+ * @since 0.4.0
+ */
+public class ModuleUnloadingEvent extends ForgeEvent
+{
+    public ModuleUnloadingEvent(String moduleId)
+    {
+        super(moduleId);
+    }
+}
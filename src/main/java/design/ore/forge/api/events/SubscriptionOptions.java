@@ -0,0 +1,48 @@
+package design.ore.forge.api.events;
+
+import design.ore.forge.api.enums.OverflowPolicy;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Delivery options of an event subscription.
+ *
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * context.getEventBus().subscribe(InventoryChangedEvent.class, this::refresh,
+ *     SubscriptionOptions.builder()
+ *         .queueCapacity(64)
+ *         .overflowPolicy(OverflowPolicy.COALESCE)
+ *         .build());
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+@Getter
+@Builder
+public class SubscriptionOptions
+{
+    public static final SubscriptionOptions DEFAULT = SubscriptionOptions.builder().build();
+
+    /**
+     * Maximum number of events waiting to be delivered to the subscriber.
+     */
+    @Builder.Default
+    private int queueCapacity = 1024;
+
+    /**
+     * What happens when an event is published while the queue is full.
+     * <ul>
+     *   <li><b>BLOCK</b>: The publisher waits until the subscriber has caught up</li>
+     *   <li><b>DROP</b> (default): The new event is discarded for this subscriber</li>
+     *   <li><b>COALESCE</b>: A pending event with the same {@link ForgeEvent#getCoalescingKey()}
+     *   is replaced by the new one; events without a key are dropped when the queue is full</li>
+     * </ul>
+     * <p>
+     * Subscribers using BLOCK must not publish events they themselves receive,
+     * as a full queue would then wait on itself.
+     * </p>
+     */
+    @Builder.Default
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+}
@@ -0,0 +1,25 @@
+package design.ore.forge.api.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Point-in-time delivery statistics of an {@link EventSubscription}.
+ * Latencies are measured from publication to the start of the handler.
+ *
+ * @since 0.4.0
+ */
+@AllArgsConstructor
+@Getter
+public class SubscriptionStats
+{
+    private final String eventType;
+    private final int queueDepth;
+    private final long delivered, dropped, coalesced, failed;
+    private final long totalLatencyNanos, maxLatencyNanos;
+
+    public double getAverageLatencyNanos()
+    {
+        return delivered == 0 ? 0 : (double) totalLatencyNanos / delivered;
+    }
+}
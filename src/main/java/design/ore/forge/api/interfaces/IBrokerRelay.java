@@ -0,0 +1,50 @@
+package design.ore.forge.api.interfaces;
+
+import design.ore.forge.api.socket.RelayedMessage;
+
+import java.util.function.Consumer;
+
+/**
+ * Transport used to forward STOMP topic messages between Forge nodes.
+ * <p>
+ * A {@link design.ore.forge.api.annotations.ForgeSocket} simple broker only
+ * reaches sessions connected to its own node. When an implementation of this
+ * interface is available as a bean in the module context, every message sent
+ * to a relayed destination is handed to {@link #publish(RelayedMessage)} and
+ * every message received from another node is delivered to the local broker.
+ * </p>
+ * <p>
+ * Implementations are expected to be non-blocking on {@link #publish(RelayedMessage)}
+ * and may deliver a message more than once; duplicates are filtered by the
+ * receiving side using {@code RelayedMessage.getMessageId()}.
+ * </p>
+ *
+ * @see design.ore.forge.api.socket.InProcessRelayHub
+ * @since 0.4.0
+ */
+public interface IBrokerRelay
+{
+    /**
+     * @return the ID of the node this relay belongs to, unique within the cluster
+     */
+    String getNodeId();
+
+    /**
+     * Starts receiving messages published by other nodes.
+     *
+     * @param receiver callback invoked for every message received from another node
+     */
+    void start(Consumer<RelayedMessage> receiver);
+
+    /**
+     * Forwards a message published on this node to all other nodes.
+     *
+     * @param message the message to forward
+     */
+    void publish(RelayedMessage message);
+
+    /**
+     * Stops receiving messages and releases any resources held by the relay.
+     */
+    void stop();
+}
@@ -2,5 +2,17 @@ package design.ore.forge.api.interfaces;
 
 public interface IForgeModule
 {
+    /**
+     * Called by the host once the module has been loaded.
+     * <p>
+     * Every module listed in {@link design.ore.forge.api.annotations.ForgeModule#dependencies()}
+     * has finished initializing before this method is called. Modules that do
+     * not depend on each other may be initialized concurrently on different
+     * threads, and the host may abandon an initialization that exceeds its
+     * per-module timeout.
+     * </p>
+     *
+     * @param context the context of this module
+     */
     void initialize(IModuleContext context);
 }
@@ -0,0 +1,35 @@
+package design.ore.forge.api.interfaces;
+
+import javax.sql.DataSource;
+
+/**
+ * Connection pools the host shares between the modules targeting the same database.
+ * <p>
+ * Modules configured with the same URL and username lease connections from
+ * one pool instead of opening their own, so the number of connections to
+ * the database does not grow with the number of modules. Each module holds
+ * at most its quota of the pool's connections, so a busy module cannot take
+ * the connections the others need. Quotas that add up to more than the pool
+ * are scaled down until they fit.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public interface IModuleConnectionPools
+{
+    /**
+     * Returns the module's data source on the pool of the URL and username,
+     * creating the pool if no module uses it yet. Connections are taken
+     * from the pool while fewer than {@code maxConnections} of the module's
+     * connections to it are open; beyond that, requests wait for one of them
+     * to be closed.
+     *
+     * @param url            the JDBC URL
+     * @param username       the database user
+     * @param password       the password of the user
+     * @param maxConnections the module's quota, or 0 for the host's default
+     * @return the module's data source on the shared pool
+     * @throws IllegalStateException if the pool was created with a different password
+     */
+    DataSource getDataSource(String url, String username, String password, int maxConnections);
+}
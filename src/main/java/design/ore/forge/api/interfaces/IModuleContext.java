@@ -1,18 +1,92 @@
 package design.ore.forge.api.interfaces;
 
 import ch.qos.logback.classic.Logger;
+import design.ore.forge.api.logging.ModuleLog;
+import design.ore.forge.api.metrics.ResourceAccountant;
 import design.ore.forge.api.registrations.AppletRegistration;
 import design.ore.forge.api.registrations.DownloadRegistration;
 import design.ore.forge.api.registrations.LinkRegistration;
 
 import java.io.File;
 
+/**
+ * Services the host provides to a module.
+ * <p>
+ * The host registers each module's context as a bean in the module's
+ * application context, so it can be injected into module components and is
+ * used by the API's own configuration, for example to instrument
+ * {@link design.ore.forge.api.annotations.ForgeWeb} endpoints.
+ * </p>
+ */
 public interface IModuleContext
 {
+    /**
+     * @return the module's logger; prefer {@link #getModuleLog()} on hot paths
+     */
     Logger getLog();
     boolean isDebug();
     File getModulePersistentDataDirectory();
+
+    /**
+     * Adds an applet to the launcher. The registration is copied into the
+     * host's {@link design.ore.forge.api.registrations.RegistrationCatalog},
+     * so changing it afterwards has no effect; register it again instead.
+     */
     void registerApplet(AppletRegistration registration);
+
+    /**
+     * Adds an external link to the launcher, copied like {@link #registerApplet}.
+     */
     void registerExternalLink(LinkRegistration registration);
+
+    /**
+     * Adds a download to the launcher, copied like {@link #registerApplet}.
+     */
     void registerDownload(DownloadRegistration registration);
+
+    /**
+     * @return the event bus shared by all modules, scoped to this module
+     * @since 0.4.0
+     */
+    IModuleEventBus getEventBus();
+
+    /**
+     * @return the module's embedded key-value store, kept in its persistent data directory
+     * @since 0.4.0
+     */
+    IModuleStore getModuleStore();
+
+    /**
+     * @return the module's managed executor and scheduler, shut down when the module is unloaded
+     * @since 0.4.0
+     */
+    IModuleScheduler getScheduler();
+
+    /**
+     * @return the module's metrics registry, scraped by the host
+     * @since 0.4.0
+     */
+    IModuleMetrics getMetrics();
+
+    /**
+     * @return the connection pools shared with the other modules, or null if the host does not share pools
+     * @since 0.4.0
+     */
+    default IModuleConnectionPools getConnectionPools()
+    {
+        return null;
+    }
+
+    /**
+     * @return the accountant attributing CPU time and allocated bytes to the module
+     * @since 0.4.0
+     */
+    ResourceAccountant getResourceAccountant();
+
+    /**
+     * @return the module's logging facade over {@link #getLog()}, with
+     *         throttled logging and runtime level control
+     * @since 0.4.0
+     */
+    ModuleLog getModuleLog();
 }
@@ -0,0 +1,60 @@
+package design.ore.forge.api.interfaces;
+
+import design.ore.forge.api.events.EventSubscription;
+import design.ore.forge.api.events.ForgeEvent;
+import design.ore.forge.api.events.SubscriptionOptions;
+
+import java.util.function.Consumer;
+
+/**
+ * Publish/subscribe bus shared by all modules of a host.
+ * <p>
+ * Events are delivered asynchronously. Each subscriber has its own bounded
+ * queue and receives events in publication order on a single thread at a
+ * time, so a slow subscriber only delays itself. Subscribing to a type also
+ * delivers all of its subtypes; subscribing to {@link ForgeEvent} delivers
+ * every event, including the host's lifecycle events
+ * ({@link design.ore.forge.api.events.ModuleLoadedEvent},
+ * {@link design.ore.forge.api.events.ModuleInitializedEvent} and
+ * {@link design.ore.forge.api.events.ModuleUnloadingEvent}).
+ * </p>
+ * <p>
+ * Event classes shared between modules must be loaded by a class loader
+ * common to both, such as the one of this API.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public interface IModuleEventBus
+{
+    /**
+     * Publishes an event to all current subscribers of its type. Returns
+     * without waiting for delivery, unless a subscriber with the BLOCK
+     * policy has a full queue.
+     *
+     * @param event the event to publish
+     */
+    void publish(ForgeEvent event);
+
+    /**
+     * Subscribes to events of the given type with the default options.
+     *
+     * @param type    the event type, including subtypes
+     * @param handler called for every event
+     * @return the subscription
+     */
+    default <E extends ForgeEvent> EventSubscription subscribe(Class<E> type, Consumer<? super E> handler)
+    {
+        return subscribe(type, handler, SubscriptionOptions.DEFAULT);
+    }
+
+    /**
+     * Subscribes to events of the given type.
+     *
+     * @param type    the event type, including subtypes
+     * @param handler called for every event
+     * @param options the delivery options of the subscription
+     * @return the subscription
+     */
+    <E extends ForgeEvent> EventSubscription subscribe(Class<E> type, Consumer<? super E> handler, SubscriptionOptions options);
+}
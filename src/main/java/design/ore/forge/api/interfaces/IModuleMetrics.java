@@ -0,0 +1,41 @@
+package design.ore.forge.api.interfaces;
+
+import design.ore.forge.api.metrics.Counter;
+import design.ore.forge.api.metrics.Histogram;
+import design.ore.forge.api.metrics.Timer;
+
+import java.util.function.Supplier;
+
+/**
+ * Metrics registry of a module, scraped by the host.
+ * <p>
+ * Metrics are identified by a name and optional tags given as alternating
+ * keys and values. Asking twice for the same name and tags returns the same
+ * metric, so lookups can be cached in a field or repeated on every call.
+ * Names should use snake case; characters that are not valid in the
+ * exposition format are replaced by underscores.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * IModuleMetrics metrics = context.getMetrics();
+ * Counter hits = metrics.counter("report_cache_requests", "result", "hit");
+ * Timer queries = metrics.timer("report_query", "report", "monthly");
+ * metrics.gauge("report_cache_size", cache::size);
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public interface IModuleMetrics
+{
+    Counter counter(String name, String... tags);
+
+    Timer timer(String name, String... tags);
+
+    Histogram histogram(String name, String... tags);
+
+    /**
+     * Registers a gauge whose value is sampled from the supplier at scrape
+     * time. Registering the same name and tags again replaces the supplier.
+     */
+    void gauge(String name, Supplier<? extends Number> value, String... tags);
+}
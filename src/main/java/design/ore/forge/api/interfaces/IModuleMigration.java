@@ -0,0 +1,60 @@
+package design.ore.forge.api.interfaces;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * A programmatic schema or data migration of a module, run once in version
+ * order with the module's SQL migrations and recorded in the module's
+ * migration history.
+ * <p>
+ * Listed in {@link design.ore.forge.api.annotations.EnableModuleJpa#migrations()}
+ * and created with their no-argument constructor, since they run before
+ * the module's entity manager and repositories exist.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * public class V7_SplitCustomerName implements IModuleMigration {
+ *     public int getVersion() { return 7; }
+ *     public String getDescription() { return "split customer name"; }
+ *     public void migrate(JdbcTemplate jdbc) {
+ *         jdbc.update("update customer set first_name = substring_index(name, ' ', 1) where first_name is null");
+ *     }
+ * }
+ * }</pre>
+ *
+ * @see design.ore.forge.api.migrations.BatchedMigration
+ * @since 0.4.0
+ */
+public interface IModuleMigration
+{
+    /**
+     * @return the version of the migration, unique among the module's migrations
+     */
+    int getVersion();
+
+    /**
+     * @return a short description recorded in the migration history
+     */
+    String getDescription();
+
+    /**
+     * Applies the migration, within a transaction unless it runs in the background.
+     *
+     * @param jdbc a template on the module's data source
+     * @throws Exception if the migration fails, which fails the module's startup
+     */
+    void migrate(JdbcTemplate jdbc) throws Exception;
+
+    /**
+     * Whether the migration runs in the background after the module started
+     * instead of blocking its startup. Background migrations must not be
+     * needed by the entities, and must be safe to run again from the start
+     * if the module stops before they complete.
+     *
+     * @return true to run in the background
+     */
+    default boolean isBackground()
+    {
+        return false;
+    }
+}
@@ -0,0 +1,88 @@
+package design.ore.forge.api.interfaces;
+
+import design.ore.forge.api.scheduling.ScheduledTask;
+import design.ore.forge.api.scheduling.SchedulerStats;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Managed executor and scheduler of a module.
+ * <p>
+ * Modules should use this instead of creating their own {@code Executors},
+ * {@code Timer}s or {@code @Scheduled} threads. Tasks run on virtual threads,
+ * at most {@code maxConcurrency} at a time per module, and everything
+ * scheduled or running is cancelled when the module is unloaded.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * IModuleScheduler scheduler = context.getScheduler();
+ * scheduler.scheduleAtFixedRate("refresh-cache", cache::refresh, Duration.ZERO, Duration.ofMinutes(5), Duration.ofSeconds(30));
+ * scheduler.scheduleCron("nightly-cleanup", "0 0 3 * * *", this::cleanup);
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public interface IModuleScheduler
+{
+    /**
+     * Runs a task as soon as a slot is available.
+     *
+     * @param task the task to run
+     */
+    void execute(Runnable task);
+
+    /**
+     * Runs a task as soon as a slot is available.
+     *
+     * @param task the task to run
+     * @return a future completed with the result of the task, or with a
+     *         {@link java.util.concurrent.CancellationException} if the module is
+     *         unloaded before the task runs
+     */
+    <T> CompletableFuture<T> submit(Callable<T> task);
+
+    /**
+     * Runs a task once after a delay.
+     *
+     * @param name  the name of the task, used in logs and statistics
+     * @param task  the task to run
+     * @param delay the delay before running the task
+     * @return the handle of the scheduled task
+     */
+    ScheduledTask schedule(String name, Runnable task, Duration delay);
+
+    /**
+     * Runs a task repeatedly at a fixed rate. Each run is delayed by a random
+     * amount up to {@code jitter}, which spreads out the load of modules
+     * scheduling work at the same period. A run is skipped if the previous
+     * one is still in progress. A run that is late, for example because the
+     * timer was stalled, starts at once; runs missed for more than a period
+     * are skipped rather than run back to back.
+     *
+     * @param name         the name of the task, used in logs and statistics
+     * @param task         the task to run
+     * @param initialDelay the delay before the first run
+     * @param period       the time between the starts of consecutive runs
+     * @param jitter       the maximum random delay added to each run, or {@link Duration#ZERO}
+     * @return the handle of the scheduled task
+     */
+    ScheduledTask scheduleAtFixedRate(String name, Runnable task, Duration initialDelay, Duration period, Duration jitter);
+
+    /**
+     * Runs a task whenever the given cron expression matches, in the system
+     * time zone. A run is skipped if the previous one is still in progress.
+     *
+     * @param name           the name of the task, used in logs and statistics
+     * @param cronExpression a six-field cron expression as accepted by Spring's {@code CronExpression}
+     * @param task           the task to run
+     * @return the handle of the scheduled task
+     */
+    ScheduledTask scheduleCron(String name, String cronExpression, Runnable task);
+
+    /**
+     * @return the current statistics of the module's tasks
+     */
+    SchedulerStats getStats();
+}
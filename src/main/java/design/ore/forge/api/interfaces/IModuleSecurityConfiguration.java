@@ -2,6 +2,7 @@ package design.ore.forge.api.interfaces;
 
 import org.springframework.security.config.http.SessionCreationPolicy;
 
+import java.io.IOException;
 import java.util.Set;
 
 /**
@@ -77,6 +78,27 @@ public interface IModuleSecurityConfiguration
         return SessionCreationPolicy.IF_REQUIRED;
     }
 
+    /**
+     * Where this module's HTTP sessions are kept.
+     * <p>
+     * If null (default), sessions are kept by the servlet container, entirely
+     * on-heap until they time out. Modules that create sessions for many users
+     * can return a {@link design.ore.forge.api.sessions.TieredSessionStore},
+     * which keeps recently used sessions on-heap and moves idle ones to disk,
+     * or their own implementation. Ignored when {@link #sessionCreationPolicy()}
+     * is STATELESS. Called once when the module is loaded; the host closes the
+     * store when the module is unloaded.
+     * </p>
+     *
+     * @param context the module's context
+     * @return the session store, or null for container sessions (default)
+     * @throws IOException if the store cannot be opened
+     * @since 0.4.0
+     */
+    default IModuleSessionStore sessionStore(IModuleContext context) throws IOException {
+        return null;
+    }
+
     /**
      * Whether CSRF (Cross-Site Request Forgery) protection should be disabled
      * for this module's endpoints.
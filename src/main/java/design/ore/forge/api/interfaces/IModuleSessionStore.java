@@ -0,0 +1,62 @@
+package design.ore.forge.api.interfaces;
+
+import design.ore.forge.api.sessions.ModuleSession;
+import design.ore.forge.api.sessions.SessionStoreStats;
+
+/**
+ * Storage for the HTTP sessions of a module, used instead of the servlet
+ * container's sessions when returned by
+ * {@link IModuleSecurityConfiguration#sessionStore(IModuleContext)}.
+ * <p>
+ * Every session returned by {@link #create()} or {@link #find(String)} is in
+ * use by a request until it is passed to {@link #release(ModuleSession)}, and
+ * a store must not move or serialize a session while it is in use.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public interface IModuleSessionStore extends AutoCloseable
+{
+    /**
+     * @return a new session with a random ID, in use by the calling request
+     */
+    ModuleSession create();
+
+    /**
+     * Finds a session and marks it as accessed now.
+     *
+     * @param id the session ID sent by the client
+     * @return the session, in use by the calling request, or null if it does not exist or expired
+     */
+    ModuleSession find(String id);
+
+    /**
+     * Marks a session as no longer used by a request.
+     *
+     * @param session a session returned by {@link #create()} or {@link #find(String)}
+     */
+    void release(ModuleSession session);
+
+    /**
+     * Gives a session a new random ID, to prevent session fixation after sign-in.
+     *
+     * @param session the session, in use by the calling request
+     * @return the new ID
+     */
+    String changeId(ModuleSession session);
+
+    /**
+     * Removes a session and marks it as invalid.
+     *
+     * @param session the session
+     */
+    void invalidate(ModuleSession session);
+
+    /**
+     * @return the current statistics of the store
+     */
+    SessionStoreStats getStats();
+
+    @Override
+    void close();
+}
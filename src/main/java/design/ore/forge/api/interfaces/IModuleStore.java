@@ -0,0 +1,88 @@
+package design.ore.forge.api.interfaces;
+
+import design.ore.forge.api.storage.StoreEntry;
+
+import java.util.stream.Stream;
+
+/**
+ * Embedded key-value store private to a module, kept in the module's
+ * persistent data directory.
+ * <p>
+ * Intended for local state such as caches, checkpoints and counters that
+ * would otherwise be kept in ad-hoc files. Keys are ordered, so related
+ * entries can share a prefix and be read back with a range scan.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * IModuleStore store = context.getModuleStore();
+ * store.put("checkpoint/import", Long.toString(lastImportedId).getBytes(StandardCharsets.UTF_8));
+ *
+ * try (Stream<StoreEntry> entries = store.scanPrefix("checkpoint/"))
+ * {
+ *     entries.forEach(entry -> log.info("{} = {}", entry.getKey(), entry.getValueAsString()));
+ * }
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public interface IModuleStore
+{
+    /**
+     * Stores a value, replacing any previous value of the key.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    void put(String key, byte[] value);
+
+    /**
+     * @param key the key
+     * @return the value of the key, or null if it is not present
+     */
+    byte[] get(String key);
+
+    /**
+     * @param key the key
+     * @return true if the key is present
+     */
+    boolean containsKey(String key);
+
+    /**
+     * Removes a key.
+     *
+     * @param key the key
+     * @return true if the key was present
+     */
+    boolean delete(String key);
+
+    /**
+     * Returns the entries whose keys are in the given range, in key order.
+     * The stream reflects writes made while it is consumed on a best-effort basis.
+     *
+     * @param fromInclusive the lowest key to return
+     * @param toExclusive   the key to stop at, or null to scan to the end
+     * @return the entries in the range
+     */
+    Stream<StoreEntry> scan(String fromInclusive, String toExclusive);
+
+    /**
+     * Returns the entries whose keys start with the given prefix, in key order.
+     *
+     * @param prefix the key prefix
+     * @return the entries with the prefix
+     */
+    default Stream<StoreEntry> scanPrefix(String prefix)
+    {
+        return scan(prefix, prefix + Character.MAX_VALUE).filter(entry -> entry.getKey().startsWith(prefix));
+    }
+
+    /**
+     * @return the number of keys in the store
+     */
+    long size();
+
+    /**
+     * Forces all writes made so far to disk.
+     */
+    void sync();
+}
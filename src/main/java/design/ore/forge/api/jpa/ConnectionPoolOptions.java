@@ -0,0 +1,54 @@
+package design.ore.forge.api.jpa;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Tuning options of the pools of a {@link ConnectionPoolRegistry}.
+ *
+ * @since 0.4.0
+ */
+@Getter
+@Builder
+public class ConnectionPoolOptions
+{
+    public static final ConnectionPoolOptions DEFAULT = ConnectionPoolOptions.builder().build();
+
+    /**
+     * Maximum number of connections of each pool, shared by all modules using it.
+     */
+    @Builder.Default
+    private int maxPoolSize = 20;
+
+    /**
+     * Number of idle connections each pool keeps open.
+     */
+    @Builder.Default
+    private int minIdle = 2;
+
+    /**
+     * Connections a module may hold from a pool when its configuration does not set a quota.
+     */
+    @Builder.Default
+    private int defaultModuleQuota = 10;
+
+    /**
+     * Time a request waits for one of the module's quota of connections, and then for a connection of the pool, before failing.
+     */
+    @Builder.Default
+    private Duration acquireTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Time after which idle connections above {@link #minIdle} are closed.
+     */
+    @Builder.Default
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    /**
+     * Lifetime after which connections are replaced, shorter than the database's own timeout.
+     */
+    @Builder.Default
+    private Duration maxLifetime = Duration.ofMinutes(30);
+}
@@ -0,0 +1,401 @@
+package design.ore.forge.api.jpa;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import design.ore.forge.api.interfaces.IModuleConnectionPools;
+import design.ore.forge.api.interfaces.IModuleMetrics;
+import design.ore.forge.api.metrics.Counter;
+import design.ore.forge.api.metrics.Timer;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reference implementation of {@link IModuleConnectionPools}, shared by all modules of a host.
+ * <p>
+ * Keeps one HikariCP pool per URL and username. Each module using a pool
+ * gets a lease with a fair semaphore of its quota in front of the pool: a
+ * module waiting for one of its own connections to be closed does not
+ * take a connection another module could use, and its waiting requests are
+ * served in arrival order. When the quotas of a pool's modules add up to more
+ * than {@code ConnectionPoolOptions.getMaxPoolSize()}, they are scaled down
+ * in proportion, keeping at least one connection per module, so every module
+ * can always get a connection; a pool accepts no more modules than it has
+ * connections.
+ * </p>
+ * <p>
+ * The time each module waits for and holds connections is recorded per
+ * lease, see {@link #getStats()}, and in the {@code forge_jdbc_pool_wait} and
+ * {@code forge_jdbc_pool_hold} timers of the module's metrics, tagged with
+ * the pool, with its {@code forge_jdbc_pool_timeouts} and
+ * {@code forge_jdbc_pool_quota}.
+ * </p>
+ * <p>
+ * The host hands each module a {@link ModuleScope} from {@link #forModule(String, IModuleMetrics)}.
+ * Closing it ends the module's leases, and a pool is closed when its last
+ * lease ends.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class ConnectionPoolRegistry implements AutoCloseable
+{
+    private final ConnectionPoolOptions options;
+    private final Map<PoolKey, SharedPool> pools = new HashMap<>();
+    private final AtomicInteger poolNumber = new AtomicInteger();
+
+    private record PoolKey(String url, String username) { }
+
+    public ConnectionPoolRegistry()
+    {
+        this(ConnectionPoolOptions.DEFAULT);
+    }
+
+    /**
+     * @param options the options of the pools
+     */
+    public ConnectionPoolRegistry(ConnectionPoolOptions options)
+    {
+        this.options = options;
+    }
+
+    /**
+     * Returns a view of the registry for a single module, without metrics.
+     *
+     * @param moduleId the ID of the module
+     * @return the module's view of the registry
+     */
+    public ModuleScope forModule(String moduleId)
+    {
+        return forModule(moduleId, null);
+    }
+
+    /**
+     * Returns a view of the registry for a single module.
+     *
+     * @param moduleId the ID of the module
+     * @param metrics  the module's metrics, or null
+     * @return the module's view of the registry
+     */
+    public ModuleScope forModule(String moduleId, IModuleMetrics metrics)
+    {
+        return new ModuleScope(moduleId, metrics);
+    }
+
+    /**
+     * @return the statistics of every module's lease on every pool
+     */
+    public synchronized List<ConnectionPoolStats> getStats()
+    {
+        List<ConnectionPoolStats> stats = new ArrayList<>();
+        for (SharedPool pool : pools.values())
+        {
+            for (Lease lease : pool.leases.values()) stats.add(lease.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Closes all pools, including their connections in use.
+     */
+    @Override
+    public synchronized void close()
+    {
+        pools.values().forEach(pool -> pool.dataSource.close());
+        pools.clear();
+    }
+
+    private synchronized Lease lease(String moduleId, IModuleMetrics metrics, String url, String username, String password, int maxConnections)
+    {
+        PoolKey key = new PoolKey(url, username);
+        SharedPool existing = pools.get(key);
+        if (existing != null && !Objects.equals(existing.password, password))
+            throw new IllegalStateException("The pool of " + username + " on " + url + " was created with a different password");
+
+        int quota = Math.min(maxConnections > 0 ? maxConnections : options.getDefaultModuleQuota(), options.getMaxPoolSize());
+        Lease lease = existing != null ? existing.leases.get(moduleId) : null;
+        if (lease != null)
+        {
+            if (lease.quota != quota)
+                throw new IllegalStateException("Module " + moduleId + " already leases " + url + " with a quota of " + lease.quota);
+            return lease;
+        }
+        if (existing != null && existing.leases.size() >= options.getMaxPoolSize())
+            throw new IllegalStateException("The pool of " + username + " on " + url + " has a connection for each of its "
+                + options.getMaxPoolSize() + " modules, none is left for module " + moduleId);
+
+        SharedPool pool = existing != null ? existing : new SharedPool(key, password);
+        pools.put(key, pool);
+        lease = new Lease(pool, moduleId, quota, metrics);
+        pool.leases.put(moduleId, lease);
+        pool.rebalance();
+        return lease;
+    }
+
+    private synchronized void release(Lease lease)
+    {
+        SharedPool pool = lease.pool;
+        pool.leases.remove(lease.moduleId, lease);
+        if (pool.leases.isEmpty() && pools.remove(pool.key, pool)) pool.dataSource.close();
+        else pool.rebalance();
+    }
+
+    /**
+     * A module's view of the registry.
+     */
+    public final class ModuleScope implements IModuleConnectionPools, AutoCloseable
+    {
+        private final String moduleId;
+        private final IModuleMetrics metrics;
+        private final List<Lease> leases = new ArrayList<>();
+
+        private ModuleScope(String moduleId, IModuleMetrics metrics)
+        {
+            this.moduleId = moduleId;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public synchronized DataSource getDataSource(String url, String username, String password, int maxConnections)
+        {
+            Lease lease = lease(moduleId, metrics, url, username, password, maxConnections);
+            if (!leases.contains(lease)) leases.add(lease);
+            return lease;
+        }
+
+        /**
+         * @return the statistics of the module's leases
+         */
+        public synchronized List<ConnectionPoolStats> getStats()
+        {
+            return leases.stream().map(Lease::getStats).toList();
+        }
+
+        /**
+         * Ends the module's leases, closing the pools no other module uses.
+         */
+        @Override
+        public synchronized void close()
+        {
+            leases.forEach(ConnectionPoolRegistry.this::release);
+            leases.clear();
+        }
+    }
+
+    private final class SharedPool
+    {
+        private final PoolKey key;
+        private final String password;
+        private final HikariDataSource dataSource;
+        private final Map<String, Lease> leases = new HashMap<>();
+
+        SharedPool(PoolKey key, String password)
+        {
+            this.key = key;
+            this.password = password;
+
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("forge-shared-" + poolNumber.incrementAndGet());
+            config.setJdbcUrl(key.url());
+            config.setUsername(key.username());
+            config.setPassword(password);
+            config.setMaximumPoolSize(options.getMaxPoolSize());
+            config.setMinimumIdle(Math.min(options.getMinIdle(), options.getMaxPoolSize()));
+            config.setConnectionTimeout(options.getAcquireTimeout().toMillis());
+            config.setIdleTimeout(options.getIdleTimeout().toMillis());
+            config.setMaxLifetime(options.getMaxLifetime().toMillis());
+            // A database that is down fails the module's queries instead of its loading
+            config.setInitializationFailTimeout(-1);
+            this.dataSource = new HikariDataSource(config);
+        }
+
+        /**
+         * Scales the quotas of the leases down when they add up to more than
+         * the pool: each lease keeps one connection, and the rest of the pool
+         * is shared in proportion to the quotas beyond that one.
+         */
+        private void rebalance()
+        {
+            int leaseCount = leases.size();
+            long total = leases.values().stream().mapToLong(lease -> lease.quota).sum();
+            for (Lease lease : leases.values())
+            {
+                if (total <= options.getMaxPoolSize()) lease.resize(lease.quota);
+                else lease.resize(1 + (int) ((lease.quota - 1L) * (options.getMaxPoolSize() - leaseCount) / (total - leaseCount)));
+            }
+        }
+    }
+
+    /**
+     * A fair semaphore whose number of permits can be changed while they are held.
+     */
+    private static final class QuotaSemaphore extends Semaphore
+    {
+        private int limit;
+
+        QuotaSemaphore(int limit)
+        {
+            super(limit, true);
+            this.limit = limit;
+        }
+
+        synchronized void resize(int newLimit)
+        {
+            if (newLimit > limit) release(newLimit - limit);
+            else if (newLimit < limit) reducePermits(limit - newLimit);
+            limit = newLimit;
+        }
+
+        synchronized int limit()
+        {
+            return limit;
+        }
+    }
+
+    /**
+     * A module's data source on a shared pool.
+     */
+    private final class Lease extends AbstractDataSource
+    {
+        private final SharedPool pool;
+        private final String moduleId;
+        private final int quota;
+        private final QuotaSemaphore permits;
+        private final AtomicInteger inUse = new AtomicInteger();
+        private final LongAdder leased = new LongAdder(), timeouts = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder(), totalHoldNanos = new LongAdder();
+        private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+        private final Timer waitTimer, holdTimer;
+        private final Counter timeoutCounter;
+
+        Lease(SharedPool pool, String moduleId, int quota, IModuleMetrics metrics)
+        {
+            this.pool = pool;
+            this.moduleId = moduleId;
+            this.quota = quota;
+            this.permits = new QuotaSemaphore(quota);
+
+            String poolName = pool.dataSource.getPoolName();
+            this.waitTimer = metrics != null ? metrics.timer("forge_jdbc_pool_wait", "pool", poolName) : null;
+            this.holdTimer = metrics != null ? metrics.timer("forge_jdbc_pool_hold", "pool", poolName) : null;
+            this.timeoutCounter = metrics != null ? metrics.counter("forge_jdbc_pool_timeouts", "pool", poolName) : null;
+            if (metrics != null) metrics.gauge("forge_jdbc_pool_quota", permits::limit, "pool", poolName);
+        }
+
+        private void resize(int limit)
+        {
+            permits.resize(limit);
+        }
+
+        private void timedOut()
+        {
+            timeouts.increment();
+            if (timeoutCounter != null) timeoutCounter.increment();
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException
+        {
+            long start = System.nanoTime();
+            try
+            {
+                if (!permits.tryAcquire(options.getAcquireTimeout().toNanos(), TimeUnit.NANOSECONDS))
+                {
+                    timedOut();
+                    throw new SQLTransientConnectionException("Module " + moduleId + " has all of its " + permits.limit() + " connections to " + pool.key.url() + " in use");
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException("Interrupted while waiting for a connection", e);
+            }
+
+            Connection connection;
+            try
+            {
+                connection = pool.dataSource.getConnection();
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                permits.release();
+                if (e instanceof SQLTransientConnectionException) timedOut();
+                throw e;
+            }
+
+            long acquired = System.nanoTime();
+            totalWaitNanos.add(acquired - start);
+            maxWaitNanos.accumulate(acquired - start);
+            if (waitTimer != null) waitTimer.record(acquired - start);
+            leased.increment();
+            inUse.incrementAndGet();
+            return track(connection, acquired);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException
+        {
+            throw new SQLFeatureNotSupportedException("Connections of shared pools use the credentials of the pool");
+        }
+
+        private Connection track(Connection connection, long acquired)
+        {
+            AtomicBoolean closed = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, args) ->
+            {
+                if (method.getName().equals("close") && closed.compareAndSet(false, true))
+                {
+                    try
+                    {
+                        connection.close();
+                    }
+                    finally
+                    {
+                        long held = System.nanoTime() - acquired;
+                        totalHoldNanos.add(held);
+                        if (holdTimer != null) holdTimer.record(held);
+                        inUse.decrementAndGet();
+                        permits.release();
+                    }
+                    return null;
+                }
+                if (method.getName().equals("isClosed") && closed.get()) return true;
+
+                try
+                {
+                    return method.invoke(connection, args);
+                }
+                catch (InvocationTargetException e)
+                {
+                    throw e.getCause();
+                }
+            });
+        }
+
+        ConnectionPoolStats getStats()
+        {
+            HikariPoolMXBean bean = pool.dataSource.getHikariPoolMXBean();
+            return new ConnectionPoolStats(pool.key.url(), pool.key.username(), moduleId, permits.limit(), inUse.get(),
+                leased.sum(), timeouts.sum(), totalWaitNanos.sum(), maxWaitNanos.get(), totalHoldNanos.sum(),
+                bean != null ? bean.getActiveConnections() : 0, bean != null ? bean.getIdleConnections() : 0, options.getMaxPoolSize());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package design.ore.forge.api.jpa;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Point-in-time statistics of a module's use of a shared pool, with the
+ * pool's own state. The quota is the module's current one, which is lower
+ * than configured while the quotas of the pool's modules exceed its size.
+ * Wait times are measured from the request for a connection until it was
+ * handed out, hold times until it was closed.
+ *
+ * @since 0.4.0
+ */
+@AllArgsConstructor
+@Getter
+public class ConnectionPoolStats
+{
+    private final String url, username, moduleId;
+    private final int quota, inUse;
+    private final long leased, timeouts;
+    private final long totalWaitNanos, maxWaitNanos, totalHoldNanos;
+    private final int poolActive, poolIdle, poolSize;
+}
@@ -0,0 +1,181 @@
+package design.ore.forge.api.jpa;
+
+import design.ore.forge.api.annotations.EnableModuleJpa;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.metamodel.ManagedType;
+import org.hibernate.bytecode.enhance.spi.DefaultEnhancementContext;
+import org.hibernate.bytecode.enhance.spi.Enhancer;
+import org.hibernate.bytecode.internal.BytecodeProviderInitiator;
+import org.hibernate.engine.spi.Managed;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Enhances the bytecode of a module's compiled entities, so Hibernate
+ * tracks changed attributes as they are set instead of comparing every
+ * attribute of every managed entity on flush.
+ * <p>
+ * Enhanced entities also load attributes marked
+ * {@code @Basic(fetch = FetchType.LAZY)}, such as large text and blob
+ * columns, on first access, and set the other side of bidirectional
+ * associations when one side is set. Run by the module's build after
+ * compilation when {@link EnableModuleJpa#bytecodeEnhancement()} is set;
+ * without it, the run leaves the classes unchanged. Classes that are
+ * already enhanced are skipped, so the step can run on every build.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * // build.gradle of the module
+ * // Not sourceSets.main.runtimeClasspath, which depends on the classes task
+ * tasks.register('enhanceEntities', JavaExec) {
+ *     dependsOn compileJava
+ *     classpath = files(compileJava.destinationDirectory) + configurations.runtimeClasspath
+ *     mainClass = 'design.ore.forge.api.jpa.EntityEnhancer'
+ *     args compileJava.destinationDirectory.get().asFile
+ * }
+ * classes.dependsOn enhanceEntities
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public class EntityEnhancer
+{
+    private final Enhancer enhancer;
+
+    /**
+     * @param classLoader the class loader resolving the entities' superclasses and attribute types
+     */
+    public EntityEnhancer(ClassLoader classLoader)
+    {
+        this.enhancer = BytecodeProviderInitiator.buildDefaultBytecodeProvider().getEnhancer(new DefaultEnhancementContext()
+        {
+            @Override
+            public ClassLoader getLoadingClassLoader()
+            {
+                return classLoader;
+            }
+        });
+    }
+
+    /**
+     * Enhances the class if it is an entity, embeddable or mapped superclass.
+     *
+     * @param className the binary name of the class
+     * @param bytes     the class file
+     * @return the enhanced class file, or null if the class is not enhanced or was already enhanced
+     */
+    public byte[] enhance(String className, byte[] bytes)
+    {
+        return enhancer.enhance(className, bytes);
+    }
+
+    /**
+     * Enhances the classes of a class output directory in place.
+     *
+     * @param classes the class output directory
+     * @return the number of classes enhanced
+     * @throws IOException if the directory cannot be read or written
+     */
+    public int enhanceDirectory(Path classes) throws IOException
+    {
+        Map<String, Path> files = classFiles(classes);
+        // Types are discovered first, so embeddables used by entities are enhanced wherever they are declared
+        for (Map.Entry<String, Path> file : files.entrySet()) enhancer.discoverTypes(file.getKey(), Files.readAllBytes(file.getValue()));
+
+        int enhanced = 0;
+        for (Map.Entry<String, Path> file : files.entrySet())
+        {
+            byte[] result = enhance(file.getKey(), Files.readAllBytes(file.getValue()));
+            if (result == null) continue;
+            Files.write(file.getValue(), result);
+            enhanced++;
+        }
+        return enhanced;
+    }
+
+    /**
+     * Finds the managed types of the factory that were not enhanced, for
+     * example because the module's build does not run the enhancer.
+     *
+     * @param entityManagerFactory the module's entity manager factory
+     * @return the classes that were not enhanced
+     */
+    public static List<Class<?>> findUnenhancedTypes(EntityManagerFactory entityManagerFactory)
+    {
+        List<Class<?>> unenhanced = new ArrayList<>();
+        for (ManagedType<?> type : entityManagerFactory.getMetamodel().getManagedTypes())
+        {
+            Class<?> javaType = type.getJavaType();
+            if (javaType != null && !Map.class.isAssignableFrom(javaType) && !Managed.class.isAssignableFrom(javaType)) unenhanced.add(javaType);
+        }
+        return unenhanced;
+    }
+
+    /**
+     * Enhances the entities of a module's class output directory, if the
+     * module's {@link EnableModuleJpa} enables bytecode enhancement. The
+     * classes the entities depend on must be on the class path.
+     *
+     * @param args the class output directory
+     * @throws IOException if the directory cannot be read or written
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 1) throw new IllegalArgumentException("Usage: EntityEnhancer <class output directory>");
+        Path classes = Path.of(args[0]);
+        if (!Files.isDirectory(classes)) throw new IllegalArgumentException(classes + " is not a directory");
+
+        String module = findEnhancedModule(classes);
+        if (module == null)
+        {
+            System.out.println("No @EnableModuleJpa(bytecodeEnhancement = true) in " + classes + ", entities are not enhanced");
+            return;
+        }
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { classes.toUri().toURL() }, EntityEnhancer.class.getClassLoader()))
+        {
+            int enhanced = new EntityEnhancer(classLoader).enhanceDirectory(classes);
+            System.out.println("Enhanced " + enhanced + " classes of " + module);
+        }
+    }
+
+    private static String findEnhancedModule(Path classes) throws IOException
+    {
+        SimpleMetadataReaderFactory readers = new SimpleMetadataReaderFactory();
+        for (Path file : classFiles(classes).values())
+        {
+            MetadataReader reader = readers.getMetadataReader(new FileSystemResource(file));
+            Map<String, Object> attributes = reader.getAnnotationMetadata().getAnnotationAttributes(EnableModuleJpa.class.getName());
+            if (attributes != null && Boolean.TRUE.equals(attributes.get("bytecodeEnhancement"))) return reader.getClassMetadata().getClassName();
+        }
+        return null;
+    }
+
+    private static Map<String, Path> classFiles(Path classes) throws IOException
+    {
+        Map<String, Path> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.walk(classes))
+        {
+            paths.filter(path -> path.getFileName().toString().endsWith(".class"))
+                .filter(path -> !path.getFileName().toString().equals("module-info.class") && !path.getFileName().toString().equals("package-info.class"))
+                .forEach(path ->
+                {
+                    String relative = classes.relativize(path).toString();
+                    files.put(relative.substring(0, relative.length() - ".class".length()).replace(path.getFileSystem().getSeparator(), "."), path);
+                });
+        }
+        return files;
+    }
+}
@@ -0,0 +1,64 @@
+package design.ore.forge.api.jpa;
+
+import design.ore.forge.api.annotations.FetchPlan;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binds the {@link FetchPlan} of the handler method, or of its controller,
+ * to the thread handling the request for {@link FetchPlans}.
+ *
+ * @since 0.4.0
+ */
+public class FetchPlanInterceptor implements AsyncHandlerInterceptor
+{
+    private static final String BOUND_ATTRIBUTE = FetchPlanInterceptor.class.getName() + ".bound";
+
+    private final Map<Method, List<String>> plans = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+    {
+        if (!(handler instanceof HandlerMethod method)) return true;
+        List<String> graphNames = plans.computeIfAbsent(method.getMethod(), key -> plan(method));
+        if (graphNames.isEmpty()) return true;
+
+        FetchPlans.bind(graphNames);
+        request.setAttribute(BOUND_ATTRIBUTE, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler)
+    {
+        unbind(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex)
+    {
+        unbind(request);
+    }
+
+    private static void unbind(HttpServletRequest request)
+    {
+        if (request.getAttribute(BOUND_ATTRIBUTE) == null) return;
+        request.removeAttribute(BOUND_ATTRIBUTE);
+        FetchPlans.unbind();
+    }
+
+    private static List<String> plan(HandlerMethod method)
+    {
+        FetchPlan plan = AnnotatedElementUtils.findMergedAnnotation(method.getMethod(), FetchPlan.class);
+        if (plan == null) plan = AnnotatedElementUtils.findMergedAnnotation(method.getBeanType(), FetchPlan.class);
+        return plan != null ? List.of(plan.value()) : List.of();
+    }
+}
@@ -0,0 +1,206 @@
+package design.ore.forge.api.jpa;
+
+import jakarta.persistence.AttributeNode;
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Subgraph;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.data.domain.Slice;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Loads the entity graphs of the current {@link design.ore.forge.api.annotations.FetchPlan}
+ * on the entities returned by repository methods, within the repository's
+ * transaction, or a read-only transaction opened for the call if the method
+ * is not transactional, such as a query method declared without
+ * {@code @Transactional}.
+ * <p>
+ * The entities of each type with a graph in the plan are selected again in
+ * one query per type and graph, using the graph as a fetch graph, which
+ * initializes their associations in place; associations already in the
+ * persistence context are then initialized without querying. Streams are
+ * left alone, since their entities are read after the method returns.
+ * </p>
+ * <p>
+ * Installed on the module's repositories by {@link ModuleRepositoryPostProcessor};
+ * the plan of a request is bound by {@link FetchPlanInterceptor}.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class FetchPlans implements MethodInterceptor
+{
+    private static final String FETCH_GRAPH_HINT = "jakarta.persistence.fetchgraph";
+    private static final int MAX_PARAMETERS = 1000;
+    private static final ThreadLocal<List<String>> CURRENT = new ThreadLocal<>();
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transactions;
+
+    /**
+     * @param entityManagerFactory the module's entity manager factory
+     * @param transactionManager   the module's transaction manager
+     */
+    public FetchPlans(EntityManagerFactory entityManagerFactory, PlatformTransactionManager transactionManager)
+    {
+        this.entityManagerFactory = entityManagerFactory;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.transactions.setReadOnly(true);
+    }
+
+    /**
+     * Applies the given entity graphs to the repository calls of the current thread until {@link #unbind()}.
+     *
+     * @param graphNames the names of the entity graphs
+     */
+    static void bind(List<String> graphNames)
+    {
+        CURRENT.set(graphNames);
+    }
+
+    static void unbind()
+    {
+        CURRENT.remove();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable
+    {
+        List<String> graphNames = CURRENT.get();
+        if (graphNames == null || Stream.class.isAssignableFrom(invocation.getMethod().getReturnType())) return invocation.proceed();
+
+        EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+        if (entityManager != null) return load(entityManager, invocation.proceed(), graphNames);
+
+        // Without a transaction the entities would be detached before their graphs could be loaded
+        try
+        {
+            return transactions.execute(status ->
+            {
+                try
+                {
+                    return load(EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory), invocation.proceed(), graphNames);
+                }
+                catch (Throwable t)
+                {
+                    throw new InvocationFailure(t);
+                }
+            });
+        }
+        catch (InvocationFailure e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    private Object load(EntityManager entityManager, Object result, List<String> graphNames)
+    {
+        if (result == null) return null;
+        Map<Class<?>, List<Object>> entities = new LinkedHashMap<>();
+        collect(result, entities);
+        for (Map.Entry<Class<?>, List<Object>> entry : entities.entrySet()) load(entityManager, entry.getKey(), entry.getValue(), graphNames);
+        return result;
+    }
+
+    private void collect(Object result, Map<Class<?>, List<Object>> entities)
+    {
+        Iterable<?> elements = switch (result)
+        {
+            case Optional<?> optional -> optional.stream().toList();
+            case Slice<?> slice -> slice.getContent();
+            case Collection<?> collection -> collection;
+            default -> List.of(result);
+        };
+        for (Object element : elements)
+        {
+            if (element == null) continue;
+            Class<?> type = Hibernate.getClass(element);
+            if (isEntity(type)) entities.computeIfAbsent(type, key -> new ArrayList<>()).add(element);
+        }
+    }
+
+    private boolean isEntity(Class<?> type)
+    {
+        try
+        {
+            entityManagerFactory.getMetamodel().entity(type);
+            return true;
+        }
+        catch (IllegalArgumentException e)
+        {
+            return false;
+        }
+    }
+
+    private static void load(EntityManager entityManager, Class<?> type, List<Object> entities, List<String> graphNames)
+    {
+        String entityName = entityManager.getMetamodel().entity(type).getName();
+        for (EntityGraph<?> graph : entityManager.getEntityGraphs(type))
+        {
+            if (!graphNames.contains(graph.getName())) continue;
+
+            for (int i = 0; i < entities.size(); i += MAX_PARAMETERS)
+            {
+                entityManager.createQuery("select e from " + entityName + " e where e in :entities")
+                    .setParameter("entities", entities.subList(i, Math.min(entities.size(), i + MAX_PARAMETERS)))
+                    .setHint(FETCH_GRAPH_HINT, graph)
+                    .getResultList();
+            }
+
+            Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Object entity : entities) initialize(entityManager, entity, graph.getAttributeNodes(), visited);
+        }
+    }
+
+    private static void initialize(EntityManager entityManager, Object entity, List<? extends AttributeNode<?>> nodes, Set<Object> visited)
+    {
+        if (entity == null || !visited.add(entity)) return;
+        Hibernate.initialize(entity);
+        for (AttributeNode<?> node : nodes)
+        {
+            Object value = attribute(entityManager, entity, node.getAttributeName());
+            Hibernate.initialize(value);
+
+            for (Subgraph<?> subgraph : node.getSubgraphs().values())
+            {
+                if (value instanceof Collection<?> collection) for (Object element : collection) initialize(entityManager, element, subgraph.getAttributeNodes(), visited);
+                else if (value instanceof Map<?, ?> map) for (Object element : map.values()) initialize(entityManager, element, subgraph.getAttributeNodes(), visited);
+                else initialize(entityManager, value, subgraph.getAttributeNodes(), visited);
+            }
+        }
+    }
+
+    private static Object attribute(EntityManager entityManager, Object entity, String name)
+    {
+        Object target = Hibernate.unproxy(entity);
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class).getMappingMetamodel().getEntityDescriptor(Hibernate.getClass(target)).getPropertyValue(target, name);
+    }
+
+    /**
+     * Carries a failure of the repository method through the transaction template, which rolls back on it.
+     */
+    private static final class InvocationFailure extends RuntimeException
+    {
+        InvocationFailure(Throwable cause)
+        {
+            super(cause);
+        }
+    }
+}
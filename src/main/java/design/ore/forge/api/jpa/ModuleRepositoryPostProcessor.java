@@ -0,0 +1,73 @@
+package design.ore.forge.api.jpa;
+
+import design.ore.forge.api.paging.KeysetJpaRepository;
+import design.ore.forge.api.paging.KeysetRepository;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+/**
+ * Installs {@link StreamingQueries} and {@link FetchPlans} on every Spring
+ * Data repository of the module, before the repository is created. Both run
+ * within the repository's transaction. Repositories extending
+ * {@link KeysetRepository} get {@link KeysetJpaRepository} as their base
+ * class, unless the module configures its own, which must then extend it.
+ *
+ * @since 0.4.0
+ */
+public class ModuleRepositoryPostProcessor implements BeanPostProcessor, BeanFactoryAware
+{
+    private final ObjectProvider<StreamingQueries> streamingQueries;
+    private final ObjectProvider<FetchPlans> fetchPlans;
+    private BeanFactory beanFactory;
+
+    public ModuleRepositoryPostProcessor(ObjectProvider<StreamingQueries> streamingQueries, ObjectProvider<FetchPlans> fetchPlans)
+    {
+        this.streamingQueries = streamingQueries;
+        this.fetchPlans = fetchPlans;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName)
+    {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean)
+        {
+            // Resolved per call, the post-processor exists before the entity manager factory does
+            MethodInterceptor streaming = invocation ->
+            {
+                StreamingQueries queries = streamingQueries.getIfAvailable();
+                return queries != null ? queries.invoke(invocation) : invocation.proceed();
+            };
+            MethodInterceptor fetching = invocation ->
+            {
+                FetchPlans plans = fetchPlans.getIfAvailable();
+                return plans != null ? plans.invoke(invocation) : invocation.proceed();
+            };
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor((proxyFactory, repository) ->
+            {
+                proxyFactory.addAdvice(streaming);
+                proxyFactory.addAdvice(fetching);
+            }));
+
+            if (KeysetRepository.class.isAssignableFrom(factoryBean.getObjectType()) && !hasBaseClass(beanName))
+                factoryBean.setRepositoryBaseClass(KeysetJpaRepository.class);
+        }
+        return bean;
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory)
+    {
+        this.beanFactory = beanFactory;
+    }
+
+    private boolean hasBaseClass(String beanName)
+    {
+        return beanFactory instanceof ConfigurableListableBeanFactory listable && listable.containsBeanDefinition(beanName)
+            && listable.getMergedBeanDefinition(beanName).getPropertyValues().contains("repositoryBaseClass");
+    }
+}
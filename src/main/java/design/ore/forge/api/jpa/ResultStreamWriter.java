@@ -0,0 +1,185 @@
+package design.ore.forge.api.jpa;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import design.ore.forge.api.enums.StreamFormat;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes query results to an HTTP response as they are read, so exports use
+ * constant memory regardless of their size.
+ * <p>
+ * The query runs and is written within a read-only transaction of the
+ * module, joining the entity manager kept open for the request, so lazy
+ * associations can be serialized. Combined with the streaming repository
+ * methods of {@link StreamingQueries}, neither the driver nor the
+ * persistence context hold more than a bounded number of rows. Rows are
+ * serialized with Jackson; in CSV, the columns are the properties of the
+ * first row, and nested values are written as JSON.
+ * </p>
+ * <p>
+ * The response is written on the request thread and committed with the
+ * first rows, so an error while reading later rows can only abort the
+ * response, not change its status. Rows are flushed to the client every
+ * {@value #FLUSH_INTERVAL} rows rather than one by one, so each HTTP chunk
+ * holds many rows.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * @GetMapping("/orders/export.csv")
+ * public void export(HttpServletResponse response) throws IOException {
+ *     resultStreamWriter.write(response, StreamFormat.CSV, "orders.csv", orderRepository::streamAllBy);
+ * }
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public class ResultStreamWriter
+{
+    public static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+    public static final int FLUSH_INTERVAL = 500;
+
+    private final TransactionTemplate transactions;
+    private final ObjectMapper mapper;
+    private final ObjectWriter rowWriter;
+
+    /**
+     * @param transactionManager the module's transaction manager
+     * @param mapper             the mapper to serialize rows with
+     */
+    public ResultStreamWriter(PlatformTransactionManager transactionManager, ObjectMapper mapper)
+    {
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.transactions.setReadOnly(true);
+        this.mapper = mapper;
+        // Flushing after every row would send each row as its own HTTP chunk
+        this.rowWriter = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * @param response the response to write to
+     * @param format   the format to write the rows in
+     * @param fileName the file name to offer for download, or null to display the response inline
+     * @param query    the query, called within the transaction
+     * @throws IOException if the response cannot be written
+     */
+    public <T> void write(HttpServletResponse response, StreamFormat format, String fileName, Supplier<? extends Stream<T>> query) throws IOException
+    {
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentType(switch (format)
+        {
+            case JSON_ARRAY -> "application/json";
+            case NDJSON -> NDJSON_CONTENT_TYPE;
+            case CSV -> "text/csv";
+        });
+        if (fileName != null)
+        {
+            ContentDisposition.Builder disposition = ContentDisposition.attachment();
+            if (StandardCharsets.US_ASCII.newEncoder().canEncode(fileName)) disposition.filename(fileName);
+            else disposition.filename(fileName, StandardCharsets.UTF_8);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition.build().toString());
+        }
+
+        OutputStream output = response.getOutputStream();
+        try
+        {
+            transactions.executeWithoutResult(status ->
+            {
+                try (Stream<T> rows = query.get())
+                {
+                    switch (format)
+                    {
+                        case JSON_ARRAY -> writeJson(rows.iterator(), output, true);
+                        case NDJSON -> writeJson(rows.iterator(), output, false);
+                        case CSV -> writeCsv(rows.iterator(), output);
+                    }
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+        output.flush();
+    }
+
+    private void writeJson(Iterator<?> rows, OutputStream output, boolean array) throws IOException
+    {
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(output))
+        {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (array) generator.writeStartArray();
+            for (int written = 1; rows.hasNext(); written++)
+            {
+                rowWriter.writeValue(generator, rows.next());
+                if (!array) generator.writeRaw('\n');
+                if (written % FLUSH_INTERVAL == 0) generator.flush();
+            }
+            if (array) generator.writeEndArray();
+        }
+    }
+
+    private void writeCsv(Iterator<?> rows, OutputStream output) throws IOException
+    {
+        // Not closed, which would close the response stream
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        List<String> columns = null;
+        for (int written = 1; rows.hasNext(); written++)
+        {
+            JsonNode row = mapper.valueToTree(rows.next());
+            if (columns == null)
+            {
+                columns = new ArrayList<>();
+                row.fieldNames().forEachRemaining(columns::add);
+                writeCsvRow(writer, columns);
+            }
+
+            List<String> values = new ArrayList<>(columns.size());
+            for (String column : columns)
+            {
+                JsonNode value = row.get(column);
+                values.add(value == null || value.isNull() ? "" : value.isValueNode() ? value.asText() : value.toString());
+            }
+            writeCsvRow(writer, values);
+            if (written % FLUSH_INTERVAL == 0) writer.flush();
+        }
+        writer.flush();
+    }
+
+    private static void writeCsvRow(Writer writer, List<String> values) throws IOException
+    {
+        for (int i = 0; i < values.size(); i++)
+        {
+            if (i > 0) writer.write(',');
+            String value = values.get(i);
+            boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (quote) writer.write('"' + value.replace("\"", "\"\"") + '"');
+            else writer.write(value);
+        }
+        writer.write("\r\n");
+    }
+}
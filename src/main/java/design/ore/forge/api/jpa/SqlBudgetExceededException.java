@@ -0,0 +1,17 @@
+package design.ore.forge.api.jpa;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown in debug mode in place of a statement that exceeds the
+ * {@link design.ore.forge.api.annotations.SqlBudget} of its request.
+ *
+ * @since 0.4.0
+ */
+public class SqlBudgetExceededException extends SQLException
+{
+    public SqlBudgetExceededException(String message)
+    {
+        super(message);
+    }
+}
@@ -0,0 +1,82 @@
+package design.ore.forge.api.jpa;
+
+import design.ore.forge.api.annotations.SqlBudget;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Scopes the statements recorded by a {@link SqlMonitor} to the request
+ * causing them, with the budget of the handler's {@link SqlBudget} or the
+ * module default.
+ * <p>
+ * Asynchronous requests are recorded per dispatch, like
+ * {@link design.ore.forge.api.metrics.ResourceAccountingInterceptor}.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class SqlBudgetInterceptor implements AsyncHandlerInterceptor
+{
+    private static final String ACTIVE_ATTRIBUTE = SqlBudgetInterceptor.class.getName() + ".active";
+
+    private final SqlMonitor monitor;
+    private final Map<Method, SqlMonitor.Budget> budgets = new ConcurrentHashMap<>();
+
+    public SqlBudgetInterceptor(SqlMonitor monitor)
+    {
+        this.monitor = monitor;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+    {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        SqlMonitor.Budget budget = handler instanceof HandlerMethod method
+            ? budgets.computeIfAbsent(method.getMethod(), key -> budget(method))
+            : monitor.getDefaultBudget();
+        monitor.begin(request.getMethod() + " " + (pattern != null ? pattern : "unmapped"), budget);
+        request.setAttribute(ACTIVE_ATTRIBUTE, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler)
+    {
+        end(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex)
+    {
+        end(request);
+    }
+
+    private void end(HttpServletRequest request)
+    {
+        if (request.getAttribute(ACTIVE_ATTRIBUTE) == null) return;
+        request.removeAttribute(ACTIVE_ATTRIBUTE);
+        monitor.end();
+    }
+
+    private SqlMonitor.Budget budget(HandlerMethod method)
+    {
+        SqlMonitor.Budget defaults = monitor.getDefaultBudget();
+        SqlBudget settings = AnnotatedElementUtils.findMergedAnnotation(method.getMethod(), SqlBudget.class);
+        if (settings == null) settings = AnnotatedElementUtils.findMergedAnnotation(method.getBeanType(), SqlBudget.class);
+        if (settings == null) return defaults;
+
+        return new SqlMonitor.Budget(
+            settings.maxStatements() >= 0 ? settings.maxStatements() : defaults.maxStatements(),
+            settings.maxRepeats() >= 0 ? settings.maxRepeats() : defaults.maxRepeats(),
+            settings.maxJdbcMillis() >= 0 ? settings.maxJdbcMillis() * 1_000_000 : defaults.maxJdbcNanos(),
+            settings.action());
+    }
+}
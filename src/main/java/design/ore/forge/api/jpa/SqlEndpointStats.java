@@ -0,0 +1,34 @@
+package design.ore.forge.api.jpa;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The SQL caused by the requests to an endpoint of a module, as recorded by
+ * its {@link SqlMonitor}.
+ *
+ * @since 0.4.0
+ */
+@AllArgsConstructor
+@Getter
+public class SqlEndpointStats
+{
+    /**
+     * The endpoint, for example {@code GET /reports/{id}}.
+     */
+    private final String endpoint;
+
+    private final long requests, statements, maxStatements, rows, jdbcNanos;
+
+    /**
+     * Requests that repeated a statement shape more than the repeat threshold.
+     */
+    private final long repeatedRequests;
+
+    private final long budgetExceeded;
+
+    public double getStatementsPerRequest()
+    {
+        return requests > 0 ? (double) statements / requests : 0;
+    }
+}
@@ -0,0 +1,377 @@
+package design.ore.forge.api.jpa;
+
+import design.ore.forge.api.enums.BudgetAction;
+import design.ore.forge.api.interfaces.IModuleMetrics;
+import design.ore.forge.api.logging.ModuleLog;
+import design.ore.forge.api.logging.ThrottledLog;
+import design.ore.forge.api.metrics.Counter;
+import design.ore.forge.api.metrics.Histogram;
+import design.ore.forge.api.metrics.Timer;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Counts the statements, rows and JDBC time of a module per web request and
+ * per endpoint, detects statements of the same shape repeated within a
+ * request, a sign of N+1 queries, and keeps the slowest statement shapes.
+ * <p>
+ * Statements are recorded by {@link SqlMonitoringDataSource}; requests are
+ * scoped and their {@link Budget} resolved by {@link SqlBudgetInterceptor}.
+ * The shape of a statement is its SQL with literals replaced by {@code ?}
+ * and {@code IN} lists collapsed, so statements differing only in values
+ * have the same shape.
+ * </p>
+ * <p>
+ * Per request, the {@code forge_sql_statements} and {@code forge_sql_rows}
+ * histograms and the {@code forge_sql_time} timer are recorded for the
+ * endpoint; {@code forge_sql_repeated_queries} counts requests that repeated
+ * a shape more than the repeat threshold, {@code forge_sql_budget_exceeded}
+ * those that exceeded their budget and {@code forge_sql_slow_queries}
+ * statements slower than the slow query threshold. The slowest shapes and
+ * the endpoints issuing the most statements are listed by
+ * {@link #getSlowQueries(int)}, {@link #getTopOffenders(int)} and
+ * {@link SqlReportDump}.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class SqlMonitor
+{
+    /**
+     * Endpoints beyond this count are aggregated under {@value #OTHER_ENDPOINT}.
+     */
+    public static final int MAX_ENDPOINTS = 256;
+    public static final String OTHER_ENDPOINT = "other";
+
+    /**
+     * Slow shapes beyond this count are counted but not listed.
+     */
+    public static final int MAX_SLOW_SHAPES = 256;
+
+    private static final int MAX_CACHED_SHAPES = 10_000;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w$.])-?\\d+(?:\\.\\d+)?");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+
+    private static final ThreadLocal<RequestSql> CURRENT = new ThreadLocal<>();
+
+    /**
+     * The limits of a request. Zero means no limit.
+     *
+     * @param maxStatements the maximum number of statements
+     * @param maxRepeats    the maximum number of executions of the same shape
+     * @param maxJdbcNanos  the maximum JDBC time, only warned about
+     * @param action        what happens in debug mode when a statement or repeat limit is exceeded
+     */
+    public record Budget(int maxStatements, int maxRepeats, long maxJdbcNanos, BudgetAction action)
+    {
+        public static final Budget UNLIMITED = new Budget(0, 0, 0, BudgetAction.WARN);
+    }
+
+    private final IModuleMetrics metrics;
+    private final ThrottledLog warnings;
+    private final boolean debug;
+    private final Budget defaultBudget;
+    private final int repeatThreshold;
+    private final long slowQueryNanos;
+
+    private final Map<String, String> shapes = new ConcurrentHashMap<>();
+    private final Map<String, EndpointSql> endpoints = new ConcurrentHashMap<>();
+    private final Map<String, ShapeSql> slowShapes = new ConcurrentHashMap<>();
+    private final Timer statementTimer;
+    private final Counter slowQueries;
+
+    /**
+     * @param metrics         the module's metrics, or null to disable them
+     * @param log             the module's log
+     * @param debug           whether the module runs in debug mode, in which {@link BudgetAction#FAIL} applies
+     * @param defaultBudget   the budget of endpoints without {@link design.ore.forge.api.annotations.SqlBudget}
+     * @param repeatThreshold the executions of one shape within a request above which the request is reported, 0 to disable
+     * @param slowQuery       the duration above which a statement is slow
+     */
+    public SqlMonitor(IModuleMetrics metrics, ModuleLog log, boolean debug, Budget defaultBudget, int repeatThreshold, Duration slowQuery)
+    {
+        this.metrics = metrics;
+        this.warnings = log.rateLimited(10, Duration.ofMinutes(1));
+        this.debug = debug;
+        this.defaultBudget = defaultBudget;
+        this.repeatThreshold = repeatThreshold;
+        this.slowQueryNanos = slowQuery.toNanos();
+        this.statementTimer = metrics != null ? metrics.timer("forge_sql_statement") : null;
+        this.slowQueries = metrics != null ? metrics.counter("forge_sql_slow_queries") : null;
+    }
+
+    public Budget getDefaultBudget()
+    {
+        return defaultBudget;
+    }
+
+    /**
+     * Starts recording the statements of the current thread for a request.
+     *
+     * @param endpoint the endpoint, such as {@code GET /orders/{id}}
+     * @param budget   the budget of the request
+     */
+    void begin(String endpoint, Budget budget)
+    {
+        CURRENT.set(new RequestSql(endpoint, budget));
+    }
+
+    /**
+     * Stops recording the current thread's request and adds it to the endpoint's statistics.
+     */
+    void end()
+    {
+        RequestSql request = CURRENT.get();
+        if (request == null) return;
+        CURRENT.remove();
+
+        EndpointSql endpoint = endpoint(request.endpoint);
+        endpoint.record(request);
+        if (request.budget.maxJdbcNanos() > 0 && request.jdbcNanos > request.budget.maxJdbcNanos() && !request.exceeded)
+        {
+            endpoint.budgetExceeded.increment();
+            increment(endpoint.budgetCounter);
+            warnings.atWarn()
+                .addKeyValue("endpoint", request.endpoint)
+                .addKeyValue("jdbcMs", request.jdbcNanos / 1_000_000)
+                .addKeyValue("budgetMs", request.budget.maxJdbcNanos() / 1_000_000)
+                .log("SQL time budget exceeded");
+        }
+    }
+
+    /**
+     * Records a statement about to be executed by the current thread.
+     *
+     * @throws SqlBudgetExceededException if the request exceeds its budget with {@link BudgetAction#FAIL} in debug mode
+     */
+    void beforeExecute(String sql) throws SqlBudgetExceededException
+    {
+        RequestSql request = CURRENT.get();
+        if (request == null) return;
+
+        String shape = shape(sql);
+        request.statements++;
+        int executions = request.executions.merge(shape, 1, Integer::sum);
+
+        if (repeatThreshold > 0 && executions == repeatThreshold + 1)
+        {
+            request.repeated = true;
+            warnings.atWarn()
+                .addKeyValue("endpoint", request.endpoint)
+                .addKeyValue("sql", shape)
+                .log("Statement repeated more than {} times in one request, likely an N+1 query", repeatThreshold);
+        }
+
+        Budget budget = request.budget;
+        if (budget.maxStatements() > 0 && request.statements == budget.maxStatements() + 1)
+            exceeded(request, "SQL budget of " + request.endpoint + " exceeded: more than " + budget.maxStatements() + " statements");
+        if (budget.maxRepeats() > 0 && executions == budget.maxRepeats() + 1)
+            exceeded(request, "SQL budget of " + request.endpoint + " exceeded: more than " + budget.maxRepeats() + " executions of " + shape);
+    }
+
+    /**
+     * Records the time a statement of the current thread took to execute.
+     */
+    void afterExecute(String sql, long nanos)
+    {
+        if (statementTimer != null) statementTimer.record(nanos);
+        RequestSql request = CURRENT.get();
+        if (request != null) request.jdbcNanos += nanos;
+        if (nanos < slowQueryNanos) return;
+
+        increment(slowQueries);
+        String shape = shape(sql);
+        ShapeSql slow = slowShapes.get(shape);
+        if (slow == null && slowShapes.size() < MAX_SLOW_SHAPES) slow = slowShapes.computeIfAbsent(shape, ShapeSql::new);
+        if (slow != null) slow.record(nanos, request != null ? request.endpoint : null);
+    }
+
+    /**
+     * Records a row read by the current thread.
+     */
+    void recordRow()
+    {
+        RequestSql request = CURRENT.get();
+        if (request != null) request.rows++;
+    }
+
+    /**
+     * @param limit the maximum number of shapes
+     * @return the statement shapes slower than the slow query threshold, slowest first
+     */
+    public List<SqlQueryStats> getSlowQueries(int limit)
+    {
+        return slowShapes.values().stream()
+            .map(ShapeSql::toStats)
+            .sorted(Comparator.comparingLong(SqlQueryStats::getMaxNanos).reversed())
+            .limit(limit)
+            .toList();
+    }
+
+    /**
+     * @param limit the maximum number of endpoints
+     * @return the endpoints issuing the most statements per request, most first
+     */
+    public List<SqlEndpointStats> getTopOffenders(int limit)
+    {
+        return endpoints.values().stream()
+            .map(EndpointSql::toStats)
+            .filter(stats -> stats.getRequests() > 0)
+            .sorted(Comparator.comparingDouble(SqlEndpointStats::getStatementsPerRequest).reversed())
+            .limit(limit)
+            .toList();
+    }
+
+    /**
+     * @param sql a statement
+     * @return the statement with literals replaced by {@code ?}, {@code IN} lists collapsed and whitespace normalized
+     */
+    public String shape(String sql)
+    {
+        if (sql == null) return "";
+        String shape = shapes.get(sql);
+        if (shape != null) return shape;
+
+        shape = WHITESPACE.matcher(sql.strip()).replaceAll(" ");
+        shape = STRING_LITERAL.matcher(shape).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = PARAMETER_LIST.matcher(shape).replaceAll("(?...)");
+        // Statements with inlined values could otherwise fill the cache without bound
+        if (shapes.size() >= MAX_CACHED_SHAPES) shapes.clear();
+        shapes.put(sql, shape);
+        return shape;
+    }
+
+    private void exceeded(RequestSql request, String message) throws SqlBudgetExceededException
+    {
+        if (!request.exceeded)
+        {
+            request.exceeded = true;
+            EndpointSql endpoint = endpoint(request.endpoint);
+            endpoint.budgetExceeded.increment();
+            increment(endpoint.budgetCounter);
+        }
+        warnings.atWarn().log(message);
+        if (debug && request.budget.action() == BudgetAction.FAIL) throw new SqlBudgetExceededException(message);
+    }
+
+    private EndpointSql endpoint(String name)
+    {
+        EndpointSql endpoint = endpoints.get(name);
+        if (endpoint != null) return endpoint;
+        if (endpoints.size() >= MAX_ENDPOINTS) name = OTHER_ENDPOINT;
+        return endpoints.computeIfAbsent(name, EndpointSql::new);
+    }
+
+    private static void increment(Counter counter)
+    {
+        if (counter != null) counter.increment();
+    }
+
+    /**
+     * The statements of one request, confined to the thread handling it.
+     */
+    private static final class RequestSql
+    {
+        private final String endpoint;
+        private final Budget budget;
+        private final Map<String, Integer> executions = new HashMap<>();
+        private int statements;
+        private long rows;
+        private long jdbcNanos;
+        private boolean repeated;
+        private boolean exceeded;
+
+        RequestSql(String endpoint, Budget budget)
+        {
+            this.endpoint = endpoint;
+            this.budget = budget;
+        }
+    }
+
+    private final class EndpointSql
+    {
+        private final String name;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder jdbcNanos = new LongAdder();
+        private final LongAdder repeatedRequests = new LongAdder();
+        private final LongAdder budgetExceeded = new LongAdder();
+        private final AtomicLong maxStatements = new AtomicLong();
+        private final Histogram statementHistogram, rowHistogram;
+        private final Timer jdbcTimer;
+        private final Counter repeatedCounter, budgetCounter;
+
+        EndpointSql(String name)
+        {
+            this.name = name;
+            this.statementHistogram = metrics != null ? metrics.histogram("forge_sql_statements", "endpoint", name) : null;
+            this.rowHistogram = metrics != null ? metrics.histogram("forge_sql_rows", "endpoint", name) : null;
+            this.jdbcTimer = metrics != null ? metrics.timer("forge_sql_time", "endpoint", name) : null;
+            this.repeatedCounter = metrics != null ? metrics.counter("forge_sql_repeated_queries", "endpoint", name) : null;
+            this.budgetCounter = metrics != null ? metrics.counter("forge_sql_budget_exceeded", "endpoint", name) : null;
+        }
+
+        void record(RequestSql request)
+        {
+            requests.increment();
+            statements.add(request.statements);
+            rows.add(request.rows);
+            jdbcNanos.add(request.jdbcNanos);
+            maxStatements.accumulateAndGet(request.statements, Math::max);
+            if (request.repeated)
+            {
+                repeatedRequests.increment();
+                increment(repeatedCounter);
+            }
+
+            if (statementHistogram != null) statementHistogram.record(request.statements);
+            if (rowHistogram != null) rowHistogram.record(request.rows);
+            if (jdbcTimer != null) jdbcTimer.record(request.jdbcNanos);
+        }
+
+        SqlEndpointStats toStats()
+        {
+            return new SqlEndpointStats(name, requests.sum(), statements.sum(), maxStatements.get(), rows.sum(), jdbcNanos.sum(),
+                repeatedRequests.sum(), budgetExceeded.sum());
+        }
+    }
+
+    private static final class ShapeSql
+    {
+        private final String shape;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private volatile String lastEndpoint;
+
+        ShapeSql(String shape)
+        {
+            this.shape = shape;
+        }
+
+        void record(long nanos, String endpoint)
+        {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            if (endpoint != null) lastEndpoint = endpoint;
+        }
+
+        SqlQueryStats toStats()
+        {
+            return new SqlQueryStats(shape, count.sum(), totalNanos.sum(), maxNanos.get(), lastEndpoint);
+        }
+    }
+}
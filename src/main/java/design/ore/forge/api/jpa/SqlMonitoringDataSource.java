@@ -0,0 +1,107 @@
+package design.ore.forge.api.jpa;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * DataSource wrapper reporting the statements executed and rows read through
+ * its connections to a {@link SqlMonitor}.
+ * <p>
+ * The SQL of a prepared statement is taken when it is prepared, that of a
+ * plain statement when it is executed; a batch counts as one statement.
+ * Installed by {@link design.ore.forge.api.config.ModuleJpaConfiguration}.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class SqlMonitoringDataSource extends DelegatingDataSource
+{
+    private final SqlMonitor monitor;
+
+    public SqlMonitoringDataSource(DataSource target, SqlMonitor monitor)
+    {
+        super(target);
+        this.monitor = monitor;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException
+    {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection)
+    {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, args) ->
+        {
+            Object result = invoke(connection, method, args);
+            if (!(result instanceof Statement statement)) return result;
+
+            String sql = method.getName().startsWith("prepare") && args != null && args[0] instanceof String prepared ? prepared : null;
+            return wrap(statement, method.getReturnType(), sql);
+        });
+    }
+
+    private Statement wrap(Statement statement, Class<?> type, String preparedSql)
+    {
+        Class<?> statementType = type == CallableStatement.class || type == PreparedStatement.class ? type : Statement.class;
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { statementType }, (proxy, method, args) ->
+        {
+            String name = method.getName();
+            if (name.equals("getResultSet")) return wrap((ResultSet) invoke(statement, method, args));
+            if (!name.startsWith("execute")) return invoke(statement, method, args);
+
+            String sql = args != null && args.length > 0 && args[0] instanceof String executed ? executed : preparedSql;
+            monitor.beforeExecute(sql);
+            long start = System.nanoTime();
+            try
+            {
+                Object result = invoke(statement, method, args);
+                return result instanceof ResultSet resultSet ? wrap(resultSet) : result;
+            }
+            finally
+            {
+                monitor.afterExecute(sql, System.nanoTime() - start);
+            }
+        });
+    }
+
+    private ResultSet wrap(ResultSet resultSet)
+    {
+        if (resultSet == null) return null;
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class }, (proxy, method, args) ->
+        {
+            Object result = invoke(resultSet, method, args);
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) monitor.recordRow();
+            return result;
+        });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable
+    {
+        try
+        {
+            return method.invoke(target, args);
+        }
+        catch (InvocationTargetException e)
+        {
+            throw e.getCause();
+        }
+    }
+}
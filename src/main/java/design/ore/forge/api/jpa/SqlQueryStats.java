@@ -0,0 +1,27 @@
+package design.ore.forge.api.jpa;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Executions of a statement shape slower than the slow query threshold of
+ * its module's {@link SqlMonitor}.
+ *
+ * @since 0.4.0
+ */
+@AllArgsConstructor
+@Getter
+public class SqlQueryStats
+{
+    /**
+     * The statement with literals replaced by {@code ?}.
+     */
+    private final String shape;
+
+    private final long count, totalNanos, maxNanos;
+
+    /**
+     * The endpoint that last executed the statement slowly, or null if it ran outside a request.
+     */
+    private final String lastEndpoint;
+}
@@ -0,0 +1,61 @@
+package design.ore.forge.api.jpa;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Renders the endpoints of a module issuing the most statements per request
+ * and its slowest statement shapes as a plain text report, so N+1 queries
+ * and missing indexes can be found without a profiler.
+ *
+ * <h2>Example Output:</h2>
+ * <pre>
+ * endpoint                              requests  stmts/req  max stmts     rows  jdbc ms  repeated  over budget
+ * GET /orders                                 52      101.0        101     5200    812.4        52           52
+ *
+ * slow statement                                       count    max ms   mean ms  last endpoint
+ * select o.id,o.total from orders o where o.total>?        3    1204.1     950.2  GET /orders/report
+ * </pre>
+ *
+ * @since 0.4.0
+ */
+public final class SqlReportDump
+{
+    public static final String CONTENT_TYPE = "text/plain; charset=utf-8";
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private SqlReportDump()
+    {
+        throw new AssertionError("SqlReportDump is a utility class and should not be instantiated");
+    }
+
+    /**
+     * Writes the top offenders and slow queries of a module.
+     *
+     * @param writer  the writer to render to
+     * @param monitor the monitor of the module to render
+     * @param top     the number of endpoints and statements to list
+     */
+    public static void write(Writer writer, SqlMonitor monitor, int top) throws IOException
+    {
+        writer.write(String.format(Locale.ROOT, "%-36s %9s %10s %10s %8s %8s %9s %12s%n",
+            "endpoint", "requests", "stmts/req", "max stmts", "rows", "jdbc ms", "repeated", "over budget"));
+        for (SqlEndpointStats endpoint : monitor.getTopOffenders(top))
+        {
+            writer.write(String.format(Locale.ROOT, "%-36s %9d %10.1f %10d %8d %8.1f %9d %12d%n",
+                endpoint.getEndpoint(), endpoint.getRequests(), endpoint.getStatementsPerRequest(), endpoint.getMaxStatements(),
+                endpoint.getRows(), endpoint.getJdbcNanos() / NANOS_PER_MILLI, endpoint.getRepeatedRequests(), endpoint.getBudgetExceeded()));
+        }
+
+        writer.write(String.format(Locale.ROOT, "%n%-52s %6s %9s %9s  %s%n", "slow statement", "count", "max ms", "mean ms", "last endpoint"));
+        for (SqlQueryStats query : monitor.getSlowQueries(top))
+        {
+            writer.write(String.format(Locale.ROOT, "%-52s %6d %9.1f %9.1f  %s%n",
+                query.getShape(), query.getCount(), query.getMaxNanos() / NANOS_PER_MILLI,
+                query.getTotalNanos() / NANOS_PER_MILLI / Math.max(1, query.getCount()),
+                query.getLastEndpoint() != null ? query.getLastEndpoint() : ""));
+        }
+    }
+}
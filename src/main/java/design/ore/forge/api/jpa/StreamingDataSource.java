@@ -0,0 +1,87 @@
+package design.ore.forge.api.jpa;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+/**
+ * DataSource wrapper applying the fetch size of {@link StreamingQueries} to
+ * statements prepared while a streaming repository method runs. Other
+ * statements keep the driver's default.
+ * <p>
+ * The MySQL driver ignores fetch sizes and reads the whole result into
+ * memory unless cursor fetching is enabled on the URL, which switches every
+ * statement of the connection to server-side prepared statements. Rather
+ * than changing the URL, streaming statements on MySQL URLs without cursor
+ * fetching get the driver's row streaming fetch size of
+ * {@link Integer#MIN_VALUE}, which only affects those statements.
+ * Installed by {@link design.ore.forge.api.config.ModuleJpaConfiguration}.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class StreamingDataSource extends DelegatingDataSource
+{
+    private final boolean rowStreaming;
+
+    /**
+     * @param target       the data source to wrap
+     * @param rowStreaming whether streaming statements read one row at a time instead of using the fetch size,
+     *                     see {@link #streamsRows(String)}
+     */
+    public StreamingDataSource(DataSource target, boolean rowStreaming)
+    {
+        super(target);
+        this.rowStreaming = rowStreaming;
+    }
+
+    /**
+     * @param jdbcUrl a JDBC URL
+     * @return true if it is a MySQL URL without cursor fetching, whose driver only streams results one row at a time
+     */
+    public static boolean streamsRows(String jdbcUrl)
+    {
+        return jdbcUrl.startsWith("jdbc:mysql:") && !jdbcUrl.toLowerCase(Locale.ROOT).contains("usecursorfetch=true");
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException
+    {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection)
+    {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, args) ->
+        {
+            Object result;
+            try
+            {
+                result = method.invoke(connection, args);
+            }
+            catch (InvocationTargetException e)
+            {
+                throw e.getCause();
+            }
+
+            if (result instanceof Statement statement)
+            {
+                int fetchSize = StreamingQueries.currentFetchSize();
+                if (fetchSize > 0) statement.setFetchSize(rowStreaming ? Integer.MIN_VALUE : fetchSize);
+            }
+            return result;
+        });
+    }
+}
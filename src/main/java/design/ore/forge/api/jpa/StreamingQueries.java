@@ -0,0 +1,130 @@
+package design.ore.forge.api.jpa;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Makes repository methods returning a {@link Stream} read their results
+ * incrementally instead of loading them all at once.
+ * <p>
+ * Statements prepared while such a method runs get the configured fetch
+ * size, which makes the MySQL driver stream rows instead of loading the
+ * whole result (see {@link StreamingDataSource}). While the stream is consumed, the
+ * persistence context is flushed and cleared every
+ * {@code streamClearInterval} rows, so entities already consumed can be
+ * garbage collected. Entities read from a stream must therefore not be kept
+ * and used as managed entities later on.
+ * </p>
+ * <p>
+ * Installed on the module's repositories by {@link ModuleRepositoryPostProcessor}
+ * when the module uses {@link design.ore.forge.api.annotations.EnableModuleJpa}.
+ * Like all Spring Data streams, repository streams must be consumed within a
+ * transaction; {@link ResultStreamWriter} opens one.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class StreamingQueries implements MethodInterceptor
+{
+    private static final ThreadLocal<Integer> FETCH_SIZE = new ThreadLocal<>();
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final int fetchSize;
+    private final int clearInterval;
+
+    /**
+     * @param entityManagerFactory the module's entity manager factory
+     * @param fetchSize            the fetch size of streaming queries, or 0 to leave it to the driver
+     * @param clearInterval        the number of rows after which the persistence context is cleared, or 0 to never clear it
+     */
+    public StreamingQueries(EntityManagerFactory entityManagerFactory, int fetchSize, int clearInterval)
+    {
+        this.entityManagerFactory = entityManagerFactory;
+        this.fetchSize = fetchSize;
+        this.clearInterval = clearInterval;
+    }
+
+    /**
+     * @return the fetch size for statements prepared by the current thread, or 0 if it is not running a streaming query
+     */
+    static int currentFetchSize()
+    {
+        Integer size = FETCH_SIZE.get();
+        return size != null ? size : 0;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable
+    {
+        if (!Stream.class.isAssignableFrom(invocation.getMethod().getReturnType())) return invocation.proceed();
+
+        Integer previous = FETCH_SIZE.get();
+        Object result;
+        FETCH_SIZE.set(fetchSize);
+        try
+        {
+            result = invocation.proceed();
+        }
+        finally
+        {
+            if (previous != null) FETCH_SIZE.set(previous);
+            else FETCH_SIZE.remove();
+        }
+        return result instanceof Stream<?> stream ? clearing(stream) : result;
+    }
+
+    /**
+     * Wraps a stream of entities so the current persistence context is
+     * flushed and cleared every {@code clearInterval} elements. Applied to
+     * repository streams automatically; useful for streams of
+     * {@link jakarta.persistence.Query#getResultStream()}.
+     *
+     * @param stream the stream, read within the current transaction
+     * @return the wrapped stream
+     */
+    public <T> Stream<T> clearing(Stream<T> stream)
+    {
+        EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+        if (entityManager == null || clearInterval <= 0) return stream;
+        return StreamSupport.stream(new ClearingSpliterator<>(stream.spliterator(), entityManager, clearInterval), false).onClose(stream::close);
+    }
+
+    private static final class ClearingSpliterator<T> extends Spliterators.AbstractSpliterator<T>
+    {
+        private final Spliterator<T> source;
+        private final EntityManager entityManager;
+        private final int interval;
+        private long count;
+
+        ClearingSpliterator(Spliterator<T> source, EntityManager entityManager, int interval)
+        {
+            super(source.estimateSize(), source.characteristics() & (ORDERED | NONNULL));
+            this.source = source;
+            this.entityManager = entityManager;
+            this.interval = interval;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action)
+        {
+            // Cleared before reading the next element, so the previous one was fully consumed while still managed
+            if (count > 0 && count % interval == 0)
+            {
+                entityManager.flush();
+                entityManager.clear();
+            }
+            if (!source.tryAdvance(action)) return false;
+            count++;
+            return true;
+        }
+    }
+}
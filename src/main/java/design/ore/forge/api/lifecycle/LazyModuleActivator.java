@@ -0,0 +1,214 @@
+package design.ore.forge.api.lifecycle;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Starts a {@link design.ore.forge.api.enums.ActivationMode#LAZY} module on
+ * first use and optionally stops it again after a period without requests.
+ * <p>
+ * The host wraps every request or socket connection routed to the module in
+ * {@link #acquire()} and {@link #release()}. Concurrent first requests are
+ * coalesced: exactly one caller runs the starter while the others wait for
+ * the same result. If starting fails, waiting callers receive the failure
+ * and the next request tries again.
+ * </p>
+ * <pre>{@code
+ * LazyModuleActivator<ConfigurableApplicationContext> activator = new LazyModuleActivator<>(
+ *     () -> bootModule(manifest), ConfigurableApplicationContext::close,
+ *     Duration.ofMinutes(manifest.getIdleTimeoutMinutes()), hostScheduler);
+ *
+ * ConfigurableApplicationContext context = activator.acquire();
+ * try { dispatch(context, request, response); }
+ * finally { activator.release(); }
+ * }</pre>
+ * <p>
+ * A module is never stopped while a request holds it; an idle stop that races
+ * with a new request is abandoned. If the stopper throws, the failure is
+ * logged and the module is considered stopped, so the next request starts it
+ * again and idle checks keep running.
+ * </p>
+ *
+ * @param <T> the handle of a started module, such as its application context
+ * @since 0.4.0
+ */
+public class LazyModuleActivator<T> implements AutoCloseable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(LazyModuleActivator.class);
+    private static final CompletableFuture<?> STOPPING = new CompletableFuture<>();
+
+    private final Supplier<T> starter;
+    private final Consumer<T> stopper;
+    private final long idleTimeoutNanos;
+    private final ScheduledFuture<?> idleCheck;
+
+    private final AtomicReference<CompletableFuture<T>> current = new AtomicReference<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong activations = new AtomicLong();
+    private volatile long lastRelease = System.nanoTime();
+
+    /**
+     * @param starter     starts the module and returns its handle
+     * @param stopper     stops a module previously returned by the starter
+     * @param idleTimeout time without requests after which the module is stopped, or zero to never stop it
+     * @param scheduler   used to check for idleness; may be null if the idle timeout is zero
+     */
+    public LazyModuleActivator(Supplier<T> starter, Consumer<T> stopper, Duration idleTimeout, ScheduledExecutorService scheduler)
+    {
+        this.starter = starter;
+        this.stopper = stopper;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+
+        if (idleTimeoutNanos > 0)
+        {
+            long period = Math.max(TimeUnit.SECONDS.toNanos(1), idleTimeoutNanos / 4);
+            this.idleCheck = scheduler.scheduleAtFixedRate(this::stopIfIdle, period, period, TimeUnit.NANOSECONDS);
+        }
+        else this.idleCheck = null;
+    }
+
+    /**
+     * Returns the started module, starting it first if necessary. Every call
+     * must be paired with a call to {@link #release()}, also when this method throws.
+     *
+     * @return the handle of the started module
+     * @throws RuntimeException if the module failed to start
+     */
+    public T acquire()
+    {
+        inFlight.incrementAndGet();
+        while (true)
+        {
+            CompletableFuture<T> future = current.get();
+            if (future == STOPPING)
+            {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                continue;
+            }
+
+            if (future == null)
+            {
+                CompletableFuture<T> starting = new CompletableFuture<>();
+                if (!current.compareAndSet(null, starting)) continue;
+                start(starting);
+                future = starting;
+            }
+
+            try
+            {
+                return future.join();
+            }
+            catch (CompletionException e)
+            {
+                throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+            }
+        }
+    }
+
+    /**
+     * Marks the end of a request that called {@link #acquire()}.
+     */
+    public void release()
+    {
+        lastRelease = System.nanoTime();
+        inFlight.decrementAndGet();
+    }
+
+    private void start(CompletableFuture<T> starting)
+    {
+        try
+        {
+            T module = starter.get();
+            activations.incrementAndGet();
+            starting.complete(module);
+        }
+        catch (Throwable t)
+        {
+            current.compareAndSet(starting, null);
+            starting.completeExceptionally(t);
+        }
+    }
+
+    private void stopIfIdle()
+    {
+        if (inFlight.get() > 0 || System.nanoTime() - lastRelease < idleTimeoutNanos) return;
+        try
+        {
+            stop();
+        }
+        catch (Throwable t)
+        {
+            // Thrown out of the periodic task, it would cancel every later idle check without a trace
+            LOG.error("Failed to stop idle module", t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean stop()
+    {
+        CompletableFuture<T> future = current.get();
+        if (future == null || future == STOPPING || !future.isDone()) return false;
+        if (!current.compareAndSet(future, (CompletableFuture<T>) STOPPING)) return false;
+
+        // A request that read the running module before the swap has already
+        // counted itself in flight, so it is visible here and the stop is abandoned
+        if (inFlight.get() > 0)
+        {
+            current.set(future);
+            return false;
+        }
+
+        try
+        {
+            if (!future.isCompletedExceptionally()) stopper.accept(future.join());
+        }
+        finally
+        {
+            current.set(null);
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the module is currently started
+     */
+    public boolean isActive()
+    {
+        CompletableFuture<T> future = current.get();
+        return future != null && future != STOPPING && future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    /**
+     * @return number of requests currently holding the module
+     */
+    public int getInFlightCount() { return inFlight.get(); }
+
+    /**
+     * @return number of times the module has been started
+     */
+    public long getActivationCount() { return activations.get(); }
+
+    /**
+     * Stops checking for idleness and stops the module if it is started and
+     * no request holds it.
+     */
+    @Override
+    public void close()
+    {
+        if (idleCheck != null) idleCheck.cancel(false);
+        stop();
+    }
+}
@@ -0,0 +1,126 @@
+package design.ore.forge.api.lifecycle;
+
+import design.ore.forge.api.processing.ForgeModuleManifest;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dependency graph of the modules loaded by a host, built from the
+ * {@code moduleDependencies} declared in each module manifest.
+ * <p>
+ * Modules whose dependencies are missing or form a cycle, and every module
+ * depending on them, cannot be initialized. They are excluded from
+ * {@link #getInitializationOrder()} and reported by {@link #getUnresolvableModules()}
+ * instead of failing the whole graph.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class ModuleDependencyGraph
+{
+    private final Map<String, List<String>> dependencies = new LinkedHashMap<>();
+    private final List<String> initializationOrder = new ArrayList<>();
+    private final Map<String, String> unresolvableModules = new LinkedHashMap<>();
+    private int criticalPathLength;
+
+    /**
+     * @param dependencies the IDs of each module's dependencies, keyed by module ID
+     */
+    public ModuleDependencyGraph(Map<String, ? extends Collection<String>> dependencies)
+    {
+        dependencies.forEach((id, deps) -> this.dependencies.put(id, deps != null ? List.copyOf(deps) : List.of()));
+        resolve();
+    }
+
+    public static ModuleDependencyGraph fromManifests(Collection<ForgeModuleManifest> manifests)
+    {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        for (ForgeModuleManifest manifest : manifests) dependencies.put(manifest.getModuleId(), manifest.getModuleDependencies());
+        return new ModuleDependencyGraph(dependencies);
+    }
+
+    private void resolve()
+    {
+        Map<String, Integer> pending = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        Map<String, Integer> depth = new HashMap<>();
+        Deque<String> ready = new ArrayDeque<>();
+
+        for (Map.Entry<String, List<String>> entry : dependencies.entrySet())
+        {
+            String id = entry.getKey();
+            List<String> missing = entry.getValue().stream().filter(dep -> !dependencies.containsKey(dep)).toList();
+            if (!missing.isEmpty()) unresolvableModules.put(id, "Missing dependencies " + missing);
+
+            // Modules with missing dependencies keep a pending count that never reaches zero
+            pending.put(id, entry.getValue().size());
+            for (String dep : entry.getValue()) dependents.computeIfAbsent(dep, k -> new ArrayList<>()).add(id);
+            if (entry.getValue().isEmpty()) ready.add(id);
+        }
+
+        while (!ready.isEmpty())
+        {
+            String id = ready.poll();
+            initializationOrder.add(id);
+
+            int moduleDepth = 1 + dependencies.get(id).stream().mapToInt(depth::get).max().orElse(0);
+            depth.put(id, moduleDepth);
+            criticalPathLength = Math.max(criticalPathLength, moduleDepth);
+
+            for (String dependent : dependents.getOrDefault(id, List.of()))
+            {
+                if (pending.merge(dependent, -1, Integer::sum) == 0) ready.add(dependent);
+            }
+        }
+
+        for (String id : dependencies.keySet())
+        {
+            if (depth.containsKey(id) || unresolvableModules.containsKey(id)) continue;
+
+            List<String> unresolved = dependencies.get(id).stream().filter(dep -> !depth.containsKey(dep)).toList();
+            unresolvableModules.put(id, "Unresolvable or cyclic dependencies " + unresolved);
+        }
+    }
+
+    /**
+     * @param moduleId the ID of a module in this graph
+     * @return the IDs of the module's direct dependencies
+     */
+    public List<String> getDependencies(String moduleId)
+    {
+        return dependencies.getOrDefault(moduleId, List.of());
+    }
+
+    /**
+     * @return the IDs of all initializable modules, each listed after all of its dependencies
+     */
+    public List<String> getInitializationOrder()
+    {
+        return Collections.unmodifiableList(initializationOrder);
+    }
+
+    /**
+     * @return the reason each non-initializable module cannot be initialized, keyed by module ID
+     */
+    public Map<String, String> getUnresolvableModules()
+    {
+        return Collections.unmodifiableMap(unresolvableModules);
+    }
+
+    /**
+     * @return the number of modules on the longest dependency chain, which bounds
+     *         the number of sequential initialization steps when running in parallel
+     */
+    public int getCriticalPathLength()
+    {
+        return criticalPathLength;
+    }
+}
@@ -0,0 +1,28 @@
+package design.ore.forge.api.lifecycle;
+
+import design.ore.forge.api.enums.ModuleInitializationStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Outcome of initializing a single module.
+ *
+ * @since 0.4.0
+ */
+@AllArgsConstructor
+@Getter
+public class ModuleInitializationResult
+{
+    private final String moduleId;
+    private final ModuleInitializationStatus status;
+    private final Duration duration;
+    private final String detail;
+    private final Throwable failure;
+
+    public boolean isInitialized()
+    {
+        return status == ModuleInitializationStatus.INITIALIZED;
+    }
+}
@@ -0,0 +1,136 @@
+package design.ore.forge.api.lifecycle;
+
+import design.ore.forge.api.enums.ModuleInitializationStatus;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Initializes modules in dependency order, running independent modules in parallel.
+ * <p>
+ * Each module is started as soon as all of its dependencies have initialized
+ * successfully, so the total startup time approaches the duration of the
+ * longest dependency chain rather than the sum of all modules. A module that
+ * fails or exceeds the per-module timeout is reported as such, and every
+ * module depending on it is skipped.
+ * </p>
+ * <pre>{@code
+ * ModuleDependencyGraph graph = ModuleDependencyGraph.fromManifests(manifests);
+ * try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor())
+ * {
+ *     Map<String, ModuleInitializationResult> results = new ModuleInitializer(executor, Duration.ofSeconds(30))
+ *         .initialize(graph, id -> modules.get(id).initialize(contexts.get(id)));
+ * }
+ * }</pre>
+ * <p>
+ * The timeout and the reported duration of a module start when its
+ * initialization starts running, so time spent queued on a bounded executor
+ * does not count against it. A timed out initialization is not interrupted;
+ * it keeps running on the executor while its dependents are skipped.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class ModuleInitializer
+{
+    private final Executor executor;
+    private final Duration perModuleTimeout;
+
+    public ModuleInitializer(Executor executor, Duration perModuleTimeout)
+    {
+        this.executor = executor;
+        this.perModuleTimeout = perModuleTimeout;
+    }
+
+    /**
+     * Initializes every module in the graph and waits for all of them to finish.
+     *
+     * @param graph       the dependency graph of the modules to initialize
+     * @param initializer initializes the module with the given ID
+     * @return the result for every module in the graph, in initialization order
+     */
+    public Map<String, ModuleInitializationResult> initialize(ModuleDependencyGraph graph, Consumer<String> initializer)
+    {
+        Map<String, CompletableFuture<ModuleInitializationResult>> futures = new HashMap<>();
+        for (String moduleId : graph.getInitializationOrder())
+        {
+            List<CompletableFuture<ModuleInitializationResult>> dependencies = graph.getDependencies(moduleId).stream().map(futures::get).toList();
+            CompletableFuture<ModuleInitializationResult> future = CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+                .thenCompose(ignored ->
+                {
+                    for (CompletableFuture<ModuleInitializationResult> dependency : dependencies)
+                    {
+                        ModuleInitializationResult result = dependency.join();
+                        if (!result.isInitialized())
+                        {
+                            return CompletableFuture.completedFuture(skipped(moduleId, "Dependency " + result.getModuleId() + " " + result.getStatus()));
+                        }
+                    }
+                    return run(moduleId, initializer);
+                });
+            futures.put(moduleId, future);
+        }
+
+        Map<String, ModuleInitializationResult> results = new LinkedHashMap<>();
+        for (String moduleId : graph.getInitializationOrder()) results.put(moduleId, futures.get(moduleId).join());
+        graph.getUnresolvableModules().forEach((moduleId, reason) -> results.put(moduleId, skipped(moduleId, reason)));
+        return results;
+    }
+
+    private CompletableFuture<ModuleInitializationResult> run(String moduleId, Consumer<String> initializer)
+    {
+        CompletableFuture<Void> initialization = new CompletableFuture<>();
+        AtomicLong start = new AtomicLong();
+        try
+        {
+            executor.execute(() ->
+            {
+                start.set(System.nanoTime());
+                initialization.orTimeout(perModuleTimeout.toNanos(), TimeUnit.NANOSECONDS);
+                try
+                {
+                    initializer.accept(moduleId);
+                    initialization.complete(null);
+                }
+                catch (Throwable e)
+                {
+                    initialization.completeExceptionally(e);
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            return CompletableFuture.completedFuture(new ModuleInitializationResult(moduleId, ModuleInitializationStatus.FAILED, Duration.ZERO, e.getMessage(), e));
+        }
+
+        // Completes only after the task has started, so the start time is always set
+        return initialization.handle((ignored, failure) ->
+        {
+            Duration duration = Duration.ofNanos(System.nanoTime() - start.get());
+            if (failure == null) return new ModuleInitializationResult(moduleId, ModuleInitializationStatus.INITIALIZED, duration, null, null);
+
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            if (cause instanceof TimeoutException)
+            {
+                return new ModuleInitializationResult(moduleId, ModuleInitializationStatus.TIMED_OUT, duration, "Exceeded " + perModuleTimeout, cause);
+            }
+            return new ModuleInitializationResult(moduleId, ModuleInitializationStatus.FAILED, duration, cause.getMessage(), cause);
+        });
+    }
+
+    private ModuleInitializationResult skipped(String moduleId, String reason)
+    {
+        return new ModuleInitializationResult(moduleId, ModuleInitializationStatus.SKIPPED, Duration.ZERO, reason, null);
+    }
+}
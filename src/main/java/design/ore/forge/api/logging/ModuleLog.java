@@ -0,0 +1,105 @@
+package design.ore.forge.api.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.slf4j.spi.LoggingEventBuilder;
+
+import java.time.Duration;
+
+/**
+ * Logging facade of a module on top of its Logback logger.
+ * <p>
+ * Messages should be logged with the fluent API, passing values as
+ * key-value fields or arguments instead of concatenating them: for a
+ * disabled level the builder is a no-op and nothing is formatted. Fields are
+ * rendered by the {@code %kvp} conversion word or a structured encoder.
+ * Hot loops can log through a {@link ThrottledLog}, and the level of the
+ * module and its sub-loggers can be changed at runtime, for example from the
+ * host's admin console.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * ModuleLog log = context.getModuleLog();
+ * log.atInfo()
+ *     .addKeyValue("report", report.getId())
+ *     .addKeyValue("rows", rows.size())
+ *     .log("Report generated");
+ *
+ * log.setLevel("persistence", Level.DEBUG);
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public class ModuleLog
+{
+    private final Logger logger;
+
+    /**
+     * @param logger the module's logger
+     */
+    public ModuleLog(Logger logger)
+    {
+        this.logger = logger;
+    }
+
+    /**
+     * @return the module's logger
+     */
+    public Logger getLogger() { return logger; }
+
+    public LoggingEventBuilder atTrace() { return logger.atTrace(); }
+
+    public LoggingEventBuilder atDebug() { return logger.atDebug(); }
+
+    public LoggingEventBuilder atInfo() { return logger.atInfo(); }
+
+    public LoggingEventBuilder atWarn() { return logger.atWarn(); }
+
+    public LoggingEventBuilder atError() { return logger.atError(); }
+
+    /**
+     * @return the effective level of the module's logger
+     */
+    public Level getLevel()
+    {
+        return logger.getEffectiveLevel();
+    }
+
+    /**
+     * Sets the level of the module's logger, or resets it to the inherited level if null.
+     */
+    public void setLevel(Level level)
+    {
+        logger.setLevel(level);
+    }
+
+    /**
+     * Sets the level of a sub-logger of the module, or resets it to the inherited level if null.
+     *
+     * @param name  the name of the sub-logger, relative to the module's logger
+     * @param level the level to set
+     */
+    public void setLevel(String name, Level level)
+    {
+        logger.getLoggerContext().getLogger(logger.getName() + "." + name).setLevel(level);
+    }
+
+    /**
+     * @param permits  the number of events logged per interval
+     * @param interval the length of the interval
+     * @return a log letting through at most {@code permits} events per interval
+     */
+    public ThrottledLog rateLimited(int permits, Duration interval)
+    {
+        return new ThrottledLog.RateLimited(logger, permits, interval);
+    }
+
+    /**
+     * @param probability the probability of an event being logged, greater than 0 and at most 1
+     * @return a log letting through a random sample of events
+     */
+    public ThrottledLog sampled(double probability)
+    {
+        return new ThrottledLog.Sampled(logger, probability);
+    }
+}
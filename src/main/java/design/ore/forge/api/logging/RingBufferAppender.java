@@ -0,0 +1,309 @@
+package design.ore.forge.api.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+import design.ore.forge.api.enums.DiscardPolicy;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appender handing events to its attached appenders on a background thread,
+ * so logging threads never wait for appender I/O.
+ * <p>
+ * Events are passed through a bounded, lock-free ring buffer. When the
+ * buffer is full, the {@link DiscardPolicy} decides whether the logging
+ * thread waits for space ({@code BLOCK}), the event is dropped
+ * ({@code DROP}), or only events below WARN are dropped
+ * ({@code DROP_BELOW_WARN}, the default). Dropped events are counted.
+ * </p>
+ * <p>
+ * The host wraps a module's logger with {@link #install(Logger, int, DiscardPolicy)}
+ * and stops the appender when the module is unloaded, which flushes the
+ * buffer for at most {@code maxFlushTime} milliseconds. The appender can
+ * also be declared in a Logback configuration file:
+ * </p>
+ * <pre>{@code
+ * <appender name="ASYNC" class="design.ore.forge.api.logging.RingBufferAppender">
+ *     <capacity>8192</capacity>
+ *     <discardPolicy>DROP_BELOW_WARN</discardPolicy>
+ *     <appender-ref ref="FILE" />
+ * </appender>
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public class RingBufferAppender extends UnsynchronizedAppenderBase<ILoggingEvent> implements AppenderAttachable<ILoggingEvent>
+{
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private int capacity = DEFAULT_CAPACITY;
+    private DiscardPolicy discardPolicy = DiscardPolicy.DROP_BELOW_WARN;
+    private boolean includeCallerData;
+    private int maxFlushTime = 1000;
+
+    private AtomicReferenceArray<ILoggingEvent> events;
+    private AtomicLongArray sequences;
+    private int mask;
+    private volatile Thread worker;
+    private volatile boolean workerParked;
+
+    /**
+     * Replaces the appenders of a logger with a started ring buffer appender
+     * feeding them. The appenders the logger inherits are attached as well and
+     * the logger is made non-additive, so every event passes the buffer once.
+     *
+     * @param logger        the logger to make asynchronous
+     * @param capacity      the capacity of the buffer, rounded up to a power of two
+     * @param discardPolicy what to do when the buffer is full
+     * @return the installed appender
+     */
+    public static RingBufferAppender install(Logger logger, int capacity, DiscardPolicy discardPolicy)
+    {
+        LoggerContext context = logger.getLoggerContext();
+        List<Appender<ILoggingEvent>> own = new ArrayList<>();
+        logger.iteratorForAppenders().forEachRemaining(own::add);
+
+        Set<Appender<ILoggingEvent>> effective = new LinkedHashSet<>(own);
+        if (logger.isAdditive())
+        {
+            String name = logger.getName();
+            while (name != null)
+            {
+                int dot = name.lastIndexOf('.');
+                Logger parent = dot > 0 ? context.getLogger(name.substring(0, dot)) : context.getLogger(Logger.ROOT_LOGGER_NAME);
+                parent.iteratorForAppenders().forEachRemaining(effective::add);
+                if (!parent.isAdditive() || parent.getName().equals(Logger.ROOT_LOGGER_NAME)) break;
+                name = parent.getName();
+            }
+        }
+
+        RingBufferAppender appender = new RingBufferAppender();
+        appender.setContext(context);
+        appender.setName("forge-async-" + logger.getName());
+        appender.setCapacity(capacity);
+        appender.setDiscardPolicy(discardPolicy);
+        effective.forEach(appender::addAppender);
+        appender.start();
+
+        own.forEach(logger::detachAppender);
+        logger.addAppender(appender);
+        logger.setAdditive(false);
+        return appender;
+    }
+
+    @Override
+    public void start()
+    {
+        if (isStarted()) return;
+        if (capacity < 1)
+        {
+            addError("Capacity must be positive, was " + capacity);
+            return;
+        }
+        if (!appenders.iteratorForAppenders().hasNext()) addWarn("No appenders attached to " + getName());
+
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        events = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+        mask = size - 1;
+        head = 0;
+        tail.set(0);
+
+        super.start();
+        worker = Thread.ofPlatform().daemon().name("forge-log-" + getName()).start(this::drain);
+    }
+
+    @Override
+    public void stop()
+    {
+        if (!isStarted()) return;
+        super.stop();
+
+        Thread thread = worker;
+        LockSupport.unpark(thread);
+        try
+        {
+            thread.join(maxFlushTime);
+            if (thread.isAlive())
+            {
+                addWarn("Flushing " + getName() + " timed out after " + maxFlushTime + " ms with " + getQueueSize() + " events left");
+                thread.interrupt();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    protected void append(ILoggingEvent event)
+    {
+        event.prepareForDeferredProcessing();
+        if (includeCallerData) event.getCallerData();
+
+        if (offer(event)) return;
+
+        if (discardPolicy == DiscardPolicy.DROP || (discardPolicy == DiscardPolicy.DROP_BELOW_WARN && !event.getLevel().isGreaterOrEqual(Level.WARN)))
+        {
+            dropped.increment();
+            return;
+        }
+
+        while (!offer(event))
+        {
+            if (!isStarted() || Thread.currentThread().isInterrupted())
+            {
+                dropped.increment();
+                return;
+            }
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        }
+    }
+
+    private boolean offer(ILoggingEvent event)
+    {
+        while (true)
+        {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0)
+            {
+                if (!tail.compareAndSet(position, position + 1)) continue;
+                events.set(index, event);
+                sequences.set(index, position + 1);
+                if (workerParked) LockSupport.unpark(worker);
+                return true;
+            }
+            if (difference < 0) return false;
+        }
+    }
+
+    private ILoggingEvent poll()
+    {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) return null;
+
+        ILoggingEvent event = events.get(index);
+        events.set(index, null);
+        sequences.set(index, position + mask + 1);
+        head = position + 1;
+        return event;
+    }
+
+    private void drain()
+    {
+        while (true)
+        {
+            ILoggingEvent event = poll();
+            if (event != null)
+            {
+                try
+                {
+                    appenders.appendLoopOnAppenders(event);
+                }
+                catch (RuntimeException e)
+                {
+                    addError("Appender failed for event from " + event.getLoggerName(), e);
+                }
+                continue;
+            }
+
+            if (!isStarted() || Thread.currentThread().isInterrupted()) break;
+
+            workerParked = true;
+            // Re-checked after publishing the flag, so an event offered in between is not left waiting for the timeout
+            if (head == tail.get()) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            workerParked = false;
+        }
+    }
+
+    /**
+     * @return the number of events waiting to be appended
+     */
+    public int getQueueSize()
+    {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    /**
+     * @return the number of events dropped because the buffer was full
+     */
+    public long getDroppedCount()
+    {
+        return dropped.sum();
+    }
+
+    public int getCapacity() { return capacity; }
+
+    /**
+     * Sets the capacity of the buffer, rounded up to a power of two. Takes effect on the next start.
+     */
+    public void setCapacity(int capacity) { this.capacity = capacity; }
+
+    public DiscardPolicy getDiscardPolicy() { return discardPolicy; }
+
+    public void setDiscardPolicy(DiscardPolicy discardPolicy) { this.discardPolicy = discardPolicy; }
+
+    public boolean isIncludeCallerData() { return includeCallerData; }
+
+    /**
+     * Captures the caller of each event before it is queued. Capturing the caller walks the stack and is expensive.
+     */
+    public void setIncludeCallerData(boolean includeCallerData) { this.includeCallerData = includeCallerData; }
+
+    public int getMaxFlushTime() { return maxFlushTime; }
+
+    /**
+     * Sets the maximum time in milliseconds {@link #stop()} waits for queued events to be appended.
+     */
+    public void setMaxFlushTime(int maxFlushTime) { this.maxFlushTime = maxFlushTime; }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> appender) { appenders.addAppender(appender); }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() { return appenders.iteratorForAppenders(); }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) { return appenders.getAppender(name); }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) { return appenders.isAttached(appender); }
+
+    @Override
+    public void detachAndStopAllAppenders() { appenders.detachAndStopAllAppenders(); }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) { return appenders.detachAppender(appender); }
+
+    @Override
+    public boolean detachAppender(String name) { return appenders.detachAppender(name); }
+}
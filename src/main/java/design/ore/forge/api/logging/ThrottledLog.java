@@ -0,0 +1,153 @@
+package design.ore.forge.api.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.slf4j.spi.NOPLoggingEventBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logs only some of the events of a hot loop, either at most a number of
+ * events per interval or a random sample of them. Created with
+ * {@link ModuleLog#rateLimited(int, Duration)} and {@link ModuleLog#sampled(double)}
+ * and meant to be kept in a field.
+ * <p>
+ * Events that are let through return the logger's fluent builder; all others
+ * return a no-op builder, so key-value fields and arguments added to them are
+ * never formatted. Rate-limited events carry the number of events suppressed
+ * since the previous one in the {@code suppressed} field, sampled events
+ * carry the sampling probability in the {@code sampleRate} field.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * private final ThrottledLog slowQueries = log.rateLimited(5, Duration.ofSeconds(10));
+ *
+ * slowQueries.atWarn()
+ *     .addKeyValue("query", queryName)
+ *     .addKeyValue("ms", elapsedMillis)
+ *     .log("Slow query");
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public abstract class ThrottledLog
+{
+    private final Logger logger;
+    private final LongAdder suppressed = new LongAdder();
+
+    ThrottledLog(Logger logger)
+    {
+        this.logger = logger;
+    }
+
+    public LoggingEventBuilder atTrace() { return at(Level.TRACE); }
+
+    public LoggingEventBuilder atDebug() { return at(Level.DEBUG); }
+
+    public LoggingEventBuilder atInfo() { return at(Level.INFO); }
+
+    public LoggingEventBuilder atWarn() { return at(Level.WARN); }
+
+    public LoggingEventBuilder atError() { return at(Level.ERROR); }
+
+    /**
+     * @return the number of enabled events that were not logged
+     */
+    public long getSuppressedCount()
+    {
+        return suppressed.sum();
+    }
+
+    private LoggingEventBuilder at(Level level)
+    {
+        // Disabled levels must not use up permits, or raising the level later would start with an empty budget
+        if (!logger.isEnabledForLevel(level)) return NOPLoggingEventBuilder.singleton();
+        if (!permit())
+        {
+            suppressed.increment();
+            return NOPLoggingEventBuilder.singleton();
+        }
+        return decorate(logger.atLevel(level));
+    }
+
+    abstract boolean permit();
+
+    abstract LoggingEventBuilder decorate(LoggingEventBuilder builder);
+
+    static final class RateLimited extends ThrottledLog
+    {
+        private final int permits;
+        private final long intervalNanos;
+        private final AtomicReference<Window> window = new AtomicReference<>(new Window(System.nanoTime()));
+        private final AtomicLong suppressedSinceLast = new AtomicLong();
+
+        RateLimited(Logger logger, int permits, Duration interval)
+        {
+            super(logger);
+            if (permits < 1) throw new IllegalArgumentException("Permits must be positive, was " + permits);
+            this.permits = permits;
+            this.intervalNanos = interval.toNanos();
+        }
+
+        @Override
+        boolean permit()
+        {
+            long now = System.nanoTime();
+            Window current = window.get();
+            // A new window replaces the old one in a single swap, so no event counted in it can be reset
+            if (now - current.start >= intervalNanos)
+            {
+                Window next = new Window(now);
+                current = window.compareAndSet(current, next) ? next : window.get();
+            }
+
+            if (current.count.incrementAndGet() <= permits) return true;
+            suppressedSinceLast.incrementAndGet();
+            return false;
+        }
+
+        @Override
+        LoggingEventBuilder decorate(LoggingEventBuilder builder)
+        {
+            long count = suppressedSinceLast.getAndSet(0);
+            return count > 0 ? builder.addKeyValue("suppressed", count) : builder;
+        }
+
+        private record Window(long start, AtomicLong count)
+        {
+            Window(long start)
+            {
+                this(start, new AtomicLong());
+            }
+        }
+    }
+
+    static final class Sampled extends ThrottledLog
+    {
+        private final double probability;
+
+        Sampled(Logger logger, double probability)
+        {
+            super(logger);
+            if (!(probability > 0 && probability <= 1)) throw new IllegalArgumentException("Probability must be in (0, 1], was " + probability);
+            this.probability = probability;
+        }
+
+        @Override
+        boolean permit()
+        {
+            return probability >= 1 || ThreadLocalRandom.current().nextDouble() < probability;
+        }
+
+        @Override
+        LoggingEventBuilder decorate(LoggingEventBuilder builder)
+        {
+            return builder.addKeyValue("sampleRate", probability);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package design.ore.forge.api.logos;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Turns the logos of registrations into small copies for the launcher.
+ * <p>
+ * A logo is decoded once, scaled down to each of the configured sizes that
+ * are not larger than the original, and written as PNG, plus WebP if an
+ * ImageIO plugin that writes WebP is on the classpath. Large originals are
+ * subsampled while decoding and then halved step by step, which is much
+ * faster than scaling in one step and looks as good.
+ * </p>
+ * <p>
+ * Copies are stored under a hash of the original in the
+ * {@value #LOGO_DIRECTORY} folder of the module's persistent data directory
+ * and reused on the next start without decoding the original again. The
+ * API's web configuration serves them under {@value #URL_PATH} with
+ * immutable caching.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * LogoPipeline logos = new LogoPipeline(dataDirectory.resolve(LogoPipeline.LOGO_DIRECTORY), moduleClassLoader, scheduler::execute);
+ * logos.process(registration.getLogoResourcePath())
+ *     .thenAccept(variants -> catalog.attachLogoVariants(moduleId, registration.getLogoResourcePath(), variants));
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public class LogoPipeline
+{
+    /**
+     * Path under the module's persistent data directory that logo copies are stored in.
+     */
+    public static final String LOGO_DIRECTORY = "logos";
+
+    /**
+     * Request path that logo copies are served under, relative to the module. It is
+     * reserved for the API, so a module's own {@code /logos/} static resources are not shadowed.
+     */
+    public static final String URL_PATH = "/_forge/logos/";
+
+    /**
+     * Sizes of the longer side of the copies, covering a 64 pixel tile on displays with a pixel ratio of up to 4.
+     */
+    public static final List<Integer> DEFAULT_SIZES = List.of(32, 64, 128, 256);
+
+    /**
+     * Largest original in bytes that is processed.
+     */
+    public static final int MAX_SOURCE_BYTES = 32 * 1024 * 1024;
+
+    /**
+     * Largest original in pixels that is decoded, so a small file cannot claim gigabytes of memory.
+     */
+    public static final long MAX_SOURCE_PIXELS = 8192L * 8192L;
+
+    private static final String INDEX_FILE = "variants";
+    private static final Logger LOG = LoggerFactory.getLogger(LogoPipeline.class);
+
+    private final Path root;
+    private final ClassLoader classLoader;
+    private final Executor executor;
+    private final List<Integer> sizes;
+    private final Map<String, CompletableFuture<LogoVariants>> processed = new ConcurrentHashMap<>();
+
+    /**
+     * @param root        the directory to store copies in
+     * @param classLoader the class loader of the module, to load logos from
+     * @param executor    the executor to decode and scale logos on
+     */
+    public LogoPipeline(Path root, ClassLoader classLoader, Executor executor)
+    {
+        this(root, classLoader, executor, DEFAULT_SIZES);
+    }
+
+    /**
+     * @param root        the directory to store copies in
+     * @param classLoader the class loader of the module, to load logos from
+     * @param executor    the executor to decode and scale logos on
+     * @param sizes       the sizes of the longer side of the copies in pixels
+     */
+    public LogoPipeline(Path root, ClassLoader classLoader, Executor executor, List<Integer> sizes)
+    {
+        if (sizes.isEmpty()) throw new IllegalArgumentException("At least one size is required");
+        this.root = root;
+        this.classLoader = classLoader;
+        this.executor = executor;
+        this.sizes = sizes.stream().distinct().sorted(Comparator.reverseOrder()).toList();
+    }
+
+    /**
+     * Makes the copies of a logo, once per resource path for the lifetime of the pipeline.
+     *
+     * @param resourcePath the class path resource of the logo, either as given or relative to {@code static/}
+     * @return a future completed with the copies, or with null if the logo is not a class path resource
+     */
+    public CompletableFuture<LogoVariants> process(String resourcePath)
+    {
+        if (resourcePath == null || resourcePath.isBlank() || resourcePath.contains("://")) return CompletableFuture.completedFuture(null);
+
+        return processed.computeIfAbsent(resourcePath, path -> CompletableFuture.supplyAsync(() ->
+        {
+            try { return run(path); }
+            catch (IOException e) { throw new UncheckedIOException(e); }
+        }, executor).whenComplete((variants, error) ->
+        {
+            if (error != null) LOG.warn("Could not process logo {}", path, error);
+        }));
+    }
+
+    private LogoVariants run(String resourcePath) throws IOException
+    {
+        byte[] source = read(resourcePath);
+        if (source == null) return null;
+
+        String hash = hash(source);
+        Path directory = root.resolve(hash);
+        LogoVariants existing = readIndex(hash, directory);
+        if (existing != null) return existing;
+
+        long started = System.nanoTime();
+        BufferedImage image = decode(source);
+        int longest = Math.max(image.getWidth(), image.getHeight());
+
+        List<Integer> targets = sizes.stream().filter(size -> size <= longest).toList();
+        if (targets.isEmpty()) targets = List.of(longest);
+
+        List<String> formats = new ArrayList<>(List.of("png"));
+        if (ImageIO.getImageWritersByFormatName("webp").hasNext()) formats.add("webp");
+
+        Files.createDirectories(directory);
+        List<LogoVariants.Variant> variants = new ArrayList<>();
+        BufferedImage current = image;
+        for (int size : targets)
+        {
+            // Each copy is scaled from the next larger one, which the sizes are usually double of
+            current = scale(current, size);
+            for (String format : formats)
+            {
+                String fileName = size + "." + format;
+                Path temporary = Files.createTempFile(directory, fileName, ".part");
+                try
+                {
+                    BufferedImage encoded = format.equals("png") ? current : opaqueIfNeeded(current, format);
+                    if (!ImageIO.write(encoded, format, temporary.toFile())) throw new IOException("No writer for " + format);
+                    Files.move(temporary, directory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+                finally
+                {
+                    Files.deleteIfExists(temporary);
+                }
+                variants.add(new LogoVariants.Variant(size, format, URL_PATH + hash + "/" + fileName));
+            }
+        }
+
+        variants.sort(Comparator.comparingInt(LogoVariants.Variant::size));
+        writeIndex(directory, variants);
+        LOG.debug("Processed logo {} ({} bytes, {}x{}) in {} ms", resourcePath, source.length, image.getWidth(), image.getHeight(),
+            (System.nanoTime() - started) / 1_000_000);
+        return new LogoVariants(hash, List.copyOf(variants));
+    }
+
+    private byte[] read(String resourcePath) throws IOException
+    {
+        String path = resourcePath.startsWith("/") ? resourcePath.substring(1) : resourcePath;
+        InputStream found = classLoader.getResourceAsStream(path);
+        if (found == null) found = classLoader.getResourceAsStream("static/" + path);
+        if (found == null)
+        {
+            LOG.warn("Logo {} not found on the module's class path", resourcePath);
+            return null;
+        }
+
+        try (InputStream input = found)
+        {
+            byte[] bytes = input.readNBytes(MAX_SOURCE_BYTES + 1);
+            if (bytes.length > MAX_SOURCE_BYTES) throw new IOException("Logo " + resourcePath + " is larger than " + MAX_SOURCE_BYTES + " bytes");
+            return bytes;
+        }
+    }
+
+    private BufferedImage decode(byte[] source) throws IOException
+    {
+        // Reading from memory directly, rather than through ImageIO's temporary file cache
+        try (ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(source)))
+        {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) throw new IOException("Unsupported image format");
+
+            ImageReader reader = readers.next();
+            try
+            {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0), height = reader.getHeight(0);
+                if ((long) width * height > MAX_SOURCE_PIXELS) throw new IOException("Image of " + width + "x" + height + " pixels is too large");
+
+                // Skipping pixels while decoding saves most of the work for huge originals;
+                // twice the largest size is kept so the final scaling still has detail to average
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(width, height) / (2 * sizes.getFirst());
+                if (subsampling >= 2) param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+                BufferedImage decoded = reader.read(0, param);
+                return toArgb(decoded);
+            }
+            finally
+            {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage image, int size)
+    {
+        int width = image.getWidth(), height = image.getHeight();
+        double ratio = (double) size / Math.max(width, height);
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+        if (targetWidth == width && targetHeight == height) return image;
+
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight)
+        {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+        if (current.getWidth() != targetWidth || current.getHeight() != targetHeight)
+        {
+            current = draw(current, targetWidth, targetHeight, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        }
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage image, int width, int height, Object interpolation)
+    {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try
+        {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        }
+        finally
+        {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private static BufferedImage toArgb(BufferedImage image)
+    {
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB) return image;
+        return draw(image, image.getWidth(), image.getHeight(), RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+    }
+
+    /**
+     * Some WebP writers only accept images without alpha; those get the image composed onto white.
+     */
+    private static BufferedImage opaqueIfNeeded(BufferedImage image, String format)
+    {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try
+        {
+            if (writer.getOriginatingProvider().canEncodeImage(image)) return image;
+        }
+        finally
+        {
+            writer.dispose();
+        }
+
+        BufferedImage opaque = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = opaque.createGraphics();
+        try
+        {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            graphics.drawImage(image, 0, 0, null);
+        }
+        finally
+        {
+            graphics.dispose();
+        }
+        return opaque;
+    }
+
+    private static LogoVariants readIndex(String hash, Path directory)
+    {
+        Path index = directory.resolve(INDEX_FILE);
+        if (!Files.isRegularFile(index)) return null;
+        try
+        {
+            List<LogoVariants.Variant> variants = new ArrayList<>();
+            for (String line : Files.readAllLines(index, StandardCharsets.US_ASCII))
+            {
+                if (line.isBlank()) continue;
+                String[] parts = line.split(" ");
+                String fileName = parts[0] + "." + parts[1];
+                if (!Files.isRegularFile(directory.resolve(fileName))) return null;
+                variants.add(new LogoVariants.Variant(Integer.parseInt(parts[0]), parts[1], URL_PATH + hash + "/" + fileName));
+            }
+            return new LogoVariants(hash, List.copyOf(variants));
+        }
+        catch (IOException | RuntimeException e)
+        {
+            LOG.debug("Ignoring unreadable logo index {}", index, e);
+            return null;
+        }
+    }
+
+    private static void writeIndex(Path directory, List<LogoVariants.Variant> variants) throws IOException
+    {
+        StringBuilder content = new StringBuilder();
+        for (LogoVariants.Variant variant : variants) content.append(variant.size()).append(' ').append(variant.format()).append('\n');
+
+        Path temporary = Files.createTempFile(directory, INDEX_FILE, ".part");
+        try
+        {
+            Files.writeString(temporary, content, StandardCharsets.US_ASCII);
+            Files.move(temporary, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static String hash(byte[] source)
+    {
+        try { return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(source), 0, 16); }
+        catch (NoSuchAlgorithmException e) { throw new IllegalStateException("SHA-256 is not available", e); }
+    }
+}
@@ -0,0 +1,74 @@
+package design.ore.forge.api.logos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The resized copies of a logo made by a {@link LogoPipeline}.
+ * <p>
+ * Variant URLs are relative to the module and contain a hash of the
+ * original image, so they never change content and can be cached forever.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+@AllArgsConstructor
+@Getter
+public class LogoVariants
+{
+    /**
+     * One resized copy of a logo.
+     *
+     * @param size   the length of the longer side in pixels
+     * @param format the image format name, such as {@code png} or {@code webp}
+     * @param url    the URL of the copy, relative to the module
+     */
+    public record Variant(int size, String format, String url)
+    {
+    }
+
+    /**
+     * A hash of the original image.
+     */
+    private final String hash;
+
+    /**
+     * The variants, ordered by size.
+     */
+    private final List<Variant> variants;
+
+    /**
+     * @param size   the size in pixels the logo is displayed at, multiplied by the display's pixel ratio
+     * @param format the format the client can display
+     * @return the URL of the smallest variant in the format at least as large as the size, or of the largest
+     *         variant in the format if none is, or null if there is no variant in the format
+     */
+    public String getUrl(int size, String format)
+    {
+        Variant best = null;
+        for (Variant variant : variants)
+        {
+            if (!variant.format().equals(format)) continue;
+            best = variant;
+            if (variant.size() >= size) break;
+        }
+        return best != null ? best.url() : null;
+    }
+
+    /**
+     * @param format the image format name
+     * @return the variants in the format as an HTML {@code srcset} attribute value
+     */
+    public String getSrcset(String format)
+    {
+        return variants.stream()
+            .filter(variant -> variant.format().equals(format))
+            .sorted(Comparator.comparingInt(Variant::size))
+            .map(variant -> variant.url() + " " + variant.size() + "w")
+            .collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,575 @@
+package design.ore.forge.api.mail;
+
+import design.ore.forge.api.interfaces.IModuleMetrics;
+import design.ore.forge.api.interfaces.IModuleStore;
+import design.ore.forge.api.metrics.Counter;
+import design.ore.forge.api.metrics.Timer;
+import design.ore.forge.api.storage.StoreEntry;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMailMessage;
+import org.springframework.mail.javamail.MimeMessagePreparator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Durable, asynchronous outgoing mail for a module.
+ * <p>
+ * {@link #enqueue} writes the complete message to the module's
+ * {@link IModuleStore} and returns immediately, so request threads never wait
+ * on an SMTP server. A dispatcher hands due messages in batches to a fixed
+ * number of workers, each of which keeps its own SMTP connection open and
+ * sends many messages over it before replacing it.
+ * </p>
+ * <p>
+ * Messages that fail temporarily are retried with exponential backoff and
+ * jitter; messages the server rejects permanently, or that failed
+ * {@code OutboxOptions.getMaxAttempts()} times, are kept as dead letters
+ * until {@link #requeueDeadLetters()} is called. Queued messages survive a
+ * restart of the module. Delivery is at least once: a crash right after a
+ * message was sent may send it again, with the same {@code Message-ID}.
+ * Throughput, latency and queue depth are published as {@code forge_mail_*}
+ * metrics.
+ * </p>
+ * <p>
+ * Workers are platform threads because Jakarta Mail's transports hold
+ * monitors during network I/O, which would pin the carriers of virtual threads.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * @Autowired MailOutbox outbox;
+ *
+ * SimpleMailMessage message = new SimpleMailMessage();
+ * message.setFrom("noreply@example.com");
+ * message.setTo(user.getEmail());
+ * message.setSubject("Your report is ready");
+ * message.setText(body);
+ * outbox.enqueue(message);
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public class MailOutbox implements AutoCloseable
+{
+    public static final String QUEUE_PREFIX = "mail/queue/";
+    public static final String DEAD_PREFIX = "mail/dead/";
+    public static final String CORRUPT_PREFIX = "mail/corrupt/";
+
+    private static final Duration POLL_INTERVAL = Duration.ofSeconds(5);
+    private static final Logger LOG = LoggerFactory.getLogger(MailOutbox.class);
+
+    private final JavaMailSenderImpl sender;
+    private final IModuleStore store;
+    private final OutboxOptions options;
+
+    private final BlockingQueue<List<QueuedMail>> batches;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final Semaphore wakeup = new Semaphore(0);
+    private final AtomicLong queueSize = new AtomicLong();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    private final Counter enqueued;
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter dead;
+    private final Counter connections;
+    private final Timer delivery;
+    private final Timer queueTime;
+
+    /**
+     * A message in the queue, as stored.
+     */
+    private record QueuedMail(String key, String id, int attempts, long enqueuedAt, String lastError, byte[] mime)
+    {
+    }
+
+    /**
+     * @param sender  the sender whose session and server settings are used
+     * @param store   the store to keep queued messages in
+     * @param metrics the registry to publish metrics to
+     * @param options the delivery options
+     */
+    public MailOutbox(JavaMailSenderImpl sender, IModuleStore store, IModuleMetrics metrics, OutboxOptions options)
+    {
+        this.sender = sender;
+        this.store = store;
+        this.options = options;
+        this.batches = new ArrayBlockingQueue<>(options.getWorkers());
+
+        this.enqueued = metrics.counter("forge_mail_enqueued");
+        this.sent = metrics.counter("forge_mail_sent");
+        this.retried = metrics.counter("forge_mail_retried");
+        this.dead = metrics.counter("forge_mail_dead");
+        this.connections = metrics.counter("forge_mail_connections_opened");
+        this.delivery = metrics.timer("forge_mail_delivery");
+        this.queueTime = metrics.timer("forge_mail_queue_time");
+        metrics.gauge("forge_mail_queue_size", queueSize::get);
+        metrics.gauge("forge_mail_in_flight", inFlight::size);
+    }
+
+    /**
+     * Starts delivering queued messages, including those left from before a restart.
+     */
+    public synchronized void start()
+    {
+        if (running) return;
+        try (Stream<StoreEntry> entries = store.scanPrefix(QUEUE_PREFIX))
+        {
+            queueSize.set(entries.count());
+        }
+
+        running = true;
+        threads.add(Thread.ofPlatform().daemon().name("forge-mail-dispatcher").start(this::dispatch));
+        for (int i = 0; i < options.getWorkers(); i++) threads.add(Thread.ofPlatform().daemon().name("forge-mail-worker-" + i).start(new Worker()));
+    }
+
+    /**
+     * Queues a message for delivery.
+     *
+     * @param message the message
+     * @return the ID of the queued message
+     * @throws MailPreparationException if the message cannot be serialized
+     */
+    public String enqueue(SimpleMailMessage message)
+    {
+        MimeMessage mime = sender.createMimeMessage();
+        message.copyTo(new MimeMailMessage(mime));
+        return enqueue(mime);
+    }
+
+    /**
+     * Queues a message for delivery.
+     *
+     * @param preparator the callback filling in a new message, for example with a {@code MimeMessageHelper}
+     * @return the ID of the queued message
+     * @throws MailPreparationException if the callback or serialization fails
+     */
+    public String enqueue(MimeMessagePreparator preparator)
+    {
+        MimeMessage mime = sender.createMimeMessage();
+        try { preparator.prepare(mime); }
+        catch (Exception e) { throw new MailPreparationException(e); }
+        return enqueue(mime);
+    }
+
+    /**
+     * Queues a message for delivery. Later changes to the message are not sent.
+     *
+     * @param message the message, created with {@link #createMimeMessage()}
+     * @return the ID of the queued message
+     * @throws MailPreparationException if the message cannot be serialized
+     */
+    public String enqueue(MimeMessage message)
+    {
+        long now = System.currentTimeMillis();
+        byte[] mime;
+        try
+        {
+            if (message.getSentDate() == null) message.setSentDate(new Date(now));
+            // Fixes the Message-ID now, so retries are recognizable as the same message
+            message.saveChanges();
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            message.writeTo(output);
+            mime = output.toByteArray();
+        }
+        catch (MessagingException | IOException e)
+        {
+            throw new MailPreparationException("Could not serialize message", e);
+        }
+
+        String id = UUID.randomUUID().toString();
+        store.put(key(now, id), encode(new QueuedMail(null, id, 0, now, null, mime)));
+        if (options.isSyncOnEnqueue()) store.sync();
+
+        queueSize.incrementAndGet();
+        enqueued.increment();
+        wakeup.release();
+        return id;
+    }
+
+    /**
+     * @return a new message for {@link #enqueue(MimeMessage)}
+     */
+    public MimeMessage createMimeMessage()
+    {
+        return sender.createMimeMessage();
+    }
+
+    /**
+     * @return the number of messages waiting for delivery, including those being sent
+     */
+    public long getQueueSize()
+    {
+        return queueSize.get();
+    }
+
+    /**
+     * Queues all dead letters for delivery again, with their attempts reset.
+     *
+     * @return the number of messages queued
+     */
+    public int requeueDeadLetters()
+    {
+        List<StoreEntry> letters;
+        try (Stream<StoreEntry> entries = store.scanPrefix(DEAD_PREFIX))
+        {
+            letters = entries.toList();
+        }
+
+        long now = System.currentTimeMillis();
+        for (StoreEntry letter : letters)
+        {
+            QueuedMail mail = decode(letter.getKey(), letter.getValue());
+            store.put(key(now, mail.id()), encode(new QueuedMail(null, mail.id(), 0, mail.enqueuedAt(), mail.lastError(), mail.mime())));
+            store.delete(letter.getKey());
+            queueSize.incrementAndGet();
+        }
+        if (!letters.isEmpty()) wakeup.release();
+        return letters.size();
+    }
+
+    /**
+     * Stops delivery and closes all connections. Messages not yet delivered stay queued.
+     */
+    @Override
+    public synchronized void close()
+    {
+        running = false;
+        threads.forEach(Thread::interrupt);
+        for (Thread thread : threads)
+        {
+            try { thread.join(TimeUnit.SECONDS.toMillis(10)); }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        threads.clear();
+    }
+
+    private void dispatch()
+    {
+        int limit = options.getBatchSize() * options.getWorkers();
+        while (running)
+        {
+            long now = System.currentTimeMillis();
+            long nextDue = now + POLL_INTERVAL.toMillis();
+            List<QueuedMail> due = new ArrayList<>();
+            try (Stream<StoreEntry> entries = store.scanPrefix(QUEUE_PREFIX))
+            {
+                Iterator<StoreEntry> iterator = entries.iterator();
+                while (iterator.hasNext() && due.size() < limit)
+                {
+                    StoreEntry entry = iterator.next();
+                    long dueAt = dueAt(entry.getKey());
+                    if (dueAt > now)
+                    {
+                        nextDue = Math.min(nextDue, dueAt);
+                        break;
+                    }
+                    if (inFlight.contains(entry.getKey())) continue;
+                    try { due.add(decode(entry.getKey(), entry.getValue())); }
+                    catch (UncheckedIOException e)
+                    {
+                        // Set aside rather than dropped, so it can be inspected
+                        LOG.error("Moving unreadable queued message {} to {}", entry.getKey(), CORRUPT_PREFIX, e);
+                        store.put(CORRUPT_PREFIX + entry.getKey().substring(QUEUE_PREFIX.length()), entry.getValue());
+                        store.delete(entry.getKey());
+                        queueSize.decrementAndGet();
+                    }
+                }
+            }
+            catch (RuntimeException e)
+            {
+                LOG.warn("Could not read the mail queue", e);
+            }
+
+            try
+            {
+                for (int from = 0; from < due.size(); from += options.getBatchSize())
+                {
+                    List<QueuedMail> batch = due.subList(from, Math.min(due.size(), from + options.getBatchSize()));
+                    batch.forEach(mail -> inFlight.add(mail.key()));
+                    // Blocks while all workers are busy, which keeps the number of claimed messages bounded
+                    batches.put(List.copyOf(batch));
+                }
+
+                if (due.isEmpty())
+                {
+                    wakeup.tryAcquire(Math.max(1, nextDue - now), TimeUnit.MILLISECONDS);
+                    wakeup.drainPermits();
+                }
+            }
+            catch (InterruptedException e)
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Delivers batches over a connection of its own, kept open between batches
+     * until it was idle for {@code OutboxOptions.getConnectionIdleTimeout()}.
+     */
+    private final class Worker implements Runnable
+    {
+        private Transport transport;
+        private int sentOnConnection;
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                while (running)
+                {
+                    List<QueuedMail> batch = batches.poll(options.getConnectionIdleTimeout().toMillis(), TimeUnit.MILLISECONDS);
+                    if (batch == null)
+                    {
+                        disconnect();
+                        continue;
+                    }
+
+                    try { deliver(batch); }
+                    finally
+                    {
+                        batch.forEach(mail -> inFlight.remove(mail.key()));
+                        // There may be more due messages than the dispatcher handed out
+                        wakeup.release();
+                    }
+                }
+            }
+            catch (InterruptedException e)
+            {
+                // Closed
+            }
+            finally
+            {
+                disconnect();
+            }
+        }
+
+        private void deliver(List<QueuedMail> batch)
+        {
+            // A connection left open may have been dropped by the server in the meantime
+            if (transport != null && !transport.isConnected()) disconnect();
+
+            for (int i = 0; i < batch.size(); i++)
+            {
+                QueuedMail mail = batch.get(i);
+                if (!running) return;
+
+                MimeMessage message;
+                Address[] recipients;
+                try
+                {
+                    message = new MimeMessage(sender.getSession(), new ByteArrayInputStream(mail.mime()));
+                    recipients = message.getAllRecipients();
+                }
+                catch (MessagingException e)
+                {
+                    bury(mail, "Unreadable message: " + e.getMessage());
+                    continue;
+                }
+                if (recipients == null || recipients.length == 0)
+                {
+                    bury(mail, "Message has no recipients");
+                    continue;
+                }
+
+                try
+                {
+                    if (transport == null || sentOnConnection >= options.getMessagesPerConnection()) connect();
+                }
+                catch (MessagingException e)
+                {
+                    LOG.debug("Could not connect to mail server", e);
+                    for (QueuedMail remaining : batch.subList(i, batch.size())) retry(remaining, "Could not connect: " + e.getMessage());
+                    return;
+                }
+
+                long start = delivery.start();
+                try
+                {
+                    transport.sendMessage(message, recipients);
+                    delivery.stop(start);
+                    sentOnConnection++;
+                    delivered(mail);
+                }
+                catch (MessagingException e)
+                {
+                    delivery.stop(start);
+                    sentOnConnection++;
+                    if (e instanceof SendFailedException failed && failed.getValidSentAddresses() != null && failed.getValidSentAddresses().length > 0)
+                    {
+                        LOG.warn("Message {} was not delivered to all recipients: {}", mail.id(), e.getMessage());
+                        delivered(mail);
+                    }
+                    else if (isPermanent(e)) bury(mail, e.getMessage());
+                    else
+                    {
+                        retry(mail, e.getMessage());
+                        // Failures other than rejected messages usually mean the connection is broken
+                        if (!(e instanceof SendFailedException)) disconnect();
+                    }
+                }
+            }
+        }
+
+        private void connect() throws MessagingException
+        {
+            disconnect();
+            String protocol = sender.getProtocol() != null ? sender.getProtocol() : JavaMailSenderImpl.DEFAULT_PROTOCOL;
+            Transport connected = sender.getSession().getTransport(protocol);
+            String username = sender.getUsername() != null && !sender.getUsername().isEmpty() ? sender.getUsername() : null;
+            connected.connect(sender.getHost(), sender.getPort(), username, username != null ? sender.getPassword() : null);
+            transport = connected;
+            sentOnConnection = 0;
+            connections.increment();
+        }
+
+        private void disconnect()
+        {
+            if (transport == null) return;
+            try { transport.close(); }
+            catch (MessagingException e) { LOG.debug("Could not close mail connection", e); }
+            transport = null;
+        }
+    }
+
+    private void delivered(QueuedMail mail)
+    {
+        store.delete(mail.key());
+        queueSize.decrementAndGet();
+        sent.increment();
+        queueTime.record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - mail.enqueuedAt())));
+    }
+
+    private void retry(QueuedMail mail, String error)
+    {
+        int attempts = mail.attempts() + 1;
+        if (attempts >= options.getMaxAttempts())
+        {
+            bury(mail, error);
+            return;
+        }
+
+        // Exponential backoff with jitter, so messages failing together are not retried together
+        long backoff = options.getInitialBackoff().toMillis() << Math.min(attempts - 1, 30);
+        backoff = Math.min(backoff, options.getMaxBackoff().toMillis());
+        backoff = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+
+        String id = mail.id();
+        store.put(key(System.currentTimeMillis() + backoff, id), encode(new QueuedMail(null, id, attempts, mail.enqueuedAt(), error, mail.mime())));
+        store.delete(mail.key());
+        retried.increment();
+        LOG.debug("Message {} failed on attempt {}, retrying in {} ms: {}", id, attempts, backoff, error);
+    }
+
+    private void bury(QueuedMail mail, String error)
+    {
+        store.put(DEAD_PREFIX + mail.id(), encode(new QueuedMail(null, mail.id(), mail.attempts() + 1, mail.enqueuedAt(), error, mail.mime())));
+        store.delete(mail.key());
+        queueSize.decrementAndGet();
+        dead.increment();
+        LOG.warn("Message {} could not be delivered and was moved to the dead letters: {}", mail.id(), error);
+    }
+
+    private static boolean isPermanent(MessagingException e)
+    {
+        for (Exception current = e; current != null; )
+        {
+            if (current instanceof SMTPSendFailedException failed && failed.getReturnCode() >= 500) return true;
+            if (current instanceof SMTPAddressFailedException failed && failed.getReturnCode() >= 500) return true;
+            current = current instanceof MessagingException messaging ? messaging.getNextException() : null;
+        }
+        return false;
+    }
+
+    private static String key(long dueAt, String id)
+    {
+        return QUEUE_PREFIX + String.format("%013d", dueAt) + "/" + id;
+    }
+
+    private static long dueAt(String key)
+    {
+        return Long.parseLong(key, QUEUE_PREFIX.length(), QUEUE_PREFIX.length() + 13, 10);
+    }
+
+    private static byte[] encode(QueuedMail mail)
+    {
+        try
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(mail.mime().length + 64);
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeUTF(mail.id());
+            output.writeInt(mail.attempts());
+            output.writeLong(mail.enqueuedAt());
+            output.writeUTF(mail.lastError() != null ? truncate(mail.lastError()) : "");
+            output.writeInt(mail.mime().length);
+            output.write(mail.mime());
+            return bytes.toByteArray();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static QueuedMail decode(String key, byte[] value)
+    {
+        try
+        {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(value));
+            String id = input.readUTF();
+            int attempts = input.readInt();
+            long enqueuedAt = input.readLong();
+            String lastError = input.readUTF();
+            byte[] mime = new byte[input.readInt()];
+            input.readFully(mime);
+            return new QueuedMail(key, id, attempts, enqueuedAt, lastError.isEmpty() ? null : lastError, mime);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Corrupt queued message " + key, e);
+        }
+    }
+
+    private static String truncate(String error)
+    {
+        return error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+}
@@ -0,0 +1,74 @@
+package design.ore.forge.api.mail;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Delivery options of a {@link MailOutbox}.
+ *
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * MailOutbox outbox = new MailOutbox(sender, context.getModuleStore(), context.getMetrics(),
+ *     OutboxOptions.builder()
+ *         .workers(4)
+ *         .maxAttempts(5)
+ *         .build());
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+@Getter
+@Builder
+public class OutboxOptions
+{
+    public static final OutboxOptions DEFAULT = OutboxOptions.builder().build();
+
+    /**
+     * Number of threads delivering mail, each with its own SMTP connection.
+     */
+    @Builder.Default
+    private int workers = 2;
+
+    /**
+     * Maximum number of messages a worker sends in one go.
+     */
+    @Builder.Default
+    private int batchSize = 20;
+
+    /**
+     * Number of messages after which a connection is replaced, as many servers limit messages per connection.
+     */
+    @Builder.Default
+    private int messagesPerConnection = 100;
+
+    /**
+     * Time after which an unused connection is closed.
+     */
+    @Builder.Default
+    private Duration connectionIdleTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Number of delivery attempts after which a message is moved to the dead letters.
+     */
+    @Builder.Default
+    private int maxAttempts = 10;
+
+    /**
+     * Delay before the second attempt, doubled for each further attempt up to {@link #maxBackoff}.
+     */
+    @Builder.Default
+    private Duration initialBackoff = Duration.ofSeconds(30);
+
+    @Builder.Default
+    private Duration maxBackoff = Duration.ofHours(1);
+
+    /**
+     * Whether {@link MailOutbox#enqueue} forces the message to disk before
+     * returning. When false, queued messages survive a crash of the JVM but
+     * not necessarily of the machine.
+     */
+    @Builder.Default
+    private boolean syncOnEnqueue = true;
+}
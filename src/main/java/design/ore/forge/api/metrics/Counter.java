@@ -0,0 +1,31 @@
+package design.ore.forge.api.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing count. Increments are striped across cells,
+ * so concurrent request threads do not contend on a single value.
+ *
+ * @since 0.4.0
+ */
+public final class Counter
+{
+    private final LongAdder count = new LongAdder();
+
+    Counter() { }
+
+    public void increment()
+    {
+        count.increment();
+    }
+
+    public void increment(long amount)
+    {
+        count.add(amount);
+    }
+
+    public long count()
+    {
+        return count.sum();
+    }
+}
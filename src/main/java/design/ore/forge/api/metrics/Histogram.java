@@ -0,0 +1,106 @@
+package design.ore.forge.api.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of non-negative long values with a relative error below 1%.
+ * <p>
+ * Values are counted in log-linear buckets in the style of HdrHistogram:
+ * values below 256 have a bucket each, and every further power of two is split
+ * into 128 equally wide buckets, so a bucket spans at most 1/128 (0.78%) of
+ * its values. The buckets of a power of two are allocated when its first
+ * value is recorded, about 1 KiB each, so a histogram only takes memory for
+ * the range its values span: about 11 KiB for latencies between 100
+ * microseconds and 100 milliseconds in nanoseconds. Recording is a single
+ * atomic increment of the bucket plus striped updates of the count and sum,
+ * without locks, so it is safe to use on hot request paths.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public final class Histogram
+{
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int ROW_COUNT = Long.SIZE - SUB_BUCKET_BITS + 1;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (ROW_COUNT - 1) * HALF_SUB_BUCKET_COUNT;
+
+    // Row 0 holds the values below SUB_BUCKET_COUNT, row n the upper half of the sub-buckets shifted by n
+    private final AtomicReferenceArray<AtomicLongArray> rows = new AtomicReferenceArray<>(ROW_COUNT);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    Histogram() { }
+
+    /**
+     * Records a value. Negative values are recorded as zero.
+     *
+     * @param value the value to record
+     */
+    public void record(long value)
+    {
+        if (value < 0) value = 0;
+        int index = bucketIndex(value);
+        if (index < SUB_BUCKET_COUNT) row(0).incrementAndGet(index);
+        else row((index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + 1).incrementAndGet((index - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT);
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * @return a consistent view of the values recorded so far
+     */
+    public HistogramSnapshot snapshot()
+    {
+        long[] counts = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int row = 0; row < ROW_COUNT; row++)
+        {
+            AtomicLongArray buckets = rows.get(row);
+            if (buckets == null) continue;
+            int first = row == 0 ? 0 : SUB_BUCKET_COUNT + (row - 1) * HALF_SUB_BUCKET_COUNT;
+            for (int i = 0; i < buckets.length(); i++)
+            {
+                counts[first + i] = buckets.get(i);
+                count += counts[first + i];
+            }
+        }
+        return new HistogramSnapshot(counts, count, sum.sum(), max.get());
+    }
+
+    private AtomicLongArray row(int row)
+    {
+        AtomicLongArray buckets = rows.get(row);
+        if (buckets != null) return buckets;
+        // Concurrent first values of a row agree on the row that was set first
+        rows.compareAndSet(row, null, new AtomicLongArray(row == 0 ? SUB_BUCKET_COUNT : HALF_SUB_BUCKET_COUNT));
+        return rows.get(row);
+    }
+
+    static int bucketIndex(long value)
+    {
+        if (value < SUB_BUCKET_COUNT) return (int) value;
+
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+        int subBucket = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * HALF_SUB_BUCKET_COUNT + (subBucket - HALF_SUB_BUCKET_COUNT);
+    }
+
+    /**
+     * @return the highest value that falls into the given bucket
+     */
+    static long bucketUpperBound(int index)
+    {
+        if (index < SUB_BUCKET_COUNT) return index;
+
+        int offset = index - SUB_BUCKET_COUNT;
+        int shift = offset / HALF_SUB_BUCKET_COUNT + 1;
+        long subBucket = offset % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+        long upper = ((subBucket + 1) << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
@@ -0,0 +1,46 @@
+package design.ore.forge.api.metrics;
+
+import lombok.Getter;
+
+/**
+ * Values recorded by a {@link Histogram} or {@link Timer} at a point in time.
+ *
+ * @since 0.4.0
+ */
+public final class HistogramSnapshot
+{
+    private final long[] counts;
+    @Getter private final long count, sum, max;
+
+    HistogramSnapshot(long[] counts, long count, long sum, long max)
+    {
+        this.counts = counts;
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    /**
+     * @param percentile the percentile between 0 and 100, such as 99.9
+     * @return the smallest recorded value that the given percentage of values is less than or equal to,
+     *         within the histogram's precision, or 0 if nothing was recorded
+     */
+    public long valueAtPercentile(double percentile)
+    {
+        if (count == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++)
+        {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(Histogram.bucketUpperBound(i), max);
+        }
+        return max;
+    }
+
+    public double getMean()
+    {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+}
@@ -0,0 +1,103 @@
+package design.ore.forge.api.metrics;
+
+import design.ore.forge.api.interfaces.IModuleMetrics;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DataSource wrapper recording how long connections take to obtain and how
+ * long they are held.
+ * <p>
+ * Records the {@code forge_jdbc_connection_acquire} and {@code forge_jdbc_connection_usage}
+ * timers, counts failures in {@code forge_jdbc_connection_failures} and exposes
+ * the number of connections currently held as the {@code forge_jdbc_connections_active} gauge.
+ * Installed by {@link design.ore.forge.api.config.ModuleJpaConfiguration}.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class MeteredDataSource extends DelegatingDataSource
+{
+    private final Timer acquireTimer, usageTimer;
+    private final Counter failures;
+    private final AtomicInteger active = new AtomicInteger();
+
+    public MeteredDataSource(DataSource target, IModuleMetrics metrics)
+    {
+        super(target);
+        this.acquireTimer = metrics.timer("forge_jdbc_connection_acquire");
+        this.usageTimer = metrics.timer("forge_jdbc_connection_usage");
+        this.failures = metrics.counter("forge_jdbc_connection_failures");
+        metrics.gauge("forge_jdbc_connections_active", active::get);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        long start = acquireTimer.start();
+        try
+        {
+            return track(super.getConnection(), start);
+        }
+        catch (SQLException e)
+        {
+            failures.increment();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException
+    {
+        long start = acquireTimer.start();
+        try
+        {
+            return track(super.getConnection(username, password), start);
+        }
+        catch (SQLException e)
+        {
+            failures.increment();
+            throw e;
+        }
+    }
+
+    private Connection track(Connection connection, long start)
+    {
+        acquireTimer.stop(start);
+        active.incrementAndGet();
+
+        long acquired = System.nanoTime();
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, args) ->
+        {
+            // Identity is the proxy's, and unwrapping to Connection must not hand out the untracked connection
+            String name = method.getName();
+            if (name.equals("equals")) return proxy == args[0];
+            if (name.equals("hashCode")) return System.identityHashCode(proxy);
+            if (name.equals("unwrap") && ((Class<?>) args[0]).isInstance(proxy)) return proxy;
+            if (name.equals("isWrapperFor") && ((Class<?>) args[0]).isInstance(proxy)) return true;
+
+            if (name.equals("close") && closed.compareAndSet(false, true))
+            {
+                active.decrementAndGet();
+                usageTimer.record(System.nanoTime() - acquired);
+            }
+
+            try
+            {
+                return method.invoke(connection, args);
+            }
+            catch (InvocationTargetException e)
+            {
+                throw e.getCause();
+            }
+        });
+    }
+}
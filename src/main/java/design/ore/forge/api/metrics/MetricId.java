@@ -0,0 +1,44 @@
+package design.ore.forge.api.metrics;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Name and tags identifying a metric within a module.
+ *
+ * @since 0.4.0
+ */
+@Getter
+@EqualsAndHashCode
+public final class MetricId
+{
+    private final String name;
+    private final Map<String, String> tags;
+
+    MetricId(String name, String... tags)
+    {
+        if (tags.length % 2 != 0) throw new IllegalArgumentException("Tags must be key-value pairs: " + Arrays.toString(tags));
+
+        Map<String, String> sorted = new TreeMap<>();
+        for (int i = 0; i < tags.length; i += 2) sorted.put(sanitize(tags[i]), tags[i + 1]);
+
+        this.name = sanitize(name);
+        this.tags = sorted;
+    }
+
+    private static String sanitize(String name)
+    {
+        StringBuilder sanitized = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++)
+        {
+            char c = name.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || (i > 0 && c >= '0' && c <= '9');
+            sanitized.append(valid ? c : '_');
+        }
+        return sanitized.toString();
+    }
+}
@@ -0,0 +1,78 @@
+package design.ore.forge.api.metrics;
+
+import design.ore.forge.api.interfaces.IModuleMetrics;
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Reference implementation of {@link IModuleMetrics}, one per module.
+ * <p>
+ * The host renders all module registries with {@link PrometheusTextFormat},
+ * which adds a {@code module} tag to every sample.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class ModuleMetricsRegistry implements IModuleMetrics
+{
+    @Getter private final String moduleId;
+    private final Map<MetricId, Object> metrics = new ConcurrentHashMap<>();
+
+    public ModuleMetricsRegistry(String moduleId)
+    {
+        this.moduleId = moduleId;
+    }
+
+    @Override
+    public Counter counter(String name, String... tags)
+    {
+        return get(new MetricId(name, tags), Counter.class, Counter::new);
+    }
+
+    @Override
+    public Timer timer(String name, String... tags)
+    {
+        return get(new MetricId(name, tags), Timer.class, Timer::new);
+    }
+
+    @Override
+    public Histogram histogram(String name, String... tags)
+    {
+        return get(new MetricId(name, tags), Histogram.class, Histogram::new);
+    }
+
+    @Override
+    public void gauge(String name, Supplier<? extends Number> value, String... tags)
+    {
+        MetricId id = new MetricId(name, tags);
+        Object existing = metrics.get(id);
+        if (existing != null && !(existing instanceof Gauge)) throw conflict(id, existing, Gauge.class);
+        metrics.put(id, new Gauge(value));
+    }
+
+    /**
+     * @return all metrics of the module, keyed by ID
+     */
+    public Map<MetricId, Object> getMetrics()
+    {
+        return Map.copyOf(metrics);
+    }
+
+    private <T> T get(MetricId id, Class<T> type, Supplier<T> factory)
+    {
+        Object metric = metrics.get(id);
+        if (metric == null) metric = metrics.computeIfAbsent(id, key -> factory.get());
+        if (!type.isInstance(metric)) throw conflict(id, metric, type);
+        return type.cast(metric);
+    }
+
+    private IllegalArgumentException conflict(MetricId id, Object existing, Class<?> requested)
+    {
+        return new IllegalArgumentException("Metric " + id.getName() + id.getTags() + " is a " + existing.getClass().getSimpleName() + ", not a " + requested.getSimpleName());
+    }
+
+    record Gauge(Supplier<? extends Number> value) { }
+}
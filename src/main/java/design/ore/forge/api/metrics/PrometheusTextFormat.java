@@ -0,0 +1,145 @@
+package design.ore.forge.api.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Renders module metrics in the Prometheus text exposition format (version 0.0.4).
+ * <p>
+ * Every sample is tagged with the ID of the module it belongs to. Counters
+ * are exposed with a {@code _total} suffix, timers as summaries in seconds
+ * with a {@code _seconds} suffix, and histograms as summaries in their own
+ * unit. Summaries carry the 50th, 90th, 99th and 99.9th percentile and are
+ * accompanied by a {@code _max} gauge.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public final class PrometheusTextFormat
+{
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private PrometheusTextFormat()
+    {
+        throw new AssertionError("PrometheusTextFormat is a utility class and should not be instantiated");
+    }
+
+    /**
+     * Writes the metrics of all given registries.
+     *
+     * @param writer     the writer to render to
+     * @param registries the registries to render
+     */
+    public static void write(Writer writer, Collection<ModuleMetricsRegistry> registries) throws IOException
+    {
+        // Families must be contiguous in the output, so samples are grouped across modules first
+        Map<String, Family> families = new TreeMap<>();
+        for (ModuleMetricsRegistry registry : registries)
+        {
+            for (Map.Entry<MetricId, Object> entry : registry.getMetrics().entrySet())
+            {
+                collect(families, registry.getModuleId(), entry.getKey(), entry.getValue());
+            }
+        }
+
+        for (Map.Entry<String, Family> family : families.entrySet())
+        {
+            writer.write("# TYPE " + family.getKey() + " " + family.getValue().type + "\n");
+            for (String sample : family.getValue().samples) writer.write(sample);
+        }
+    }
+
+    private static void collect(Map<String, Family> families, String moduleId, MetricId id, Object metric)
+    {
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("module", moduleId);
+        tags.putAll(id.getTags());
+
+        if (metric instanceof Counter counter)
+        {
+            String name = id.getName().endsWith("_total") ? id.getName() : id.getName() + "_total";
+            family(families, name, "counter").add(name, tags, counter.count());
+        }
+        else if (metric instanceof ModuleMetricsRegistry.Gauge gauge)
+        {
+            Number value;
+            try { value = gauge.value().get(); }
+            catch (RuntimeException e) { value = null; }
+            family(families, id.getName(), "gauge").add(id.getName(), tags, value != null ? value.doubleValue() : Double.NaN);
+        }
+        else if (metric instanceof Timer timer)
+        {
+            summary(families, id.getName() + "_seconds", tags, timer.snapshot(), NANOS_PER_SECOND);
+        }
+        else if (metric instanceof Histogram histogram)
+        {
+            summary(families, id.getName(), tags, histogram.snapshot(), 1);
+        }
+    }
+
+    private static void summary(Map<String, Family> families, String name, Map<String, String> tags, HistogramSnapshot snapshot, double divisor)
+    {
+        Family summary = family(families, name, "summary");
+        for (double quantile : QUANTILES)
+        {
+            Map<String, String> quantileTags = new LinkedHashMap<>(tags);
+            quantileTags.put("quantile", Double.toString(quantile));
+            summary.add(name, quantileTags, snapshot.valueAtPercentile(quantile * 100) / divisor);
+        }
+        summary.add(name + "_sum", tags, snapshot.getSum() / divisor);
+        summary.add(name + "_count", tags, snapshot.getCount());
+
+        family(families, name + "_max", "gauge").add(name + "_max", tags, snapshot.getMax() / divisor);
+    }
+
+    private static Family family(Map<String, Family> families, String name, String type)
+    {
+        return families.computeIfAbsent(name, key -> new Family(type));
+    }
+
+    private static final class Family
+    {
+        private final String type;
+        private final List<String> samples = new ArrayList<>();
+
+        private Family(String type)
+        {
+            this.type = type;
+        }
+
+        private void add(String name, Map<String, String> tags, double value)
+        {
+            StringBuilder sample = new StringBuilder(name).append('{');
+            boolean first = true;
+            for (Map.Entry<String, String> tag : tags.entrySet())
+            {
+                if (!first) sample.append(',');
+                sample.append(tag.getKey()).append("=\"").append(escape(tag.getValue())).append('"');
+                first = false;
+            }
+            sample.append("} ").append(format(value)).append('\n');
+            samples.add(sample.toString());
+        }
+
+        private static String format(double value)
+        {
+            if (Double.isNaN(value)) return "NaN";
+            if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) return Long.toString((long) value);
+            return Double.toString(value);
+        }
+
+        private static String escape(String value)
+        {
+            return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        }
+    }
+}
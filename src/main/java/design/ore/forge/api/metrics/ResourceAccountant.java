@@ -0,0 +1,268 @@
+package design.ore.forge.api.metrics;
+
+import com.sun.management.ThreadMXBean;
+import design.ore.forge.api.enums.WorkKind;
+import design.ore.forge.api.interfaces.IModuleMetrics;
+import lombok.Getter;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Attributes the CPU time and allocated bytes of the current thread to a
+ * module, sampled with the JVM's per-thread counters when the thread enters
+ * and leaves module code.
+ * <p>
+ * Every module runs in the same JVM and on threads shared with the host, so
+ * process-wide CPU and GC figures cannot say which module is responsible.
+ * The host creates one accountant per module; the API measures
+ * {@link design.ore.forge.api.annotations.ForgeWeb} requests and scheduler
+ * tasks with it, and modules can measure other entry points themselves.
+ * Totals are published in the module's metrics as
+ * {@code forge_module_cpu_nanoseconds}, {@code forge_module_allocated_bytes}
+ * and {@code forge_module_invocations}, tagged with the kind of work, and
+ * the busiest operations are listed by {@link ResourceUsageDump}.
+ * </p>
+ * <p>
+ * The JVM has no counters for virtual threads. Work measured on a virtual
+ * thread is counted as unmeasured and only contributes its wall time.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * ResourceAccountant.Sample sample = accountant.begin();
+ * try
+ * {
+ *     handleMessage(message);
+ * }
+ * finally
+ * {
+ *     accountant.end(sample, WorkKind.TASK, "handle-message");
+ * }
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public class ResourceAccountant
+{
+    /**
+     * Operation that work is attributed to once a module has more than
+     * {@link #MAX_OPERATIONS} distinct operations.
+     */
+    public static final String OTHER_OPERATION = "other";
+    public static final int MAX_OPERATIONS = 256;
+
+    private static final ThreadMXBean THREADS = threadBean();
+
+    @Getter private final String moduleId;
+    private final Map<WorkKind, Usage> totals = new EnumMap<>(WorkKind.class);
+    private final Map<WorkKind, Map<String, Usage>> operations = new EnumMap<>(WorkKind.class);
+
+    /**
+     * @param moduleId the ID of the module
+     * @param metrics  the module's metrics, to publish the totals in
+     */
+    public ResourceAccountant(String moduleId, IModuleMetrics metrics)
+    {
+        this.moduleId = moduleId;
+        for (WorkKind kind : WorkKind.values())
+        {
+            String tag = kind.name().toLowerCase();
+            totals.put(kind, new Usage(
+                metrics.counter("forge_module_cpu_nanoseconds", "kind", tag),
+                metrics.counter("forge_module_allocated_bytes", "kind", tag),
+                metrics.counter("forge_module_invocations", "kind", tag, "measured", "true"),
+                metrics.counter("forge_module_invocations", "kind", tag, "measured", "false")));
+            operations.put(kind, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * @return true if the JVM provides CPU time and allocation counters for platform threads
+     */
+    public static boolean isSupported()
+    {
+        return THREADS != null;
+    }
+
+    /**
+     * Samples the counters of the current thread. The returned sample must be
+     * passed to {@link #end} on the same thread.
+     */
+    public Sample begin()
+    {
+        long wall = System.nanoTime();
+        if (THREADS == null || Thread.currentThread().isVirtual()) return new Sample(wall, -1, -1);
+        return new Sample(wall, THREADS.getCurrentThreadCpuTime(), THREADS.getCurrentThreadAllocatedBytes());
+    }
+
+    /**
+     * Attributes the work done on the current thread since the sample was taken.
+     *
+     * @param sample    the sample taken by {@link #begin()}
+     * @param kind      the kind of work
+     * @param operation the operation the work belongs to
+     */
+    public void end(Sample sample, WorkKind kind, String operation)
+    {
+        long wall = System.nanoTime() - sample.wallNanos;
+        long cpu = -1, allocated = -1;
+        if (sample.cpuNanos >= 0)
+        {
+            long cpuNow = THREADS.getCurrentThreadCpuTime();
+            long allocatedNow = THREADS.getCurrentThreadAllocatedBytes();
+            if (cpuNow >= 0 && allocatedNow >= 0)
+            {
+                cpu = cpuNow - sample.cpuNanos;
+                allocated = allocatedNow - sample.allocatedBytes;
+            }
+        }
+
+        totals.get(kind).add(cpu, allocated, wall);
+        operation(kind, operation).add(cpu, allocated, wall);
+    }
+
+    /**
+     * Runs the task and attributes its work.
+     */
+    public void measure(WorkKind kind, String operation, Runnable task)
+    {
+        Sample sample = begin();
+        try
+        {
+            task.run();
+        }
+        finally
+        {
+            end(sample, kind, operation);
+        }
+    }
+
+    /**
+     * Runs the task and attributes its work.
+     *
+     * @return the task's result
+     */
+    public <T> T measure(WorkKind kind, String operation, Supplier<T> task)
+    {
+        Sample sample = begin();
+        try
+        {
+            return task.get();
+        }
+        finally
+        {
+            end(sample, kind, operation);
+        }
+    }
+
+    /**
+     * @return the usage of the module across all kinds of work
+     */
+    public ResourceUsage getTotals()
+    {
+        long invocations = 0, unmeasured = 0, cpu = 0, allocated = 0, wall = 0;
+        for (Usage usage : totals.values())
+        {
+            invocations += usage.measured.count() + usage.unmeasured.count();
+            unmeasured += usage.unmeasured.count();
+            cpu += usage.cpuNanos.count();
+            allocated += usage.allocatedBytes.count();
+            wall += usage.wallNanos.sum();
+        }
+        return new ResourceUsage(null, null, invocations, unmeasured, cpu, allocated, wall);
+    }
+
+    /**
+     * @return the usage of the module for the kind of work
+     */
+    public ResourceUsage getTotals(WorkKind kind)
+    {
+        return totals.get(kind).snapshot(kind, null);
+    }
+
+    /**
+     * @param limit the maximum number of operations to return
+     * @return the operations of the module that used the most CPU time, busiest first
+     */
+    public List<ResourceUsage> getTopOperations(int limit)
+    {
+        List<ResourceUsage> usages = new ArrayList<>();
+        for (Map.Entry<WorkKind, Map<String, Usage>> kind : operations.entrySet())
+        {
+            for (Map.Entry<String, Usage> operation : kind.getValue().entrySet())
+            {
+                usages.add(operation.getValue().snapshot(kind.getKey(), operation.getKey()));
+            }
+        }
+        usages.sort(Comparator.comparingLong(ResourceUsage::getCpuNanos)
+            .thenComparingLong(ResourceUsage::getWallNanos).reversed());
+        return usages.size() > limit ? List.copyOf(usages.subList(0, limit)) : usages;
+    }
+
+    private Usage operation(WorkKind kind, String operation)
+    {
+        Map<String, Usage> byName = operations.get(kind);
+        Usage usage = byName.get(operation);
+        if (usage != null) return usage;
+
+        // Operations come from request paths and task names; the cap keeps a misbehaving module from growing the map without bound
+        if (byName.size() >= MAX_OPERATIONS) operation = OTHER_OPERATION;
+        return byName.computeIfAbsent(operation, key -> new Usage(new Counter(), new Counter(), new Counter(), new Counter()));
+    }
+
+    private static ThreadMXBean threadBean()
+    {
+        try
+        {
+            if (!(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean threads)) return null;
+            if (!threads.isCurrentThreadCpuTimeSupported() || !threads.isThreadAllocatedMemorySupported()) return null;
+            if (!threads.isThreadCpuTimeEnabled()) threads.setThreadCpuTimeEnabled(true);
+            if (!threads.isThreadAllocatedMemoryEnabled()) threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        }
+        catch (UnsupportedOperationException | SecurityException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Counters of a thread at the start of a unit of work. CPU time and
+     * allocated bytes are -1 if the thread has no counters.
+     */
+    public record Sample(long wallNanos, long cpuNanos, long allocatedBytes) { }
+
+    private record Usage(Counter cpuNanos, Counter allocatedBytes, Counter measured, Counter unmeasured, LongAdder wallNanos)
+    {
+        private Usage(Counter cpuNanos, Counter allocatedBytes, Counter measured, Counter unmeasured)
+        {
+            this(cpuNanos, allocatedBytes, measured, unmeasured, new LongAdder());
+        }
+
+        private void add(long cpu, long allocated, long wall)
+        {
+            if (cpu >= 0)
+            {
+                cpuNanos.increment(cpu);
+                allocatedBytes.increment(allocated);
+                measured.increment();
+            }
+            else unmeasured.increment();
+            wallNanos.add(wall);
+        }
+
+        private ResourceUsage snapshot(WorkKind kind, String operation)
+        {
+            long unmeasuredCount = unmeasured.count();
+            return new ResourceUsage(kind, operation, measured.count() + unmeasuredCount, unmeasuredCount,
+                cpuNanos.count(), allocatedBytes.count(), wallNanos.sum());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package design.ore.forge.api.metrics;
+
+import design.ore.forge.api.enums.WorkKind;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Attributes the work of each request to the module handling it, keyed by
+ * the HTTP method and the matched URL pattern.
+ * <p>
+ * Asynchronous requests are measured per dispatch, since the work between
+ * dispatches runs on threads owned by whatever the handler handed it to.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class ResourceAccountingInterceptor implements AsyncHandlerInterceptor
+{
+    private static final String SAMPLE_ATTRIBUTE = ResourceAccountingInterceptor.class.getName() + ".sample";
+
+    private final ResourceAccountant accountant;
+
+    public ResourceAccountingInterceptor(ResourceAccountant accountant)
+    {
+        this.accountant = accountant;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+    {
+        request.setAttribute(SAMPLE_ATTRIBUTE, accountant.begin());
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler)
+    {
+        end(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex)
+    {
+        end(request);
+    }
+
+    private void end(HttpServletRequest request)
+    {
+        if (!(request.getAttribute(SAMPLE_ATTRIBUTE) instanceof ResourceAccountant.Sample sample)) return;
+        request.removeAttribute(SAMPLE_ATTRIBUTE);
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        accountant.end(sample, WorkKind.REQUEST, request.getMethod() + " " + (pattern != null ? pattern : "unmapped"));
+    }
+}
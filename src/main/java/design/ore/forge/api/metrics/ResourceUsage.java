@@ -0,0 +1,32 @@
+package design.ore.forge.api.metrics;
+
+import design.ore.forge.api.enums.WorkKind;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * CPU time and allocated bytes attributed to a module, either in total or
+ * for a single operation. Invocations that ran on a thread without CPU or
+ * allocation counters, such as a virtual thread, are counted as unmeasured
+ * and only contribute their wall time.
+ *
+ * @since 0.4.0
+ */
+@AllArgsConstructor
+@Getter
+public class ResourceUsage
+{
+    /**
+     * The kind of work, or null for the module's totals.
+     */
+    private final WorkKind kind;
+
+    /**
+     * The operation, for example {@code GET /reports/{id}} or the name of a
+     * scheduled task, or null for the module's totals.
+     */
+    private final String operation;
+
+    private final long invocations, unmeasuredInvocations;
+    private final long cpuNanos, allocatedBytes, wallNanos;
+}
@@ -0,0 +1,79 @@
+package design.ore.forge.api.metrics;
+
+import design.ore.forge.api.enums.WorkKind;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Renders the resource usage of all modules as a plain text report for the
+ * host's admin endpoint, ordered by CPU time so the modules worth optimizing
+ * or isolating come first.
+ *
+ * <h2>Example Output:</h2>
+ * <pre>
+ * module                 cpu share   cpu ms    alloc MB  invocations  unmeasured
+ * reports                   71.3 %   8412.5      1203.4        18211           0
+ *   REQUEST GET /reports/{id}        7901.2      1150.9        18210           0
+ *   TASK    nightly-rollup            511.3        52.5            1           0
+ * </pre>
+ *
+ * @since 0.4.0
+ */
+public final class ResourceUsageDump
+{
+    public static final String CONTENT_TYPE = "text/plain; charset=utf-8";
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+    private ResourceUsageDump()
+    {
+        throw new AssertionError("ResourceUsageDump is a utility class and should not be instantiated");
+    }
+
+    /**
+     * Writes the usage of all given modules.
+     *
+     * @param writer        the writer to render to
+     * @param accountants   the accountants of the modules to render
+     * @param topOperations the number of operations to list per module
+     */
+    public static void write(Writer writer, Collection<ResourceAccountant> accountants, int topOperations) throws IOException
+    {
+        List<Module> modules = accountants.stream()
+            .map(accountant -> new Module(accountant, accountant.getTotals()))
+            .sorted(Comparator.comparingLong((Module module) -> module.totals.getCpuNanos()).reversed())
+            .toList();
+        long totalCpu = modules.stream().mapToLong(module -> module.totals.getCpuNanos()).sum();
+
+        writer.write(String.format(Locale.ROOT, "%-22s %9s %8s %11s %12s %11s%n",
+            "module", "cpu share", "cpu ms", "alloc MB", "invocations", "unmeasured"));
+        for (Module module : modules)
+        {
+            ResourceUsage totals = module.totals;
+            double share = totalCpu > 0 ? 100.0 * totals.getCpuNanos() / totalCpu : 0;
+            writer.write(String.format(Locale.ROOT, "%-22s %7.1f %% %8.1f %11.1f %12d %11d%n",
+                module.accountant.getModuleId(), share, totals.getCpuNanos() / NANOS_PER_MILLI,
+                totals.getAllocatedBytes() / BYTES_PER_MEGABYTE, totals.getInvocations(), totals.getUnmeasuredInvocations()));
+
+            for (ResourceUsage operation : module.accountant.getTopOperations(topOperations))
+            {
+                writer.write(String.format(Locale.ROOT, "  %-7s %-22s %8.1f %11.1f %12d %11d%n",
+                    label(operation.getKind()), operation.getOperation(), operation.getCpuNanos() / NANOS_PER_MILLI,
+                    operation.getAllocatedBytes() / BYTES_PER_MEGABYTE, operation.getInvocations(), operation.getUnmeasuredInvocations()));
+            }
+        }
+    }
+
+    private static String label(WorkKind kind)
+    {
+        return kind != null ? kind.name() : "";
+    }
+
+    private record Module(ResourceAccountant accountant, ResourceUsage totals) { }
+}
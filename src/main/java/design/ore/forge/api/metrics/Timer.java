@@ -0,0 +1,73 @@
+package design.ore.forge.api.metrics;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Records durations in nanoseconds into a {@link Histogram}.
+ *
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * long start = timer.start();
+ * try { return repository.findAll(); }
+ * finally { timer.stop(start); }
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public final class Timer
+{
+    private final Histogram histogram = new Histogram();
+
+    Timer() { }
+
+    /**
+     * @return the start time to pass to {@link #stop(long)}
+     */
+    public long start()
+    {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the time elapsed since a call to {@link #start()}.
+     *
+     * @param start the value returned by {@link #start()}
+     */
+    public void stop(long start)
+    {
+        histogram.record(System.nanoTime() - start);
+    }
+
+    public void record(long nanos)
+    {
+        histogram.record(nanos);
+    }
+
+    public void record(Duration duration)
+    {
+        histogram.record(duration.toNanos());
+    }
+
+    public void record(Runnable task)
+    {
+        long start = start();
+        try { task.run(); }
+        finally { stop(start); }
+    }
+
+    public <T> T record(Supplier<T> task)
+    {
+        long start = start();
+        try { return task.get(); }
+        finally { stop(start); }
+    }
+
+    /**
+     * @return the recorded durations in nanoseconds
+     */
+    public HistogramSnapshot snapshot()
+    {
+        return histogram.snapshot();
+    }
+}
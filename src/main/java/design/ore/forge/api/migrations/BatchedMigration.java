@@ -0,0 +1,107 @@
+package design.ore.forge.api.migrations;
+
+import design.ore.forge.api.interfaces.IModuleMigration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+/**
+ * A data migration changing rows in small batches, each in its own short
+ * transaction with a pause in between, so a large table can be migrated
+ * while the module serves requests without long row locks or replication lag.
+ * <p>
+ * Runs in the background after the module started. Each batch must select
+ * the rows still to migrate by their content, for example
+ * {@code where total is null}, so a migration interrupted by a restart
+ * resumes where it stopped.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * public class V8_BackfillOrderTotals extends BatchedMigration {
+ *     public V8_BackfillOrderTotals() { super(8, "backfill order totals", 1000, Duration.ofMillis(50)); }
+ *
+ *     protected int migrateBatch(JdbcTemplate jdbc, int batchSize) {
+ *         return jdbc.update("update orders o set total = (select sum(amount) from order_line l where l.order_id = o.id)"
+ *             + " where total is null limit ?", batchSize);
+ *     }
+ * }
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public abstract class BatchedMigration implements IModuleMigration
+{
+    private final int version;
+    private final String description;
+    private final int batchSize;
+    private final Duration pause;
+
+    /**
+     * @param version     the version of the migration
+     * @param description a short description of the migration
+     * @param batchSize   the maximum number of rows per batch
+     * @param pause       the pause between batches, giving other transactions room
+     */
+    protected BatchedMigration(int version, String description, int batchSize, Duration pause)
+    {
+        this.version = version;
+        this.description = description;
+        this.batchSize = batchSize;
+        this.pause = pause;
+    }
+
+    /**
+     * Migrates the next batch of rows.
+     *
+     * @param jdbc      a template on the module's data source, within the batch's transaction
+     * @param batchSize the maximum number of rows to migrate
+     * @return the number of rows migrated, 0 when no rows are left
+     */
+    protected abstract int migrateBatch(JdbcTemplate jdbc, int batchSize) throws Exception;
+
+    @Override
+    public int getVersion()
+    {
+        return version;
+    }
+
+    @Override
+    public String getDescription()
+    {
+        return description;
+    }
+
+    @Override
+    public boolean isBackground()
+    {
+        return true;
+    }
+
+    @Override
+    public final void migrate(JdbcTemplate jdbc) throws Exception
+    {
+        TransactionTemplate transactions = new TransactionTemplate(new DataSourceTransactionManager(jdbc.getDataSource()));
+        while (true)
+        {
+            Integer migrated = transactions.execute(status ->
+            {
+                try
+                {
+                    return migrateBatch(jdbc, batchSize);
+                }
+                catch (RuntimeException e)
+                {
+                    throw e;
+                }
+                catch (Exception e)
+                {
+                    throw new IllegalStateException("Batch of migration " + version + " failed", e);
+                }
+            });
+            if (migrated == null || migrated <= 0) return;
+            if (!pause.isZero()) Thread.sleep(pause);
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package design.ore.forge.api.migrations;
+
+import design.ore.forge.api.interfaces.IModuleContext;
+import design.ore.forge.api.interfaces.IModuleMigration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies the versioned migrations of a module and records them in the
+ * {@value #HISTORY_TABLE} table of the module's database.
+ * <p>
+ * SQL migrations are files named {@code V<version>__<description>.sql} in the
+ * module's migration location; programmatic migrations implement
+ * {@link IModuleMigration}. On startup, the history is read with one query
+ * and compared with the migrations the module ships. Applied SQL migrations
+ * whose checksum changed fail the startup, pending migrations are applied in
+ * version order, each in its own transaction, and background migrations
+ * such as {@link BatchedMigration}s are started once the module runs.
+ * When nothing is pending, startup costs that one query, which is why
+ * modules using migrations do not need Hibernate to introspect the schema.
+ * </p>
+ * <p>
+ * Migrations run on a single connection of the module's data source, so they
+ * fit in a quota of one connection of a shared pool. A background migration
+ * takes a connection from the data source per statement or batch instead, so
+ * requests can use the quota in between. On MySQL, the startup connection
+ * holds a named lock, so hosts starting the same module concurrently apply
+ * the migrations once, and each background migration takes a lock of its own,
+ * held on a separate connection outside the pool for as long as it runs, so
+ * it runs on one host while the others skip it. Other databases have no such
+ * lock, so there background migrations must be safe to run on several hosts
+ * at once. MySQL commits DDL statements implicitly, so a failed SQL migration
+ * may leave its earlier statements applied; keep one DDL statement per
+ * migration where possible.
+ * </p>
+ * <p>
+ * A failed migration is recorded with {@code success = false}, so the
+ * history shows what was attempted, and is run again on the next start.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class ModuleMigrator implements SmartLifecycle
+{
+    public static final String HISTORY_TABLE = "forge_schema_history";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ModuleMigrator.class);
+    private static final Pattern SQL_FILE = Pattern.compile("V(\\d+)__(.+)\\.sql");
+    private static final int LOCK_TIMEOUT_SECONDS = 600;
+
+    private final DataSource dataSource;
+    private final DataSource lockDataSource;
+    private final String location;
+    private final List<IModuleMigration> programmatic;
+    private final ClassLoader classLoader;
+    private final IModuleContext context;
+    private final List<Migration> background = new ArrayList<>();
+    private volatile int schemaVersion;
+    private volatile boolean running;
+
+    /**
+     * A migration shipped by the module.
+     *
+     * @param checksum the SHA-256 of a SQL migration's normalized content, null for programmatic migrations
+     * @param script   the script of a SQL migration, null for programmatic migrations
+     * @param code     the programmatic migration, null for SQL migrations
+     */
+    private record Migration(int version, String description, String type, String checksum, Resource script, IModuleMigration code) { }
+
+    private record Applied(int version, String checksum, boolean success) { }
+
+    /**
+     * @param dataSource     the module's data source
+     * @param lockDataSource the data source of the connections holding the locks of background migrations,
+     *                       outside the module's pool, or null to use the module's data source
+     * @param location       the classpath location of the SQL migrations, or empty for none
+     * @param programmatic   the programmatic migrations
+     * @param classLoader    the module's class loader
+     * @param context        the module's context, or null, used to run background migrations and expose the schema version
+     */
+    public ModuleMigrator(DataSource dataSource, DataSource lockDataSource, String location, List<IModuleMigration> programmatic, ClassLoader classLoader, IModuleContext context)
+    {
+        this.dataSource = dataSource;
+        this.lockDataSource = lockDataSource != null ? lockDataSource : dataSource;
+        this.location = location;
+        this.programmatic = programmatic;
+        this.classLoader = classLoader;
+        this.context = context;
+    }
+
+    /**
+     * @return whether the module ships a migration location or programmatic migrations
+     */
+    public boolean isEnabled()
+    {
+        return (location != null && !location.isEmpty()) || !programmatic.isEmpty();
+    }
+
+    /**
+     * @return the highest version applied successfully, 0 if none
+     */
+    public int getSchemaVersion()
+    {
+        return schemaVersion;
+    }
+
+    /**
+     * Verifies the applied migrations and applies the pending ones, except
+     * background migrations, which {@link #start()} runs.
+     *
+     * @throws IllegalStateException if an applied migration changed, or a migration fails
+     */
+    public void migrate()
+    {
+        if (!isEnabled()) return;
+        List<Migration> migrations = discover();
+        boolean locked = locked(dataSource, HISTORY_TABLE, LOCK_TIMEOUT_SECONDS, jdbc ->
+        {
+            jdbc.execute("create table if not exists " + HISTORY_TABLE + " ("
+                + "version int not null primary key, "
+                + "description varchar(200) not null, "
+                + "type varchar(10) not null, "
+                + "checksum varchar(64), "
+                + "installed_on timestamp not null, "
+                + "execution_ms bigint not null, "
+                + "success boolean not null)");
+            apply(jdbc, migrations);
+        });
+        if (!locked) throw new IllegalStateException("Timed out waiting for another host applying migrations");
+        if (context != null) context.getMetrics().gauge("forge_schema_version", () -> schemaVersion);
+    }
+
+    /**
+     * Starts the pending background migrations on the module's scheduler once
+     * the module's context is refreshed, or runs them on this thread without a module context.
+     */
+    @Override
+    public void start()
+    {
+        running = true;
+        for (Migration migration : background)
+        {
+            Runnable task = () -> runInBackground(migration);
+            if (context != null) context.getScheduler().execute(task);
+            else task.run();
+        }
+        background.clear();
+    }
+
+    @Override
+    public void stop()
+    {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() { return running; }
+
+    private void apply(JdbcTemplate jdbc, List<Migration> migrations)
+    {
+        Map<Integer, Applied> history = new TreeMap<>();
+        jdbc.query("select version, checksum, success from " + HISTORY_TABLE, row ->
+        {
+            history.put(row.getInt(1), new Applied(row.getInt(1), row.getString(2), row.getBoolean(3)));
+        });
+
+        for (Migration migration : migrations)
+        {
+            Applied applied = history.get(migration.version());
+            if (applied != null && applied.success())
+            {
+                if (migration.checksum() != null && !migration.checksum().equals(applied.checksum()))
+                    throw new IllegalStateException("Migration " + migration.version() + " (" + migration.description()
+                        + ") was changed after it was applied; add a new migration instead");
+                schemaVersion = Math.max(schemaVersion, migration.version());
+                continue;
+            }
+
+            if (migration.code() != null && migration.code().isBackground())
+            {
+                background.add(migration);
+                continue;
+            }
+            run(jdbc, migration, applied != null);
+        }
+    }
+
+    private void runInBackground(Migration migration)
+    {
+        try
+        {
+            boolean locked = locked(lockDataSource, HISTORY_TABLE + ":" + migration.version(), 0, lockJdbc ->
+            {
+                // The lock stays on its own connection; the migration borrows one from the module's pool per batch
+                JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+                // Another host may have completed it since this one read the history
+                List<Boolean> applied = jdbc.queryForList("select success from " + HISTORY_TABLE + " where version = ?", Boolean.class, migration.version());
+                if (!applied.contains(true)) run(jdbc, migration, !applied.isEmpty());
+            });
+            if (!locked) LOG.info("Background migration {} ({}) is being applied by another host", migration.version(), migration.description());
+        }
+        catch (RuntimeException e)
+        {
+            LOG.error("Background migration {} ({}) failed, it runs again on the next start", migration.version(), migration.description(), e);
+        }
+    }
+
+    private void run(JdbcTemplate jdbc, Migration migration, boolean previouslyFailed)
+    {
+        LOG.info("Applying migration {} ({})", migration.version(), migration.description());
+        long start = System.nanoTime();
+        try
+        {
+            if (migration.code() != null && migration.code().isBackground()) migration.code().migrate(jdbc);
+            else
+            {
+                new TransactionTemplate(new DataSourceTransactionManager(jdbc.getDataSource())).executeWithoutResult(status ->
+                {
+                    try
+                    {
+                        if (migration.script() != null) jdbc.execute((Connection connection) ->
+                        {
+                            ScriptUtils.executeSqlScript(connection, new EncodedResource(migration.script(), StandardCharsets.UTF_8));
+                            return null;
+                        });
+                        else migration.code().migrate(jdbc);
+                    }
+                    catch (RuntimeException e)
+                    {
+                        throw e;
+                    }
+                    catch (Exception e)
+                    {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+        }
+        catch (Exception e)
+        {
+            IllegalStateException failure = new IllegalStateException("Migration " + migration.version() + " (" + migration.description() + ") failed", e);
+            try
+            {
+                record(jdbc, migration, previouslyFailed, (System.nanoTime() - start) / 1_000_000, false);
+            }
+            catch (RuntimeException recordFailure)
+            {
+                failure.addSuppressed(recordFailure);
+            }
+            throw failure;
+        }
+
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        record(jdbc, migration, previouslyFailed, millis, true);
+        schemaVersion = Math.max(schemaVersion, migration.version());
+        LOG.info("Applied migration {} ({}) in {} ms", migration.version(), migration.description(), millis);
+    }
+
+    private static void record(JdbcTemplate jdbc, Migration migration, boolean previouslyFailed, long millis, boolean success)
+    {
+        if (previouslyFailed) jdbc.update("delete from " + HISTORY_TABLE + " where version = ?", migration.version());
+        jdbc.update("insert into " + HISTORY_TABLE + " (version, description, type, checksum, installed_on, execution_ms, success) values (?, ?, ?, ?, ?, ?, ?)",
+            migration.version(), truncate(migration.description()), migration.type(), migration.checksum(), Timestamp.from(Instant.now()), millis, success);
+    }
+
+    private List<Migration> discover()
+    {
+        List<Migration> migrations = new ArrayList<>();
+        if (location != null && !location.isEmpty())
+        {
+            try
+            {
+                String path = location.endsWith("/") ? location : location + "/";
+                for (Resource resource : new PathMatchingResourcePatternResolver(classLoader).getResources("classpath*:" + path + "V*__*.sql"))
+                {
+                    Matcher matcher = SQL_FILE.matcher(resource.getFilename() != null ? resource.getFilename() : "");
+                    if (!matcher.matches()) continue;
+                    migrations.add(new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '), "SQL",
+                        checksum(resource), resource, null));
+                }
+            }
+            catch (IOException e)
+            {
+                throw new IllegalStateException("Cannot read the migrations in " + location, e);
+            }
+        }
+        for (IModuleMigration migration : programmatic)
+            migrations.add(new Migration(migration.getVersion(), migration.getDescription(), "JAVA", null, null, migration));
+
+        migrations.sort(Comparator.comparingInt(Migration::version));
+        for (int i = 1; i < migrations.size(); i++)
+        {
+            if (migrations.get(i).version() == migrations.get(i - 1).version())
+                throw new IllegalStateException("Migrations " + migrations.get(i - 1).description() + " and " + migrations.get(i).description()
+                    + " have the same version " + migrations.get(i).version());
+        }
+        return migrations;
+    }
+
+    private static String checksum(Resource resource) throws IOException
+    {
+        // Line endings and a byte order mark do not change the statements
+        String content = resource.getContentAsString(StandardCharsets.UTF_8).replace("﻿", "").replace("\r\n", "\n");
+        try
+        {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8)));
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String truncate(String description)
+    {
+        return description.length() > 200 ? description.substring(0, 200) : description;
+    }
+
+    /**
+     * Runs the work with a template on a single connection of the data source,
+     * holding the named lock on MySQL.
+     *
+     * @return false if the lock was not acquired within the timeout, in which case the work did not run
+     */
+    private static boolean locked(DataSource source, String name, int timeoutSeconds, Consumer<JdbcTemplate> work)
+    {
+        try (Connection connection = source.getConnection())
+        {
+            boolean mysql = "MySQL".equals(connection.getMetaData().getDatabaseProductName());
+            String lockName = name + ":" + connection.getCatalog();
+            if (mysql && !lock(connection, lockName, timeoutSeconds)) return false;
+            try
+            {
+                work.accept(new JdbcTemplate(new SingleConnectionDataSource(connection, true)));
+            }
+            finally
+            {
+                if (mysql) unlock(connection, lockName);
+            }
+            return true;
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Cannot connect to the database of the migrations", e);
+        }
+    }
+
+    private static boolean lock(Connection connection, String name, int timeoutSeconds) throws SQLException
+    {
+        try (var statement = connection.prepareStatement("select get_lock(?, ?)"))
+        {
+            statement.setString(1, name);
+            statement.setInt(2, timeoutSeconds);
+            try (var result = statement.executeQuery())
+            {
+                return result.next() && result.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void unlock(Connection connection, String name) throws SQLException
+    {
+        try (var statement = connection.prepareStatement("select release_lock(?)"))
+        {
+            statement.setString(1, name);
+            statement.execute();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package design.ore.forge.api.paging;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A position in a keyset-paginated result: the sort key values of the row a
+ * page starts after, or ends before.
+ * <p>
+ * Unlike an offset, a cursor lets the database seek to the page through the
+ * sort index, so every page takes the same time however deep it is. Cursors
+ * are passed to clients as opaque URL-safe tokens, see {@link #toToken()};
+ * {@link KeysetCursorArgumentResolver} reads them from the
+ * {@value #PARAMETER} request parameter.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public final class KeysetCursor
+{
+    /**
+     * The request parameter carrying the cursor token.
+     */
+    public static final String PARAMETER = "cursor";
+
+    private static final KeysetCursor FIRST = new KeysetCursor(List.of(), false);
+    private static final String AFTER = "a", BEFORE = "b";
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .findAndRegisterModules()
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final List<Object> values;
+    private final boolean backward;
+
+    private KeysetCursor(List<Object> values, boolean backward)
+    {
+        this.values = values;
+        this.backward = backward;
+    }
+
+    /**
+     * @return the cursor of the first page
+     */
+    public static KeysetCursor first()
+    {
+        return FIRST;
+    }
+
+    /**
+     * @param values the sort key values of a row, in sort order, followed by its id
+     * @return the cursor of the page starting after the row
+     */
+    public static KeysetCursor after(List<?> values)
+    {
+        return new KeysetCursor(Collections.unmodifiableList(new ArrayList<>(values)), false);
+    }
+
+    /**
+     * @param values the sort key values of a row, in sort order, followed by its id
+     * @return the cursor of the page ending before the row
+     */
+    public static KeysetCursor before(List<?> values)
+    {
+        return new KeysetCursor(Collections.unmodifiableList(new ArrayList<>(values)), true);
+    }
+
+    /**
+     * @param token a token of {@link #toToken()}, or null or empty for the first page
+     * @return the cursor of the token
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static KeysetCursor fromToken(String token)
+    {
+        if (token == null || token.isEmpty()) return FIRST;
+        try
+        {
+            JsonNode node = MAPPER.readTree(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+            if (!(node instanceof ArrayNode array) || array.isEmpty()) throw new IllegalArgumentException("Malformed cursor");
+
+            String direction = array.get(0).asText();
+            if (!direction.equals(AFTER) && !direction.equals(BEFORE)) throw new IllegalArgumentException("Malformed cursor");
+            List<Object> values = new ArrayList<>(array.size() - 1);
+            for (int i = 1; i < array.size(); i++) values.add(MAPPER.treeToValue(array.get(i), Object.class));
+            return new KeysetCursor(Collections.unmodifiableList(values), direction.equals(BEFORE));
+        }
+        catch (JsonProcessingException e)
+        {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+
+    /**
+     * @return an opaque, URL-safe token of this cursor, empty for the first page
+     */
+    public String toToken()
+    {
+        if (isFirst()) return "";
+        List<Object> token = new ArrayList<>(values.size() + 1);
+        token.add(backward ? BEFORE : AFTER);
+        token.addAll(values);
+        try
+        {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsString(token).getBytes(StandardCharsets.UTF_8));
+        }
+        catch (JsonProcessingException e)
+        {
+            throw new IllegalArgumentException("Cursor values cannot be written as JSON", e);
+        }
+    }
+
+    /**
+     * @return whether this is the cursor of the first page
+     */
+    public boolean isFirst()
+    {
+        return values.isEmpty();
+    }
+
+    /**
+     * @return whether the page ends before the cursor's row instead of starting after it
+     */
+    public boolean isBackward()
+    {
+        return backward;
+    }
+
+    public List<Object> getValues()
+    {
+        return values;
+    }
+
+    /**
+     * @param index the index of a value
+     * @param type  the type of the sort key
+     * @return the value converted to the type, as values of tokens are read back as JSON types
+     */
+    <T> T getValue(int index, Class<T> type)
+    {
+        return MAPPER.convertValue(values.get(index), type);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        return o instanceof KeysetCursor other && backward == other.backward && values.equals(other.values);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * values.hashCode() + (backward ? 1 : 0);
+    }
+
+    @Override
+    public String toString()
+    {
+        return isFirst() ? "KeysetCursor[first]" : "KeysetCursor[" + (backward ? "before " : "after ") + values + "]";
+    }
+}
@@ -0,0 +1,38 @@
+package design.ore.forge.api.paging;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Resolves {@link KeysetCursor} parameters of controller methods from the
+ * {@value KeysetCursor#PARAMETER} request parameter, to the first page if it
+ * is missing. Malformed tokens are rejected with {@code 400 Bad Request}.
+ *
+ * @since 0.4.0
+ */
+public class KeysetCursorArgumentResolver implements HandlerMethodArgumentResolver
+{
+    @Override
+    public boolean supportsParameter(MethodParameter parameter)
+    {
+        return parameter.getParameterType().equals(KeysetCursor.class);
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer, NativeWebRequest webRequest, WebDataBinderFactory binderFactory)
+    {
+        try
+        {
+            return KeysetCursor.fromToken(webRequest.getParameter(KeysetCursor.PARAMETER));
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed page cursor", e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package design.ore.forge.api.paging;
+
+import org.springframework.web.util.UriComponentsBuilder;
+import org.thymeleaf.context.IExpressionContext;
+import org.thymeleaf.context.IWebContext;
+import org.thymeleaf.dialect.AbstractDialect;
+import org.thymeleaf.dialect.IExpressionObjectDialect;
+import org.thymeleaf.expression.IExpressionObjectFactory;
+import org.thymeleaf.web.IWebRequest;
+
+import java.util.Set;
+
+/**
+ * Thymeleaf dialect adding the {@code #keyset} expression object, which
+ * builds links to the neighbours of a {@link KeysetPage} by replacing the
+ * {@value KeysetCursor#PARAMETER} parameter of the current request URL.
+ * Registered on the template engine of {@link design.ore.forge.api.annotations.ForgeWeb} modules.
+ *
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * <a th:if="${page.hasPrevious()}" th:href="${#keyset.previous(page)}">Previous</a>
+ * <a th:if="${page.hasNext()}" th:href="${#keyset.next(page)}">Next</a>
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public class KeysetDialect extends AbstractDialect implements IExpressionObjectDialect
+{
+    public static final String EXPRESSION_OBJECT = "keyset";
+
+    public KeysetDialect()
+    {
+        super("Keyset");
+    }
+
+    @Override
+    public IExpressionObjectFactory getExpressionObjectFactory()
+    {
+        return new IExpressionObjectFactory()
+        {
+            @Override
+            public Set<String> getAllExpressionObjectNames()
+            {
+                return Set.of(EXPRESSION_OBJECT);
+            }
+
+            @Override
+            public Object buildObject(IExpressionContext context, String expressionObjectName)
+            {
+                return EXPRESSION_OBJECT.equals(expressionObjectName) && context instanceof IWebContext web
+                    ? new Links(web.getExchange().getRequest())
+                    : null;
+            }
+
+            @Override
+            public boolean isCacheable(String expressionObjectName)
+            {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * The {@code #keyset} expression object of a request.
+     */
+    public static final class Links
+    {
+        private final IWebRequest request;
+
+        Links(IWebRequest request)
+        {
+            this.request = request;
+        }
+
+        /**
+         * @return the current URL for the next page, or null if the page is the last
+         */
+        public String next(KeysetPage<?> page)
+        {
+            return page.hasNext() ? withCursor(page.getNextToken()) : null;
+        }
+
+        /**
+         * @return the current URL for the previous page, or null if the page is the first
+         */
+        public String previous(KeysetPage<?> page)
+        {
+            return page.hasPrevious() ? withCursor(page.getPreviousToken()) : null;
+        }
+
+        /**
+         * @return the current URL for the first page
+         */
+        public String first()
+        {
+            return withCursor("");
+        }
+
+        private String withCursor(String token)
+        {
+            UriComponentsBuilder builder = UriComponentsBuilder.fromPath(request.getRequestPath()).query(request.getQueryString());
+            if (token.isEmpty()) builder.replaceQueryParam(KeysetCursor.PARAMETER);
+            else builder.replaceQueryParam(KeysetCursor.PARAMETER, token);
+            return builder.build().toUriString();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package design.ore.forge.api.paging;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.data.mapping.PropertyPath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repository base class implementing {@link KeysetRepository}.
+ * <p>
+ * Installed by {@link design.ore.forge.api.jpa.ModuleRepositoryPostProcessor}
+ * as the base class of every module repository extending
+ * {@link KeysetRepository}; modules with their own repository base class
+ * extend this one instead. When all sort keys have the same direction, the
+ * page is sought with a row value comparison such as
+ * {@code (e.name, e.id) > (?, ?)}, which the database can resolve with one
+ * index range scan, and which Hibernate expands for databases without row
+ * value comparisons. Mixed directions are expanded into the equivalent
+ * {@code OR} of comparisons.
+ * </p>
+ * <p>
+ * Comparisons with null are never true, so a null sort key would end paging
+ * early or skip rows. A page is rejected if its first or last row, or the row
+ * following it, has a null sort key, rather than returned with a cursor that
+ * cannot reach every row. So is a sort with null handling or case-insensitive
+ * ordering, which the seek condition cannot reproduce.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class KeysetJpaRepository<T, ID> extends SimpleJpaRepository<T, ID> implements KeysetRepository<T>
+{
+    private final JpaEntityInformation<T, ?> entityInformation;
+    private final EntityManager entityManager;
+
+    public KeysetJpaRepository(JpaEntityInformation<T, ?> entityInformation, EntityManager entityManager)
+    {
+        super(entityInformation, entityManager);
+        this.entityInformation = entityInformation;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public KeysetPage<T> findPage(Sort sort, KeysetCursor cursor, int size)
+    {
+        if (size < 1) throw new IllegalArgumentException("Page size must be at least 1");
+        List<Key> keys = keys(sort);
+        if (!cursor.isFirst() && cursor.getValues().size() != keys.size())
+            throw new IllegalArgumentException("Cursor has " + cursor.getValues().size() + " values, the sort has " + keys.size() + " keys");
+        if (!cursor.isFirst() && cursor.getValues().contains(null))
+            throw new IllegalArgumentException("Cursor has a null value, sort keys must not be null");
+
+        StringBuilder jpql = new StringBuilder("select e from ").append(entityInformation.getEntityName()).append(" e");
+        if (!cursor.isFirst()) jpql.append(" where ").append(seek(keys, cursor.isBackward()));
+        jpql.append(" order by ");
+        for (int i = 0; i < keys.size(); i++)
+        {
+            if (i > 0) jpql.append(", ");
+            // Backward pages are read in reverse from the cursor, then put back in order
+            jpql.append("e.").append(keys.get(i).path()).append(keys.get(i).ascending() != cursor.isBackward() ? " asc" : " desc");
+        }
+
+        TypedQuery<T> query = entityManager.createQuery(jpql.toString(), getDomainClass());
+        if (!cursor.isFirst())
+        {
+            for (int i = 0; i < keys.size(); i++) query.setParameter("k" + i, cursor.getValue(i, keys.get(i).type()));
+        }
+        List<T> rows = new ArrayList<>(query.setMaxResults(size + 1).getResultList());
+
+        boolean more = rows.size() > size;
+        // A null beyond the page would be skipped by the next seek, as databases sorting nulls last put them right there
+        if (more) values(keys, rows.remove(size));
+        if (cursor.isBackward()) Collections.reverse(rows);
+        if (rows.isEmpty())
+        {
+            // Nothing beyond the cursor, the only way is back to the start
+            if (cursor.isFirst()) return new KeysetPage<>(List.of(), null, null);
+            return cursor.isBackward() ? new KeysetPage<>(List.of(), KeysetCursor.first(), null) : new KeysetPage<>(List.of(), null, KeysetCursor.first());
+        }
+
+        boolean hasNext = cursor.isBackward() || more;
+        boolean hasPrevious = cursor.isBackward() ? more : !cursor.isFirst();
+        return new KeysetPage<>(List.copyOf(rows),
+            hasNext ? KeysetCursor.after(values(keys, rows.getLast())) : null,
+            hasPrevious ? KeysetCursor.before(values(keys, rows.getFirst())) : null);
+    }
+
+    private List<Key> keys(Sort sort)
+    {
+        List<Key> keys = new ArrayList<>();
+        boolean lastAscending = true;
+        for (Sort.Order order : sort)
+        {
+            if (order.isIgnoreCase()) throw new IllegalArgumentException("Keyset paging does not support case-insensitive ordering of " + order.getProperty());
+            if (order.getNullHandling() != Sort.NullHandling.NATIVE)
+                throw new IllegalArgumentException("Keyset paging does not support null handling of " + order.getProperty() + ", sort keys must not be null");
+
+            // Resolving the path checks it names a property, so it is safe to put into the query
+            PropertyPath path = PropertyPath.from(order.getProperty(), getDomainClass());
+            keys.add(new Key(path.toDotPath(), path.getLeafType(), order.isAscending()));
+            lastAscending = order.isAscending();
+        }
+        for (String id : entityInformation.getIdAttributeNames())
+        {
+            if (keys.stream().noneMatch(key -> key.path().equals(id)))
+            {
+                PropertyPath path = PropertyPath.from(id, getDomainClass());
+                keys.add(new Key(path.toDotPath(), path.getLeafType(), lastAscending));
+            }
+        }
+        return keys;
+    }
+
+    private static String seek(List<Key> keys, boolean backward)
+    {
+        boolean uniform = keys.stream().allMatch(key -> key.ascending() == keys.getFirst().ascending());
+        if (uniform)
+        {
+            String operator = keys.getFirst().ascending() != backward ? " > " : " < ";
+            if (keys.size() == 1) return "e." + keys.getFirst().path() + operator + ":k0";
+
+            StringBuilder columns = new StringBuilder("("), parameters = new StringBuilder("(");
+            for (int i = 0; i < keys.size(); i++)
+            {
+                if (i > 0)
+                {
+                    columns.append(", ");
+                    parameters.append(", ");
+                }
+                columns.append("e.").append(keys.get(i).path());
+                parameters.append(":k").append(i);
+            }
+            return columns + ")" + operator + parameters + ")";
+        }
+
+        // (a > :k0) or (a = :k0 and b < :k1) or ...
+        StringBuilder seek = new StringBuilder("(");
+        for (int i = 0; i < keys.size(); i++)
+        {
+            if (i > 0) seek.append(" or ");
+            seek.append('(');
+            for (int j = 0; j < i; j++) seek.append("e.").append(keys.get(j).path()).append(" = :k").append(j).append(" and ");
+            seek.append("e.").append(keys.get(i).path()).append(keys.get(i).ascending() != backward ? " > :k" : " < :k").append(i).append(')');
+        }
+        return seek.append(')').toString();
+    }
+
+    private List<Object> values(List<Key> keys, T entity)
+    {
+        Map<String, Object> keyset = entityInformation.getKeyset(keys.stream().map(Key::path).toList(), entity);
+        List<Object> values = new ArrayList<>(keys.size());
+        for (Key key : keys)
+        {
+            Object value = keyset.get(key.path());
+            if (value == null) throw new IllegalStateException("Sort key " + key.path() + " of " + entityInformation.getEntityName() + " " + entityInformation.getId(entity) + " is null, keyset paging needs non-null sort keys");
+            values.add(value);
+        }
+        return values;
+    }
+
+    private record Key(String path, Class<?> type, boolean ascending) { }
+}
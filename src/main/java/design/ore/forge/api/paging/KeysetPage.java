@@ -0,0 +1,54 @@
+package design.ore.forge.api.paging;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * A page of a keyset-paginated result, with the cursors of its neighbours.
+ *
+ * @since 0.4.0
+ */
+@AllArgsConstructor
+@Getter
+public class KeysetPage<T>
+{
+    private final List<T> content;
+
+    /**
+     * The cursor of the next page, or null if this is the last page.
+     */
+    private final KeysetCursor next;
+
+    /**
+     * The cursor of the previous page, or null if this is the first page.
+     */
+    private final KeysetCursor previous;
+
+    public boolean hasNext()
+    {
+        return next != null;
+    }
+
+    public boolean hasPrevious()
+    {
+        return previous != null;
+    }
+
+    /**
+     * @return the token of the next page, or null if this is the last page
+     */
+    public String getNextToken()
+    {
+        return next != null ? next.toToken() : null;
+    }
+
+    /**
+     * @return the token of the previous page, or null if this is the first page
+     */
+    public String getPreviousToken()
+    {
+        return previous != null ? previous.toToken() : null;
+    }
+}
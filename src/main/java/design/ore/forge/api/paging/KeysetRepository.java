@@ -0,0 +1,45 @@
+package design.ore.forge.api.paging;
+
+import org.springframework.data.domain.Sort;
+
+/**
+ * Repository fragment paging through entities by keyset instead of offset.
+ * <p>
+ * Extend it alongside {@code JpaRepository}; {@link KeysetJpaRepository}
+ * implements it for repositories of modules using
+ * {@link design.ore.forge.api.annotations.EnableModuleJpa}.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * public interface OrderRepository extends JpaRepository<Order, Long>, KeysetRepository<Order> { }
+ *
+ * @GetMapping("/orders")
+ * public String orders(KeysetCursor cursor, Model model) {
+ *     model.addAttribute("page", orderRepository.findPage(Sort.by(Sort.Order.desc("placedAt")), cursor, 50));
+ *     return "orders";
+ * }
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public interface KeysetRepository<T>
+{
+    /**
+     * Finds a page of entities ordered by the given sort and then by id.
+     * <p>
+     * Sort keys must not be null, and the sort of all pages of one result
+     * must be the same. The query seeks with
+     * {@code WHERE (sort_key, id) > (?, ?)}, so the sort keys followed by
+     * the id should be covered by an index.
+     * </p>
+     *
+     * @param sort   the order of the entities, the id is added as the last key if missing
+     * @param cursor the position of the page, {@link KeysetCursor#first()} for the first page
+     * @param size   the maximum number of entities on the page
+     * @return the page
+     * @throws IllegalArgumentException if the cursor does not match the sort, or the sort ignores case or
+     *                                  specifies null handling
+     * @throws IllegalStateException    if the first or last entity of the page, or the one after it, has a null sort key
+     */
+    KeysetPage<T> findPage(Sort sort, KeysetCursor cursor, int size);
+}
@@ -5,6 +5,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.util.List;
+
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
@@ -17,4 +19,9 @@ public class ForgeModuleManifest
     String sessionCreationPolicy; // ALWAYS, IF_REQUIRED, NEVER, STATELESS
     boolean disableCsrf;
     boolean acceptJwtTokens; // If true, module endpoints accept OAuth2 JWT bearer tokens
+    List<String> moduleDependencies; // IDs of modules that must be initialized before this one
+    String activationMode; // EAGER, LAZY
+    long idleTimeoutMinutes; // 0 keeps a lazily activated module running until the host stops
+    List<String> urlPrefixes; // Request path prefixes that activate a lazy module
+    List<ManifestRegistration> staticApplets, staticLinks;
 }
@@ -2,6 +2,8 @@ package design.ore.forge.api.processing;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -23,6 +25,10 @@ import javax.tools.StandardLocation;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.auto.service.AutoService;
 import design.ore.forge.api.ForgeApiConstants;
+import design.ore.forge.api.annotations.ForgeApplet;
+import design.ore.forge.api.annotations.ForgeApplets;
+import design.ore.forge.api.annotations.ForgeLink;
+import design.ore.forge.api.annotations.ForgeLinks;
 import design.ore.forge.api.annotations.ForgeModule;
 import design.ore.forge.api.interfaces.IForgeModule;
 
@@ -88,6 +94,29 @@ public class ForgeModuleProcessor extends AbstractProcessor
                                 manifest.setSecurityConfigClassName(className);
                             }
                         }
+
+                        // Handle dependencies with default value of no dependencies
+                        List<String> dependencies = getModuleAnnotationStrings(classElement, "dependencies");
+                        if (dependencies.contains(manifest.getModuleId())) {
+                            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Module cannot depend on itself.", classElement);
+                            dependencies.remove(manifest.getModuleId());
+                        }
+                        manifest.setModuleDependencies(dependencies);
+
+                        // Handle activation with default value of "EAGER"
+                        Object activation = getModuleAnnotationValue(classElement, "activation");
+                        manifest.setActivationMode(activation != null ? activation.toString() : "EAGER");
+
+                        Number idleTimeout = (Number) getModuleAnnotationValue(classElement, "idleTimeoutMinutes");
+                        manifest.setIdleTimeoutMinutes(idleTimeout != null ? idleTimeout.longValue() : 0);
+                        manifest.setUrlPrefixes(getModuleAnnotationStrings(classElement, "urlPrefixes"));
+
+                        manifest.setStaticApplets(getStaticRegistrations(classElement, ForgeApplet.class.getCanonicalName(), ForgeApplets.class.getCanonicalName(), "logoResourcePath"));
+                        manifest.setStaticLinks(getStaticRegistrations(classElement, ForgeLink.class.getCanonicalName(), ForgeLinks.class.getCanonicalName(), "logoOverrideUrl"));
+
+                        if (manifest.getActivationMode().equals("LAZY") && manifest.getStaticApplets().isEmpty() && manifest.getStaticLinks().isEmpty()) {
+                            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Lazy module declares no @ForgeApplet or @ForgeLink registrations and will not appear in the launcher until started.", classElement);
+                        }
                     }
                 }
             }
@@ -119,6 +148,54 @@ public class ForgeModuleProcessor extends AbstractProcessor
         return null;
     }
 
+    private List<String> getModuleAnnotationStrings(TypeElement methodElement, String key)
+    {
+        List<String> values = new ArrayList<>();
+        if (getModuleAnnotationValue(methodElement, key) instanceof List<?> list)
+        {
+            for (Object value : list)
+            {
+                if (value instanceof AnnotationValue annotationValue) values.add((String) annotationValue.getValue());
+            }
+        }
+        return values;
+    }
+
+    private List<ManifestRegistration> getStaticRegistrations(TypeElement classElement, String annotationName, String containerName, String iconKey)
+    {
+        List<ManifestRegistration> registrations = new ArrayList<>();
+        for (AnnotationMirror annotationMirror : classElement.getAnnotationMirrors())
+        {
+            String type = annotationMirror.getAnnotationType().toString();
+            if (type.equals(annotationName)) registrations.add(toManifestRegistration(annotationMirror, iconKey));
+            else if (type.equals(containerName))
+            {
+                for (AnnotationValue value : annotationMirror.getElementValues().values())
+                {
+                    for (Object repeated : (List<?>) value.getValue())
+                    {
+                        registrations.add(toManifestRegistration((AnnotationMirror) ((AnnotationValue) repeated).getValue(), iconKey));
+                    }
+                }
+            }
+        }
+        return registrations;
+    }
+
+    private ManifestRegistration toManifestRegistration(AnnotationMirror annotationMirror, String iconKey)
+    {
+        ManifestRegistration registration = new ManifestRegistration();
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotationMirror.getElementValues().entrySet())
+        {
+            String key = entry.getKey().getSimpleName().toString();
+            String value = (String) entry.getValue().getValue();
+            if (key.equals("name")) registration.setName(value);
+            else if (key.equals("targetUrl")) registration.setTargetUrl(value);
+            else if (key.equals(iconKey)) registration.setIconPath(value);
+        }
+        return registration;
+    }
+
     private boolean isModuleAnnotation(Element element)
     { return element.asType().toString().equals(ForgeModule.class.getCanonicalName()); }
 
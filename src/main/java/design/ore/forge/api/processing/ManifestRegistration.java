@@ -0,0 +1,33 @@
+package design.ore.forge.api.processing;
+
+import design.ore.forge.api.registrations.AppletRegistration;
+import design.ore.forge.api.registrations.LinkRegistration;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A registration declared with {@link design.ore.forge.api.annotations.ForgeApplet}
+ * or {@link design.ore.forge.api.annotations.ForgeLink}, as written to the module manifest.
+ *
+ * @since 0.4.0
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class ManifestRegistration
+{
+    String name, targetUrl, iconPath; // iconPath is the applet logo resource path or the link logo override URL
+
+    public AppletRegistration toAppletRegistration()
+    {
+        return new AppletRegistration(name, targetUrl, iconPath);
+    }
+
+    public LinkRegistration toLinkRegistration()
+    {
+        return new LinkRegistration(name, targetUrl, iconPath);
+    }
+}
@@ -0,0 +1,86 @@
+package design.ore.forge.api.registrations;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import design.ore.forge.api.enums.OS;
+import design.ore.forge.api.enums.RegistrationKind;
+import design.ore.forge.api.logos.LogoVariants;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Locale;
+
+/**
+ * An immutable copy of a {@link Registration}, taken when it is submitted to
+ * a {@link RegistrationCatalog}, so later changes to the registration object
+ * do not affect the published catalog.
+ *
+ * @since 0.4.0
+ */
+@AllArgsConstructor
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CatalogEntry
+{
+    private final String moduleId;
+    @JsonIgnore private final RegistrationKind kind;
+    private final String name;
+    private final String targetUrl;
+
+    /**
+     * The applet or download logo resource path, or the link logo override URL.
+     */
+    private final String logo;
+
+    /**
+     * The resized copies of the logo, or null until they are made or if there are none.
+     */
+    private final LogoVariants logoVariants;
+
+    private final OS dependentOs;
+    private final String version;
+
+    /**
+     * The required role in lower case, or null if everyone sees the entry.
+     */
+    @JsonIgnore private final String requiredRole;
+
+    /**
+     * @param moduleId     the ID of the module that submitted the registration
+     * @param registration the registration to copy
+     * @return an immutable copy of the registration
+     * @throws IllegalArgumentException if the registration is not an applet, link or download
+     */
+    public static CatalogEntry of(String moduleId, Registration registration)
+    {
+        String role = registration.getRequiredRole() != null ? registration.getRequiredRole().toLowerCase(Locale.ROOT) : null;
+        return switch (registration)
+        {
+            case DownloadRegistration download -> new CatalogEntry(moduleId, RegistrationKind.DOWNLOAD, download.getName(), download.getTargetUrl(),
+                download.getLogoResourcePath(), null, download.getDependentOs(), download.getVersion(), role);
+            case AppletRegistration applet -> new CatalogEntry(moduleId, RegistrationKind.APPLET, applet.getName(), applet.getTargetUrl(),
+                applet.getLogoResourcePath(), null, null, null, role);
+            case LinkRegistration link -> new CatalogEntry(moduleId, RegistrationKind.LINK, link.getName(), link.getTargetUrl(),
+                link.getLogoOverrideUrl(), null, null, null, role);
+            default -> throw new IllegalArgumentException("Unsupported registration type: " + registration.getClass().getName());
+        };
+    }
+
+    /**
+     * @param variants the resized copies of the logo
+     * @return a copy of the entry with the copies of its logo
+     */
+    public CatalogEntry withLogoVariants(LogoVariants variants)
+    {
+        return new CatalogEntry(moduleId, kind, name, targetUrl, logo, variants, dependentOs, version, requiredRole);
+    }
+
+    /**
+     * @param os the operating system of the launcher, or null for any
+     * @return whether the entry is offered on that operating system
+     */
+    public boolean isAvailableOn(OS os)
+    {
+        return os == null || dependentOs == null || dependentOs == os;
+    }
+}
@@ -0,0 +1,121 @@
+package design.ore.forge.api.registrations;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import design.ore.forge.api.authentication.ForgeRoleInfo;
+import design.ore.forge.api.authentication.ForgeUserInfo;
+import design.ore.forge.api.enums.OS;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable version of a {@link RegistrationCatalog}.
+ * <p>
+ * The views for every operating system, with and without each role that
+ * entries require, are rendered when the snapshot is created. Views for
+ * users having several of those roles are rendered on first use and kept
+ * for the lifetime of the snapshot, up to {@value #MAX_CACHED_VIEWS} of them.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public final class CatalogSnapshot
+{
+    /**
+     * Views beyond this count are rendered on every request instead of kept.
+     */
+    public static final int MAX_CACHED_VIEWS = 1024;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Getter private final long version;
+    @Getter private final List<CatalogEntry> entries;
+    @Getter private final Set<String> requiredRoles;
+
+    private final Map<ViewKey, CatalogView> views = new ConcurrentHashMap<>();
+
+    private record ViewKey(OS os, Set<String> roles)
+    {
+    }
+
+    CatalogSnapshot(long version, List<CatalogEntry> entries)
+    {
+        this.version = version;
+        this.entries = List.copyOf(entries);
+
+        Set<String> roles = new HashSet<>();
+        for (CatalogEntry entry : entries) if (entry.getRequiredRole() != null) roles.add(entry.getRequiredRole());
+        this.requiredRoles = Set.copyOf(roles);
+
+        List<OS> systems = new ArrayList<>(List.of(OS.values()));
+        systems.add(null);
+        for (OS os : systems)
+        {
+            views.put(new ViewKey(os, Set.of()), render(os, Set.of()));
+            for (String role : requiredRoles) views.put(new ViewKey(os, Set.of(role)), render(os, Set.of(role)));
+        }
+    }
+
+    /**
+     * @param os   the operating system of the launcher, or null to include downloads for every system
+     * @param user the user the launcher is signed in as, or null if anonymous
+     * @return the entries the user sees on that operating system
+     */
+    public CatalogView getView(OS os, ForgeUserInfo user)
+    {
+        Set<String> roles = Set.of();
+        if (!requiredRoles.isEmpty() && user != null && user.getRoles() != null)
+        {
+            // Only the roles entries require are part of the key, so most users share a view
+            Set<String> relevant = new HashSet<>();
+            for (ForgeRoleInfo role : user.getRoles())
+            {
+                String name = role.getName() != null ? role.getName().toLowerCase(Locale.ROOT) : null;
+                if (name != null && requiredRoles.contains(name)) relevant.add(name);
+            }
+            roles = Set.copyOf(relevant);
+        }
+
+        ViewKey key = new ViewKey(os, roles);
+        CatalogView view = views.get(key);
+        if (view != null) return view;
+
+        CatalogView rendered = render(os, roles);
+        if (views.size() < MAX_CACHED_VIEWS) views.putIfAbsent(key, rendered);
+        return rendered;
+    }
+
+    private CatalogView render(OS os, Set<String> roles)
+    {
+        Map<String, List<CatalogEntry>> grouped = new LinkedHashMap<>();
+        grouped.put("applets", new ArrayList<>());
+        grouped.put("links", new ArrayList<>());
+        grouped.put("downloads", new ArrayList<>());
+
+        List<CatalogEntry> visible = new ArrayList<>();
+        for (CatalogEntry entry : entries)
+        {
+            if (!entry.isAvailableOn(os)) continue;
+            if (entry.getRequiredRole() != null && !roles.contains(entry.getRequiredRole())) continue;
+
+            visible.add(entry);
+            grouped.get(switch (entry.getKind())
+            {
+                case APPLET -> "applets";
+                case LINK -> "links";
+                case DOWNLOAD -> "downloads";
+            }).add(entry);
+        }
+
+        try { return new CatalogView(visible, MAPPER.writeValueAsBytes(grouped)); }
+        catch (JsonProcessingException e) { throw new IllegalStateException("Could not serialize registration catalog", e); }
+    }
+}
@@ -0,0 +1,60 @@
+package design.ore.forge.api.registrations;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * The entries of a {@link CatalogSnapshot} that one launcher sees, already
+ * serialized to JSON, with a strong ETag derived from the JSON.
+ * <p>
+ * The ETag depends only on the content, so a launcher keeps getting
+ * {@code 304 Not Modified} while changes to the catalog do not affect what
+ * it shows.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+@Getter
+public class CatalogView
+{
+    private final List<CatalogEntry> entries;
+    private final String eTag;
+
+    // Never handed out, so the view stays immutable
+    @Getter(lombok.AccessLevel.NONE) private final byte[] json;
+
+    CatalogView(List<CatalogEntry> entries, byte[] json)
+    {
+        this.entries = List.copyOf(entries);
+        this.json = json;
+
+        MessageDigest digest;
+        try { digest = MessageDigest.getInstance("SHA-256"); }
+        catch (NoSuchAlgorithmException e) { throw new IllegalStateException("SHA-256 is not available", e); }
+        this.eTag = "\"" + HexFormat.of().formatHex(digest.digest(json), 0, 16) + "\"";
+    }
+
+    /**
+     * @return the length of the JSON in bytes
+     */
+    public int getContentLength()
+    {
+        return json.length;
+    }
+
+    /**
+     * Writes the JSON to a stream.
+     *
+     * @param output the stream to write to, which is not closed
+     */
+    public void writeTo(OutputStream output) throws IOException
+    {
+        output.write(json);
+    }
+}
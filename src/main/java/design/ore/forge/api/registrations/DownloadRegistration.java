@@ -1,5 +1,7 @@
 package design.ore.forge.api.registrations;
 
+import design.ore.forge.api.downloads.ArtifactDownloadHandler;
+import design.ore.forge.api.downloads.ReleasePatches;
 import design.ore.forge.api.enums.OS;
 import lombok.Getter;
 
@@ -17,5 +19,81 @@ public class DownloadRegistration extends AppletRegistration
         this.dependentOs = dependentOs;
     }
 
+    /**
+     * Creates a registration for an artifact served by a {@link design.ore.forge.api.annotations.ForgeWeb}
+     * module from the {@value ArtifactDownloadHandler#ARTIFACT_DIRECTORY} folder of its persistent data
+     * directory, with range requests and checksums.
+     *
+     * <h4>Example Usage:</h4>
+     * <pre>{@code
+     * // Serves <persistent data directory>/downloads/desktop/setup-1.4.2.msi
+     * context.registerDownload(DownloadRegistration.forArtifact(
+     *     "Desktop App", "desktop/setup-1.4.2.msi", "/static/logo.png", OS.WINDOWS));
+     * }</pre>
+     *
+     * @param name             the display name of the download
+     * @param artifactPath     the path of the artifact, relative to the artifact directory
+     * @param logoResourcePath the logo of the download
+     * @param dependentOs      the operating system the artifact is for, or null for any
+     * @return the registration, targeting the artifact's URL relative to the module
+     * @since 0.4.0
+     */
+    public static DownloadRegistration forArtifact(String name, String artifactPath, String logoResourcePath, OS dependentOs)
+    {
+        String relative = artifactPath.startsWith("/") ? artifactPath.substring(1) : artifactPath;
+        DownloadRegistration registration = new DownloadRegistration(name, ArtifactDownloadHandler.URL_PATH + relative, logoResourcePath, dependentOs);
+        registration.artifactPath = relative;
+        return registration;
+    }
+
+    /**
+     * Creates a registration for a released version of an artifact, served from
+     * {@code <channel>/<version>/<fileName>} in the artifact directory. Clients
+     * that already have an earlier version of the same channel can download a
+     * binary patch from it instead, see {@link design.ore.forge.api.downloads.ReleasePatches}.
+     *
+     * <h4>Example Usage:</h4>
+     * <pre>{@code
+     * // Serves <persistent data directory>/downloads/desktop/1.4.2/setup.msi,
+     * // or a patch from 1.4.0 to it at /downloads/desktop/1.4.2/setup.msi?from=1.4.0
+     * context.registerDownload(DownloadRegistration.forRelease(
+     *     "Desktop App", "desktop", "1.4.2", "setup.msi", "/static/logo.png", OS.WINDOWS));
+     * }</pre>
+     *
+     * @param name             the display name of the download
+     * @param channel          the path of the release channel, relative to the artifact directory
+     * @param version          the version of the release, compared with {@link design.ore.forge.api.VersionUtils}
+     * @param fileName         the file name of the artifact, the same in every version
+     * @param logoResourcePath the logo of the download
+     * @param dependentOs      the operating system the artifact is for, or null for any
+     * @return the registration, targeting the artifact's URL relative to the module
+     * @throws IllegalArgumentException if the version is not made of numeric segments
+     * @since 0.4.0
+     */
+    public static DownloadRegistration forRelease(String name, String channel, String version, String fileName, String logoResourcePath, OS dependentOs)
+    {
+        if (!ReleasePatches.isVersion(version)) throw new IllegalArgumentException("Invalid release version: " + version);
+
+        String prefix = channel.endsWith("/") ? channel : channel + "/";
+        DownloadRegistration registration = forArtifact(name, prefix + version + "/" + fileName, logoResourcePath, dependentOs);
+        registration.version = version;
+        return registration;
+    }
+
     protected OS dependentOs;
+
+    /**
+     * The version of the released artifact, or null if the download is not versioned.
+     *
+     * @since 0.4.0
+     */
+    protected String version;
+
+    /**
+     * The path of the served artifact relative to the artifact directory,
+     * or null if the download is served by other means.
+     *
+     * @since 0.4.0
+     */
+    protected String artifactPath;
 }
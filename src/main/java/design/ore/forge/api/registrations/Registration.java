@@ -1,15 +1,27 @@
 package design.ore.forge.api.registrations;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
-@AllArgsConstructor
 @NoArgsConstructor
 @Getter
 public abstract class Registration
 {
+    public Registration(String name, String targetUrl)
+    {
+        this.name = name;
+        this.targetUrl = targetUrl;
+    }
+
     protected String name;
     @Setter protected String targetUrl;
+
+    /**
+     * The role a user needs to see the registration in the launcher, or null
+     * if everyone sees it. Role names are compared ignoring case.
+     *
+     * @since 0.4.0
+     */
+    @Setter protected String requiredRole;
 }
@@ -0,0 +1,143 @@
+package design.ore.forge.api.registrations;
+
+import design.ore.forge.api.enums.RegistrationKind;
+import design.ore.forge.api.logos.LogoVariants;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The applets, links and downloads registered by all modules, as shown by
+ * the launcher.
+ * <p>
+ * Registrations are copied into immutable {@link CatalogEntry entries} when
+ * they are submitted, and every change publishes a new
+ * {@link CatalogSnapshot} with its views already serialized. Reads never
+ * lock or copy: a request for the catalog looks up the current snapshot
+ * and writes out the bytes of the view for the user's operating system and
+ * roles.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * // In the host's IModuleContext
+ * public void registerDownload(DownloadRegistration registration)
+ * {
+ *     catalog.submit(moduleId, registration);
+ * }
+ *
+ * // When the module is unloaded
+ * catalog.withdraw(moduleId);
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public class RegistrationCatalog
+{
+    private final Object writeLock = new Object();
+    private volatile CatalogSnapshot snapshot = new CatalogSnapshot(0, List.of());
+
+    /**
+     * @return the current version of the catalog
+     */
+    public CatalogSnapshot getSnapshot()
+    {
+        return snapshot;
+    }
+
+    /**
+     * Adds a registration to the catalog, replacing the module's earlier
+     * registration of the same kind and name, if any.
+     *
+     * @param moduleId     the ID of the module submitting the registration
+     * @param registration the registration, copied before this returns
+     */
+    public void submit(String moduleId, Registration registration)
+    {
+        submitAll(moduleId, List.of(registration));
+    }
+
+    /**
+     * Adds registrations to the catalog as one change, for example those a
+     * module declares in its manifest.
+     *
+     * @param moduleId      the ID of the module submitting the registrations
+     * @param registrations the registrations, copied before this returns
+     */
+    public void submitAll(String moduleId, Collection<? extends Registration> registrations)
+    {
+        List<CatalogEntry> added = registrations.stream().map(registration -> CatalogEntry.of(moduleId, registration)).toList();
+        synchronized (writeLock)
+        {
+            List<CatalogEntry> entries = new ArrayList<>(snapshot.getEntries());
+            List<CatalogEntry> replaced = new ArrayList<>();
+            entries.removeIf(entry -> added.stream().anyMatch(replacement -> replaces(replacement, entry)) && replaced.add(entry));
+
+            // A registration submitted again with the same logo keeps the copies made of it
+            for (CatalogEntry entry : added)
+            {
+                LogoVariants variants = replaced.stream()
+                    .filter(previous -> replaces(entry, previous) && Objects.equals(previous.getLogo(), entry.getLogo()))
+                    .map(CatalogEntry::getLogoVariants)
+                    .filter(Objects::nonNull)
+                    .findFirst().orElse(null);
+                entries.add(variants != null ? entry.withLogoVariants(variants) : entry);
+            }
+            publish(entries);
+        }
+    }
+
+    /**
+     * Removes all registrations of a module, for example when it is unloaded.
+     *
+     * @param moduleId the ID of the module
+     */
+    public void withdraw(String moduleId)
+    {
+        synchronized (writeLock)
+        {
+            List<CatalogEntry> entries = new ArrayList<>(snapshot.getEntries());
+            if (entries.removeIf(entry -> entry.getModuleId().equals(moduleId))) publish(entries);
+        }
+    }
+
+    /**
+     * Adds the resized copies of a logo to all entries of a module that show it.
+     *
+     * @param moduleId the ID of the module
+     * @param logo     the logo resource path the copies were made of
+     * @param variants the copies, or null to do nothing
+     */
+    public void attachLogoVariants(String moduleId, String logo, LogoVariants variants)
+    {
+        if (variants == null) return;
+        synchronized (writeLock)
+        {
+            boolean changed = false;
+            List<CatalogEntry> entries = new ArrayList<>(snapshot.getEntries());
+            for (int i = 0; i < entries.size(); i++)
+            {
+                CatalogEntry entry = entries.get(i);
+                if (entry.getModuleId().equals(moduleId) && entry.getKind() != RegistrationKind.LINK && logo.equals(entry.getLogo())
+                    && entry.getLogoVariants() != variants)
+                {
+                    entries.set(i, entry.withLogoVariants(variants));
+                    changed = true;
+                }
+            }
+            if (changed) publish(entries);
+        }
+    }
+
+    private void publish(List<CatalogEntry> entries)
+    {
+        snapshot = new CatalogSnapshot(snapshot.getVersion() + 1, entries);
+    }
+
+    private static boolean replaces(CatalogEntry replacement, CatalogEntry entry)
+    {
+        return replacement.getModuleId().equals(entry.getModuleId()) && replacement.getKind() == entry.getKind()
+            && replacement.getName().equals(entry.getName());
+    }
+}
@@ -0,0 +1,96 @@
+package design.ore.forge.api.registrations;
+
+import design.ore.forge.api.authentication.ForgeUserUtils;
+import design.ore.forge.api.enums.OS;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.HttpRequestHandler;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Serves the view of a {@link RegistrationCatalog} for the requesting
+ * launcher as JSON.
+ * <p>
+ * The launcher passes its operating system in the {@value #OS_PARAMETER}
+ * parameter, or omits it to see downloads for every system, and is
+ * identified by the {@link ForgeUserUtils#FORGE_USER_ATTRIBUTE} request
+ * attribute. Responses carry the view's ETag, so a launcher polling with
+ * {@code If-None-Match} gets {@code 304 Not Modified} until something it
+ * shows changes, and the {@value #VERSION_HEADER} header.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * SimpleUrlHandlerMapping mapping = new SimpleUrlHandlerMapping(
+ *     Map.of("/api/launcher/catalog", new RegistrationCatalogHandler(catalog)));
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public class RegistrationCatalogHandler implements HttpRequestHandler
+{
+    public static final String OS_PARAMETER = "os";
+    public static final String VERSION_HEADER = "Forge-Catalog-Version";
+
+    private final RegistrationCatalog catalog;
+
+    public RegistrationCatalogHandler(RegistrationCatalog catalog)
+    {
+        this.catalog = catalog;
+    }
+
+    @Override
+    public void handleRequest(HttpServletRequest request, HttpServletResponse response) throws IOException
+    {
+        boolean head = request.getMethod().equals("HEAD");
+        if (!head && !request.getMethod().equals("GET"))
+        {
+            response.setHeader(HttpHeaders.ALLOW, "GET, HEAD");
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+
+        OS os = null;
+        String osParameter = request.getParameter(OS_PARAMETER);
+        if (osParameter != null && !osParameter.isEmpty())
+        {
+            try { os = OS.valueOf(osParameter.toUpperCase(Locale.ROOT)); }
+            catch (IllegalArgumentException e)
+            {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown operating system: " + osParameter);
+                return;
+            }
+        }
+
+        CatalogSnapshot snapshot = catalog.getSnapshot();
+        CatalogView view = snapshot.getView(os, ForgeUserUtils.getCurrentUser(request).orElse(null));
+
+        response.setHeader(HttpHeaders.ETAG, view.getETag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        response.setHeader(VERSION_HEADER, Long.toString(snapshot.getVersion()));
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && matches(ifNoneMatch, view.getETag()))
+        {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(view.getContentLength());
+        if (!head) view.writeTo(response.getOutputStream());
+    }
+
+    private static boolean matches(String ifNoneMatch, String eTag)
+    {
+        for (String tag : ifNoneMatch.split(","))
+        {
+            String trimmed = tag.trim();
+            if (trimmed.equals("*") || trimmed.equals(eTag) || trimmed.equals("W/" + eTag)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,437 @@
+package design.ore.forge.api.scheduling;
+
+import design.ore.forge.api.enums.WorkKind;
+import design.ore.forge.api.interfaces.IModuleMetrics;
+import design.ore.forge.api.interfaces.IModuleScheduler;
+import design.ore.forge.api.metrics.ResourceAccountant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.support.CronExpression;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Reference implementation of {@link IModuleScheduler}.
+ * <p>
+ * Timing is delegated to a {@link ScheduledExecutorService} shared by all
+ * modules of the host, which only hands due tasks over and never runs module
+ * code itself. Tasks run on virtual threads; once {@code maxConcurrency}
+ * tasks of the module are running, further tasks wait in a queue.
+ * </p>
+ * <p>
+ * The host creates one instance per module and closes it when the module is
+ * unloaded, which cancels all scheduled tasks, discards queued ones and
+ * interrupts running ones. The futures of discarded tasks complete with a
+ * {@link CancellationException}.
+ * </p>
+ * <p>
+ * Given a {@link ResourceAccountant}, the CPU time and allocations of every
+ * task are attributed to the module under the task's name. The JVM has no
+ * such counters for virtual threads, so tasks then run on pooled platform
+ * threads instead, still bounded by {@code maxConcurrency}.
+ * </p>
+ * <p>
+ * Given the module's {@link IModuleMetrics}, the time tasks wait in the
+ * queue and run are recorded in the {@code forge_task_queue_time} and
+ * {@code forge_task_run_time} timers, tagged with the task's name, failed and
+ * skipped runs are counted in {@code forge_task_failures} and
+ * {@code forge_task_skipped_runs}, and the {@code forge_tasks_running},
+ * {@code forge_tasks_queued} and {@code forge_tasks_scheduled} gauges expose
+ * the current state.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class ModuleTaskScheduler implements IModuleScheduler, AutoCloseable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ModuleTaskScheduler.class);
+
+    private final String moduleId;
+    private final ScheduledExecutorService timer;
+    private final Semaphore permits;
+    private final ResourceAccountant accountant;
+    private final ExecutorService platformThreads;
+    private final IModuleMetrics metrics;
+    private final Queue<QueuedTask> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Set<Thread> running = ConcurrentHashMap.newKeySet();
+    private final Set<RecurringTask> recurring = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder totalQueueNanos = new LongAdder();
+    private final LongAccumulator maxQueueNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder totalRunNanos = new LongAdder();
+    private final LongAccumulator maxRunNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param moduleId       the ID of the module, used to name its threads
+     * @param timer          the host's shared timer
+     * @param maxConcurrency the maximum number of tasks of the module running at once
+     */
+    public ModuleTaskScheduler(String moduleId, ScheduledExecutorService timer, int maxConcurrency)
+    {
+        this(moduleId, timer, maxConcurrency, null);
+    }
+
+    /**
+     * @param moduleId       the ID of the module, used to name its threads
+     * @param timer          the host's shared timer
+     * @param maxConcurrency the maximum number of tasks of the module running at once
+     * @param accountant     the module's resource accountant, or null to run tasks unaccounted on virtual threads
+     */
+    public ModuleTaskScheduler(String moduleId, ScheduledExecutorService timer, int maxConcurrency, ResourceAccountant accountant)
+    {
+        this(moduleId, timer, maxConcurrency, accountant, null);
+    }
+
+    /**
+     * @param moduleId       the ID of the module, used to name its threads
+     * @param timer          the host's shared timer
+     * @param maxConcurrency the maximum number of tasks of the module running at once
+     * @param accountant     the module's resource accountant, or null to run tasks unaccounted on virtual threads
+     * @param metrics        the module's metrics registry, or null to only keep {@link #getStats()}
+     */
+    public ModuleTaskScheduler(String moduleId, ScheduledExecutorService timer, int maxConcurrency, ResourceAccountant accountant, IModuleMetrics metrics)
+    {
+        this.moduleId = moduleId;
+        this.metrics = metrics;
+        this.timer = timer;
+        this.permits = new Semaphore(maxConcurrency);
+        this.accountant = accountant;
+        this.platformThreads = accountant != null && ResourceAccountant.isSupported()
+            ? Executors.newCachedThreadPool(Thread.ofPlatform().daemon().name("forge-" + moduleId + "-task-", 0).factory())
+            : null;
+
+        if (metrics != null)
+        {
+            metrics.gauge("forge_tasks_running", running::size);
+            metrics.gauge("forge_tasks_queued", queued::get);
+            metrics.gauge("forge_tasks_scheduled", recurring::size);
+        }
+    }
+
+    @Override
+    public void execute(Runnable task)
+    {
+        enqueue("task", task, null);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submit(Callable<T> task)
+    {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        enqueue("task", () ->
+        {
+            try
+            {
+                future.complete(task.call());
+            }
+            catch (Throwable t)
+            {
+                future.completeExceptionally(t);
+                throw t instanceof RuntimeException runtime ? runtime : new RuntimeException(t);
+            }
+        }, future::completeExceptionally);
+        return future;
+    }
+
+    @Override
+    public ScheduledTask schedule(String name, Runnable task, Duration delay)
+    {
+        RecurringTask scheduled = new RecurringTask(name, task, (self) -> self.fired == 0 ? delay.toNanos() : NextDelay.STOP);
+        scheduled.scheduleNext();
+        return scheduled;
+    }
+
+    @Override
+    public ScheduledTask scheduleAtFixedRate(String name, Runnable task, Duration initialDelay, Duration period, Duration jitter)
+    {
+        long periodNanos = period.toNanos();
+        long jitterNanos = jitter.toNanos();
+        long[] due = { System.nanoTime() + initialDelay.toNanos() };
+        RecurringTask scheduled = new RecurringTask(name, task, (self) ->
+        {
+            long now = System.nanoTime();
+            if (self.fired > 0) due[0] += periodNanos;
+            // Runs missed while the timer was stalled are skipped rather than run back to back
+            if (now - due[0] > periodNanos)
+            {
+                long missed = (now - due[0]) / periodNanos;
+                due[0] += missed * periodNanos;
+                skip(self.name, missed);
+            }
+            long offset = jitterNanos > 0 ? ThreadLocalRandom.current().nextLong(jitterNanos) : 0;
+            // A run that is already due, for example after a late fire, runs now instead of stopping the task
+            return Math.max(0, due[0] + offset - now);
+        });
+        scheduled.scheduleNext();
+        return scheduled;
+    }
+
+    @Override
+    public ScheduledTask scheduleCron(String name, String cronExpression, Runnable task)
+    {
+        CronExpression cron = CronExpression.parse(cronExpression);
+        ZonedDateTime[] slot = { null };
+        RecurringTask scheduled = new RecurringTask(name, task, (self) ->
+        {
+            ZonedDateTime now = ZonedDateTime.now();
+            // The next slot follows the one just fired, so a timer firing slightly early does not run that slot again
+            ZonedDateTime next = cron.next(slot[0] != null && slot[0].isAfter(now) ? slot[0] : now);
+            slot[0] = next;
+            return next != null ? Math.max(0, Duration.between(now, next).toNanos()) : NextDelay.STOP;
+        });
+        scheduled.scheduleNext();
+        return scheduled;
+    }
+
+    @Override
+    public SchedulerStats getStats()
+    {
+        return new SchedulerStats(running.size(), queued.get(), recurring.size(),
+            completed.sum(), failed.sum(), skipped.sum(),
+            totalQueueNanos.sum(), maxQueueNanos.get(), totalRunNanos.sum(), maxRunNanos.get());
+    }
+
+    private void skip(String name, long runs)
+    {
+        skipped.add(runs);
+        if (metrics != null) metrics.counter("forge_task_skipped_runs", "task", name).increment(runs);
+    }
+
+    private void enqueue(String name, Runnable task, Consumer<Throwable> onDiscard)
+    {
+        if (closed) throw new RejectedExecutionException("Scheduler of module " + moduleId + " is closed");
+        QueuedTask queuedTask = new QueuedTask(name, task, onDiscard, System.nanoTime());
+        queued.incrementAndGet();
+        queue.add(queuedTask);
+
+        // A close() between the check and the add has drained the queue already, and nothing drains it anymore
+        if (closed && queue.remove(queuedTask))
+        {
+            queued.decrementAndGet();
+            queuedTask.discard(new CancellationException("Scheduler of module " + moduleId + " was closed"));
+            return;
+        }
+        drain();
+    }
+
+    private void drain()
+    {
+        while (!closed && !queue.isEmpty() && permits.tryAcquire())
+        {
+            QueuedTask task = queue.poll();
+            if (task == null)
+            {
+                permits.release();
+                continue;
+            }
+            queued.decrementAndGet();
+            if (platformThreads != null)
+            {
+                try { platformThreads.execute(() -> run(task)); }
+                catch (RejectedExecutionException e)
+                {
+                    permits.release();
+                    task.discard(e);
+                }
+            }
+            else Thread.ofVirtual().name("forge-" + moduleId + "-" + task.name()).start(() -> run(task));
+        }
+    }
+
+    private void run(QueuedTask task)
+    {
+        Thread thread = Thread.currentThread();
+        running.add(thread);
+
+        long start = System.nanoTime();
+        long queueTime = start - task.submittedNanos();
+        totalQueueNanos.add(queueTime);
+        maxQueueNanos.accumulate(queueTime);
+        if (metrics != null) metrics.timer("forge_task_queue_time", "task", task.name()).record(queueTime);
+
+        try
+        {
+            if (accountant != null) accountant.measure(WorkKind.TASK, task.name(), task.runnable());
+            else task.runnable().run();
+            completed.increment();
+        }
+        catch (Throwable t)
+        {
+            failed.increment();
+            if (metrics != null) metrics.counter("forge_task_failures", "task", task.name()).increment();
+            if (!closed) LOG.warn("Task {} of module {} failed", task.name(), moduleId, t);
+        }
+        finally
+        {
+            long runTime = System.nanoTime() - start;
+            totalRunNanos.add(runTime);
+            maxRunNanos.accumulate(runTime);
+            if (metrics != null) metrics.timer("forge_task_run_time", "task", task.name()).record(runTime);
+
+            running.remove(thread);
+            permits.release();
+            drain();
+        }
+    }
+
+    /**
+     * Cancels all scheduled tasks, discards queued tasks and interrupts running ones.
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+        recurring.forEach(RecurringTask::cancel);
+        QueuedTask task;
+        while ((task = queue.poll()) != null)
+        {
+            queued.decrementAndGet();
+            task.discard(new CancellationException("Scheduler of module " + moduleId + " was closed"));
+        }
+        running.forEach(Thread::interrupt);
+        if (platformThreads != null) platformThreads.shutdown();
+    }
+
+    /**
+     * Waits for tasks interrupted by {@link #close()} to finish.
+     *
+     * @param timeout the maximum time to wait
+     * @return true if no task is running anymore
+     */
+    public boolean awaitTermination(Duration timeout) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!running.isEmpty())
+        {
+            if (System.nanoTime() >= deadline) return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * @param onDiscard called with the reason when the task is dropped without running, or null
+     */
+    private record QueuedTask(String name, Runnable runnable, Consumer<Throwable> onDiscard, long submittedNanos)
+    {
+        void discard(Throwable reason)
+        {
+            if (onDiscard != null) onDiscard.accept(reason);
+        }
+    }
+
+    @FunctionalInterface
+    private interface NextDelay
+    {
+        /**
+         * Returned when the task has no further runs.
+         */
+        long STOP = Long.MIN_VALUE;
+
+        /**
+         * @return nanoseconds until the next run, or {@link #STOP}
+         */
+        long compute(RecurringTask task);
+    }
+
+    private final class RecurringTask implements ScheduledTask
+    {
+        private final String name;
+        private final Runnable task;
+        private final NextDelay nextDelay;
+        private final AtomicBoolean inProgress = new AtomicBoolean();
+        private volatile ScheduledFuture<?> next;
+        private volatile boolean cancelled;
+        private long fired;
+
+        private RecurringTask(String name, Runnable task, NextDelay nextDelay)
+        {
+            this.name = name;
+            this.task = task;
+            this.nextDelay = nextDelay;
+        }
+
+        private void scheduleNext()
+        {
+            if (closed) cancelled = true;
+            if (cancelled) return;
+
+            long delay = nextDelay.compute(this);
+            if (delay == NextDelay.STOP)
+            {
+                recurring.remove(this);
+                return;
+            }
+
+            recurring.add(this);
+            next = timer.schedule(this::fire, delay, TimeUnit.NANOSECONDS);
+        }
+
+        private void fire()
+        {
+            fired++;
+            if (cancelled) return;
+
+            if (inProgress.compareAndSet(false, true))
+            {
+                try
+                {
+                    enqueue(name, () ->
+                    {
+                        try { task.run(); }
+                        finally { inProgress.set(false); }
+                    }, reason -> inProgress.set(false));
+                }
+                catch (RejectedExecutionException e)
+                {
+                    inProgress.set(false);
+                    return;
+                }
+            }
+            else skip(name, 1);
+
+            scheduleNext();
+        }
+
+        @Override
+        public String getName() { return name; }
+
+        @Override
+        public void cancel()
+        {
+            cancelled = true;
+            recurring.remove(this);
+            ScheduledFuture<?> scheduled = next;
+            if (scheduled != null) scheduled.cancel(false);
+        }
+
+        @Override
+        public boolean isCancelled() { return cancelled; }
+    }
+}
@@ -0,0 +1,18 @@
+package design.ore.forge.api.scheduling;
+
+/**
+ * Handle of a task scheduled on an {@link design.ore.forge.api.interfaces.IModuleScheduler}.
+ *
+ * @since 0.4.0
+ */
+public interface ScheduledTask
+{
+    String getName();
+
+    /**
+     * Stops future runs of the task. A run in progress is not interrupted.
+     */
+    void cancel();
+
+    boolean isCancelled();
+}
@@ -0,0 +1,20 @@
+package design.ore.forge.api.scheduling;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Point-in-time statistics of a module's scheduler. Queue times are measured
+ * from submission to the start of a task, run times from its start to its end.
+ *
+ * @since 0.4.0
+ */
+@AllArgsConstructor
+@Getter
+public class SchedulerStats
+{
+    private final int running, queued, scheduledTasks;
+    private final long completed, failed, skipped;
+    private final long totalQueueNanos, maxQueueNanos;
+    private final long totalRunNanos, maxRunNanos;
+}
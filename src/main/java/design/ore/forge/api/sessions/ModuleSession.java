@@ -0,0 +1,148 @@
+package design.ore.forge.api.sessions;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The state of an HTTP session kept by an {@link design.ore.forge.api.interfaces.IModuleSessionStore}.
+ * <p>
+ * Attribute values must be {@link java.io.Serializable} for the session to
+ * be moved out of the heap; sessions holding other values stay on-heap.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class ModuleSession
+{
+    @Getter private volatile String id;
+    @Getter private final long creationTime;
+    @Getter private volatile long lastAccessedTime;
+
+    /**
+     * The idle time in seconds after which the session expires, or zero or less if it never does.
+     */
+    @Getter private volatile int maxInactiveInterval;
+
+    @Getter private volatile boolean valid = true;
+
+    private final Map<String, Object> attributes;
+    private final AtomicInteger modifications = new AtomicInteger();
+    private final AtomicInteger activeRequests = new AtomicInteger();
+
+    /**
+     * The size of the session when it was last serialized, used to estimate its heap usage.
+     */
+    @Getter private volatile int encodedSize;
+    private volatile int measuredModifications;
+
+    public ModuleSession(String id, long creationTime, long lastAccessedTime, int maxInactiveInterval, Map<String, Object> attributes)
+    {
+        this.id = id;
+        this.creationTime = creationTime;
+        this.lastAccessedTime = lastAccessedTime;
+        this.maxInactiveInterval = maxInactiveInterval;
+        this.attributes = new ConcurrentHashMap<>(attributes);
+    }
+
+    public Object getAttribute(String name)
+    {
+        return attributes.get(name);
+    }
+
+    /**
+     * @return a live, unmodifiable view of the attributes
+     */
+    public Map<String, Object> getAttributes()
+    {
+        return Collections.unmodifiableMap(attributes);
+    }
+
+    /**
+     * @param name  the attribute name
+     * @param value the value, or null to remove the attribute
+     */
+    public void setAttribute(String name, Object value)
+    {
+        if (value == null) attributes.remove(name);
+        else attributes.put(name, value);
+        modifications.incrementAndGet();
+    }
+
+    public void removeAttribute(String name)
+    {
+        if (attributes.remove(name) != null) modifications.incrementAndGet();
+    }
+
+    public void setMaxInactiveInterval(int seconds)
+    {
+        this.maxInactiveInterval = seconds;
+        modifications.incrementAndGet();
+    }
+
+    /**
+     * @param now the current time in epoch milliseconds
+     * @return whether the session was idle for longer than its maximum inactive interval
+     */
+    public boolean isExpired(long now)
+    {
+        return isExpired(lastAccessedTime, maxInactiveInterval, now);
+    }
+
+    static boolean isExpired(long lastAccessedTime, int maxInactiveInterval, long now)
+    {
+        return maxInactiveInterval > 0 && now - lastAccessedTime >= maxInactiveInterval * 1000L;
+    }
+
+    /**
+     * @return the number of requests currently using the session
+     */
+    public int getActiveRequests()
+    {
+        return activeRequests.get();
+    }
+
+    int getModifications()
+    {
+        return modifications.get();
+    }
+
+    void access(long now)
+    {
+        lastAccessedTime = now;
+        activeRequests.incrementAndGet();
+    }
+
+    void release()
+    {
+        activeRequests.decrementAndGet();
+    }
+
+    void setId(String id)
+    {
+        this.id = id;
+    }
+
+    void setEncodedSize(int encodedSize)
+    {
+        this.encodedSize = encodedSize;
+    }
+
+    int getMeasuredModifications()
+    {
+        return measuredModifications;
+    }
+
+    void setMeasuredModifications(int measuredModifications)
+    {
+        this.measuredModifications = measuredModifications;
+    }
+
+    void invalidate()
+    {
+        valid = false;
+    }
+}
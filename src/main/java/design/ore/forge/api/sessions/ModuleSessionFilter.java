@@ -0,0 +1,262 @@
+package design.ore.forge.api.sessions;
+
+import design.ore.forge.api.interfaces.IModuleSessionStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+
+/**
+ * Serves {@link HttpServletRequest#getSession()} from an
+ * {@link IModuleSessionStore} instead of the servlet container, identifying
+ * sessions by an HTTP-only cookie. Installed by the host in front of the
+ * module's security filters when its security configuration provides a
+ * session store.
+ * <p>
+ * Sessions are used in place: attribute changes are visible to the next
+ * request without being saved, and the store decides when to serialize them.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class ModuleSessionFilter extends OncePerRequestFilter
+{
+    private final IModuleSessionStore store;
+    private final String cookieName;
+
+    /**
+     * @param store      the store to keep sessions in
+     * @param cookieName the name of the session cookie, unique to the module
+     */
+    public ModuleSessionFilter(IModuleSessionStore store, String cookieName)
+    {
+        this.store = store;
+        this.cookieName = cookieName;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException
+    {
+        SessionRequest wrapped = new SessionRequest(request, response);
+        try
+        {
+            chain.doFilter(wrapped, response);
+        }
+        finally
+        {
+            wrapped.release();
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch()
+    {
+        return false;
+    }
+
+    private final class SessionRequest extends HttpServletRequestWrapper
+    {
+        private final HttpServletResponse response;
+        private ModuleSession requested;
+        private boolean resolved;
+        private StoredSession current;
+
+        SessionRequest(HttpServletRequest request, HttpServletResponse response)
+        {
+            super(request);
+            this.response = response;
+        }
+
+        @Override
+        public HttpSession getSession(boolean create)
+        {
+            if (current != null && current.session.isValid()) return current;
+
+            if (!resolved)
+            {
+                resolved = true;
+                requested = store.find(getRequestedSessionId());
+                if (requested != null)
+                {
+                    current = new StoredSession(requested, false);
+                    return current;
+                }
+            }
+            if (!create) return null;
+
+            if (current != null) store.release(current.session);
+            current = new StoredSession(store.create(), true);
+            writeCookie(current.getId(), -1);
+            return current;
+        }
+
+        @Override
+        public HttpSession getSession()
+        {
+            return getSession(true);
+        }
+
+        @Override
+        public String changeSessionId()
+        {
+            HttpSession session = getSession(false);
+            if (session == null) throw new IllegalStateException("The request has no session");
+            String id = store.changeId(current.session);
+            writeCookie(id, -1);
+            return id;
+        }
+
+        @Override
+        public String getRequestedSessionId()
+        {
+            Cookie[] cookies = getCookies();
+            if (cookies == null) return null;
+            for (Cookie cookie : cookies) if (cookieName.equals(cookie.getName())) return cookie.getValue();
+            return null;
+        }
+
+        @Override
+        public boolean isRequestedSessionIdValid()
+        {
+            getSession(false);
+            return requested != null && requested.isValid();
+        }
+
+        @Override
+        public boolean isRequestedSessionIdFromCookie()
+        {
+            return getRequestedSessionId() != null;
+        }
+
+        @Override
+        public boolean isRequestedSessionIdFromURL()
+        {
+            return false;
+        }
+
+        void release()
+        {
+            if (current != null) store.release(current.session);
+        }
+
+        private void writeCookie(String value, int maxAge)
+        {
+            // A committed response cannot take the cookie, the client then keeps its previous session
+            if (response.isCommitted()) return;
+            Cookie cookie = new Cookie(cookieName, value);
+            cookie.setPath(getContextPath().isEmpty() ? "/" : getContextPath());
+            cookie.setHttpOnly(true);
+            cookie.setSecure(isSecure());
+            cookie.setMaxAge(maxAge);
+            cookie.setAttribute("SameSite", "Lax");
+            response.addCookie(cookie);
+        }
+
+        private final class StoredSession implements HttpSession
+        {
+            private final ModuleSession session;
+            private final boolean isNew;
+
+            StoredSession(ModuleSession session, boolean isNew)
+            {
+                this.session = session;
+                this.isNew = isNew;
+            }
+
+            @Override
+            public long getCreationTime()
+            {
+                checkValid();
+                return session.getCreationTime();
+            }
+
+            @Override
+            public String getId()
+            {
+                return session.getId();
+            }
+
+            @Override
+            public long getLastAccessedTime()
+            {
+                checkValid();
+                return session.getLastAccessedTime();
+            }
+
+            @Override
+            public ServletContext getServletContext()
+            {
+                return SessionRequest.this.getServletContext();
+            }
+
+            @Override
+            public void setMaxInactiveInterval(int interval)
+            {
+                session.setMaxInactiveInterval(interval);
+            }
+
+            @Override
+            public int getMaxInactiveInterval()
+            {
+                return session.getMaxInactiveInterval();
+            }
+
+            @Override
+            public Object getAttribute(String name)
+            {
+                checkValid();
+                return session.getAttribute(name);
+            }
+
+            @Override
+            public Enumeration<String> getAttributeNames()
+            {
+                checkValid();
+                return Collections.enumeration(session.getAttributes().keySet());
+            }
+
+            @Override
+            public void setAttribute(String name, Object value)
+            {
+                checkValid();
+                session.setAttribute(name, value);
+            }
+
+            @Override
+            public void removeAttribute(String name)
+            {
+                checkValid();
+                session.removeAttribute(name);
+            }
+
+            @Override
+            public void invalidate()
+            {
+                checkValid();
+                store.invalidate(session);
+                writeCookie("", 0);
+            }
+
+            @Override
+            public boolean isNew()
+            {
+                checkValid();
+                return isNew;
+            }
+
+            private void checkValid()
+            {
+                if (!session.isValid()) throw new IllegalStateException("The session was invalidated");
+            }
+        }
+    }
+}
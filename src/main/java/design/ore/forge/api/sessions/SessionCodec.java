@@ -0,0 +1,133 @@
+package design.ore.forge.api.sessions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Serialized form of a {@link ModuleSession}: an uncompressed header with
+ * the fields needed to expire the session, followed by the ID, creation time
+ * and attributes in a single deflated object stream, so class descriptors
+ * shared by several attributes are written once.
+ */
+final class SessionCodec
+{
+    private static final byte VERSION = 1;
+    static final int HEADER_SIZE = 13; // version, last accessed time, max inactive interval
+
+    /**
+     * The fields of a serialized session that are readable without inflating it.
+     */
+    record Header(long lastAccessedTime, int maxInactiveInterval)
+    {
+        boolean isExpired(long now)
+        {
+            return ModuleSession.isExpired(lastAccessedTime, maxInactiveInterval, now);
+        }
+    }
+
+    private SessionCodec()
+    {
+        throw new AssertionError("No instances");
+    }
+
+    /**
+     * @throws java.io.NotSerializableException if an attribute value is not serializable
+     */
+    static byte[] encode(ModuleSession session) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream header = new DataOutputStream(bytes);
+        header.writeByte(VERSION);
+        header.writeLong(session.getLastAccessedTime());
+        header.writeInt(session.getMaxInactiveInterval());
+
+        List<Map.Entry<String, Object>> attributes = new ArrayList<>(session.getAttributes().entrySet());
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (ObjectOutputStream out = new ObjectOutputStream(new DeflaterOutputStream(bytes, deflater)))
+        {
+            out.writeUTF(session.getId());
+            out.writeLong(session.getCreationTime());
+            out.writeInt(attributes.size());
+            for (Map.Entry<String, Object> attribute : attributes)
+            {
+                out.writeUTF(attribute.getKey());
+                out.writeObject(attribute.getValue());
+            }
+        }
+        finally
+        {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    static Header readHeader(byte[] encoded) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+        if (in.readByte() != VERSION) throw new IOException("Unknown session format");
+        return new Header(in.readLong(), in.readInt());
+    }
+
+    /**
+     * @param classLoader the loader to resolve attribute classes with, normally the module's
+     */
+    static ModuleSession decode(byte[] encoded, ClassLoader classLoader) throws IOException, ClassNotFoundException
+    {
+        Header header = readHeader(encoded);
+        InputStream body = new ByteArrayInputStream(encoded, HEADER_SIZE, encoded.length - HEADER_SIZE);
+        Inflater inflater = new Inflater();
+        try (ObjectInputStream in = new ModuleObjectInputStream(new InflaterInputStream(body, inflater), classLoader))
+        {
+            String id = in.readUTF();
+            long creationTime = in.readLong();
+            int count = in.readInt();
+            Map<String, Object> attributes = new HashMap<>(Math.max(4, count * 2));
+            for (int i = 0; i < count; i++)
+            {
+                String name = in.readUTF();
+                attributes.put(name, in.readObject());
+            }
+
+            ModuleSession session = new ModuleSession(id, creationTime, header.lastAccessedTime(), header.maxInactiveInterval(), attributes);
+            session.setEncodedSize(encoded.length);
+            return session;
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    private static final class ModuleObjectInputStream extends ObjectInputStream
+    {
+        private final ClassLoader classLoader;
+
+        ModuleObjectInputStream(InputStream in, ClassLoader classLoader) throws IOException
+        {
+            super(in);
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass descriptor) throws IOException, ClassNotFoundException
+        {
+            try { return Class.forName(descriptor.getName(), false, classLoader); }
+            catch (ClassNotFoundException e) { return super.resolveClass(descriptor); }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package design.ore.forge.api.sessions;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Tuning options of a {@link TieredSessionStore}.
+ *
+ * @since 0.4.0
+ */
+@Getter
+@Builder
+public class SessionStoreOptions
+{
+    public static final SessionStoreOptions DEFAULT = SessionStoreOptions.builder().build();
+
+    /**
+     * Number of sessions kept on-heap. Beyond it, the least recently used idle sessions are moved to disk.
+     */
+    @Builder.Default
+    private int maxHotSessions = 10_000;
+
+    /**
+     * Estimated serialized size of the sessions kept on-heap, beyond which the least recently used idle
+     * sessions are moved to disk. Sessions are measured when their attributes changed since the last sweep.
+     */
+    @Builder.Default
+    private long maxHotBytes = 64L * 1024 * 1024;
+
+    /**
+     * Idle time after which a session is moved to disk even if the limits are not reached.
+     */
+    @Builder.Default
+    private Duration hotIdleTimeout = Duration.ofMinutes(2);
+
+    /**
+     * Idle time after which a new session expires, unless changed with
+     * {@link jakarta.servlet.http.HttpSession#setMaxInactiveInterval(int)}.
+     */
+    @Builder.Default
+    private Duration maxInactiveInterval = Duration.ofMinutes(30);
+
+    /**
+     * Interval at which expired sessions are removed and idle ones moved to disk.
+     */
+    @Builder.Default
+    private Duration sweepInterval = Duration.ofMinutes(1);
+}
@@ -0,0 +1,19 @@
+package design.ore.forge.api.sessions;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Point-in-time statistics of a module's session store. Hot sessions are
+ * kept on-heap, cold ones on disk; byte counts are serialized sizes.
+ *
+ * @since 0.4.0
+ */
+@AllArgsConstructor
+@Getter
+public class SessionStoreStats
+{
+    private final int hotSessions, coldSessions;
+    private final long hotBytes, coldBytes;
+    private final long created, spilled, restored, expired;
+}
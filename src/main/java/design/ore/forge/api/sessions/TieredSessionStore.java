@@ -0,0 +1,531 @@
+package design.ore.forge.api.sessions;
+
+import design.ore.forge.api.interfaces.IModuleContext;
+import design.ore.forge.api.interfaces.IModuleMetrics;
+import design.ore.forge.api.interfaces.IModuleSessionStore;
+import design.ore.forge.api.metrics.Counter;
+import design.ore.forge.api.scheduling.ScheduledTask;
+import design.ore.forge.api.storage.LogStructuredStore;
+import design.ore.forge.api.storage.StoreEntry;
+import design.ore.forge.api.storage.StoreOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Reference implementation of {@link IModuleSessionStore}: recently used
+ * sessions are kept on-heap, the rest serialized in a memory-mapped
+ * {@link LogStructuredStore} in the module's data directory.
+ * <p>
+ * Hot sessions are kept in least recently used order. When there are more
+ * than {@code SessionStoreOptions.getMaxHotSessions()} of them, or their
+ * estimated size exceeds {@code SessionStoreOptions.getMaxHotBytes()}, the
+ * least recently used sessions not in use by a request are serialized and
+ * moved to disk in the background. A periodic sweep also moves sessions idle
+ * for {@code SessionStoreOptions.getHotIdleTimeout()} and removes expired
+ * ones from both tiers. A cold session is read back and moved on-heap by the
+ * next request using it.
+ * </p>
+ * <p>
+ * Only the expiry fields of cold sessions are kept on-heap. Sessions are
+ * serialized with Java serialization and deflated, and are written to disk
+ * when the store is closed, so they survive a restart of the module.
+ * Sessions holding an attribute that is not serializable stay on-heap. The
+ * session count and size of both tiers, and the time since the last sweep,
+ * are published as {@code forge_sessions_*} metrics.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * @Override
+ * public IModuleSessionStore sessionStore(IModuleContext context) throws IOException {
+ *     return TieredSessionStore.open(context, SessionStoreOptions.builder().maxHotSessions(2_000).build());
+ * }
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public class TieredSessionStore implements IModuleSessionStore
+{
+    private static final Logger LOG = LoggerFactory.getLogger(TieredSessionStore.class);
+
+    public static final String SESSION_DIRECTORY = "sessions";
+
+    private static final StoreOptions COLD_STORE_OPTIONS = StoreOptions.builder().segmentSize(16 * 1024 * 1024).build();
+    private static final int ID_BYTES = 24;
+
+    private final LogStructuredStore cold;
+    private final SessionStoreOptions options;
+    private final ClassLoader classLoader;
+    private final Executor executor;
+    private final SecureRandom random = new SecureRandom();
+
+    // Guarded by lock; iteration order is least to most recently used
+    private final LinkedHashMap<String, ModuleSession> hot = new LinkedHashMap<>(256, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, ColdSession> coldIndex = new ConcurrentHashMap<>();
+    private final AtomicLong hotBytes = new AtomicLong();
+    private final AtomicLong coldBytes = new AtomicLong();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final Counter created;
+    private final Counter spilled;
+    private final Counter restored;
+    private final Counter expired;
+
+    private record ColdSession(SessionCodec.Header header, int size)
+    {
+    }
+
+    private volatile int hotCount;
+    private volatile ScheduledTask sweeper;
+    private volatile long lastSweep = System.currentTimeMillis();
+    private volatile boolean closed;
+
+    private TieredSessionStore(LogStructuredStore cold, SessionStoreOptions options, IModuleMetrics metrics, Executor executor, ClassLoader classLoader)
+    {
+        this.cold = cold;
+        this.options = options;
+        this.executor = executor;
+        this.classLoader = classLoader;
+
+        this.created = metrics.counter("forge_sessions_created");
+        this.spilled = metrics.counter("forge_sessions_spilled");
+        this.restored = metrics.counter("forge_sessions_restored");
+        this.expired = metrics.counter("forge_sessions_expired");
+        metrics.gauge("forge_sessions_hot", () -> hotCount);
+        metrics.gauge("forge_sessions_cold", coldIndex::size);
+        metrics.gauge("forge_sessions_hot_bytes", hotBytes::get);
+        metrics.gauge("forge_sessions_cold_bytes", coldBytes::get);
+        metrics.gauge("forge_sessions_sweep_age_seconds", () -> (System.currentTimeMillis() - lastSweep) / 1000);
+    }
+
+    /**
+     * Opens the session store of a module, keeping cold sessions in the
+     * {@value #SESSION_DIRECTORY} directory of its data directory, and
+     * schedules its sweep on the module's scheduler.
+     *
+     * @param context the module's context
+     * @param options the tuning options
+     * @return the store, including sessions written before the last restart that have not expired
+     * @throws IOException if the directory cannot be opened
+     */
+    public static TieredSessionStore open(IModuleContext context, SessionStoreOptions options) throws IOException
+    {
+        Path directory = Files.createDirectories(context.getModulePersistentDataDirectory().toPath().resolve(SESSION_DIRECTORY));
+        TieredSessionStore store = new TieredSessionStore(LogStructuredStore.open(directory, COLD_STORE_OPTIONS), options,
+            context.getMetrics(), context.getScheduler()::execute, Thread.currentThread().getContextClassLoader());
+        store.loadColdIndex();
+
+        Duration interval = options.getSweepInterval();
+        store.sweeper = context.getScheduler().scheduleAtFixedRate("session-sweep", store::sweep, interval, interval, interval.dividedBy(10));
+        return store;
+    }
+
+    private void loadColdIndex()
+    {
+        long now = System.currentTimeMillis();
+        List<String> stale = new ArrayList<>();
+        try (Stream<StoreEntry> entries = cold.scanPrefix(""))
+        {
+            entries.forEach(entry ->
+            {
+                byte[] value = entry.getValue();
+                try
+                {
+                    SessionCodec.Header header = SessionCodec.readHeader(value);
+                    if (header.isExpired(now)) stale.add(entry.getKey());
+                    else putCold(entry.getKey(), header, value.length);
+                }
+                catch (IOException e)
+                {
+                    LOG.warn("Discarding unreadable session {}", entry.getKey(), e);
+                    stale.add(entry.getKey());
+                }
+            });
+        }
+        for (String id : stale) cold.delete(id);
+    }
+
+    @Override
+    public ModuleSession create()
+    {
+        long now = System.currentTimeMillis();
+        ModuleSession session = new ModuleSession(newId(), now, now, (int) options.getMaxInactiveInterval().toSeconds(), Map.of());
+        session.access(now);
+
+        lock.lock();
+        try
+        {
+            hot.put(session.getId(), session);
+            hotCount = hot.size();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        created.increment();
+        drainIfFull();
+        return session;
+    }
+
+    @Override
+    public ModuleSession find(String id)
+    {
+        if (id == null) return null;
+        long now = System.currentTimeMillis();
+        ModuleSession session;
+
+        lock.lock();
+        try
+        {
+            session = hot.get(id);
+            if (session != null)
+            {
+                if (!session.isExpired(now))
+                {
+                    session.access(now);
+                    return session;
+                }
+                removeHot(session);
+                expired.increment();
+                return null;
+            }
+
+            // Restored under the lock so two requests for the same cold session get the same object
+            ColdSession stored = coldIndex.get(id);
+            if (stored == null) return null;
+            byte[] encoded = cold.get(id);
+            removeCold(id);
+            if (encoded == null || stored.header().isExpired(now))
+            {
+                expired.increment();
+                return null;
+            }
+
+            try
+            {
+                session = SessionCodec.decode(encoded, classLoader);
+            }
+            catch (IOException | ClassNotFoundException e)
+            {
+                LOG.warn("Discarding session that could not be restored", e);
+                return null;
+            }
+            session.access(now);
+            hot.put(id, session);
+            hotCount = hot.size();
+            hotBytes.addAndGet(session.getEncodedSize());
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        restored.increment();
+        drainIfFull();
+        return session;
+    }
+
+    @Override
+    public void release(ModuleSession session)
+    {
+        session.release();
+    }
+
+    @Override
+    public String changeId(ModuleSession session)
+    {
+        String id = newId();
+        lock.lock();
+        try
+        {
+            if (hot.remove(session.getId()) == session) hot.put(id, session);
+            session.setId(id);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        return id;
+    }
+
+    @Override
+    public void invalidate(ModuleSession session)
+    {
+        session.invalidate();
+        lock.lock();
+        try
+        {
+            if (hot.get(session.getId()) == session) removeHot(session);
+            removeCold(session.getId());
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public SessionStoreStats getStats()
+    {
+        return new SessionStoreStats(hotCount, coldIndex.size(), hotBytes.get(), coldBytes.get(),
+            created.count(), spilled.count(), restored.count(), expired.count());
+    }
+
+    /**
+     * Removes expired sessions, moves idle ones to disk and re-measures the
+     * size of hot sessions whose attributes changed. Runs periodically once the
+     * store is opened, and can be called explicitly.
+     */
+    public void sweep()
+    {
+        if (closed) return;
+        long now = System.currentTimeMillis();
+        lastSweep = now;
+        long idleBefore = now - options.getHotIdleTimeout().toMillis();
+
+        List<ModuleSession> idle = new ArrayList<>();
+        List<ModuleSession> changed = new ArrayList<>();
+        lock.lock();
+        try
+        {
+            Iterator<ModuleSession> sessions = hot.values().iterator();
+            while (sessions.hasNext())
+            {
+                ModuleSession session = sessions.next();
+                if (session.getActiveRequests() > 0) continue;
+                if (session.isExpired(now))
+                {
+                    sessions.remove();
+                    hotBytes.addAndGet(-session.getEncodedSize());
+                    expired.increment();
+                }
+                else if (session.getLastAccessedTime() < idleBefore) idle.add(session);
+                else changed.add(session);
+            }
+            hotCount = hot.size();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        for (Map.Entry<String, ColdSession> entry : coldIndex.entrySet())
+        {
+            if (!entry.getValue().header().isExpired(now)) continue;
+            lock.lock();
+            try
+            {
+                if (coldIndex.get(entry.getKey()) != entry.getValue()) continue;
+                removeCold(entry.getKey());
+                expired.increment();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        for (ModuleSession session : idle) spill(session);
+        for (ModuleSession session : changed) measure(session);
+        drainIfFull();
+    }
+
+    private void drainIfFull()
+    {
+        if (!isFull() || closed || !draining.compareAndSet(false, true)) return;
+        executor.execute(() ->
+        {
+            try
+            {
+                drain();
+            }
+            finally
+            {
+                draining.set(false);
+            }
+        });
+    }
+
+    private boolean isFull()
+    {
+        return hotCount > options.getMaxHotSessions() || hotBytes.get() > options.getMaxHotBytes();
+    }
+
+    private void drain()
+    {
+        while (isFull() && !closed)
+        {
+            List<ModuleSession> eldest = new ArrayList<>();
+            lock.lock();
+            try
+            {
+                // Evicts in chunks so the lock is not held while serializing
+                int chunk = Math.clamp(hot.size() - options.getMaxHotSessions(), 16, 256);
+                for (ModuleSession session : hot.values())
+                {
+                    if (eldest.size() >= chunk) break;
+                    if (session.getActiveRequests() == 0) eldest.add(session);
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+
+            int moved = 0;
+            for (ModuleSession session : eldest) if (spill(session)) moved++;
+            if (moved == 0) return;
+        }
+    }
+
+    /**
+     * Serializes a session outside the lock and moves it to disk if no request used or changed it meanwhile.
+     *
+     * @return whether the session was moved
+     */
+    private boolean spill(ModuleSession session)
+    {
+        int modifications = session.getModifications();
+        long lastAccessedTime = session.getLastAccessedTime();
+        byte[] encoded = encode(session);
+        if (encoded == null) return false;
+
+        lock.lock();
+        try
+        {
+            if (hot.get(session.getId()) != session || session.getActiveRequests() > 0
+                || session.getModifications() != modifications || session.getLastAccessedTime() != lastAccessedTime) return false;
+
+            cold.put(session.getId(), encoded);
+            removeHot(session);
+            putCold(session.getId(), new SessionCodec.Header(lastAccessedTime, session.getMaxInactiveInterval()), encoded.length);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        spilled.increment();
+        return true;
+    }
+
+    private void measure(ModuleSession session)
+    {
+        int modifications = session.getModifications();
+        if (modifications == session.getMeasuredModifications()) return;
+
+        byte[] encoded = encode(session);
+        if (encoded == null) return;
+        lock.lock();
+        try
+        {
+            if (hot.get(session.getId()) != session) return;
+            hotBytes.addAndGet(encoded.length - session.getEncodedSize());
+            session.setEncodedSize(encoded.length);
+            session.setMeasuredModifications(modifications);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private byte[] encode(ModuleSession session)
+    {
+        try
+        {
+            return SessionCodec.encode(session);
+        }
+        catch (NotSerializableException e)
+        {
+            // Measured once per change, so this is logged once per change as well
+            if (session.getModifications() != session.getMeasuredModifications())
+            {
+                LOG.debug("Keeping session on-heap, attribute class {} is not serializable", e.getMessage());
+                session.setMeasuredModifications(session.getModifications());
+            }
+            return null;
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Could not serialize session", e);
+            return null;
+        }
+    }
+
+    private void removeHot(ModuleSession session)
+    {
+        hot.remove(session.getId());
+        hotCount = hot.size();
+        hotBytes.addAndGet(-session.getEncodedSize());
+    }
+
+    private void putCold(String id, SessionCodec.Header header, int size)
+    {
+        ColdSession previous = coldIndex.put(id, new ColdSession(header, size));
+        coldBytes.addAndGet(size - (previous != null ? previous.size() : 0));
+    }
+
+    private void removeCold(String id)
+    {
+        ColdSession removed = coldIndex.remove(id);
+        if (removed == null) return;
+        cold.delete(id);
+        coldBytes.addAndGet(-removed.size());
+    }
+
+    private String newId()
+    {
+        byte[] bytes = new byte[ID_BYTES];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Stops the sweep and writes all serializable hot sessions to disk.
+     */
+    @Override
+    public void close()
+    {
+        if (closed) return;
+        closed = true;
+        if (sweeper != null) sweeper.cancel();
+
+        lock.lock();
+        try
+        {
+            long now = System.currentTimeMillis();
+            for (ModuleSession session : new ArrayList<>(hot.values()))
+            {
+                if (session.isExpired(now)) continue;
+                byte[] encoded = encode(session);
+                if (encoded != null) cold.put(session.getId(), encoded);
+            }
+            hot.clear();
+            hotCount = 0;
+            hotBytes.set(0);
+            cold.close();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package design.ore.forge.api.socket;
+
+import design.ore.forge.api.interfaces.IBrokerRelay;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connects a module's simple broker to an {@link IBrokerRelay}.
+ * <p>
+ * Installed on the broker and client inbound channels by
+ * {@link design.ore.forge.api.beans.ForgeSocketBeans}, so it sees messages
+ * sent by the application as well as those sent by clients, which the simple
+ * broker takes straight from the inbound channel. Messages sent to a relayed destination are delivered locally as usual and
+ * copied onto a bounded outbound queue, which a dedicated thread drains into
+ * the relay. When the queue is full the copy is dropped rather than blocking
+ * the broker channel, so a slow or unreachable node can never stall message
+ * delivery on this one.
+ * </p>
+ * <p>
+ * Messages received from other nodes are deduplicated by ID and sent to the
+ * local broker with the {@link #RELAY_ORIGIN_HEADER} set, which prevents them
+ * from being relayed again.
+ * </p>
+ * <p>
+ * Without a relay, the module gets a {@link #disabled()} bridge, which is not
+ * installed on any channel and does nothing.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class BrokerRelayBridge implements ChannelInterceptor, SmartLifecycle
+{
+    /**
+     * Header carrying the ID of the node a relayed message originated from.
+     */
+    public static final String RELAY_ORIGIN_HEADER = "forgeRelayOrigin";
+
+    private static final Logger LOG = LoggerFactory.getLogger(BrokerRelayBridge.class);
+
+    private final IBrokerRelay relay;
+    private final String[] destinationPrefixes;
+    private final ApplicationContext applicationContext;
+    private final BlockingQueue<RelayedMessage> outbound;
+    private final RelayDeduplicator deduplicator;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+
+    private volatile MessageChannel brokerChannel;
+    private volatile Thread publisher;
+    private volatile boolean running;
+
+    public BrokerRelayBridge(IBrokerRelay relay, String[] destinationPrefixes, int queueCapacity, int deduplicationWindow, ApplicationContext applicationContext)
+    {
+        this.relay = relay;
+        this.destinationPrefixes = destinationPrefixes;
+        this.applicationContext = applicationContext;
+        this.outbound = new ArrayBlockingQueue<>(queueCapacity);
+        this.deduplicator = new RelayDeduplicator(deduplicationWindow);
+    }
+
+    private BrokerRelayBridge()
+    {
+        this.relay = null;
+        this.destinationPrefixes = new String[0];
+        this.applicationContext = null;
+        this.outbound = null;
+        this.deduplicator = null;
+    }
+
+    /**
+     * @return a bridge without a relay, which relays nothing
+     */
+    public static BrokerRelayBridge disabled() { return new BrokerRelayBridge(); }
+
+    /**
+     * @return whether the bridge has a relay to forward messages to
+     */
+    public boolean isEnabled() { return relay != null; }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel)
+    {
+        MessageHeaders headers = message.getHeaders();
+        if (!running || relay == null || headers.containsKey(RELAY_ORIGIN_HEADER)) return message;
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE) return message;
+        if (!(message.getPayload() instanceof byte[] payload)) return message;
+
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (!isRelayed(destination)) return message;
+
+        Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+        RelayedMessage relayed = new RelayedMessage(UUID.randomUUID().toString(), relay.getNodeId(), destination,
+            contentType != null ? contentType.toString() : null, payload);
+
+        deduplicator.firstSeen(relayed.getMessageId());
+        if (!outbound.offer(relayed)) dropped.incrementAndGet();
+
+        return message;
+    }
+
+    private boolean isRelayed(String destination)
+    {
+        if (destination == null) return false;
+        for (String prefix : destinationPrefixes)
+        {
+            if (destination.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    private void receive(RelayedMessage message)
+    {
+        if (relay.getNodeId().equals(message.getOriginNodeId())) return;
+        if (!deduplicator.firstSeen(message.getMessageId()))
+        {
+            duplicates.incrementAndGet();
+            return;
+        }
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(message.getDestination());
+        if (message.getContentType() != null) accessor.setContentType(MimeTypeUtils.parseMimeType(message.getContentType()));
+        accessor.setHeader(RELAY_ORIGIN_HEADER, message.getOriginNodeId());
+
+        received.incrementAndGet();
+        brokerChannel.send(MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders()));
+    }
+
+    private void drainOutbound()
+    {
+        while (running)
+        {
+            try
+            {
+                RelayedMessage message = outbound.take();
+                relay.publish(message);
+                published.incrementAndGet();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (Exception e)
+            {
+                dropped.incrementAndGet();
+                LOG.warn("Failed to publish message to broker relay on node {}", relay.getNodeId(), e);
+            }
+        }
+    }
+
+    @Override
+    public void start()
+    {
+        if (relay == null) return;
+        brokerChannel = applicationContext.getBean("brokerChannel", MessageChannel.class);
+        running = true;
+        publisher = Thread.ofVirtual().name("forge-broker-relay-" + relay.getNodeId()).start(this::drainOutbound);
+        relay.start(this::receive);
+    }
+
+    @Override
+    public void stop()
+    {
+        if (relay == null) return;
+        running = false;
+        relay.stop();
+        if (publisher != null) publisher.interrupt();
+        outbound.clear();
+    }
+
+    @Override
+    public boolean isRunning() { return running; }
+
+    /**
+     * @return number of messages handed to the relay
+     */
+    public long getPublishedCount() { return published.get(); }
+
+    /**
+     * @return number of outbound messages dropped because the queue was full or the relay failed
+     */
+    public long getDroppedCount() { return dropped.get(); }
+
+    /**
+     * @return number of messages received from other nodes and delivered locally
+     */
+    public long getReceivedCount() { return received.get(); }
+
+    /**
+     * @return number of received messages discarded as duplicates
+     */
+    public long getDuplicateCount() { return duplicates.get(); }
+
+    /**
+     * @return number of messages waiting to be handed to the relay
+     */
+    public int getQueueDepth() { return outbound != null ? outbound.size() : 0; }
+}
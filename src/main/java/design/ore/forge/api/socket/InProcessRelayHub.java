@@ -0,0 +1,111 @@
+package design.ore.forge.api.socket;
+
+import design.ore.forge.api.interfaces.IBrokerRelay;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Reference {@link IBrokerRelay} implementation connecting broker nodes that
+ * live in the same JVM.
+ * <p>
+ * Each node joined to the hub receives messages through its own bounded
+ * inbound queue and delivery thread. Publishing never blocks: if a node's
+ * queue is full, the message is dropped for that node only and counted in
+ * {@link Node#getDroppedCount()}.
+ * </p>
+ * <pre>{@code
+ * InProcessRelayHub hub = new InProcessRelayHub(1_000);
+ * IBrokerRelay nodeA = hub.join("node-a");
+ * IBrokerRelay nodeB = hub.join("node-b");
+ * }</pre>
+ * <p>
+ * Intended for tests and single-process setups that run several module
+ * contexts side by side.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class InProcessRelayHub
+{
+    private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+    private final int queueCapacity;
+
+    public InProcessRelayHub(int queueCapacity)
+    {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Creates a relay for a new node. The node receives messages once
+     * {@link IBrokerRelay#start(Consumer)} has been called.
+     *
+     * @param nodeId the unique ID of the node
+     * @return the node's relay
+     * @throws IllegalArgumentException if a node with the same ID already joined
+     */
+    public Node join(String nodeId)
+    {
+        Node node = new Node(nodeId);
+        if (nodes.putIfAbsent(nodeId, node) != null) throw new IllegalArgumentException("Node " + nodeId + " already joined this hub");
+        return node;
+    }
+
+    public class Node implements IBrokerRelay
+    {
+        private final String nodeId;
+        private final BlockingQueue<RelayedMessage> inbound = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile Thread deliverer;
+
+        private Node(String nodeId)
+        {
+            this.nodeId = nodeId;
+        }
+
+        @Override
+        public String getNodeId() { return nodeId; }
+
+        @Override
+        public void start(Consumer<RelayedMessage> receiver)
+        {
+            deliverer = Thread.ofVirtual().name("forge-relay-hub-" + nodeId).start(() ->
+            {
+                try
+                {
+                    while (!Thread.currentThread().isInterrupted()) receiver.accept(inbound.take());
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        @Override
+        public void publish(RelayedMessage message)
+        {
+            for (Node node : nodes.values())
+            {
+                if (node != this && !node.inbound.offer(message)) node.dropped.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void stop()
+        {
+            nodes.remove(nodeId, this);
+            if (deliverer != null) deliverer.interrupt();
+            inbound.clear();
+        }
+
+        /**
+         * @return number of messages dropped for this node because its inbound queue was full
+         */
+        public long getDroppedCount() { return dropped.get(); }
+    }
+}
@@ -0,0 +1,38 @@
+package design.ore.forge.api.socket;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the IDs of the most recently seen relayed messages so that
+ * redelivered messages are only handed to the local broker once.
+ *
+ * @since 0.4.0
+ */
+public class RelayDeduplicator
+{
+    private final Map<String, Boolean> seen;
+
+    public RelayDeduplicator(int window)
+    {
+        this.seen = new LinkedHashMap<>(Math.min(window, 1024), 0.75f, false)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest)
+            {
+                return size() > window;
+            }
+        };
+    }
+
+    /**
+     * Records the given message ID.
+     *
+     * @param messageId the ID of the message
+     * @return true if the ID has not been seen within the window, false if it is a duplicate
+     */
+    public synchronized boolean firstSeen(String messageId)
+    {
+        return seen.putIfAbsent(messageId, Boolean.TRUE) == null;
+    }
+}
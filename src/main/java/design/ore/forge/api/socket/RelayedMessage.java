@@ -0,0 +1,20 @@
+package design.ore.forge.api.socket;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A broker message in transit between two Forge nodes.
+ *
+ * @since 0.4.0
+ */
+@AllArgsConstructor
+@Getter
+public class RelayedMessage
+{
+    private final String messageId;
+    private final String originNodeId;
+    private final String destination;
+    private final String contentType;
+    private final byte[] payload;
+}
@@ -0,0 +1,593 @@
+package design.ore.forge.api.storage;
+
+import design.ore.forge.api.interfaces.IModuleStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Reference implementation of {@link IModuleStore}: an append-only log of
+ * memory-mapped segment files with an in-memory index of all keys.
+ * <p>
+ * Every write appends a checksummed record carrying a global sequence number
+ * to the active segment and updates the index, so reads are a single index
+ * lookup and a copy out of the mapped segment. Writes are serialized; reads
+ * and scans never lock.
+ * </p>
+ * <p>
+ * Overwritten and deleted records are reclaimed by compaction, which copies
+ * the live records of all sealed segments into new segments and then deletes
+ * the old ones. It runs in the background once the share of garbage in sealed
+ * segments exceeds {@code StoreOptions.getCompactionThreshold()}, and can be
+ * run explicitly with {@link #compact()}. An active segment whose own share of
+ * garbage exceeds the threshold is sealed early once that garbage reaches a
+ * quarter of the segment size, so a store that overwrites its keys in place
+ * is compacted without ever filling a segment. {@link #close()} waits for a
+ * running compaction to stop.
+ * </p>
+ * <p>
+ * On {@link #open(Path, StoreOptions)} the index is rebuilt by scanning all
+ * segments. A record with an invalid checksum ends its segment, which discards
+ * a write torn by a crash. Because records carry sequence numbers, the newest
+ * record of each key wins regardless of which segment it is in. Compaction
+ * deletes the segments holding the oldest records first, so a tombstone is
+ * never deleted while a record it shadows remains, which keeps recovery
+ * correct if the process dies during compaction.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class LogStructuredStore implements IModuleStore, Closeable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(LogStructuredStore.class);
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int HEADER_SIZE = 8;       // body length, CRC32C of body
+    private static final int BODY_PREFIX_SIZE = 16; // sequence, key length, value length
+    private static final int TOMBSTONE = -1;
+
+    private final Path directory;
+    private final StoreOptions options;
+    private final ConcurrentSkipListMap<String, Location> index = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicLong nextSegmentId = new AtomicLong();
+    private final AtomicLong keyCount = new AtomicLong();
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private final AtomicLong compactions = new AtomicLong();
+
+    private long nextSequence;
+    private Segment active;
+    private volatile boolean closed;
+
+    private LogStructuredStore(Path directory, StoreOptions options)
+    {
+        this.directory = directory;
+        this.options = options;
+    }
+
+    /**
+     * Opens the store in the given directory, creating it if necessary and
+     * recovering the contents of any existing segments.
+     *
+     * @param directory the directory holding the segment files
+     * @param options   the store options
+     * @return the opened store
+     * @throws IOException if the directory or a segment cannot be read
+     */
+    public static LogStructuredStore open(Path directory, StoreOptions options) throws IOException
+    {
+        LogStructuredStore store = new LogStructuredStore(directory, options);
+        store.recover();
+        return store;
+    }
+
+    @Override
+    public void put(String key, byte[] value)
+    {
+        Objects.requireNonNull(value, "value");
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+
+        writeLock.lock();
+        try
+        {
+            ensureOpen();
+            byte[] record = encode(nextSequence, keyBytes, value);
+            Segment segment = append(record);
+            segment.maxSequence = nextSequence;
+            int offset = segment.writePosition - record.length;
+
+            Location previous = index.put(key, new Location(segment, offset, record.length, offset + HEADER_SIZE + BODY_PREFIX_SIZE + keyBytes.length, value.length, nextSequence++));
+            if (previous != null) previous.segment.garbageBytes.addAndGet(previous.recordSize);
+            else keyCount.incrementAndGet();
+            sealIfGarbage();
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] get(String key)
+    {
+        ensureOpen();
+        Location location = index.get(key);
+        return location != null ? read(location) : null;
+    }
+
+    @Override
+    public boolean containsKey(String key)
+    {
+        ensureOpen();
+        return index.containsKey(key);
+    }
+
+    @Override
+    public boolean delete(String key)
+    {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+
+        writeLock.lock();
+        try
+        {
+            ensureOpen();
+            if (!index.containsKey(key)) return false;
+
+            byte[] record = encode(nextSequence, keyBytes, null);
+            Segment segment = append(record);
+            segment.maxSequence = nextSequence++;
+            segment.garbageBytes.addAndGet(record.length);
+
+            Location previous = index.remove(key);
+            previous.segment.garbageBytes.addAndGet(previous.recordSize);
+            keyCount.decrementAndGet();
+            sealIfGarbage();
+            return true;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Stream<StoreEntry> scan(String fromInclusive, String toExclusive)
+    {
+        ensureOpen();
+        NavigableMap<String, Location> range = toExclusive != null ? index.subMap(fromInclusive, true, toExclusive, false) : index.tailMap(fromInclusive, true);
+        return range.entrySet().stream().map(entry -> new StoreEntry(entry.getKey(), read(entry.getValue())));
+    }
+
+    @Override
+    public long size()
+    {
+        return keyCount.get();
+    }
+
+    @Override
+    public void sync()
+    {
+        writeLock.lock();
+        try
+        {
+            ensureOpen();
+            active.buffer.force();
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return the current statistics of the store
+     */
+    public StoreStats getStats()
+    {
+        long recordBytes = 0, garbageBytes = 0;
+        for (Segment segment : segments.values())
+        {
+            recordBytes += segment.recordBytes.get();
+            garbageBytes += segment.garbageBytes.get();
+        }
+        return new StoreStats(keyCount.get(), segments.size(), recordBytes, garbageBytes, compactions.get());
+    }
+
+    /**
+     * Rewrites the live records of all sealed segments into new segments and
+     * deletes the old ones. Returns immediately if a compaction is already running.
+     */
+    public void compact()
+    {
+        if (!compactionLock.tryLock()) return;
+        try
+        {
+            List<Segment> sealed;
+            writeLock.lock();
+            try
+            {
+                if (closed) return;
+                sealed = segments.values().stream().filter(segment -> segment != active).toList();
+            }
+            finally
+            {
+                writeLock.unlock();
+            }
+
+            if (!sealed.isEmpty()) compact(sealed);
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Compaction of module store {} failed", directory, e);
+        }
+        finally
+        {
+            compactionLock.unlock();
+        }
+    }
+
+    private void compact(List<Segment> sealed) throws IOException
+    {
+        Set<Segment> compacted = Set.copyOf(sealed);
+        Segment output = null;
+
+        for (Map.Entry<String, Location> entry : index.entrySet())
+        {
+            // Abandon on close, which closes the output; the partial output only duplicates records that recovery resolves by sequence
+            if (closed) return;
+
+            Location location = entry.getValue();
+            if (!compacted.contains(location.segment)) continue;
+
+            byte[] record = new byte[location.recordSize];
+            location.segment.buffer.get(location.offset, record);
+
+            if (output == null || !output.hasRoom(record.length))
+            {
+                if (output != null) output.buffer.force();
+                output = createSegment(record.length);
+            }
+            output.append(record);
+            output.maxSequence = Math.max(output.maxSequence, location.sequence);
+
+            int offset = output.writePosition - record.length;
+            Location moved = new Location(output, offset, location.recordSize, offset + location.valueOffset - location.offset, location.valueLength, location.sequence);
+
+            // Fails if the key was written or deleted since it was read, in which case the copy is garbage
+            if (!index.replace(entry.getKey(), location, moved)) output.garbageBytes.addAndGet(record.length);
+        }
+        if (output != null) output.buffer.force();
+
+        // Delete in order of the newest record each segment holds, not by segment ID: the
+        // output of an earlier compaction has a higher ID than the segment that was active
+        // then, but only holds older records. A tombstone is always newer than every
+        // record it shadows in another segment, so as long as one of those segments
+        // survives, so does the tombstone.
+        List<Segment> byAge = sealed.stream().sorted(Comparator.comparingLong(segment -> segment.maxSequence)).toList();
+        for (int i = 0; i < byAge.size(); i++)
+        {
+            Segment segment = byAge.get(i);
+            segment.close();
+            try
+            {
+                Files.delete(segment.path);
+                segments.remove(segment.id);
+            }
+            catch (IOException e)
+            {
+                LOG.warn("Could not delete compacted segment {}, it will be retried on the next compaction", segment.path, e);
+                for (Segment remaining : byAge.subList(i, byAge.size())) remaining.garbageBytes.set(remaining.recordBytes.get());
+                break;
+            }
+        }
+        compactions.incrementAndGet();
+    }
+
+    @Override
+    public void close()
+    {
+        writeLock.lock();
+        try
+        {
+            if (closed) return;
+            closed = true;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+
+        // A running compaction stops at its next record; waiting for it keeps it from creating or reading segments after they are closed
+        compactionLock.lock();
+        try
+        {
+            for (Segment segment : segments.values())
+            {
+                segment.buffer.force();
+                segment.close();
+            }
+        }
+        finally
+        {
+            compactionLock.unlock();
+        }
+    }
+
+    private void recover() throws IOException
+    {
+        Files.createDirectories(directory);
+
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(directory))
+        {
+            listing.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).forEach(files::add);
+        }
+
+        Map<String, Long> tombstones = new HashMap<>();
+        Segment last = null;
+        boolean lastTorn = false;
+        long maxSequence = -1;
+
+        for (Path file : files.stream().sorted().toList())
+        {
+            String name = file.getFileName().toString();
+            long id = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+
+            Segment segment = Segment.open(file, id);
+            segments.put(id, segment);
+            lastTorn = replay(segment, tombstones);
+            maxSequence = Math.max(maxSequence, segment.maxSequence);
+            last = segment;
+            nextSegmentId.set(id + 1);
+        }
+
+        nextSequence = maxSequence + 1;
+        keyCount.set(index.size());
+
+        if (last != null && lastTorn)
+        {
+            // Clear whatever follows the torn record so it cannot be mistaken for data after new appends
+            byte[] zeros = new byte[64 * 1024];
+            for (int position = last.writePosition; position < last.buffer.capacity(); position += zeros.length)
+            {
+                last.buffer.put(position, zeros, 0, Math.min(zeros.length, last.buffer.capacity() - position));
+            }
+            last.buffer.force();
+        }
+
+        writeLock.lock();
+        try
+        {
+            active = last != null && last.hasRoom(HEADER_SIZE + BODY_PREFIX_SIZE) ? last : createSegment(0);
+            maybeCompact();
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean replay(Segment segment, Map<String, Long> tombstones)
+    {
+        MappedByteBuffer buffer = segment.buffer;
+        CRC32C crc = new CRC32C();
+        int position = 0;
+
+        while (position + HEADER_SIZE <= buffer.capacity())
+        {
+            int bodyLength = buffer.getInt(position);
+            if (bodyLength == 0) return false;
+            if (bodyLength < BODY_PREFIX_SIZE || bodyLength > buffer.capacity() - position - HEADER_SIZE) return true;
+
+            crc.reset();
+            crc.update(buffer.slice(position + HEADER_SIZE, bodyLength));
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) return true;
+
+            long sequence = buffer.getLong(position + HEADER_SIZE);
+            int keyLength = buffer.getInt(position + HEADER_SIZE + 8);
+            int valueLength = buffer.getInt(position + HEADER_SIZE + 12);
+            if (keyLength < 0 || valueLength < TOMBSTONE || BODY_PREFIX_SIZE + keyLength + Math.max(valueLength, 0) != bodyLength) return true;
+
+            byte[] keyBytes = new byte[keyLength];
+            buffer.get(position + HEADER_SIZE + BODY_PREFIX_SIZE, keyBytes);
+            String key = new String(keyBytes, StandardCharsets.UTF_8);
+
+            int recordSize = HEADER_SIZE + bodyLength;
+            segment.recordBytes.addAndGet(recordSize);
+            segment.maxSequence = Math.max(segment.maxSequence, sequence);
+
+            Location current = index.get(key);
+            Long deletedAt = tombstones.get(key);
+            if ((current != null && sequence <= current.sequence) || (deletedAt != null && sequence <= deletedAt))
+            {
+                segment.garbageBytes.addAndGet(recordSize);
+            }
+            else
+            {
+                if (current != null) current.segment.garbageBytes.addAndGet(current.recordSize);
+
+                if (valueLength == TOMBSTONE)
+                {
+                    index.remove(key);
+                    tombstones.put(key, sequence);
+                    segment.garbageBytes.addAndGet(recordSize);
+                }
+                else
+                {
+                    int valueOffset = position + HEADER_SIZE + BODY_PREFIX_SIZE + keyLength;
+                    index.put(key, new Location(segment, position, recordSize, valueOffset, valueLength, sequence));
+                }
+            }
+
+            position += recordSize;
+            segment.writePosition = position;
+        }
+        return false;
+    }
+
+    private Segment append(byte[] record)
+    {
+        if (!active.hasRoom(record.length))
+        {
+            active.buffer.force();
+            active = createSegment(record.length);
+            maybeCompact();
+        }
+
+        active.append(record);
+        if (options.isSyncOnWrite()) active.buffer.force(active.writePosition - record.length, record.length);
+        return active;
+    }
+
+    /**
+     * Seals the active segment if it is mostly garbage, which would otherwise
+     * only be reclaimed once the segment is full.
+     */
+    private void sealIfGarbage()
+    {
+        long garbageBytes = active.garbageBytes.get();
+        if (garbageBytes < options.getSegmentSize() / 4 || garbageBytes < active.recordBytes.get() * options.getCompactionThreshold() || compactionLock.isLocked()) return;
+
+        active.buffer.force();
+        active = createSegment(0);
+        maybeCompact();
+    }
+
+    private void maybeCompact()
+    {
+        long recordBytes = 0, garbageBytes = 0;
+        for (Segment segment : segments.values())
+        {
+            if (segment == active) continue;
+            recordBytes += segment.recordBytes.get();
+            garbageBytes += segment.garbageBytes.get();
+        }
+
+        if (garbageBytes > 0 && garbageBytes >= recordBytes * options.getCompactionThreshold() && !compactionLock.isLocked())
+        {
+            Thread.ofVirtual().name("forge-store-compaction").start(this::compact);
+        }
+    }
+
+    private Segment createSegment(int minimumSize)
+    {
+        long id = nextSegmentId.getAndIncrement();
+        try
+        {
+            Segment segment = Segment.create(directory.resolve(String.format("%016d%s", id, SEGMENT_SUFFIX)), id, Math.max(options.getSegmentSize(), minimumSize));
+            segments.put(id, segment);
+            return segment;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Failed to create segment in module store " + directory, e);
+        }
+    }
+
+    private byte[] read(Location location)
+    {
+        byte[] value = new byte[location.valueLength];
+        location.segment.buffer.get(location.valueOffset, value);
+        return value;
+    }
+
+    private void ensureOpen()
+    {
+        if (closed) throw new IllegalStateException("Module store " + directory + " is closed");
+    }
+
+    private static byte[] encode(long sequence, byte[] key, byte[] value)
+    {
+        int bodyLength = BODY_PREFIX_SIZE + key.length + (value != null ? value.length : 0);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + bodyLength);
+        buffer.putInt(bodyLength).putInt(0).putLong(sequence).putInt(key.length).putInt(value != null ? value.length : TOMBSTONE).put(key);
+        if (value != null) buffer.put(value);
+
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), HEADER_SIZE, bodyLength);
+        buffer.putInt(4, (int) crc.getValue());
+        return buffer.array();
+    }
+
+    private record Location(Segment segment, int offset, int recordSize, int valueOffset, int valueLength, long sequence) { }
+
+    private static final class Segment
+    {
+        private final long id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final AtomicLong recordBytes = new AtomicLong();
+        private final AtomicLong garbageBytes = new AtomicLong();
+        private int writePosition;
+        private volatile long maxSequence = -1;
+
+        private Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer)
+        {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private static Segment create(Path path, long id, int size) throws IOException
+        {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        private static Segment open(Path path, long id) throws IOException
+        {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        }
+
+        private boolean hasRoom(int length)
+        {
+            return buffer.capacity() - writePosition >= length;
+        }
+
+        private void append(byte[] record)
+        {
+            buffer.put(writePosition, record);
+            writePosition += record.length;
+            recordBytes.addAndGet(record.length);
+        }
+
+        private void close()
+        {
+            try
+            {
+                channel.close();
+            }
+            catch (IOException e)
+            {
+                LOG.debug("Failed to close segment {}", path, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package design.ore.forge.api.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A key and its value, as returned by a range scan of an {@link design.ore.forge.api.interfaces.IModuleStore}.
+ *
+ * @since 0.4.0
+ */
+@AllArgsConstructor
+@Getter
+public class StoreEntry
+{
+    private final String key;
+    private final byte[] value;
+
+    public String getValueAsString()
+    {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
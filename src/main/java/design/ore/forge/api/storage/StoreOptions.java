@@ -0,0 +1,37 @@
+package design.ore.forge.api.storage;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Tuning options of a {@link LogStructuredStore}.
+ *
+ * @since 0.4.0
+ */
+@Getter
+@Builder
+public class StoreOptions
+{
+    public static final StoreOptions DEFAULT = StoreOptions.builder().build();
+
+    /**
+     * Size in bytes of each log segment file. Records larger than this get a segment of their own.
+     */
+    @Builder.Default
+    private int segmentSize = 64 * 1024 * 1024;
+
+    /**
+     * Whether every write is forced to disk before returning. When false,
+     * writes survive a crash of the JVM but not necessarily of the machine
+     * until {@link LogStructuredStore#sync()} is called.
+     */
+    @Builder.Default
+    private boolean syncOnWrite = false;
+
+    /**
+     * Fraction of overwritten or deleted bytes in sealed segments above which
+     * a background compaction is started.
+     */
+    @Builder.Default
+    private double compactionThreshold = 0.5;
+}
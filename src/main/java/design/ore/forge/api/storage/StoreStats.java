@@ -0,0 +1,19 @@
+package design.ore.forge.api.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Point-in-time statistics of a {@link LogStructuredStore}.
+ *
+ * @since 0.4.0
+ */
+@AllArgsConstructor
+@Getter
+public class StoreStats
+{
+    private final long keys;
+    private final int segments;
+    private final long recordBytes, garbageBytes;
+    private final long compactions;
+}
@@ -0,0 +1,358 @@
+package design.ore.forge.api.test;
+
+import design.ore.forge.api.annotations.EnableModuleJpa;
+import design.ore.forge.api.annotations.ForgeModule;
+import design.ore.forge.api.authentication.ForgeUserInfo;
+import design.ore.forge.api.authentication.ForgeUserUtils;
+import design.ore.forge.api.interfaces.IForgeModule;
+import design.ore.forge.api.interfaces.IModuleContext;
+import design.ore.forge.api.interfaces.IModuleSecurityConfiguration;
+import design.ore.forge.api.interfaces.IModuleSessionStore;
+import design.ore.forge.api.sessions.ModuleSessionFilter;
+import design.ore.forge.api.test.load.LoadTest;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.Getter;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.descriptor.web.FilterDef;
+import org.apache.tomcat.util.descriptor.web.FilterMap;
+import org.apache.tomcat.websocket.server.WsSci;
+import org.springframework.boot.env.PropertiesPropertySourceLoader;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Stand-in for the Forge host that runs a single module on an embedded
+ * Tomcat, so the module can be tested and load-tested locally.
+ * <p>
+ * The module is booted like the host boots it: its {@link ForgeModule}
+ * class is registered in a web application context together with its root
+ * package, {@code application.yml} or {@code application.properties} from
+ * the classpath is applied, a {@link TestModuleContext} is registered as the
+ * module's {@link IModuleContext} and {@link IForgeModule#initialize} is
+ * called once the context is refreshed. {@link EnableModuleJpa} modules get
+ * an in-memory H2 database in MySQL mode instead of the configured one.
+ * </p>
+ * <p>
+ * Authentication is not performed. Instead, every request carries the user
+ * chosen with {@link Builder#user(ForgeUserInfo)} or resolved by
+ * {@link Builder#users(Function)}, as the host's namespace filter would set it.
+ * If the module's security configuration provides a session store, sessions
+ * are kept in it as the host would keep them.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * try (ForgeTestHost host = ForgeTestHost.builder(ReportsModule.class)
+ *         .user(TestUsers.user("viewer@ore.design", "Reports Viewer", "reports.read"))
+ *         .property("reports.page-size", "50")
+ *         .start())
+ * {
+ *     LoadReport report = host.loadTest()
+ *         .endpoint("list", "GET", "/reports")
+ *         .endpoint("detail", "GET", "/reports/42")
+ *         .warmup(Duration.ofSeconds(5))
+ *         .closedLoop(16, Duration.ofSeconds(30));
+ *     System.out.println(report);
+ * }
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public class ForgeTestHost implements AutoCloseable
+{
+    @Getter private final Class<? extends IForgeModule> moduleClass;
+    @Getter private final ForgeModule module;
+    @Getter private final TestModuleContext moduleContext;
+    @Getter private final AnnotationConfigWebApplicationContext applicationContext;
+    private final Tomcat tomcat;
+    private final Path baseDirectory;
+    private final String contextPath;
+    private volatile Function<HttpServletRequest, ForgeUserInfo> users;
+    private IModuleSessionStore sessionStore;
+
+    private ForgeTestHost(Builder builder) throws IOException, LifecycleException
+    {
+        this.moduleClass = builder.moduleClass;
+        this.module = moduleClass.getAnnotation(ForgeModule.class);
+        if (module == null) throw new IllegalArgumentException(moduleClass.getName() + " is not annotated with @ForgeModule");
+        this.users = builder.users;
+        this.contextPath = builder.contextPath;
+
+        this.baseDirectory = Files.createTempDirectory("forge-test-" + module.value());
+        this.moduleContext = new TestModuleContext(module.value(), Files.createDirectories(baseDirectory.resolve("data")));
+        this.applicationContext = new AnnotationConfigWebApplicationContext();
+        this.tomcat = new Tomcat();
+
+        try
+        {
+            start(builder);
+        }
+        catch (IOException | LifecycleException | RuntimeException e)
+        {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param moduleClass the module to host
+     * @return a builder for a host running the module
+     */
+    public static Builder builder(Class<? extends IForgeModule> moduleClass)
+    {
+        return new Builder(moduleClass);
+    }
+
+    private void start(Builder builder) throws IOException, LifecycleException
+    {
+        tomcat.setBaseDir(baseDirectory.resolve("tomcat").toString());
+        tomcat.setPort(builder.port);
+        tomcat.getConnector();
+
+        Context servletContext = tomcat.addContext(contextPath, Files.createDirectories(baseDirectory.resolve("docs")).toString());
+        servletContext.addServletContainerInitializer(new WsSci(), null);
+        addSessionFilter(servletContext);
+        addUserFilter(servletContext);
+        tomcat.start();
+
+        // The context needs the servlet context while refreshing, so the module is booted once Tomcat runs
+        applicationContext.setServletContext(servletContext.getServletContext());
+        applicationContext.setDisplayName("Forge test host for " + module.value());
+        addPropertySources(applicationContext.getEnvironment().getPropertySources(), builder);
+        applicationContext.addBeanFactoryPostProcessor(beanFactory -> beanFactory.registerSingleton("moduleContext", moduleContext));
+        applicationContext.register(moduleClass);
+        if (!module.rootPackage().isEmpty()) applicationContext.scan(module.rootPackage());
+        applicationContext.refresh();
+
+        Wrapper dispatcher = Tomcat.addServlet(servletContext, "dispatcher", new DispatcherServlet(applicationContext));
+        dispatcher.setAsyncSupported(true);
+        servletContext.addServletMappingDecoded("/", "dispatcher");
+
+        applicationContext.getBean(moduleClass).initialize(moduleContext);
+    }
+
+    private void addSessionFilter(Context servletContext) throws IOException
+    {
+        Class<? extends IModuleSecurityConfiguration> configClass = module.securityConfigClass();
+        if (configClass == IModuleSecurityConfiguration.class) return;
+
+        IModuleSecurityConfiguration configuration;
+        try { configuration = configClass.getDeclaredConstructor().newInstance(); }
+        catch (ReflectiveOperationException e) { throw new IllegalStateException("Could not create " + configClass.getName(), e); }
+        if (configuration.sessionCreationPolicy() == SessionCreationPolicy.STATELESS) return;
+
+        sessionStore = configuration.sessionStore(moduleContext);
+        if (sessionStore == null) return;
+
+        FilterDef definition = new FilterDef();
+        definition.setFilterName("forgeModuleSessions");
+        definition.setFilter(new ModuleSessionFilter(sessionStore, "FORGE_SESSION_" + module.value()));
+        definition.setAsyncSupported("true");
+        servletContext.addFilterDef(definition);
+
+        FilterMap mapping = new FilterMap();
+        mapping.setFilterName("forgeModuleSessions");
+        mapping.addURLPattern("/*");
+        servletContext.addFilterMap(mapping);
+    }
+
+    private void addUserFilter(Context servletContext)
+    {
+        Filter filter = (ServletRequest request, ServletResponse response, FilterChain chain) ->
+        {
+            ForgeUserInfo user = users.apply((HttpServletRequest) request);
+            if (user != null) request.setAttribute(ForgeUserUtils.FORGE_USER_ATTRIBUTE, user);
+            chain.doFilter(request, response);
+        };
+
+        FilterDef definition = new FilterDef();
+        definition.setFilterName("forgeTestUser");
+        definition.setFilter(filter);
+        definition.setAsyncSupported("true");
+        servletContext.addFilterDef(definition);
+
+        FilterMap mapping = new FilterMap();
+        mapping.setFilterName("forgeTestUser");
+        mapping.addURLPattern("/*");
+        servletContext.addFilterMap(mapping);
+    }
+
+    private void addPropertySources(MutablePropertySources sources, Builder builder) throws IOException
+    {
+        Map<String, Object> overrides = new HashMap<>();
+        if (builder.embeddedDatabase && moduleClass.isAnnotationPresent(EnableModuleJpa.class))
+        {
+            overrides.put("jpa.url", "jdbc:h2:mem:" + module.value() + "-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+            overrides.put("jpa.username", "sa");
+            overrides.put("jpa.password", "");
+        }
+        overrides.putAll(builder.properties);
+        sources.addFirst(new MapPropertySource("forgeTestHost", overrides));
+
+        ClassLoader classLoader = moduleClass.getClassLoader();
+        Resource yaml = new ClassPathResource("application.yml", classLoader);
+        if (yaml.exists())
+        {
+            for (PropertySource<?> source : new YamlPropertySourceLoader().load("application.yml", yaml)) sources.addLast(source);
+        }
+        Resource properties = new ClassPathResource("application.properties", classLoader);
+        if (properties.exists())
+        {
+            for (PropertySource<?> source : new PropertiesPropertySourceLoader().load("application.properties", properties)) sources.addLast(source);
+        }
+    }
+
+    /**
+     * @return the URI of the module's root, without a trailing slash
+     */
+    public URI getBaseUri()
+    {
+        return URI.create("http://localhost:" + tomcat.getConnector().getLocalPort() + contextPath);
+    }
+
+    /**
+     * @return a load test against the module
+     */
+    public LoadTest loadTest()
+    {
+        return LoadTest.against(getBaseUri());
+    }
+
+    /**
+     * Changes the user passed with subsequent requests, or null for anonymous requests.
+     */
+    public void setUser(ForgeUserInfo user)
+    {
+        this.users = request -> user;
+    }
+
+    /**
+     * Stops the server and the module and deletes its data directory.
+     */
+    @Override
+    public void close()
+    {
+        try { tomcat.stop(); tomcat.destroy(); }
+        catch (LifecycleException e) { moduleContext.getLog().warn("Could not stop test host of module {}", module.value(), e); }
+
+        if (applicationContext.isActive()) applicationContext.close();
+        if (sessionStore != null) sessionStore.close();
+        moduleContext.close();
+
+        try (Stream<Path> paths = Files.walk(baseDirectory))
+        {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static class Builder
+    {
+        private final Class<? extends IForgeModule> moduleClass;
+        private final Map<String, Object> properties = new HashMap<>();
+        private Function<HttpServletRequest, ForgeUserInfo> users = request -> null;
+        private boolean embeddedDatabase = true;
+        private String contextPath = "";
+        private int port = 0;
+
+        private Builder(Class<? extends IForgeModule> moduleClass)
+        {
+            this.moduleClass = moduleClass;
+        }
+
+        /**
+         * Passes the user with every request. Requests are anonymous by default.
+         */
+        public Builder user(ForgeUserInfo user)
+        {
+            this.users = request -> user;
+            return this;
+        }
+
+        /**
+         * Resolves the user of each request, or null for an anonymous request,
+         * for example from a header set by a load test.
+         */
+        public Builder users(Function<HttpServletRequest, ForgeUserInfo> users)
+        {
+            this.users = users;
+            return this;
+        }
+
+        /**
+         * Sets a module property, overriding the module's own configuration.
+         */
+        public Builder property(String name, Object value)
+        {
+            properties.put(name, value);
+            return this;
+        }
+
+        /**
+         * Whether {@link EnableModuleJpa} modules get an in-memory H2 database
+         * instead of the one configured in {@code jpa.url}. Enabled by default.
+         */
+        public Builder embeddedDatabase(boolean embeddedDatabase)
+        {
+            this.embeddedDatabase = embeddedDatabase;
+            return this;
+        }
+
+        /**
+         * Serves the module under the path instead of the root, for example {@code /m/reports}.
+         */
+        public Builder contextPath(String contextPath)
+        {
+            this.contextPath = contextPath;
+            return this;
+        }
+
+        /**
+         * Listens on the port instead of a random free one.
+         */
+        public Builder port(int port)
+        {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Boots the module and starts serving it.
+         *
+         * @return the running host
+         */
+        public ForgeTestHost start() throws IOException, LifecycleException
+        {
+            return new ForgeTestHost(this);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package design.ore.forge.api.test;
+
+import ch.qos.logback.classic.Logger;
+import design.ore.forge.api.events.ModuleEventBus;
+import design.ore.forge.api.interfaces.IModuleConnectionPools;
+import design.ore.forge.api.interfaces.IModuleContext;
+import design.ore.forge.api.interfaces.IModuleEventBus;
+import design.ore.forge.api.interfaces.IModuleMetrics;
+import design.ore.forge.api.interfaces.IModuleScheduler;
+import design.ore.forge.api.interfaces.IModuleStore;
+import design.ore.forge.api.jpa.ConnectionPoolRegistry;
+import design.ore.forge.api.logging.ModuleLog;
+import design.ore.forge.api.logos.LogoPipeline;
+import design.ore.forge.api.metrics.ModuleMetricsRegistry;
+import design.ore.forge.api.metrics.ResourceAccountant;
+import design.ore.forge.api.registrations.AppletRegistration;
+import design.ore.forge.api.registrations.DownloadRegistration;
+import design.ore.forge.api.registrations.LinkRegistration;
+import design.ore.forge.api.registrations.RegistrationCatalog;
+import design.ore.forge.api.scheduling.ModuleTaskScheduler;
+import design.ore.forge.api.storage.LogStructuredStore;
+import design.ore.forge.api.storage.StoreOptions;
+import lombok.Getter;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * {@link IModuleContext} of a module running in a {@link ForgeTestHost},
+ * backed by the API's reference implementations.
+ * <p>
+ * Registrations are recorded instead of published, so tests can assert on
+ * them, and submitted to a {@link RegistrationCatalog} of their own to check
+ * what the launcher would show, with their logos run through a
+ * {@link LogoPipeline}. The module's store is opened in its data
+ * directory on first use.
+ * </p>
+ *
+ * @since 0.4.0
+ */
+public class TestModuleContext implements IModuleContext, AutoCloseable
+{
+    @Getter private final String moduleId;
+    private final Path dataDirectory;
+    private final Logger log;
+    private final ModuleLog moduleLog;
+    private final ModuleEventBus eventBus = new ModuleEventBus();
+    private final ModuleEventBus.ModuleScope moduleEventBus;
+    private final ConnectionPoolRegistry connectionPools = new ConnectionPoolRegistry();
+    private final ConnectionPoolRegistry.ModuleScope moduleConnectionPools;
+    private final ScheduledExecutorService timer;
+    private final ModuleTaskScheduler scheduler;
+    @Getter private final ModuleMetricsRegistry metricsRegistry;
+    private final ResourceAccountant resourceAccountant;
+    private volatile LogStructuredStore store;
+
+    @Getter private final List<AppletRegistration> applets = new CopyOnWriteArrayList<>();
+    @Getter private final List<LinkRegistration> externalLinks = new CopyOnWriteArrayList<>();
+    @Getter private final List<DownloadRegistration> downloads = new CopyOnWriteArrayList<>();
+    @Getter private final RegistrationCatalog catalog = new RegistrationCatalog();
+    @Getter private final LogoPipeline logoPipeline;
+
+    /**
+     * @param moduleId      the ID of the module
+     * @param dataDirectory the module's persistent data directory
+     */
+    public TestModuleContext(String moduleId, Path dataDirectory)
+    {
+        this.moduleId = moduleId;
+        this.dataDirectory = dataDirectory;
+        this.log = (Logger) LoggerFactory.getLogger("forge.module." + moduleId);
+        this.moduleLog = new ModuleLog(log);
+        this.moduleEventBus = eventBus.forModule(moduleId);
+        this.timer = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("forge-test-timer-" + moduleId).factory());
+        this.metricsRegistry = new ModuleMetricsRegistry(moduleId);
+        this.moduleConnectionPools = connectionPools.forModule(moduleId, metricsRegistry);
+        this.resourceAccountant = new ResourceAccountant(moduleId, metricsRegistry);
+        this.scheduler = new ModuleTaskScheduler(moduleId, timer, Runtime.getRuntime().availableProcessors(), resourceAccountant, metricsRegistry);
+        this.logoPipeline = new LogoPipeline(dataDirectory.resolve(LogoPipeline.LOGO_DIRECTORY),
+            Thread.currentThread().getContextClassLoader(), scheduler::execute);
+    }
+
+    @Override
+    public Logger getLog() { return log; }
+
+    @Override
+    public ModuleLog getModuleLog() { return moduleLog; }
+
+    @Override
+    public boolean isDebug() { return true; }
+
+    @Override
+    public File getModulePersistentDataDirectory() { return dataDirectory.toFile(); }
+
+    @Override
+    public void registerApplet(AppletRegistration registration)
+    {
+        applets.add(registration);
+        catalog.submit(moduleId, registration);
+        processLogo(registration.getLogoResourcePath());
+    }
+
+    @Override
+    public void registerExternalLink(LinkRegistration registration)
+    {
+        externalLinks.add(registration);
+        catalog.submit(moduleId, registration);
+    }
+
+    @Override
+    public void registerDownload(DownloadRegistration registration)
+    {
+        downloads.add(registration);
+        catalog.submit(moduleId, registration);
+        processLogo(registration.getLogoResourcePath());
+    }
+
+    private void processLogo(String logo)
+    {
+        logoPipeline.process(logo).thenAccept(variants -> catalog.attachLogoVariants(moduleId, logo, variants));
+    }
+
+    @Override
+    public IModuleEventBus getEventBus() { return moduleEventBus; }
+
+    @Override
+    public IModuleStore getModuleStore()
+    {
+        LogStructuredStore opened = store;
+        if (opened != null) return opened;
+
+        synchronized (this)
+        {
+            if (store == null)
+            {
+                try { store = LogStructuredStore.open(dataDirectory.resolve("store"), StoreOptions.DEFAULT); }
+                catch (IOException e) { throw new UncheckedIOException("Could not open store of module " + moduleId, e); }
+            }
+            return store;
+        }
+    }
+
+    @Override
+    public IModuleScheduler getScheduler() { return scheduler; }
+
+    @Override
+    public IModuleMetrics getMetrics() { return metricsRegistry; }
+
+    @Override
+    public IModuleConnectionPools getConnectionPools() { return moduleConnectionPools; }
+
+    @Override
+    public ResourceAccountant getResourceAccountant() { return resourceAccountant; }
+
+    @Override
+    public void close()
+    {
+        scheduler.close();
+        timer.shutdownNow();
+        moduleEventBus.close();
+        eventBus.close();
+        moduleConnectionPools.close();
+        connectionPools.close();
+        if (store != null) store.close();
+    }
+}
@@ -0,0 +1,62 @@
+package design.ore.forge.api.test;
+
+import design.ore.forge.api.authentication.ForgeRoleInfo;
+import design.ore.forge.api.authentication.ForgeUserInfo;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Factory for the users a {@link ForgeTestHost} passes to its module.
+ *
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * ForgeUserInfo viewer = TestUsers.user("viewer@ore.design", "Reports Viewer", "reports.read");
+ * ForgeUserInfo admin = TestUsers.withRoles("admin@ore.design",
+ *     TestUsers.role("Reports Admin", "reports.read", "reports.write"),
+ *     TestUsers.role("Administrator", "*"));
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public final class TestUsers
+{
+    private static final AtomicLong IDS = new AtomicLong();
+
+    private TestUsers()
+    {
+        throw new AssertionError("TestUsers is a utility class and should not be instantiated");
+    }
+
+    /**
+     * @param email       the user's email address, whose local part becomes the first name
+     * @param roleName    the name of the user's only role
+     * @param permissions the permissions of the role
+     * @return a user with a single role
+     */
+    public static ForgeUserInfo user(String email, String roleName, String... permissions)
+    {
+        return withRoles(email, role(roleName, permissions));
+    }
+
+    /**
+     * @param email the user's email address, whose local part becomes the first name
+     * @param roles the user's roles
+     * @return a user with the given roles
+     */
+    public static ForgeUserInfo withRoles(String email, ForgeRoleInfo... roles)
+    {
+        String name = email.contains("@") ? email.substring(0, email.indexOf('@')) : email;
+        return new ForgeUserInfo(IDS.incrementAndGet(), email, name, "Test", null, List.of(roles));
+    }
+
+    /**
+     * @param name        the name of the role
+     * @param permissions the permissions of the role
+     * @return a role with the given permissions
+     */
+    public static ForgeRoleInfo role(String name, String... permissions)
+    {
+        return new ForgeRoleInfo(IDS.incrementAndGet(), name, List.of(permissions));
+    }
+}
@@ -0,0 +1,38 @@
+package design.ore.forge.api.test.load;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * A request a {@link LoadTest} sends, reported under its name.
+ *
+ * @since 0.4.0
+ */
+@Builder
+@Getter
+public class Endpoint
+{
+    private final String name;
+
+    @Builder.Default
+    private final String method = "GET";
+
+    /**
+     * The path of the request, relative to the load test's base URI.
+     */
+    private final String path;
+
+    /**
+     * The request body, or null to send none.
+     */
+    private final byte[] body;
+
+    @Builder.Default
+    private final String contentType = "application/json";
+
+    /**
+     * The share of requests sent to this endpoint, relative to the weights of the other endpoints.
+     */
+    @Builder.Default
+    private final int weight = 1;
+}
@@ -0,0 +1,46 @@
+package design.ore.forge.api.test.load;
+
+import design.ore.forge.api.metrics.HistogramSnapshot;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Requests, errors and latency of one endpoint during the measured part of a
+ * load test. Errors are responses with a status of 400 or above and requests
+ * that failed or timed out; their latency is included.
+ *
+ * @since 0.4.0
+ */
+@AllArgsConstructor
+@Getter
+public class EndpointReport
+{
+    private final String name;
+    private final long requests, errors;
+
+    /**
+     * Completed requests per second.
+     */
+    private final double throughput;
+
+    private final HistogramSnapshot latency;
+
+    /**
+     * @param percentile the percentile, from 0 to 100
+     * @return the latency at the percentile
+     */
+    public Duration getLatencyAtPercentile(double percentile)
+    {
+        return Duration.ofNanos(latency.valueAtPercentile(percentile));
+    }
+
+    public Duration getP50() { return getLatencyAtPercentile(50); }
+
+    public Duration getP99() { return getLatencyAtPercentile(99); }
+
+    public Duration getP999() { return getLatencyAtPercentile(99.9); }
+
+    public Duration getMax() { return Duration.ofNanos(latency.getMax()); }
+}
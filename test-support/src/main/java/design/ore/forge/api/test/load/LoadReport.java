@@ -0,0 +1,74 @@
+package design.ore.forge.api.test.load;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Result of a {@link LoadTest}, per endpoint and across all endpoints.
+ * {@link #toString()} renders it as a table.
+ *
+ * @since 0.4.0
+ */
+@AllArgsConstructor
+@Getter
+public class LoadReport
+{
+    /**
+     * A description of the load, such as {@code closed loop, 16 clients}.
+     */
+    private final String load;
+
+    /**
+     * The length of the measured part of the test, excluding warmup.
+     */
+    private final Duration duration;
+
+    private final List<EndpointReport> endpoints;
+    private final EndpointReport total;
+
+    /**
+     * Requests of an open-loop test that were not sent because too many were in flight already.
+     */
+    private final long skipped;
+
+    /**
+     * @return the report of the endpoint with the name
+     * @throws IllegalArgumentException if the test had no such endpoint
+     */
+    public EndpointReport getEndpoint(String name)
+    {
+        return endpoints.stream()
+            .filter(endpoint -> endpoint.getName().equals(name))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("No endpoint named " + name));
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format(Locale.ROOT, "%s for %.1f s%s%n", load, duration.toNanos() / 1e9,
+            skipped > 0 ? ", " + skipped + " requests skipped" : ""));
+        table.append(String.format(Locale.ROOT, "%-24s %10s %8s %10s %10s %10s %10s %10s%n",
+            "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (EndpointReport endpoint : endpoints) row(table, endpoint);
+        if (endpoints.size() > 1) row(table, total);
+        return table.toString();
+    }
+
+    private static void row(StringBuilder table, EndpointReport endpoint)
+    {
+        table.append(String.format(Locale.ROOT, "%-24s %10d %8d %10.1f %10.3f %10.3f %10.3f %10.3f%n",
+            endpoint.getName(), endpoint.getRequests(), endpoint.getErrors(), endpoint.getThroughput(),
+            millis(endpoint.getP50()), millis(endpoint.getP99()), millis(endpoint.getP999()), millis(endpoint.getMax())));
+    }
+
+    private static double millis(Duration duration)
+    {
+        return duration.toNanos() / 1e6;
+    }
+}
@@ -0,0 +1,300 @@
+package design.ore.forge.api.test.load;
+
+import design.ore.forge.api.metrics.Counter;
+import design.ore.forge.api.metrics.HistogramSnapshot;
+import design.ore.forge.api.metrics.ModuleMetricsRegistry;
+import design.ore.forge.api.metrics.Timer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * HTTP load generator reporting throughput and latency percentiles per endpoint.
+ * <p>
+ * A closed-loop test runs a fixed number of clients that each send their
+ * next request as soon as the previous one completed, which measures the
+ * capacity of the module. An open-loop test sends requests at a fixed rate
+ * regardless of how fast they complete, as independent users do, and
+ * measures each latency from the time the request was due. A module that
+ * stalls therefore shows the stall in every request that had to wait for
+ * it, instead of in a single slow request.
+ * </p>
+ * <p>
+ * Endpoints are picked at random according to their weights. Requests sent
+ * during the warmup are not reported.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * LoadReport report = LoadTest.against(URI.create("http://localhost:8080/m/reports"))
+ *     .endpoint("list", "GET", "/reports")
+ *     .endpoint(Endpoint.builder().name("create").method("POST").path("/reports")
+ *         .body("{\"title\":\"Load\"}".getBytes()).weight(1).build())
+ *     .warmup(Duration.ofSeconds(5))
+ *     .openLoop(500, Duration.ofSeconds(60));
+ * assertTrue(report.getEndpoint("list").getP99().toMillis() < 50);
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public class LoadTest
+{
+    private final URI baseUri;
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private Duration warmup = Duration.ZERO;
+    private Duration timeout = Duration.ofSeconds(30);
+    private int maxInFlight = 10_000;
+
+    private LoadTest(URI baseUri)
+    {
+        String uri = baseUri.toString();
+        this.baseUri = URI.create(uri.endsWith("/") ? uri.substring(0, uri.length() - 1) : uri);
+    }
+
+    /**
+     * @param baseUri the URI endpoint paths are relative to
+     * @return a load test without endpoints
+     */
+    public static LoadTest against(URI baseUri)
+    {
+        return new LoadTest(baseUri);
+    }
+
+    public LoadTest endpoint(String name, String method, String path)
+    {
+        return endpoint(Endpoint.builder().name(name).method(method).path(path).build());
+    }
+
+    public LoadTest endpoint(Endpoint endpoint)
+    {
+        if (endpoint.getWeight() < 1) throw new IllegalArgumentException("Weight of endpoint " + endpoint.getName() + " must be positive");
+        if (endpoints.stream().anyMatch(existing -> existing.getName().equals(endpoint.getName())))
+        {
+            throw new IllegalArgumentException("Duplicate endpoint " + endpoint.getName());
+        }
+        endpoints.add(endpoint);
+        return this;
+    }
+
+    /**
+     * Sends the header with every request.
+     */
+    public LoadTest header(String name, String value)
+    {
+        headers.put(name, value);
+        return this;
+    }
+
+    /**
+     * Runs the load for this long before measuring, so the JIT and caches can warm up. None by default.
+     */
+    public LoadTest warmup(Duration warmup)
+    {
+        this.warmup = warmup;
+        return this;
+    }
+
+    /**
+     * Counts a request as an error if it takes longer than this. 30 seconds by default.
+     */
+    public LoadTest timeout(Duration timeout)
+    {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Limits the requests an open-loop test keeps in flight; further requests
+     * are skipped and counted in {@code LoadReport.getSkipped()}. 10,000 by default.
+     */
+    public LoadTest maxInFlight(int maxInFlight)
+    {
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    /**
+     * Runs clients that each send a request as soon as their previous one completed.
+     *
+     * @param clients  the number of concurrent clients
+     * @param duration the length of the measured part of the test
+     */
+    public LoadReport closedLoop(int clients, Duration duration) throws InterruptedException
+    {
+        try (Run run = new Run())
+        {
+            long end = run.measureStart + duration.toNanos();
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < clients; i++)
+            {
+                threads.add(Thread.ofVirtual().name("forge-load-client-" + i).start(() ->
+                {
+                    while (System.nanoTime() < end && !Thread.currentThread().isInterrupted()) run.send(System.nanoTime());
+                }));
+            }
+            for (Thread thread : threads) thread.join();
+            return run.report("closed loop, " + clients + " clients", duration, 0);
+        }
+    }
+
+    /**
+     * Sends requests at a fixed rate, measuring each latency from the time the request was due.
+     *
+     * @param requestsPerSecond the rate to send requests at
+     * @param duration          the length of the measured part of the test
+     */
+    public LoadReport openLoop(double requestsPerSecond, Duration duration) throws InterruptedException
+    {
+        try (Run run = new Run(); ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor())
+        {
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+            long start = run.measureStart - warmup.toNanos();
+            long end = run.measureStart + duration.toNanos();
+            AtomicInteger inFlight = new AtomicInteger();
+            long skipped = 0;
+
+            for (long i = 0; ; i++)
+            {
+                long due = start + i * interval;
+                if (due >= end) break;
+
+                long wait = due - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+                if (Thread.interrupted()) throw new InterruptedException();
+
+                if (inFlight.get() >= maxInFlight)
+                {
+                    if (due >= run.measureStart) skipped++;
+                    continue;
+                }
+                inFlight.incrementAndGet();
+                senders.execute(() ->
+                {
+                    try { run.send(due); }
+                    finally { inFlight.decrementAndGet(); }
+                });
+            }
+
+            senders.shutdown();
+            if (!senders.awaitTermination(timeout.toNanos() * 2, TimeUnit.NANOSECONDS)) senders.shutdownNow();
+            return run.report(String.format("open loop, %.1f requests/s", requestsPerSecond), duration, skipped);
+        }
+    }
+
+    /**
+     * State of a single test run.
+     */
+    private final class Run implements AutoCloseable
+    {
+        private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(timeout)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+        private final ModuleMetricsRegistry results = new ModuleMetricsRegistry("load-test");
+        private final Endpoint[] schedule;
+        private final Timer[] latencies;
+        private final Counter[] errors;
+        private final Timer totalLatency = results.timer("latency");
+        private final Counter totalErrors = results.counter("errors");
+        private final long measureStart;
+
+        private Run()
+        {
+            if (endpoints.isEmpty()) throw new IllegalStateException("No endpoints to load");
+
+            // Endpoints repeated by weight, so picking one is a single random index
+            List<Endpoint> weighted = new ArrayList<>();
+            for (Endpoint endpoint : endpoints)
+            {
+                for (int i = 0; i < endpoint.getWeight(); i++) weighted.add(endpoint);
+            }
+            schedule = weighted.toArray(Endpoint[]::new);
+
+            latencies = new Timer[schedule.length];
+            errors = new Counter[schedule.length];
+            for (int i = 0; i < schedule.length; i++)
+            {
+                latencies[i] = results.timer("latency", "endpoint", schedule[i].getName());
+                errors[i] = results.counter("errors", "endpoint", schedule[i].getName());
+            }
+            measureStart = System.nanoTime() + warmup.toNanos();
+        }
+
+        private void send(long due)
+        {
+            int index = ThreadLocalRandom.current().nextInt(schedule.length);
+            Endpoint endpoint = schedule[index];
+
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUri + endpoint.getPath())).timeout(timeout);
+            headers.forEach(request::header);
+            if (endpoint.getBody() != null)
+            {
+                request.header("Content-Type", endpoint.getContentType());
+                request.method(endpoint.getMethod(), HttpRequest.BodyPublishers.ofByteArray(endpoint.getBody()));
+            }
+            else request.method(endpoint.getMethod(), HttpRequest.BodyPublishers.noBody());
+
+            boolean failed;
+            try
+            {
+                failed = client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode() >= 400;
+            }
+            catch (IOException e)
+            {
+                failed = true;
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            if (due < measureStart) return;
+            long latency = System.nanoTime() - due;
+            latencies[index].record(latency);
+            totalLatency.record(latency);
+            if (failed)
+            {
+                errors[index].increment();
+                totalErrors.increment();
+            }
+        }
+
+        private LoadReport report(String load, Duration duration, long skipped)
+        {
+            double seconds = duration.toNanos() / 1e9;
+            List<EndpointReport> reports = new ArrayList<>();
+            for (Endpoint endpoint : endpoints)
+            {
+                HistogramSnapshot latency = results.timer("latency", "endpoint", endpoint.getName()).snapshot();
+                long errorCount = results.counter("errors", "endpoint", endpoint.getName()).count();
+                reports.add(new EndpointReport(endpoint.getName(), latency.getCount(), errorCount, latency.getCount() / seconds, latency));
+            }
+
+            HistogramSnapshot total = totalLatency.snapshot();
+            return new LoadReport(load, duration, reports,
+                new EndpointReport("total", total.getCount(), totalErrors.count(), total.getCount() / seconds, total), skipped);
+        }
+
+        @Override
+        public void close()
+        {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package design.ore.forge.api.test.mail;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * A message accepted by a {@link SmtpStandIn}.
+ *
+ * @since 0.4.0
+ */
+@AllArgsConstructor
+@Getter
+public class ReceivedMail
+{
+    /**
+     * The sequence number of the connection the message was sent over, starting at 1.
+     */
+    private final int connection;
+
+    private final String envelopeFrom;
+    private final List<String> envelopeRecipients;
+
+    /**
+     * The message as sent, with dot stuffing removed.
+     */
+    private final byte[] content;
+
+    /**
+     * @return the message parsed as MIME
+     */
+    public MimeMessage toMimeMessage()
+    {
+        try { return new MimeMessage(Session.getInstance(new Properties()), new ByteArrayInputStream(content)); }
+        catch (MessagingException e) { throw new IllegalStateException("Received message is not valid MIME", e); }
+    }
+
+    /**
+     * @return the subject of the message
+     */
+    public String getSubject()
+    {
+        try { return toMimeMessage().getSubject(); }
+        catch (MessagingException e) { throw new IllegalStateException(e); }
+    }
+}
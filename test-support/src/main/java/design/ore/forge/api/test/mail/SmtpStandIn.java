@@ -0,0 +1,298 @@
+package design.ore.forge.api.test.mail;
+
+import lombok.Getter;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local SMTP server that records the messages it accepts, for testing mail
+ * delivery without a real server.
+ * <p>
+ * It speaks enough SMTP for Jakarta Mail, keeps connections open across
+ * messages, and can be told to fail temporarily, reject recipients or
+ * respond slowly, to exercise retries and timeouts.
+ * </p>
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * try (SmtpStandIn smtp = SmtpStandIn.start();
+ *      ForgeTestHost host = ForgeTestHost.builder(MyModule.class)
+ *          .property("mail.host", "127.0.0.1")
+ *          .property("mail.port", Integer.toString(smtp.getPort()))
+ *          .start())
+ * {
+ *     smtp.failNextMessages(2);
+ *     // ... trigger mail ...
+ *     List<ReceivedMail> received = smtp.awaitMessages(1, Duration.ofSeconds(30));
+ * }
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public class SmtpStandIn implements AutoCloseable
+{
+    private final ServerSocket server;
+    private final List<ReceivedMail> messages = new CopyOnWriteArrayList<>();
+    private final Set<String> rejectedRecipients = ConcurrentHashMap.newKeySet();
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger connections = new AtomicInteger();
+    private volatile Duration responseDelay = Duration.ZERO;
+
+    @Getter private final int port;
+
+    private SmtpStandIn(ServerSocket server)
+    {
+        this.server = server;
+        this.port = server.getLocalPort();
+        Thread.ofPlatform().daemon().name("smtp-stand-in-" + port).start(this::accept);
+    }
+
+    /**
+     * @return a stand-in listening on a free port of the loopback interface
+     */
+    public static SmtpStandIn start() throws IOException
+    {
+        return new SmtpStandIn(new ServerSocket(0, 50, InetAddress.getLoopbackAddress()));
+    }
+
+    /**
+     * @return the messages accepted so far, in order
+     */
+    public List<ReceivedMail> getMessages()
+    {
+        return List.copyOf(messages);
+    }
+
+    /**
+     * @return the number of connections accepted so far
+     */
+    public int getConnectionCount()
+    {
+        return connections.get();
+    }
+
+    /**
+     * Waits until at least a number of messages were accepted.
+     *
+     * @param count   the number of messages
+     * @param timeout the maximum time to wait
+     * @return the messages accepted so far
+     * @throws AssertionError if fewer messages were accepted in time
+     */
+    public List<ReceivedMail> awaitMessages(int count, Duration timeout) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (messages.size() < count)
+        {
+            if (System.nanoTime() > deadline) throw new AssertionError("Expected " + count + " messages, received " + messages.size());
+            Thread.sleep(10);
+        }
+        return getMessages();
+    }
+
+    /**
+     * Answers the next messages with a temporary failure ({@code 451}) instead of accepting them.
+     *
+     * @param count the number of messages to fail
+     */
+    public void failNextMessages(int count)
+    {
+        failures.set(count);
+    }
+
+    /**
+     * Rejects a recipient permanently ({@code 550}).
+     *
+     * @param address the address to reject
+     */
+    public void rejectRecipient(String address)
+    {
+        rejectedRecipients.add(address.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Delays every response, to simulate a slow server.
+     *
+     * @param delay the delay
+     */
+    public void setResponseDelay(Duration delay)
+    {
+        this.responseDelay = delay;
+    }
+
+    /**
+     * Forgets the messages accepted so far.
+     */
+    public void clear()
+    {
+        messages.clear();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        server.close();
+        for (Socket socket : sockets) socket.close();
+    }
+
+    private void accept()
+    {
+        while (!server.isClosed())
+        {
+            try
+            {
+                Socket socket = server.accept();
+                int connection = connections.incrementAndGet();
+                sockets.add(socket);
+                Thread.ofVirtual().name("smtp-stand-in-" + port + "-" + connection).start(() -> serve(socket, connection));
+            }
+            catch (IOException e)
+            {
+                // Closed
+            }
+        }
+    }
+
+    private void serve(Socket socket, int connection)
+    {
+        try (socket)
+        {
+            InputStream input = new BufferedInputStream(socket.getInputStream());
+            OutputStream output = socket.getOutputStream();
+            reply(output, "220 forge-test ESMTP");
+
+            String from = null;
+            List<String> recipients = new ArrayList<>();
+            String line;
+            while ((line = readLine(input)) != null)
+            {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase(Locale.ROOT) : line.toUpperCase(Locale.ROOT);
+                switch (command)
+                {
+                    case "EHLO" -> reply(output, "250-forge-test\r\n250-8BITMIME\r\n250 PIPELINING");
+                    case "HELO", "NOOP" -> reply(output, "250 OK");
+                    case "MAIL" ->
+                    {
+                        from = address(line);
+                        recipients.clear();
+                        reply(output, "250 OK");
+                    }
+                    case "RCPT" ->
+                    {
+                        String recipient = address(line);
+                        if (rejectedRecipients.contains(recipient.toLowerCase(Locale.ROOT))) reply(output, "550 No such user " + recipient);
+                        else
+                        {
+                            recipients.add(recipient);
+                            reply(output, "250 OK");
+                        }
+                    }
+                    case "DATA" ->
+                    {
+                        if (recipients.isEmpty())
+                        {
+                            reply(output, "554 No valid recipients");
+                            continue;
+                        }
+                        reply(output, "354 End data with <CR><LF>.<CR><LF>");
+                        byte[] content = readData(input);
+                        if (failures.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) reply(output, "451 Try again later");
+                        else
+                        {
+                            messages.add(new ReceivedMail(connection, from, List.copyOf(recipients), content));
+                            reply(output, "250 OK");
+                        }
+                        from = null;
+                        recipients.clear();
+                    }
+                    case "RSET" ->
+                    {
+                        from = null;
+                        recipients.clear();
+                        reply(output, "250 OK");
+                    }
+                    case "QUIT" ->
+                    {
+                        reply(output, "221 Bye");
+                        return;
+                    }
+                    default -> reply(output, "502 Command not implemented");
+                }
+            }
+        }
+        catch (SocketException e)
+        {
+            // Closed by either side
+        }
+        catch (IOException | InterruptedException e)
+        {
+            // The client sees the connection drop, which is all a test can observe
+        }
+        finally
+        {
+            sockets.remove(socket);
+        }
+    }
+
+    private void reply(OutputStream output, String response) throws IOException, InterruptedException
+    {
+        if (!responseDelay.isZero()) Thread.sleep(responseDelay);
+        output.write((response + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        output.flush();
+    }
+
+    private static String address(String line)
+    {
+        int start = line.indexOf('<'), end = line.indexOf('>');
+        return start >= 0 && end > start ? line.substring(start + 1, end) : line.substring(line.indexOf(':') + 1).trim();
+    }
+
+    private static String readLine(InputStream input) throws IOException
+    {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = input.read()) >= 0)
+        {
+            if (b == '\n') return line.toString(StandardCharsets.ISO_8859_1).stripTrailing();
+            line.write(b);
+        }
+        return line.size() > 0 ? line.toString(StandardCharsets.ISO_8859_1) : null;
+    }
+
+    private static byte[] readData(InputStream input) throws IOException
+    {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = input.read()) >= 0)
+        {
+            line.write(b);
+            if (b != '\n') continue;
+
+            byte[] bytes = line.toByteArray();
+            line.reset();
+            if (bytes.length == 3 && bytes[0] == '.' && bytes[1] == '\r') return content.toByteArray();
+            // Removes the dot the client added to lines starting with a dot
+            int offset = bytes[0] == '.' ? 1 : 0;
+            content.write(bytes, offset, bytes.length - offset);
+        }
+        throw new IOException("Connection closed during DATA");
+    }
+}